@@ -788,6 +788,14 @@ public class BuildManager implements ApplicationComponent{
     if (shouldGenerateIndex != null) {
       cmdLine.addParameter("-D"+ GlobalOptions.GENERATE_CLASSPATH_INDEX_OPTION +"=" + shouldGenerateIndex);
     }
+    final String traceDir = System.getProperty(GlobalOptions.BUILD_TRACE_DIR_OPTION);
+    if (traceDir != null) {
+      cmdLine.addParameter("-D"+ GlobalOptions.BUILD_TRACE_DIR_OPTION +"=" + FileUtil.toSystemIndependentName(traceDir));
+    }
+    final String hardLinks = System.getProperty(GlobalOptions.RESOURCES_HARD_LINKS_OPTION);
+    if (hardLinks != null) {
+      cmdLine.addParameter("-D"+ GlobalOptions.RESOURCES_HARD_LINKS_OPTION +"=" + hardLinks);
+    }
     cmdLine.addParameter("-D"+ GlobalOptions.COMPILE_PARALLEL_OPTION +"=" + Boolean.toString(config.PARALLEL_COMPILATION));
     cmdLine.addParameter("-D"+ GlobalOptions.REBUILD_ON_DEPENDENCY_CHANGE_OPTION + "=" + Boolean.toString(config.REBUILD_ON_DEPENDENCY_CHANGE));
 
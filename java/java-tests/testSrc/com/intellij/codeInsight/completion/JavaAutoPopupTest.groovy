@@ -19,6 +19,7 @@ import com.intellij.codeInsight.TargetElementUtil
 import com.intellij.codeInsight.completion.impl.CompletionServiceImpl
 import com.intellij.codeInsight.editorActions.CompletionAutoPopupHandler
 import com.intellij.codeInsight.lookup.Lookup
+import com.intellij.codeInsight.lookup.LookupElementBuilder
 import com.intellij.codeInsight.lookup.LookupElementPresentation
 import com.intellij.codeInsight.lookup.LookupManager
 import com.intellij.codeInsight.lookup.impl.LookupImpl
@@ -46,6 +47,8 @@ import com.intellij.psi.PsiFile
 import com.intellij.psi.PsiJavaFile
 import com.intellij.psi.statistics.StatisticsManager
 import com.intellij.psi.statistics.impl.StatisticsManagerImpl
+
+import java.util.concurrent.atomic.AtomicInteger
 /**
  * @author peter
  */
@@ -535,6 +538,51 @@ public interface Test {
     }
   }
 
+  static class PrefixEchoContributor extends CompletionContributor {
+    static final AtomicInteger ourRuns = new AtomicInteger()
+
+    @Override
+    void fillCompletionVariants(CompletionParameters parameters, CompletionResultSet result) {
+      def prefix = result.prefixMatcher.prefix
+      if (!prefix.startsWith('qq')) return
+
+      ourRuns.incrementAndGet()
+      result.restartCompletionWhenNothingMatches()
+      // two items, so that the only one isn't inserted right away
+      result.addElement(LookupElementBuilder.create(prefix + 'Echo'))
+      result.addElement(LookupElementBuilder.create(prefix + 'Echo2'))
+      for (i in 0..<50) {
+        Thread.sleep 10
+        ProgressManager.checkCanceled()
+      }
+    }
+  }
+
+  public void testTypingWithoutMatchesRestartsCompletionOnceCalculated() {
+    registerContributor(PrefixEchoContributor)
+    PrefixEchoContributor.ourRuns.set(0)
+
+    myFixture.configureByText "a.java", "class Foo {{ qq<caret> }}"
+    myFixture.completeBasic()
+    while (!lookup?.shown) {
+      Thread.sleep(1)
+    }
+    edt {
+      assert lookup.calculating
+      myFixture.type 'x'
+      assert !lookup.items
+      myFixture.type 'y'
+      myFixture.type 'z'
+    }
+    joinCompletion()
+    joinAutopopup()
+    joinCompletion()
+
+    assert PrefixEchoContributor.ourRuns.get() == 2
+    assert lookup
+    assert lookup.items.collect { it.lookupString } as Set == ['qqxyzEcho', 'qqxyzEcho2'] as Set
+  }
+
   public void testDuringCompletionMustFinish() {
     registerContributor(LongReplacementOffsetContributor)
 
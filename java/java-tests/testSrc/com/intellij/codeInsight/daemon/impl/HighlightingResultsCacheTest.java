@@ -0,0 +1,140 @@
+/*
+ * Copyright 2000-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intellij.codeInsight.daemon.impl;
+
+import com.intellij.codeHighlighting.Pass;
+import com.intellij.codeInsight.daemon.DaemonCodeAnalyzer;
+import com.intellij.codeInsight.daemon.LightDaemonAnalyzerTestCase;
+import com.intellij.codeInspection.LocalInspectionTool;
+import com.intellij.codeInspection.sillyAssignment.SillyAssignmentInspection;
+import com.intellij.lang.annotation.HighlightSeverity;
+import com.intellij.openapi.editor.Document;
+import com.intellij.openapi.editor.impl.DocumentMarkupModel;
+import com.intellij.openapi.util.Disposer;
+import com.intellij.util.Processor;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+public class HighlightingResultsCacheTest extends LightDaemonAnalyzerTestCase {
+  private static final String TEXT = "class A { void f(int i) { String s = 1; i = i; } }";
+
+  private HighlightingResultsCache myCache;
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    HighlightingResultsCache.setEnabledInTests(true);
+    myCache = new HighlightingResultsCache(getProject());
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    try {
+      Disposer.dispose(myCache);
+      HighlightingResultsCache.setEnabledInTests(false);
+    }
+    finally {
+      super.tearDown();
+    }
+  }
+
+  @Override
+  protected LocalInspectionTool[] configureLocalInspectionTools() {
+    return new LocalInspectionTool[]{new SillyAssignmentInspection()};
+  }
+
+  public void testResultsAreRestored() throws Exception {
+    configureFromFileText(getTestName(false) + ".java", TEXT);
+    List<String> expected = getProblems(doHighlighting());
+    assertEquals(2, expected.size());
+    myCache.saveResults(getVFile(), true);
+
+    clearHighlighting();
+    myCache.restoreResults(getVFile());
+    assertEquals(expected, getProblems(getDocumentHighlights()));
+  }
+
+  public void testResultsAreNotRestoredForChangedText() throws Exception {
+    configureFromFileText(getTestName(false) + ".java", TEXT);
+    doHighlighting();
+    myCache.saveResults(getVFile(), true);
+
+    type(' ');
+    clearHighlighting();
+    myCache.restoreResults(getVFile());
+    assertEmpty(getDocumentHighlights());
+  }
+
+  public void testResultsOfPassesWhichDontRunAreNotRestored() throws Exception {
+    configureFromFileText(getTestName(false) + ".java", TEXT);
+    doHighlighting();
+    myCache.saveResults(getVFile(), true);
+
+    clearHighlighting();
+    getFileStatusMap().markFileUpToDate(getEditor().getDocument(), Pass.LOCAL_INSPECTIONS);
+    myCache.restoreResults(getVFile());
+    List<HighlightInfo> infos = getDocumentHighlights();
+    assertEquals(1, infos.size());
+    assertEquals(Pass.UPDATE_ALL, infos.get(0).getGroup());
+    assertEquals(HighlightSeverity.ERROR, infos.get(0).getSeverity());
+  }
+
+  public void testUnfinishedResultsAreNotSaved() throws Exception {
+    configureFromFileText(getTestName(false) + ".java", TEXT);
+    myCache.saveResults(getVFile(), true);
+
+    clearHighlighting();
+    myCache.restoreResults(getVFile());
+    assertEmpty(getDocumentHighlights());
+  }
+
+  private static FileStatusMap getFileStatusMap() {
+    return ((DaemonCodeAnalyzerImpl)DaemonCodeAnalyzer.getInstance(getProject())).getFileStatusMap();
+  }
+
+  // the state of a file opened after the restart: no highlights and nothing analyzed yet
+  private static void clearHighlighting() {
+    Document document = getEditor().getDocument();
+    DocumentMarkupModel.forDocument(document, getProject(), true).removeAllHighlighters();
+    getFileStatusMap().markAllFilesDirty();
+  }
+
+  private static List<HighlightInfo> getDocumentHighlights() {
+    Document document = getEditor().getDocument();
+    final List<HighlightInfo> infos = new ArrayList<HighlightInfo>();
+    DaemonCodeAnalyzerImpl.processHighlights(document, getProject(), null, 0, document.getTextLength(), new Processor<HighlightInfo>() {
+      @Override
+      public boolean process(HighlightInfo info) {
+        infos.add(info);
+        return true;
+      }
+    });
+    return infos;
+  }
+
+  private static List<String> getProblems(List<HighlightInfo> infos) {
+    List<String> problems = new ArrayList<String>();
+    for (HighlightInfo info : infos) {
+      if (info.getSeverity().compareTo(HighlightSeverity.INFORMATION) > 0) {
+        problems.add(info.getGroup() + ":" + info.getSeverity() + ":" + info.getActualStartOffset() + ":" + info.getDescription());
+      }
+    }
+    Collections.sort(problems);
+    return problems;
+  }
+}
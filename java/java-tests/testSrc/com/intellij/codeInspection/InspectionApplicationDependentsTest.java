@@ -0,0 +1,49 @@
+/*
+ * Copyright 2000-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intellij.codeInspection;
+
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.testFramework.fixtures.LightCodeInsightFixtureTestCase;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+public class InspectionApplicationDependentsTest extends LightCodeInsightFixtureTestCase {
+  public void testFilesUsingChangedFileAreSelected() {
+    VirtualFile changed = addFile("p/A.java", "package p; public class A {} class Helper {}");
+    VirtualFile usesFile = addFile("p/B.java", "package p; class B { A a; }");
+    VirtualFile usesDeclaration = addFile("p/C.java", "package p; class C { Helper h; }");
+    addFile("p/D.java", "package p; class D { void f() { int A = 0; } }");
+    addFile("p/E.java", "package p; class E { /* A */ String s = \"A\"; }");
+    addFile("q/F.java", "package q; class F { A a; }");
+
+    Set<VirtualFile> dependents = InspectionApplication.findDependents(getProject(), Collections.singleton(changed));
+    assertEquals(new HashSet<VirtualFile>(Arrays.asList(usesFile, usesDeclaration)), dependents);
+  }
+
+  public void testUnusedFileHasNoDependents() {
+    VirtualFile changed = addFile("p/A.java", "package p; public class A {}");
+    addFile("p/B.java", "package p; class B {}");
+
+    assertEmpty(InspectionApplication.findDependents(getProject(), Collections.singleton(changed)));
+  }
+
+  private VirtualFile addFile(String path, String text) {
+    return myFixture.addFileToProject(path, text).getVirtualFile();
+  }
+}
@@ -27,4 +27,12 @@ public interface GlobalOptions {
   String COMPILE_PARALLEL_MAX_THREADS_OPTION = "compile.parallel.max.threads";
   String REBUILD_ON_DEPENDENCY_CHANGE_OPTION = "rebuild.on.dependency.change";
   String LOG_DIR_OPTION = "log.dir";
+  /**
+   * Directory where build trace files (chrome://tracing format) should be written; tracing is disabled if not specified
+   */
+  String BUILD_TRACE_DIR_OPTION = "build.trace.dir";
+  /**
+   * If true, resources are hard-linked to output directories instead of being copied when possible
+   */
+  String RESOURCES_HARD_LINKS_OPTION = "compile.resources.hard.links";
 }
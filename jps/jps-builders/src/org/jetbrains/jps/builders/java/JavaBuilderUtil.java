@@ -93,10 +93,17 @@ public class JavaBuilderUtil {
           affectedBeforeDif.addAll(allAffectedFiles);
 
           final ModulesBasedFileFilter moduleBasedFilter = new ModulesBasedFileFilter(context, chunk);
-          final boolean incremental = globalMappings.differentiateOnIncrementalMake(
-            delta, removedPaths, filesToCompile, allCompiledFiles, allAffectedFiles, moduleBasedFilter,
-            CONSTANT_SEARCH_SERVICE.get(context)
-          );
+          final boolean incremental;
+          final Runnable differentiateSpan = BuildTrace.startSpan(BuildTrace.CATEGORY_DEPENDENCIES, "Differentiate [" + chunk.getName() + "]");
+          try {
+            incremental = globalMappings.differentiateOnIncrementalMake(
+              delta, removedPaths, filesToCompile, allCompiledFiles, allAffectedFiles, moduleBasedFilter,
+              CONSTANT_SEARCH_SERVICE.get(context)
+            );
+          }
+          finally {
+            differentiateSpan.run();
+          }
 
           if (LOG.isDebugEnabled()) {
             LOG.debug("Differentiate Results:");
@@ -174,7 +181,13 @@ public class JavaBuilderUtil {
 
       context.processMessage(new ProgressMessage("Updating dependency information... [" + chunk.getName() + "]"));
 
-      globalMappings.integrate(delta);
+      final Runnable integrateSpan = BuildTrace.startSpan(BuildTrace.CATEGORY_DEPENDENCIES, "Integrate [" + chunk.getName() + "]");
+      try {
+        globalMappings.integrate(delta);
+      }
+      finally {
+        integrateSpan.run();
+      }
 
       return additionalPassRequired;
     }
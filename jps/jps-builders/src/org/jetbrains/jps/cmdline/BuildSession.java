@@ -31,6 +31,7 @@ import org.jetbrains.jps.api.*;
 import org.jetbrains.jps.builders.*;
 import org.jetbrains.jps.builders.java.JavaModuleBuildTargetType;
 import org.jetbrains.jps.builders.java.dependencyView.Callbacks;
+import org.jetbrains.jps.incremental.BuildTrace;
 import org.jetbrains.jps.incremental.MessageHandler;
 import org.jetbrains.jps.incremental.TargetTypeRegistry;
 import org.jetbrains.jps.TimingLog;
@@ -103,6 +104,8 @@ final class BuildSession implements Runnable, CanceledStatus {
     Throwable error = null;
     final Ref<Boolean> hasErrors = new Ref<Boolean>(false);
     final Ref<Boolean> doneSomething = new Ref<Boolean>(false);
+    BuildTrace.sessionStarted();
+    final Runnable sessionSpan = BuildTrace.startSpan(BuildTrace.CATEGORY_SESSION, "Build session");
     try {
       ProfilingHelper profilingHelper = null;
       if (Utils.IS_PROFILING_MODE) {
@@ -165,6 +168,8 @@ final class BuildSession implements Runnable, CanceledStatus {
       error = e;
     }
     finally {
+      sessionSpan.run();
+      BuildTrace.sessionFinished();
       finishBuild(error, hasErrors.get(), doneSomething.get());
     }
   }
@@ -194,7 +199,14 @@ final class BuildSession implements Runnable, CanceledStatus {
 
     final BuildFSState fsState = new BuildFSState(false);
     try {
-      final ProjectDescriptor pd = myBuildRunner.load(msgHandler, dataStorageRoot, fsState);
+      final Runnable loadSpan = BuildTrace.startSpan(BuildTrace.CATEGORY_SESSION, "Loading project");
+      final ProjectDescriptor pd;
+      try {
+        pd = myBuildRunner.load(msgHandler, dataStorageRoot, fsState);
+      }
+      finally {
+        loadSpan.run();
+      }
       TimingLog.LOG.debug("Project descriptor loaded");
       myProjectDescriptor = pd;
       if (fsStateStream != null) {
@@ -18,9 +18,12 @@ package org.jetbrains.jps.cmdline;
 import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.util.ParameterizedRunnable;
 import org.jetbrains.annotations.Nullable;
+import org.jetbrains.jps.incremental.Utils;
 import org.jetbrains.jps.model.JpsModel;
 import org.jetbrains.jps.model.serialization.JpsSerializationManager;
+import org.jetbrains.jps.model.serialization.JpsXmlDocumentCache;
 
+import java.io.File;
 import java.io.IOException;
 
 /**
@@ -28,6 +31,7 @@ import java.io.IOException;
  */
 public class JpsModelLoaderImpl implements JpsModelLoader {
   private static final Logger LOG = Logger.getInstance("#org.jetbrains.jps.cmdline.JpsModelLoaderImpl");
+  private static final String MODEL_SNAPSHOT_FILE_NAME = "model-snapshot.dat";
   private final String myProjectPath;
   private final String myGlobalOptionsPath;
   private final ParameterizedRunnable<JpsModel> myModelInitializer;
@@ -42,7 +46,9 @@ public class JpsModelLoaderImpl implements JpsModelLoader {
   public JpsModel loadModel() throws IOException {
     final long start = System.currentTimeMillis();
     LOG.info("Loading model: project path = " + myProjectPath + ", global options path = " + myGlobalOptionsPath);
-    final JpsModel model = JpsSerializationManager.getInstance().loadModel(myProjectPath, myGlobalOptionsPath);
+    final JpsXmlDocumentCache documentCache = JpsXmlDocumentCache.load(new File(Utils.getDataStorageRoot(myProjectPath), MODEL_SNAPSHOT_FILE_NAME));
+    final JpsModel model = JpsSerializationManager.getInstance().loadModel(myProjectPath, myGlobalOptionsPath, documentCache);
+    documentCache.save();
     if (myModelInitializer != null) {
       myModelInitializer.run(model);
     }
@@ -0,0 +1,213 @@
+/*
+ * Copyright 2000-2012 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jetbrains.jps.incremental;
+
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.util.EmptyRunnable;
+import com.intellij.openapi.util.io.FileUtil;
+import com.intellij.openapi.util.text.StringUtil;
+import gnu.trove.TLongHashSet;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.annotations.TestOnly;
+import org.jetbrains.jps.api.GlobalOptions;
+
+import java.io.*;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Records durations of build activities and writes them in the Trace Event format understood by chrome://tracing.
+ * Recording is enabled by the {@link GlobalOptions#BUILD_TRACE_DIR_OPTION} system property, otherwise all calls are no-op.
+ *
+ * Usage:
+ * <pre>
+ *   final Runnable span = BuildTrace.startSpan(BuildTrace.CATEGORY_BUILDER, builderName);
+ *   try {
+ *     ...
+ *   }
+ *   finally {
+ *     span.run();
+ *   }
+ * </pre>
+ */
+public class BuildTrace {
+  private static final Logger LOG = Logger.getInstance("#org.jetbrains.jps.incremental.BuildTrace");
+
+  public static final String CATEGORY_SESSION = "session";
+  public static final String CATEGORY_TARGET = "target";
+  public static final String CATEGORY_BUILDER = "builder";
+  public static final String CATEGORY_COMPILER = "compiler";
+  public static final String CATEGORY_DEPENDENCIES = "dependencies";
+  public static final String CATEGORY_STORAGE = "storage";
+
+  @Nullable
+  private static volatile File ourTraceDir = getTraceDir();
+
+  private static final Queue<Event> ourEvents = new ConcurrentLinkedQueue<Event>();
+  private static volatile long ourSessionStartNanos = System.nanoTime();
+
+  private BuildTrace() {
+  }
+
+  @Nullable
+  private static File getTraceDir() {
+    final String path = System.getProperty(GlobalOptions.BUILD_TRACE_DIR_OPTION);
+    return StringUtil.isEmptyOrSpaces(path)? null : new File(path);
+  }
+
+  public static boolean isEnabled() {
+    return ourTraceDir != null;
+  }
+
+  @TestOnly
+  static void setTraceDir(@Nullable File traceDir) {
+    ourTraceDir = traceDir;
+    ourEvents.clear();
+  }
+
+  /**
+   * @return a runnable that must be invoked when the activity is finished
+   */
+  @NotNull
+  public static Runnable startSpan(@NotNull final String category, @NotNull final String name) {
+    if (!isEnabled()) {
+      return EmptyRunnable.INSTANCE;
+    }
+    final Thread thread = Thread.currentThread();
+    final long start = System.nanoTime();
+    return new Runnable() {
+      @Override
+      public void run() {
+        ourEvents.add(new Event(category, name, thread.getId(), thread.getName(), start, System.nanoTime()));
+      }
+    };
+  }
+
+  public static void sessionStarted() {
+    if (isEnabled()) {
+      ourEvents.clear();
+      ourSessionStartNanos = System.nanoTime();
+    }
+  }
+
+  /**
+   * Writes all events recorded since the last {@link #sessionStarted()} call to a new file in the trace directory
+   * @return the written file or null if tracing is disabled or nothing was recorded
+   */
+  @Nullable
+  public static File sessionFinished() {
+    final File traceDir = ourTraceDir;
+    if (traceDir == null) {
+      return null;
+    }
+    final List<Event> events = new ArrayList<Event>(ourEvents);
+    ourEvents.clear();
+    if (events.isEmpty()) {
+      return null;
+    }
+    final File file = new File(traceDir, "build-trace-" + new SimpleDateFormat("yyyyMMdd-HHmmss-SSS").format(new Date()) + ".json");
+    try {
+      FileUtil.createParentDirs(file);
+      final Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), "UTF-8"));
+      try {
+        writeEvents(writer, events, ourSessionStartNanos);
+      }
+      finally {
+        writer.close();
+      }
+      LOG.info("Build trace written to " + file.getPath());
+      return file;
+    }
+    catch (IOException e) {
+      LOG.info("Failed to write build trace to " + file.getPath(), e);
+      return null;
+    }
+  }
+
+  private static void writeEvents(Writer writer, List<Event> events, long sessionStart) throws IOException {
+    writer.write("{\"traceEvents\":[\n");
+    final TLongHashSet namedThreads = new TLongHashSet();
+    boolean first = true;
+    for (Event event : events) {
+      if (namedThreads.add(event.threadId)) {
+        if (!first) {
+          writer.write(",\n");
+        }
+        first = false;
+        writer.write("{\"name\":\"thread_name\",\"ph\":\"M\",\"pid\":1,\"tid\":" + event.threadId +
+                     ",\"args\":{\"name\":" + quote(event.threadName) + "}}");
+      }
+      if (!first) {
+        writer.write(",\n");
+      }
+      first = false;
+      writer.write("{\"name\":" + quote(event.name) + ",\"cat\":" + quote(event.category) + ",\"ph\":\"X\",\"pid\":1,\"tid\":" +
+                   event.threadId + ",\"ts\":" + toMicros(event.startNanos - sessionStart) + ",\"dur\":" +
+                   toMicros(event.endNanos - event.startNanos) + "}");
+    }
+    writer.write("\n]}\n");
+  }
+
+  private static long toMicros(long nanos) {
+    return Math.max(0L, nanos / 1000L);
+  }
+
+  private static String quote(String s) {
+    final StringBuilder builder = new StringBuilder(s.length() + 2);
+    builder.append('"');
+    for (int i = 0; i < s.length(); i++) {
+      final char c = s.charAt(i);
+      switch (c) {
+        case '"': builder.append("\\\""); break;
+        case '\\': builder.append("\\\\"); break;
+        case '\n': builder.append("\\n"); break;
+        case '\r': builder.append("\\r"); break;
+        case '\t': builder.append("\\t"); break;
+        default:
+          if (c < 0x20) {
+            builder.append(String.format("\\u%04x", (int)c));
+          }
+          else {
+            builder.append(c);
+          }
+      }
+    }
+    return builder.append('"').toString();
+  }
+
+  private static class Event {
+    final String category;
+    final String name;
+    final long threadId;
+    final String threadName;
+    final long startNanos;
+    final long endNanos;
+
+    private Event(String category, String name, long threadId, String threadName, long startNanos, long endNanos) {
+      this.category = category;
+      this.name = name;
+      this.threadId = threadId;
+      this.threadName = threadName;
+      this.startNanos = startNanos;
+      this.endNanos = endNanos;
+    }
+  }
+}
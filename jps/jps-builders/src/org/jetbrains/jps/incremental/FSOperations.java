@@ -18,6 +18,7 @@ package org.jetbrains.jps.incremental;
 import com.intellij.openapi.util.io.FileSystemUtil;
 import com.intellij.openapi.util.io.FileUtil;
 import gnu.trove.THashSet;
+import gnu.trove.TLongArrayList;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import org.jetbrains.jps.ModuleChunk;
@@ -37,7 +38,9 @@ import org.jetbrains.jps.model.module.JpsModule;
 import java.io.File;
 import java.io.FileFilter;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
 /**
@@ -166,8 +169,13 @@ public class FSOperations {
     final File[] children = fsCache.getChildren(file);
     if (children != null) { // is directory
       if (children.length > 0 && rootIndex.isDirectoryAccepted(file, rd)) {
-        for (File child : children) {
-          traverseRecursively(context, rd, child, tsStorage, forceDirty, currentFiles, filter, fsCache);
+        if (!forceDirty && filter == null) {
+          traverseDirectory(context, rd, file, children, tsStorage, currentFiles, fsCache);
+        }
+        else {
+          for (File child : children) {
+            traverseRecursively(context, rd, child, tsStorage, forceDirty, currentFiles, filter, fsCache);
+          }
         }
       }
     }
@@ -190,6 +198,68 @@ public class FSOperations {
     }
   }
 
+  /**
+   * Checks files of the directory comparing a digest of their names and timestamps with the digest saved when all of them were up to date,
+   * so stamps of individual files are read from the storage only if something in the directory has changed.
+   */
+  private static void traverseDirectory(CompileContext context,
+                                        final BuildRootDescriptor rd,
+                                        final File dir,
+                                        File[] children,
+                                        @NotNull final Timestamps tsStorage,
+                                        @Nullable Set<File> currentFiles, @NotNull FSCache fsCache) throws IOException {
+    BuildRootIndex rootIndex = context.getProjectDescriptor().getBuildRootIndex();
+    final List<File> files = new ArrayList<File>(children.length);
+    final TLongArrayList stamps = new TLongArrayList(children.length);
+    long digest = 0;
+    for (File child : children) {
+      final File[] grandChildren = fsCache.getChildren(child);
+      if (grandChildren != null) {
+        if (grandChildren.length > 0 && rootIndex.isDirectoryAccepted(child, rd)) {
+          traverseDirectory(context, rd, child, grandChildren, tsStorage, currentFiles, fsCache);
+        }
+      }
+      else if (rootIndex.isFileAccepted(child, rd)) {
+        final long stamp = FileSystemUtil.lastModified(child);
+        files.add(child);
+        stamps.add(stamp);
+        digest += hashFileState(child.getName(), stamp);
+      }
+    }
+    if (files.isEmpty()) {
+      return;
+    }
+    if (currentFiles != null) {
+      currentFiles.addAll(files);
+    }
+
+    final BuildTarget<?> target = rd.getTarget();
+    digest = 31 * digest + files.size();
+    if (tsStorage.getDirectoryDigest(dir, target) == digest) {
+      return;
+    }
+    boolean allUpToDate = true;
+    for (int i = 0; i < files.size(); i++) {
+      final File file = files.get(i);
+      if (tsStorage.getStamp(file, target) != stamps.get(i)) {
+        allUpToDate = false;
+        final Timestamps marker = context.isProjectRebuild() ? null : tsStorage;
+        context.getProjectDescriptor().fsState.markDirty(context, file, rd, marker, false);
+      }
+    }
+    if (allUpToDate) {
+      tsStorage.saveDirectoryDigest(dir, target, digest);
+    }
+  }
+
+  private static long hashFileState(String name, long stamp) {
+    long h = name.hashCode() * 0x9E3779B97F4A7C15L ^ stamp;
+    h ^= h >>> 33;
+    h *= 0xFF51AFD7ED558CCDL;
+    h ^= h >>> 33;
+    return h;
+  }
+
   public static void pruneEmptyDirs(CompileContext context, @Nullable final Set<File> dirsToDelete) {
     if (dirsToDelete == null || dirsToDelete.isEmpty()) return;
 
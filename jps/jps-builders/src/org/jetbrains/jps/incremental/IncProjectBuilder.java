@@ -334,15 +334,21 @@ public class IncProjectBuilder {
       }
 
       context.processMessage(new ProgressMessage("Running 'before' tasks"));
-      runTasks(context, myBuilderRegistry.getBeforeTasks());
+      runTasks(context, myBuilderRegistry.getBeforeTasks(), "'before' tasks");
       TimingLog.LOG.debug("'before' tasks finished");
 
       context.processMessage(new ProgressMessage("Checking sources"));
-      buildChunks(context);
+      final Runnable chunksSpan = BuildTrace.startSpan(BuildTrace.CATEGORY_SESSION, "Building targets");
+      try {
+        buildChunks(context);
+      }
+      finally {
+        chunksSpan.run();
+      }
       TimingLog.LOG.debug("Building targets finished");
 
       context.processMessage(new ProgressMessage("Running 'after' tasks"));
-      runTasks(context, myBuilderRegistry.getAfterTasks());
+      runTasks(context, myBuilderRegistry.getAfterTasks(), "'after' tasks");
       TimingLog.LOG.debug("'after' tasks finished");
     }
     finally {
@@ -558,9 +564,15 @@ public class IncProjectBuilder {
     );
   }
 
-  private static void runTasks(CompileContext context, final List<BuildTask> tasks) throws ProjectBuildException {
-    for (BuildTask task : tasks) {
-      task.build(context);
+  private static void runTasks(CompileContext context, final List<BuildTask> tasks, String presentableName) throws ProjectBuildException {
+    final Runnable span = BuildTrace.startSpan(BuildTrace.CATEGORY_SESSION, presentableName);
+    try {
+      for (BuildTask task : tasks) {
+        task.build(context);
+      }
+    }
+    finally {
+      span.run();
     }
   }
 
@@ -798,7 +810,13 @@ public class IncProjectBuilder {
 
     final List<TargetBuilder<?, ?>> builders = BuilderRegistry.getInstance().getTargetBuilders();
     for (TargetBuilder<?, ?> builder : builders) {
-      BuildOperations.buildTarget(target, context, builder);
+      final Runnable builderSpan = BuildTrace.startSpan(BuildTrace.CATEGORY_BUILDER, builder.getPresentableName() + " [" + target.getPresentableName() + "]");
+      try {
+        BuildOperations.buildTarget(target, context, builder);
+      }
+      finally {
+        builderSpan.run();
+      }
       updateDoneFraction(context, 1.0f / builders.size());
     }
     return true;
@@ -811,6 +829,16 @@ public class IncProjectBuilder {
   }
 
   private void buildTargetsChunk(CompileContext context, final BuildTargetChunk chunk) throws ProjectBuildException {
+    final Runnable chunkSpan = BuildTrace.startSpan(BuildTrace.CATEGORY_TARGET, chunk.toString());
+    try {
+      doBuildTargetsChunk(context, chunk);
+    }
+    finally {
+      chunkSpan.run();
+    }
+  }
+
+  private void doBuildTargetsChunk(CompileContext context, final BuildTargetChunk chunk) throws ProjectBuildException {
     boolean doneSomething;
     try {
       sendBuildingTargetMessages(chunk.getTargets(), BuildingTargetProgressMessage.Event.STARTED);
@@ -1052,7 +1080,14 @@ public class IncProjectBuilder {
 
           for (ModuleLevelBuilder builder : builders) {
             processDeletedPaths(context, chunk.getTargets());
-            final ModuleLevelBuilder.ExitCode buildResult = builder.build(context, chunk, dirtyFilesHolder, outputConsumer);
+            final ModuleLevelBuilder.ExitCode buildResult;
+            final Runnable builderSpan = BuildTrace.startSpan(BuildTrace.CATEGORY_BUILDER, builder.getPresentableName() + " [" + chunk.getName() + "]");
+            try {
+              buildResult = builder.build(context, chunk, dirtyFilesHolder, outputConsumer);
+            }
+            finally {
+              builderSpan.run();
+            }
 
             doneSomething |= (buildResult != ModuleLevelBuilder.ExitCode.NOTHING_DONE);
 
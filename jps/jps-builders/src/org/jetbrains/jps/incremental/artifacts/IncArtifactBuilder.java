@@ -129,55 +129,75 @@ public class IncArtifactBuilder extends TargetBuilder<ArtifactRootDescriptor, Ar
         }
       });
 
-      BuildOperations.cleanOutputsCorrespondingToChangedFiles(context, holder);
-      for (String outputPath : changedOutputPaths) {
-        outSrcMapping.remove(outputPath);
+      final Map<String, File> previousJars = new HashMap<String, File>();
+      try {
+        // an archive is an output of every file packed into it, so its previous version must be moved aside before outputs of
+        // changed files are deleted, otherwise there is nothing to reuse
+        preservePreviousJars(target, context, filesToDelete.keySet(), previousJars);
+        BuildOperations.cleanOutputsCorrespondingToChangedFiles(context, holder);
+        for (String outputPath : changedOutputPaths) {
+          outSrcMapping.remove(outputPath);
+        }
+        if (filesToDelete.isEmpty() && filesToProcess.isEmpty()) {
+          return;
+        }
+
+        buildChangedFiles(target, outputConsumer, context, srcOutMapping, outSrcMapping, filesToProcess, filesToDelete, previousJars);
       }
-      if (filesToDelete.isEmpty() && filesToProcess.isEmpty()) {
-        return;
+      finally {
+        for (File previousJar : previousJars.values()) {
+          FileUtil.delete(previousJar);
+        }
       }
+    }
+    catch (IOException e) {
+      throw new ProjectBuildException(e);
+    }
+  }
 
-      deleteOutdatedFiles(filesToDelete, context, srcOutMapping, outSrcMapping);
-      context.checkCanceled();
+  private static void buildChangedFiles(ArtifactBuildTarget target, BuildOutputConsumer outputConsumer, CompileContext context,
+                                        SourceToOutputMapping srcOutMapping, ArtifactOutputToSourceMapping outSrcMapping,
+                                        TIntObjectHashMap<Set<String>> filesToProcess, MultiMap<String, String> filesToDelete,
+                                        Map<String, File> previousJars) throws IOException, ProjectBuildException {
+    final ProjectDescriptor pd = context.getProjectDescriptor();
+    final JpsArtifact artifact = target.getArtifact();
+    deleteOutdatedFiles(filesToDelete, context, srcOutMapping, outSrcMapping, previousJars);
+    context.checkCanceled();
 
-      context.processMessage(new ProgressMessage("Building artifact '" + artifact.getName() + "': copying files..."));
-      final Set<JarInfo> changedJars = new THashSet<JarInfo>();
-      for (ArtifactRootDescriptor descriptor : pd.getBuildRootIndex().getTargetRoots(target, context)) {
-        context.checkCanceled();
-        final Set<String> sourcePaths = filesToProcess.get(descriptor.getRootIndex());
-        if (sourcePaths == null) continue;
+    context.processMessage(new ProgressMessage("Building artifact '" + artifact.getName() + "': copying files..."));
+    final Set<JarInfo> changedJars = new THashSet<JarInfo>();
+    for (ArtifactRootDescriptor descriptor : pd.getBuildRootIndex().getTargetRoots(target, context)) {
+      context.checkCanceled();
+      final Set<String> sourcePaths = filesToProcess.get(descriptor.getRootIndex());
+      if (sourcePaths == null) continue;
 
-        for (String sourcePath : sourcePaths) {
-          if (!descriptor.getFilter().shouldBeCopied(sourcePath, pd)) {
-            if (LOG.isDebugEnabled()) {
-              LOG.debug("File " + sourcePath + " will be skipped because it isn't accepted by filter");
-            }
-            continue;
+      for (String sourcePath : sourcePaths) {
+        if (!descriptor.getFilter().shouldBeCopied(sourcePath, pd)) {
+          if (LOG.isDebugEnabled()) {
+            LOG.debug("File " + sourcePath + " will be skipped because it isn't accepted by filter");
           }
-          DestinationInfo destination = descriptor.getDestinationInfo();
-          if (destination instanceof ExplodedDestinationInfo) {
-            descriptor.copyFromRoot(sourcePath, descriptor.getRootIndex(), destination.getOutputPath(), context,
-                                    outputConsumer, outSrcMapping);
-          }
-          else {
-            List<ArtifactOutputToSourceMapping.SourcePathAndRootIndex> sources = outSrcMapping.getState(destination.getOutputFilePath());
-            if (sources == null || sources.size() > 0 && sources.get(0).getRootIndex() == descriptor.getRootIndex()) {
-              outSrcMapping.update(destination.getOutputFilePath(),
-                                   Collections.<ArtifactOutputToSourceMapping.SourcePathAndRootIndex>emptyList());
-              changedJars.add(((JarDestinationInfo)destination).getJarInfo());
-            }
+          continue;
+        }
+        DestinationInfo destination = descriptor.getDestinationInfo();
+        if (destination instanceof ExplodedDestinationInfo) {
+          descriptor.copyFromRoot(sourcePath, descriptor.getRootIndex(), destination.getOutputPath(), context,
+                                  outputConsumer, outSrcMapping);
+        }
+        else {
+          List<ArtifactOutputToSourceMapping.SourcePathAndRootIndex> sources = outSrcMapping.getState(destination.getOutputFilePath());
+          if (sources == null || sources.size() > 0 && sources.get(0).getRootIndex() == descriptor.getRootIndex()) {
+            outSrcMapping.update(destination.getOutputFilePath(),
+                                 Collections.<ArtifactOutputToSourceMapping.SourcePathAndRootIndex>emptyList());
+            changedJars.add(((JarDestinationInfo)destination).getJarInfo());
           }
         }
       }
-      context.checkCanceled();
-
-      JarsBuilder builder = new JarsBuilder(changedJars, context, outputConsumer, outSrcMapping);
-      builder.buildJars();
-      runArtifactTasks(context, artifact, ArtifactBuildTaskProvider.ArtifactBuildPhase.POST_PROCESSING);
-    }
-    catch (IOException e) {
-      throw new ProjectBuildException(e);
     }
+    context.checkCanceled();
+
+    JarsBuilder builder = new JarsBuilder(changedJars, context, outputConsumer, outSrcMapping, previousJars);
+    builder.buildJars();
+    runArtifactTasks(context, artifact, ArtifactBuildTaskProvider.ArtifactBuildPhase.POST_PROCESSING);
   }
 
   private static void runArtifactTasks(CompileContext context, JpsArtifact artifact, ArtifactBuildTaskProvider.ArtifactBuildPhase phase)
@@ -205,9 +225,34 @@ public class IncArtifactBuilder extends TargetBuilder<ArtifactRootDescriptor, Ar
     paths.add(path);
   }
 
+  /**
+   * Moves archives of the artifact which are going to be rebuilt to temporary files listed in <code>previousJars</code>, so that
+   * {@link JarsBuilder} is able to reuse their unchanged entries.
+   */
+  private static void preservePreviousJars(ArtifactBuildTarget target, CompileContext context, Collection<String> outputPaths,
+                                           Map<String, File> previousJars) {
+    if (outputPaths.isEmpty()) return;
+
+    final Set<String> jarPaths = new THashSet<String>(FileUtil.PATH_HASHING_STRATEGY);
+    for (ArtifactRootDescriptor descriptor : context.getProjectDescriptor().getBuildRootIndex().getTargetRoots(target, context)) {
+      if (descriptor.getDestinationInfo() instanceof JarDestinationInfo) {
+        jarPaths.add(descriptor.getDestinationInfo().getOutputFilePath());
+      }
+    }
+    for (String outputPath : outputPaths) {
+      if (jarPaths.contains(outputPath) && !previousJars.containsKey(outputPath)) {
+        moveToTemporaryFile(outputPath, previousJars);
+      }
+    }
+  }
+
+  /**
+   * Deletes outputs corresponding to changed and deleted files. Archives listed in <code>previousJars</code> were already moved aside.
+   */
   private static void deleteOutdatedFiles(MultiMap<String, String> filesToDelete, CompileContext context,
                                           SourceToOutputMapping srcOutMapping,
-                                          ArtifactOutputToSourceMapping outSrcMapping) throws IOException {
+                                          ArtifactOutputToSourceMapping outSrcMapping,
+                                          Map<String, File> previousJars) throws IOException {
     if (filesToDelete.isEmpty()) return;
 
     context.processMessage(new ProgressMessage("Deleting outdated files..."));
@@ -220,7 +265,7 @@ public class IncArtifactBuilder extends TargetBuilder<ArtifactRootDescriptor, Ar
         continue;
       }
 
-      boolean deleted = deletedPaths.contains(filePath);
+      boolean deleted = deletedPaths.contains(filePath) || previousJars.containsKey(filePath);
       if (!deleted) {
         deleted = FileUtil.delete(new File(filePath));
       }
@@ -250,6 +295,24 @@ public class IncArtifactBuilder extends TargetBuilder<ArtifactRootDescriptor, Ar
     }
   }
 
+  private static void moveToTemporaryFile(String jarPath, Map<String, File> previousJars) {
+    final File jarFile = new File(FileUtil.toSystemDependentName(jarPath));
+    final File parent = jarFile.getParentFile();
+    if (!jarFile.isFile() || parent == null) {
+      return;
+    }
+    // the temporary file is created next to the archive, so renaming doesn't copy the data to another file system
+    try {
+      final File tempFile = FileUtil.createTempFile(parent, jarFile.getName(), ".previous", false, false);
+      if (jarFile.renameTo(tempFile)) {
+        previousJars.put(jarPath, tempFile);
+      }
+    }
+    catch (IOException e) {
+      LOG.info("Cannot preserve previous version of " + jarPath + ": " + e.getMessage());
+    }
+  }
+
   @NotNull
   @Override
   public String getPresentableName() {
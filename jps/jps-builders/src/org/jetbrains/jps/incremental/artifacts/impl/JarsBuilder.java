@@ -26,7 +26,9 @@ import com.intellij.util.ArrayUtil;
 import com.intellij.util.graph.CachingSemiGraph;
 import com.intellij.util.graph.DFSTBuilder;
 import com.intellij.util.graph.GraphGenerator;
-import com.intellij.util.io.ZipUtil;
+import com.intellij.util.io.zip.DosTime;
+import com.intellij.util.io.zip.JBZipEntry;
+import com.intellij.util.io.zip.JBZipFile;
 import gnu.trove.THashSet;
 import org.jetbrains.annotations.NonNls;
 import org.jetbrains.annotations.NotNull;
@@ -41,16 +43,22 @@ import org.jetbrains.jps.incremental.artifacts.instructions.*;
 import org.jetbrains.jps.incremental.messages.BuildMessage;
 import org.jetbrains.jps.incremental.messages.CompilerMessage;
 import org.jetbrains.jps.incremental.messages.ProgressMessage;
+import org.jetbrains.jps.service.SharedThreadPool;
 
 import java.io.*;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 import java.util.jar.JarFile;
-import java.util.jar.JarOutputStream;
 import java.util.jar.Manifest;
+import java.util.zip.CRC32;
 import java.util.zip.ZipEntry;
-import java.util.zip.ZipOutputStream;
 
 /**
+ * Builds archives of artifacts. If a previous version of an archive is available, entries whose content didn't change are copied from it
+ * as is, without decompressing and compressing them again. Archives which don't include each other are built in parallel.
+ *
  * @author nik
  */
 public class JarsBuilder {
@@ -60,11 +68,22 @@ public class JarsBuilder {
   private Map<JarInfo, File> myBuiltJars;
   private final BuildOutputConsumer myOutputConsumer;
   private final ArtifactOutputToSourceMapping myOutSrcMapping;
+  private final Map<String, File> myPreviousJars;
+  private final Object myOutputLock = new Object();
 
   public JarsBuilder(Set<JarInfo> jarsToBuild, CompileContext context, BuildOutputConsumer outputConsumer,
                      ArtifactOutputToSourceMapping outSrcMapping) {
+    this(jarsToBuild, context, outputConsumer, outSrcMapping, Collections.<String, File>emptyMap());
+  }
+
+  /**
+   * @param previousJars maps output paths of archives to files containing their previous versions, unchanged entries are copied from them
+   */
+  public JarsBuilder(Set<JarInfo> jarsToBuild, CompileContext context, BuildOutputConsumer outputConsumer,
+                     ArtifactOutputToSourceMapping outSrcMapping, Map<String, File> previousJars) {
     myOutputConsumer = outputConsumer;
     myOutSrcMapping = outSrcMapping;
+    myPreviousJars = previousJars;
     DependentJarsEvaluator evaluator = new DependentJarsEvaluator();
     for (JarInfo jarInfo : jarsToBuild) {
       evaluator.addJarWithDependencies(jarInfo);
@@ -81,11 +100,11 @@ public class JarsBuilder {
       return false;
     }
 
-    myBuiltJars = new HashMap<JarInfo, File>();
+    myBuiltJars = new ConcurrentHashMap<JarInfo, File>();
     try {
-      for (JarInfo jar : sortedJars) {
+      for (List<JarInfo> jars : groupByNestingLevel(sortedJars)) {
         myContext.checkCanceled();
-        buildJar(jar);
+        buildJars(jars);
       }
 
       myContext.processMessage(new ProgressMessage("Copying archives..."));
@@ -95,10 +114,81 @@ public class JarsBuilder {
       deleteTemporaryJars();
     }
 
-
     return true;
   }
 
+  /**
+   * Splits jars into groups so that a jar is built after all jars included into it; jars from the same group are independent
+   */
+  private static List<List<JarInfo>> groupByNestingLevel(JarInfo[] sortedJars) {
+    final Map<JarInfo, Integer> levels = new HashMap<JarInfo, Integer>();
+    final List<List<JarInfo>> result = new ArrayList<List<JarInfo>>();
+    for (JarInfo jar : sortedJars) {
+      int level = 0;
+      for (Pair<String, Object> pair : jar.getContent()) {
+        final Integer nestedLevel = levels.get(pair.getSecond());
+        if (nestedLevel != null) {
+          level = Math.max(level, nestedLevel + 1);
+        }
+      }
+      levels.put(jar, level);
+      while (result.size() <= level) {
+        result.add(new ArrayList<JarInfo>());
+      }
+      result.get(level).add(jar);
+    }
+    return result;
+  }
+
+  private void buildJars(List<JarInfo> jars) throws IOException, ProjectBuildException {
+    if (jars.size() == 1) {
+      buildJar(jars.get(0));
+      return;
+    }
+
+    final List<Future<?>> futures = new ArrayList<Future<?>>();
+    for (final JarInfo jar : jars) {
+      futures.add(SharedThreadPool.getInstance().executeOnPooledThread(new Runnable() {
+        @Override
+        public void run() {
+          try {
+            myContext.checkCanceled();
+            buildJar(jar);
+          }
+          catch (IOException e) {
+            throw new JarBuildingException(e);
+          }
+          catch (ProjectBuildException e) {
+            throw new JarBuildingException(e);
+          }
+        }
+      }));
+    }
+
+    Throwable error = null;
+    for (Future<?> future : futures) {
+      try {
+        future.get();
+      }
+      catch (InterruptedException e) {
+        if (error == null) error = e;
+      }
+      catch (ExecutionException e) {
+        final Throwable cause = e.getCause();
+        if (error == null) error = cause instanceof JarBuildingException ? cause.getCause() : cause;
+      }
+    }
+    if (error instanceof IOException) {
+      throw (IOException)error;
+    }
+    if (error instanceof ProjectBuildException) {
+      throw (ProjectBuildException)error;
+    }
+    if (error != null) {
+      throw new ProjectBuildException(error);
+    }
+  }
+
   private void deleteTemporaryJars() {
     for (File file : myBuiltJars.values()) {
       FileUtil.delete(file);
@@ -134,7 +224,7 @@ public class JarsBuilder {
     return jars;
   }
 
-  private void buildJar(final JarInfo jar) throws IOException {
+  private void buildJar(final JarInfo jar) throws IOException, ProjectBuildException {
     final String emptyArchiveMessage = "Archive '" + jar.getPresentableDestination() + "' doesn't contain files so it won't be created";
     if (jar.getContent().isEmpty()) {
       myContext.processMessage(new CompilerMessage(IncArtifactBuilder.BUILDER_NAME, BuildMessage.Kind.WARNING, emptyArchiveMessage));
@@ -142,42 +232,47 @@ public class JarsBuilder {
     }
 
     myContext.processMessage(new ProgressMessage("Building " + jar.getPresentableDestination() + "..."));
-    File jarFile = FileUtil.createTempFile("artifactCompiler", "tmp");
+    File jarFile = createTemporaryJarFile(jar);
     myBuiltJars.put(jar, jarFile);
 
-    FileUtil.createParentDirs(jarFile);
     final String targetJarPath = jar.getDestination().getOutputFilePath();
     List<String> packedFilePaths = new ArrayList<String>();
     Manifest manifest = loadManifest(jar, packedFilePaths);
-    final JarOutputStream jarOutputStream = createJarOutputStream(jarFile, manifest);
+    final JarWriter writer = new JarWriter(jarFile, openPreviousJar(jar));
 
     final THashSet<String> writtenPaths = new THashSet<String>();
     try {
       if (manifest != null) {
+        final ByteArrayOutputStream manifestBytes = new ByteArrayOutputStream();
+        manifest.write(manifestBytes);
+        writer.addEntry(JarFile.MANIFEST_NAME, manifestBytes.toByteArray(), System.currentTimeMillis(), ZipEntry.DEFLATED);
         writtenPaths.add(JarFile.MANIFEST_NAME);
       }
 
       for (Pair<String, Object> pair : jar.getContent()) {
+        myContext.checkCanceled();
         final String relativePath = pair.getFirst();
         if (pair.getSecond() instanceof ArtifactRootDescriptor) {
           final ArtifactRootDescriptor descriptor = (ArtifactRootDescriptor)pair.getSecond();
           final int rootIndex = descriptor.getRootIndex();
           if (descriptor instanceof FileBasedArtifactRootDescriptor) {
-            addFileToJar(jarOutputStream, jarFile, descriptor.getRootFile(), descriptor.getFilter(), relativePath, targetJarPath, writtenPaths,
+            addFileToJar(writer, jarFile, descriptor.getRootFile(), descriptor.getFilter(), relativePath, targetJarPath, writtenPaths,
                          packedFilePaths, rootIndex);
           }
           else {
             final String filePath = FileUtil.toSystemIndependentName(descriptor.getRootFile().getAbsolutePath());
-            packedFilePaths.add(filePath);
-            myOutSrcMapping.appendData(targetJarPath, rootIndex, filePath);
-            extractFileAndAddToJar(jarOutputStream, (JarBasedArtifactRootDescriptor)descriptor, relativePath, writtenPaths);
+            synchronized (myOutputLock) {
+              packedFilePaths.add(filePath);
+              myOutSrcMapping.appendData(targetJarPath, rootIndex, filePath);
+            }
+            extractFileAndAddToJar(writer, (JarBasedArtifactRootDescriptor)descriptor, relativePath, writtenPaths);
           }
         }
         else {
           JarInfo nestedJar = (JarInfo)pair.getSecond();
           File nestedJarFile = myBuiltJars.get(nestedJar);
           if (nestedJarFile != null) {
-            addFileToJar(jarOutputStream, jarFile, nestedJarFile, SourceFileFilter.ALL, relativePath, targetJarPath, writtenPaths,
+            addFileToJar(writer, jarFile, nestedJarFile, SourceFileFilter.ALL, relativePath, targetJarPath, writtenPaths,
                          packedFilePaths, -1);
           }
           else {
@@ -192,16 +287,21 @@ public class JarsBuilder {
       }
 
       final ProjectBuilderLogger logger = myContext.getLoggingManager().getProjectBuilderLogger();
-      if (logger.isEnabled()) {
-        logger.logCompiledPaths(packedFilePaths, IncArtifactBuilder.BUILDER_NAME, "Packing files:");
+      synchronized (myOutputLock) {
+        if (logger.isEnabled()) {
+          logger.logCompiledPaths(packedFilePaths, IncArtifactBuilder.BUILDER_NAME, "Packing files:");
+        }
+        myOutputConsumer.registerOutputFile(new File(targetJarPath), packedFilePaths);
+      }
+      if (LOG.isDebugEnabled()) {
+        LOG.debug(jar.getPresentableDestination() + ": " + writer.getCopiedEntriesCount() + " entries copied from the previous version, " +
+                  writer.getWrittenEntriesCount() + " entries written");
       }
-      myOutputConsumer.registerOutputFile(new File(targetJarPath), packedFilePaths);
-
     }
     finally {
       if (writtenPaths.isEmpty()) {
         try {
-          jarOutputStream.close();
+          writer.close();
         }
         catch (IOException ignored) {
         }
@@ -209,17 +309,45 @@ public class JarsBuilder {
         myBuiltJars.remove(jar);
       }
       else {
-        jarOutputStream.close();
+        writer.close();
       }
     }
   }
 
-  private static JarOutputStream createJarOutputStream(File jarFile, @Nullable Manifest manifest) throws IOException {
-    final BufferedOutputStream outputStream = new BufferedOutputStream(new FileOutputStream(jarFile));
-    if (manifest != null) {
-      return new JarOutputStream(outputStream, manifest);
+  /**
+   * Top-level archives are built in their output directories so that renaming them to the output files doesn't copy the data if the
+   * system temp directory is located on another file system.
+   */
+  private static File createTemporaryJarFile(JarInfo jar) throws IOException {
+    final DestinationInfo destination = jar.getDestination();
+    if (destination instanceof ExplodedDestinationInfo) {
+      final File outputFile = new File(FileUtil.toSystemDependentName(destination.getOutputFilePath()));
+      final File outputDir = outputFile.getParentFile();
+      if (outputDir != null) {
+        return FileUtil.createTempFile(outputDir, outputFile.getName(), ".tmp", true, false);
+      }
+    }
+    final File jarFile = FileUtil.createTempFile("artifactCompiler", "tmp");
+    FileUtil.createParentDirs(jarFile);
+    return jarFile;
+  }
+
+  @Nullable
+  private JBZipFile openPreviousJar(JarInfo jar) {
+    if (!(jar.getDestination() instanceof ExplodedDestinationInfo)) {
+      return null;
+    }
+    final File previousJar = myPreviousJars.get(jar.getDestination().getOutputFilePath());
+    if (previousJar == null || !previousJar.isFile()) {
+      return null;
+    }
+    try {
+      return new JBZipFile(previousJar);
+    }
+    catch (IOException e) {
+      LOG.info("Cannot open previous version of " + jar.getPresentableDestination() + ": " + e.getMessage());
+      return null;
     }
-    return new JarOutputStream(outputStream);
   }
 
   @Nullable
@@ -278,48 +406,39 @@ public class JarsBuilder {
     }
   }
 
-  private static void extractFileAndAddToJar(final JarOutputStream jarOutputStream, final JarBasedArtifactRootDescriptor root,
+  private static void extractFileAndAddToJar(final JarWriter writer, final JarBasedArtifactRootDescriptor root,
                                              final String relativeOutputPath, final Set<String> writtenPaths)
     throws IOException {
     final long timestamp = FileSystemUtil.lastModified(root.getRootFile());
     root.processEntries(new JarBasedArtifactRootDescriptor.EntryProcessor() {
       @Override
       public void process(@Nullable InputStream inputStream, @NotNull String relativePath, ZipEntry entry) throws IOException {
-        String pathInJar = addParentDirectories(jarOutputStream, writtenPaths, JpsArtifactPathUtil
-          .appendToPath(relativeOutputPath, relativePath));
+        String pathInJar = addParentDirectories(writer, writtenPaths, JpsArtifactPathUtil.appendToPath(relativeOutputPath, relativePath));
 
         if (inputStream == null) {
-          addDirectoryEntry(jarOutputStream, pathInJar + "/", writtenPaths);
+          addDirectoryEntry(writer, pathInJar + "/", writtenPaths);
         }
         else if (writtenPaths.add(pathInJar)) {
-          ZipEntry newEntry = new ZipEntry(pathInJar);
-          newEntry.setTime(timestamp);
-          if (entry.getMethod() == ZipEntry.STORED) {
-            newEntry.setMethod(ZipEntry.STORED);
-            newEntry.setSize(entry.getSize());
-            newEntry.setCrc(entry.getCrc());
-          }
-          jarOutputStream.putNextEntry(newEntry);
-          FileUtil.copy(inputStream, jarOutputStream);
-          jarOutputStream.closeEntry();
+          final int method = entry.getMethod() == ZipEntry.STORED ? ZipEntry.STORED : ZipEntry.DEFLATED;
+          writer.addEntry(pathInJar, inputStream, entry.getSize(), entry.getCrc(), timestamp, method);
         }
       }
     });
 
   }
 
-  private void addFileToJar(final @NotNull JarOutputStream jarOutputStream, final @NotNull File jarFile, @NotNull File file,
+  private void addFileToJar(final @NotNull JarWriter writer, final @NotNull File jarFile, @NotNull File file,
                             SourceFileFilter filter, @NotNull String relativePath, String targetJarPath,
                             final @NotNull Set<String> writtenPaths, List<String> packedFilePaths, final int rootIndex) throws IOException {
     if (!file.exists() || FileUtil.isAncestor(file, jarFile, false)) {
       return;
     }
 
-    relativePath = addParentDirectories(jarOutputStream, writtenPaths, relativePath);
-    addFileOrDirRecursively(jarOutputStream, file, filter, relativePath, targetJarPath, writtenPaths, packedFilePaths, rootIndex);
+    relativePath = addParentDirectories(writer, writtenPaths, relativePath);
+    addFileOrDirRecursively(writer, file, filter, relativePath, targetJarPath, writtenPaths, packedFilePaths, rootIndex);
   }
 
-  private void addFileOrDirRecursively(@NotNull ZipOutputStream jarOutputStream,
+  private void addFileOrDirRecursively(@NotNull JarWriter writer,
                                        @NotNull File file,
                                        SourceFileFilter filter,
                                        @NotNull String relativePath,
@@ -335,29 +454,35 @@ public class JarsBuilder {
     if (file.isDirectory()) {
       final String directoryPath = relativePath.length() == 0 ? "" : relativePath + "/";
       if (!directoryPath.isEmpty()) {
-        addDirectoryEntry(jarOutputStream, directoryPath, writtenItemRelativePaths);
+        addDirectoryEntry(writer, directoryPath, writtenItemRelativePaths);
       }
       final File[] children = file.listFiles();
       if (children != null) {
         for (File child : children) {
-          addFileOrDirRecursively(jarOutputStream, child, filter, directoryPath + child.getName(), targetJarPath, writtenItemRelativePaths,
+          addFileOrDirRecursively(writer, child, filter, directoryPath + child.getName(), targetJarPath, writtenItemRelativePaths,
                                   packedFilePaths, rootIndex);
         }
       }
       return;
     }
 
-    final boolean added = ZipUtil.addFileToZip(jarOutputStream, file, relativePath, writtenItemRelativePaths, null);
+    final boolean added = writtenItemRelativePaths.add(relativePath);
+    if (added) {
+      final int method = file.length() == 0 ? ZipEntry.STORED : ZipEntry.DEFLATED;
+      writer.addFile(relativePath, file, method);
+    }
     if (rootIndex != -1) {
-      myOutSrcMapping.appendData(targetJarPath, rootIndex, filePath);
-      if (added) {
-        packedFilePaths.add(filePath);
+      synchronized (myOutputLock) {
+        myOutSrcMapping.appendData(targetJarPath, rootIndex, filePath);
+        if (added) {
+          packedFilePaths.add(filePath);
+        }
       }
     }
   }
 
 
-  private static String addParentDirectories(JarOutputStream jarOutputStream, Set<String> writtenPaths, String relativePath) throws IOException {
+  private static String addParentDirectories(JarWriter writer, Set<String> writtenPaths, String relativePath) throws IOException {
     while (StringUtil.startsWithChar(relativePath, '/')) {
       relativePath = relativePath.substring(1);
     }
@@ -365,22 +490,131 @@ public class JarsBuilder {
     while (i != -1) {
       String prefix = relativePath.substring(0, i+1);
       if (prefix.length() > 1) {
-        addDirectoryEntry(jarOutputStream, prefix, writtenPaths);
+        addDirectoryEntry(writer, prefix, writtenPaths);
       }
       i = relativePath.indexOf('/', i + 1);
     }
     return relativePath;
   }
 
-  private static void addDirectoryEntry(final ZipOutputStream output, @NonNls final String relativePath, Set<String> writtenPaths) throws IOException {
+  private static void addDirectoryEntry(final JarWriter writer, @NonNls final String relativePath, Set<String> writtenPaths) throws IOException {
     if (!writtenPaths.add(relativePath)) return;
 
-    ZipEntry e = new ZipEntry(relativePath);
-    e.setMethod(ZipEntry.STORED);
-    e.setSize(0);
-    e.setCrc(0);
-    output.putNextEntry(e);
-    output.closeEntry();
+    writer.addEntry(relativePath, ArrayUtil.EMPTY_BYTE_ARRAY, System.currentTimeMillis(), ZipEntry.STORED);
+  }
+
+  /**
+   * Writes entries of a jar. An entry is copied from the previous version of the jar without recompression if its content is the same;
+   * the central directory is written when the writer is closed.
+   */
+  private static class JarWriter {
+    private final JBZipFile myZipFile;
+    @Nullable private final JBZipFile myPreviousJar;
+    private int myCopiedEntries;
+    private int myWrittenEntries;
+
+    private JarWriter(File jarFile, @Nullable JBZipFile previousJar) throws IOException {
+      myZipFile = new JBZipFile(jarFile);
+      myPreviousJar = previousJar;
+    }
+
+    public void addEntry(String name, byte[] content, long timestamp, int method) throws IOException {
+      final CRC32 crc = new CRC32();
+      crc.update(content);
+      addEntry(name, new ByteArrayInputStream(content), content.length, crc.getValue(), timestamp, method);
+    }
+
+    /**
+     * @param crc CRC of the content or -1 if it isn't known, in the latter case the entry is always written
+     */
+    public void addEntry(String name, InputStream content, long size, long crc, long timestamp, int method) throws IOException {
+      final JBZipEntry previous = crc != -1 ? findPreviousEntry(name, size, timestamp, method) : null;
+      if (previous != null && previous.getCrc() == crc) {
+        copyEntry(previous, name);
+      }
+      else {
+        writeEntry(name, content, timestamp, method);
+      }
+    }
+
+    public void addFile(String name, File file, int method) throws IOException {
+      final long timestamp = file.lastModified();
+      final JBZipEntry previous = findPreviousEntry(name, file.length(), timestamp, method);
+      if (previous != null && previous.getCrc() == computeCrc(file)) {
+        copyEntry(previous, name);
+        return;
+      }
+
+      final InputStream input = new BufferedInputStream(new FileInputStream(file));
+      try {
+        writeEntry(name, input, timestamp, method);
+      }
+      finally {
+        input.close();
+      }
+    }
+
+    @Nullable
+    private JBZipEntry findPreviousEntry(String name, long size, long timestamp, int method) {
+      if (myPreviousJar == null) return null;
+      final JBZipEntry previous = myPreviousJar.getEntry(name);
+      if (previous == null || previous.getSize() != size || previous.getMethod() != method) return null;
+      if (!name.endsWith("/") && DosTime.javaToDosTime(previous.getTime()) != DosTime.javaToDosTime(timestamp)) return null;
+      return previous;
+    }
+
+    private void copyEntry(JBZipEntry previous, String name) throws IOException {
+      myZipFile.copyEntry(previous, name);
+      myCopiedEntries++;
+    }
+
+    private void writeEntry(String name, InputStream content, long timestamp, int method) throws IOException {
+      final JBZipEntry entry = myZipFile.getOrCreateEntry(name);
+      entry.setMethod(method);
+      entry.setData(content, timestamp);
+      myWrittenEntries++;
+    }
+
+    private static long computeCrc(File file) throws IOException {
+      final CRC32 crc = new CRC32();
+      final InputStream input = new FileInputStream(file);
+      try {
+        final byte[] buffer = new byte[8192];
+        int read;
+        while ((read = input.read(buffer)) > 0) {
+          crc.update(buffer, 0, read);
+        }
+      }
+      finally {
+        input.close();
+      }
+      return crc.getValue();
+    }
+
+    public int getCopiedEntriesCount() {
+      return myCopiedEntries;
+    }
+
+    public int getWrittenEntriesCount() {
+      return myWrittenEntries;
+    }
+
+    public void close() throws IOException {
+      try {
+        myZipFile.close();
+      }
+      finally {
+        if (myPreviousJar != null) {
+          myPreviousJar.close();
+        }
+      }
+    }
+  }
+
+  private static class JarBuildingException extends RuntimeException {
+    private JarBuildingException(Throwable cause) {
+      super(cause);
+    }
   }
 
   private class JarsGraph implements GraphGenerator.SemiGraph<JarInfo> {
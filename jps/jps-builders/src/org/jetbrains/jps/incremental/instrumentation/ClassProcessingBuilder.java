@@ -78,6 +78,7 @@ public abstract class ClassProcessingBuilder extends ModuleLevelBuilder {
     }
 
     ExitCode exitCode = ExitCode.NOTHING_DONE;
+    final Runnable span = BuildTrace.startSpan(BuildTrace.CATEGORY_COMPILER, getPresentableName() + " [" + chunk.getName() + "]");
     try {
       InstrumentationClassFinder finder = CLASS_FINDER.get(context); // try using shared finder
       if (finder == null) {
@@ -93,6 +94,7 @@ public abstract class ClassProcessingBuilder extends ModuleLevelBuilder {
       exitCode = performBuild(context, chunk, finder, outputConsumer);
     }
     finally {
+      span.run();
       if (shouldShowProgress) {
         context.processMessage(new ProgressMessage("")); // cleanup progress
       }
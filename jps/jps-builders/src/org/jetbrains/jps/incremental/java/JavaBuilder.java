@@ -274,7 +274,13 @@ public class JavaBuilder extends ModuleLevelBuilder {
               LOG.debug("  " + file.getAbsolutePath());
             }
           }
-          compiledOk = compileJava(context, chunk, files, classpath, platformCp, srcPath, diagnosticSink, outputSink);
+          final Runnable javacSpan = BuildTrace.startSpan(BuildTrace.CATEGORY_COMPILER, "javac [" + chunkName + "]");
+          try {
+            compiledOk = compileJava(context, chunk, files, classpath, platformCp, srcPath, diagnosticSink, outputSink);
+          }
+          finally {
+            javacSpan.run();
+          }
         }
 
         context.checkCanceled();
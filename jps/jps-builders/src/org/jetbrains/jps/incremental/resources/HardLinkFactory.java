@@ -0,0 +1,82 @@
+/*
+ * Copyright 2000-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jetbrains.jps.incremental.resources;
+
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.util.ArrayUtil;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+/**
+ * Creates hard links via <code>java.nio.file.Files#createLink</code>. The build process may run on JDK 6 where this API doesn't exist,
+ * so it's looked up reflectively and {@link #create()} returns <code>null</code> if it isn't available.
+ */
+class HardLinkFactory {
+  private static final Logger LOG = Logger.getInstance("#org.jetbrains.jps.incremental.resources.HardLinkFactory");
+  private final Object myDefaultFileSystem;
+  private final Method myGetPath;
+  private final Method myCreateLink;
+  private volatile boolean myDisabled;
+
+  private HardLinkFactory() throws Exception {
+    myDefaultFileSystem = Class.forName("java.nio.file.FileSystems").getMethod("getDefault").invoke(null);
+    myGetPath = Class.forName("java.nio.file.FileSystem").getMethod("getPath", String.class, String[].class);
+    final Class<?> pathClass = Class.forName("java.nio.file.Path");
+    myCreateLink = Class.forName("java.nio.file.Files").getMethod("createLink", pathClass, pathClass);
+  }
+
+  @Nullable
+  static HardLinkFactory create() {
+    try {
+      return new HardLinkFactory();
+    }
+    catch (Exception e) {
+      LOG.info("Hard links aren't supported, resources will be copied: " + e.getMessage());
+      return null;
+    }
+  }
+
+  /**
+   * @return false if a link cannot be created (e.g. files are on different file systems) and the file must be copied
+   */
+  boolean createLink(File existing, File link) {
+    if (myDisabled) {
+      return false;
+    }
+    try {
+      final Object linkPath = myGetPath.invoke(myDefaultFileSystem, link.getAbsolutePath(), ArrayUtil.EMPTY_STRING_ARRAY);
+      final Object existingPath = myGetPath.invoke(myDefaultFileSystem, existing.getAbsolutePath(), ArrayUtil.EMPTY_STRING_ARRAY);
+      myCreateLink.invoke(null, linkPath, existingPath);
+      return true;
+    }
+    catch (InvocationTargetException e) {
+      final Throwable cause = e.getCause();
+      if (cause instanceof UnsupportedOperationException) {
+        myDisabled = true;
+      }
+      LOG.debug(cause);
+      return false;
+    }
+    catch (IllegalAccessException e) {
+      myDisabled = true;
+      LOG.info(e);
+      return false;
+    }
+  }
+}
@@ -0,0 +1,198 @@
+/*
+ * Copyright 2000-2012 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jetbrains.jps.incremental.resources;
+
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.util.io.FileUtil;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.jps.api.CanceledStatus;
+import org.jetbrains.jps.api.GlobalOptions;
+import org.jetbrains.jps.service.SharedThreadPool;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Copies resource files to output directories. Files are copied with {@link FileChannel#transferTo}, so the data doesn't pass through
+ * Java heap, and large batches are split between several pooled threads.
+ * If {@link GlobalOptions#RESOURCES_HARD_LINKS_OPTION} is set, the copier tries to create hard links to source files first. Hard links
+ * are only possible if the source and the output are on the same file system, otherwise the file is copied.
+ */
+class ResourceCopier {
+  private static final Logger LOG = Logger.getInstance("#org.jetbrains.jps.incremental.resources.ResourceCopier");
+  private static final int MIN_FILES_PER_THREAD = 64;
+  private static final boolean USE_HARD_LINKS = Boolean.parseBoolean(System.getProperty(GlobalOptions.RESOURCES_HARD_LINKS_OPTION));
+  @Nullable
+  private static final HardLinkFactory ourHardLinkFactory = USE_HARD_LINKS ? HardLinkFactory.create() : null;
+
+  private final List<CopyTask> myTasks = new ArrayList<CopyTask>();
+  @Nullable private final HardLinkFactory myHardLinkFactory;
+
+  ResourceCopier() {
+    this(ourHardLinkFactory);
+  }
+
+  /**
+   * @param hardLinkFactory if not null, outputs are created as hard links where possible
+   */
+  ResourceCopier(@Nullable HardLinkFactory hardLinkFactory) {
+    myHardLinkFactory = hardLinkFactory;
+  }
+
+  public static class CopyTask {
+    private final File mySource;
+    private final File myTarget;
+    private volatile IOException myError;
+    private volatile boolean myCopied;
+
+    public CopyTask(@NotNull File source, @NotNull File target) {
+      mySource = source;
+      myTarget = target;
+    }
+
+    @NotNull
+    public File getSource() {
+      return mySource;
+    }
+
+    @NotNull
+    public File getTarget() {
+      return myTarget;
+    }
+
+    public boolean isCopied() {
+      return myCopied;
+    }
+
+    @Nullable
+    public IOException getError() {
+      return myError;
+    }
+  }
+
+  public void addTask(@NotNull File source, @NotNull File target) {
+    myTasks.add(new CopyTask(source, target));
+  }
+
+  public boolean isEmpty() {
+    return myTasks.isEmpty();
+  }
+
+  /**
+   * Performs all scheduled copy operations. Copying stops on the first error or when the build is canceled.
+   * @return tasks in the order they were added, use {@link CopyTask#isCopied()} and {@link CopyTask#getError()} to find out the result
+   */
+  @NotNull
+  public List<CopyTask> copy(@NotNull final CanceledStatus canceledStatus) {
+    final AtomicBoolean stopped = new AtomicBoolean();
+    final int threads = Math.min(Runtime.getRuntime().availableProcessors(), myTasks.size() / MIN_FILES_PER_THREAD);
+    if (threads <= 1) {
+      copyRange(0, myTasks.size(), 1, canceledStatus, stopped);
+      return myTasks;
+    }
+
+    final List<Future<?>> futures = new ArrayList<Future<?>>(threads);
+    for (int i = 0; i < threads; i++) {
+      final int first = i;
+      futures.add(SharedThreadPool.getInstance().executeOnPooledThread(new Runnable() {
+        @Override
+        public void run() {
+          copyRange(first, myTasks.size(), threads, canceledStatus, stopped);
+        }
+      }));
+    }
+    for (Future<?> future : futures) {
+      try {
+        future.get();
+      }
+      catch (InterruptedException e) {
+        stopped.set(true);
+      }
+      catch (ExecutionException e) {
+        LOG.error(e);
+        stopped.set(true);
+      }
+    }
+    return myTasks;
+  }
+
+  private void copyRange(int first, int end, int step, CanceledStatus canceledStatus, AtomicBoolean stopped) {
+    for (int i = first; i < end && !stopped.get() && !canceledStatus.isCanceled(); i += step) {
+      final CopyTask task = myTasks.get(i);
+      try {
+        copyFile(task.mySource, task.myTarget);
+        task.myCopied = true;
+      }
+      catch (IOException e) {
+        task.myError = e;
+        stopped.set(true);
+      }
+    }
+  }
+
+  private void copyFile(File from, File to) throws IOException {
+    // the target may be a hard link to the source created by a previous build, writing to it would modify the source
+    if (to.exists() && !FileUtil.delete(to)) {
+      throw new IOException("Cannot delete " + to.getPath());
+    }
+    if (myHardLinkFactory != null) {
+      FileUtil.createParentDirs(to);
+      if (myHardLinkFactory.createLink(from, to)) {
+        return;
+      }
+    }
+
+    FileOutputStream out;
+    try {
+      out = new FileOutputStream(to);
+    }
+    catch (IOException e) {
+      FileUtil.createParentDirs(to);
+      out = new FileOutputStream(to);
+    }
+    try {
+      final FileInputStream in = new FileInputStream(from);
+      try {
+        final FileChannel fromChannel = in.getChannel();
+        final FileChannel toChannel = out.getChannel();
+        final long size = fromChannel.size();
+        long position = 0;
+        while (position < size) {
+          final long transferred = fromChannel.transferTo(position, size - position, toChannel);
+          if (transferred <= 0) {
+            break;
+          }
+          position += transferred;
+        }
+      }
+      finally {
+        in.close();
+      }
+    }
+    finally {
+      out.close();
+    }
+  }
+}
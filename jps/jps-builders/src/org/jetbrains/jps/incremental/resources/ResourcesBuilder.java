@@ -18,6 +18,7 @@ package org.jetbrains.jps.incremental.resources;
 import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.openapi.util.io.FileUtil;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import org.jetbrains.jps.builders.BuildOutputConsumer;
 import org.jetbrains.jps.builders.DirtyFilesHolder;
 import org.jetbrains.jps.builders.FileProcessor;
@@ -68,6 +69,7 @@ public class ResourcesBuilder extends TargetBuilder<ResourceRootDescriptor, Reso
     }
 
     try {
+      final ResourceCopier copier = new ResourceCopier();
       holder.processDirtyFiles(new FileProcessor<ResourceRootDescriptor, ResourcesTarget>() {
         private final Map<ResourceRootDescriptor, Boolean> mySkippedRoots = new HashMap<ResourceRootDescriptor, Boolean>();
         public boolean apply(ResourcesTarget target, final File file, final ResourceRootDescriptor sourceRoot) throws IOException {
@@ -80,23 +82,40 @@ public class ResourcesBuilder extends TargetBuilder<ResourceRootDescriptor, Reso
           if (isSkipped.booleanValue()) {
             return true;
           }
-          try {
-            copyResource(context, sourceRoot, file, outputConsumer);
+          final File targetFile = getTargetFile(sourceRoot, file);
+          if (targetFile != null) {
+            copier.addTask(file, targetFile);
           }
-          catch (IOException e) {
-            LOG.info(e);
+          return !context.getCancelStatus().isCanceled();
+        }
+      });
+
+      context.checkCanceled();
+
+      if (!copier.isEmpty()) {
+        context.processMessage(new ProgressMessage("Copying resources... [" + target.getModule().getName() + "]"));
+        for (ResourceCopier.CopyTask task : copier.copy(context.getCancelStatus())) {
+          final File file = task.getSource();
+          final IOException error = task.getError();
+          if (error != null) {
+            LOG.info(error);
             context.processMessage(
               new CompilerMessage(
-                "resources", BuildMessage.Kind.ERROR, e.getMessage(), FileUtil.toSystemIndependentName(file.getPath())
+                "resources", BuildMessage.Kind.ERROR, error.getMessage(), FileUtil.toSystemIndependentName(file.getPath())
               )
             );
-            return false;
           }
-          return !context.getCancelStatus().isCanceled();
+          else if (task.isCopied()) {
+            try {
+              outputConsumer.registerOutputFile(task.getTarget(), Collections.singletonList(file.getPath()));
+            }
+            catch (Exception e) {
+              context.processMessage(new CompilerMessage(BUILDER_NAME, e));
+            }
+          }
         }
-      });
-
-      context.checkCanceled();
+        context.checkCanceled();
+      }
 
       context.processMessage(new ProgressMessage(""));
     }
@@ -119,10 +138,11 @@ public class ResourcesBuilder extends TargetBuilder<ResourceRootDescriptor, Reso
     return true;
   }
 
-  private static void copyResource(CompileContext context, ResourceRootDescriptor rd, File file, BuildOutputConsumer outputConsumer) throws IOException {
+  @Nullable
+  private static File getTargetFile(ResourceRootDescriptor rd, File file) {
     final File outputRoot = rd.getTarget().getOutputDir();
     if (outputRoot == null) {
-      return;
+      return null;
     }
     final String sourceRootPath = FileUtil.toSystemIndependentName(rd.getRootFile().getAbsolutePath());
     final String relativePath = FileUtil.getRelativePath(sourceRootPath, FileUtil.toSystemIndependentName(file.getPath()), '/');
@@ -134,18 +154,7 @@ public class ResourcesBuilder extends TargetBuilder<ResourceRootDescriptor, Reso
       targetPath.append('/').append(prefix.replace('.', '/'));
     }
     targetPath.append('/').append(relativePath);
-
-    context.processMessage(new ProgressMessage("Copying resources... [" + rd.getTarget().getModule().getName() + "]"));
-
-    final String outputPath = targetPath.toString();
-    final File targetFile = new File(outputPath);
-    FileUtil.copyContent(file, targetFile);
-    try {
-      outputConsumer.registerOutputFile(targetFile, Collections.singletonList(file.getPath()));
-    }
-    catch (Exception e) {
-      context.processMessage(new CompilerMessage(BUILDER_NAME, e));
-    }
+    return new File(targetPath.toString());
   }
 
   @NotNull
@@ -26,6 +26,7 @@ import org.jetbrains.jps.builders.java.dependencyView.Mappings;
 import org.jetbrains.jps.builders.storage.BuildDataPaths;
 import org.jetbrains.jps.builders.storage.SourceToOutputMapping;
 import org.jetbrains.jps.builders.storage.StorageProvider;
+import org.jetbrains.jps.incremental.BuildTrace;
 
 import java.io.*;
 import java.util.Collection;
@@ -161,21 +162,27 @@ public class BuildDataManager implements StorageOwner {
   }
 
   public void flush(boolean memoryCachesOnly) {
-    synchronized (myTargetStoragesLock) {
-      myTargetStoragesOwner.flush(memoryCachesOnly);
-    }
-    synchronized (mySourceToOutputLock) {
-      for (SourceToOutputMappingImpl mapping : mySourceToOutputs.values()) {
-        mapping.flush(memoryCachesOnly);
+    final Runnable span = BuildTrace.startSpan(BuildTrace.CATEGORY_STORAGE, memoryCachesOnly? "Flush memory caches" : "Flush storages");
+    try {
+      synchronized (myTargetStoragesLock) {
+        myTargetStoragesOwner.flush(memoryCachesOnly);
       }
-    }
-    mySrcToFormMap.flush(memoryCachesOnly);
-    final Mappings mappings = myMappings;
-    if (mappings != null) {
-      synchronized (mappings) {
-        mappings.flush(memoryCachesOnly);
+      synchronized (mySourceToOutputLock) {
+        for (SourceToOutputMappingImpl mapping : mySourceToOutputs.values()) {
+          mapping.flush(memoryCachesOnly);
+        }
+      }
+      mySrcToFormMap.flush(memoryCachesOnly);
+      final Mappings mappings = myMappings;
+      if (mappings != null) {
+        synchronized (mappings) {
+          mappings.flush(memoryCachesOnly);
+        }
       }
     }
+    finally {
+      span.run();
+    }
   }
 
   public void close() throws IOException {
@@ -26,6 +26,8 @@ import java.io.File;
 import java.io.IOException;
 
 /**
+ * Besides file stamps the storage keeps digests of directories, see {@link #saveDirectoryDigest}.
+ *
  * @author Eugene Zhuravlev
  *         Date: 10/7/11
  */
@@ -49,9 +51,32 @@ public class TimestampStorage extends AbstractStateStorage<File, TimestampStorag
 
   @Override
   public long getStamp(File file, BuildTarget<?> target) throws IOException {
+    return getTimestamp(getState(file), myTargetsState.getBuildTargetId(target));
+  }
+
+  @Override
+  public void saveStamp(File file, BuildTarget<?> buildTarget, long timestamp) throws IOException {
+    int targetId = myTargetsState.getBuildTargetId(buildTarget);
     final TimestampPerTarget[] state = getState(file);
+    if (getTimestamp(state, targetId) != timestamp) {
+      invalidateDirectoryDigest(file, targetId);
+    }
+    update(file, updateTimestamp(state, targetId, timestamp));
+  }
+
+  @Override
+  public long getDirectoryDigest(File dir, BuildTarget<?> target) throws IOException {
+    return getStamp(dir, target);
+  }
+
+  @Override
+  public void saveDirectoryDigest(File dir, BuildTarget<?> target, long digest) throws IOException {
+    int targetId = myTargetsState.getBuildTargetId(target);
+    update(dir, updateTimestamp(getState(dir), targetId, digest));
+  }
+
+  private static long getTimestamp(TimestampPerTarget[] state, int targetId) {
     if (state != null) {
-      int targetId = myTargetsState.getBuildTargetId(target);
       for (TimestampPerTarget timestampPerTarget : state) {
         if (timestampPerTarget.targetId == targetId) {
           return timestampPerTarget.timestamp;
@@ -61,12 +86,6 @@ public class TimestampStorage extends AbstractStateStorage<File, TimestampStorag
     return -1L;
   }
 
-  @Override
-  public void saveStamp(File file, BuildTarget<?> buildTarget, long timestamp) throws IOException {
-    int targetId = myTargetsState.getBuildTargetId(buildTarget);
-    update(file, updateTimestamp(getState(file), targetId, timestamp));
-  }
-
   @NotNull
   private static TimestampPerTarget[] updateTimestamp(TimestampPerTarget[] oldState, final int targetId, long timestamp) {
     final TimestampPerTarget newItem = new TimestampPerTarget(targetId, timestamp);
@@ -83,9 +102,22 @@ public class TimestampStorage extends AbstractStateStorage<File, TimestampStorag
   }
 
   public void removeStamp(File file, BuildTarget<?> buildTarget) throws IOException {
+    int targetId = myTargetsState.getBuildTargetId(buildTarget);
+    if (removeTimestamp(file, targetId)) {
+      invalidateDirectoryDigest(file, targetId);
+    }
+  }
+
+  private void invalidateDirectoryDigest(File file, int targetId) throws IOException {
+    final File parent = file.getParentFile();
+    if (parent != null) {
+      removeTimestamp(parent, targetId);
+    }
+  }
+
+  private boolean removeTimestamp(File file, int targetId) throws IOException {
     TimestampPerTarget[] state = getState(file);
     if (state != null) {
-      int targetId = myTargetsState.getBuildTargetId(buildTarget);
       for (int i = 0; i < state.length; i++) {
         TimestampPerTarget timestampPerTarget = state[i];
         if (timestampPerTarget.targetId == targetId) {
@@ -95,11 +127,12 @@ public class TimestampStorage extends AbstractStateStorage<File, TimestampStorag
           else {
             TimestampPerTarget[] newState = ArrayUtil.remove(state, i);
             update(file, newState);
-            break;
           }
+          return true;
         }
       }
     }
+    return false;
   }
 
   public static class TimestampPerTarget {
@@ -34,4 +34,16 @@ public interface Timestamps {
   void clean() throws IOException;
 
   long getStamp(File file, BuildTarget<?> target) throws IOException;
+
+  /**
+   * @return digest of the directory's files saved by {@link #saveDirectoryDigest}, or -1 if there is none or it was invalidated
+   * by a change of a file stamp
+   */
+  long getDirectoryDigest(File dir, BuildTarget<?> target) throws IOException;
+
+  /**
+   * Saves a digest of names and timestamps of the directory's files; it may be saved only if stamps of all these files are up to date.
+   * Saving or removing a stamp of any file in the directory invalidates the digest.
+   */
+  void saveDirectoryDigest(File dir, BuildTarget<?> target, long digest) throws IOException;
 }
@@ -0,0 +1,177 @@
+/*
+ * Copyright 2000-2012 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jetbrains.jps.javac;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.*;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Process-wide index of packages contained in classpath archives.
+ * The index survives compilation sessions and builds, so that javac does not have to open every classpath jar each time it lists
+ * a package: archives that do not contain the package are skipped without being opened.
+ * An archive's entry is recomputed as soon as its length or timestamp changes. While the timestamp of an archive is too recent to
+ * tell a rewrite from the indexed content, the tail of the archive holding its central directory is compared as well.
+ * Only the recently used archives are kept.
+ */
+final class ArchivePackageIndex {
+  private static final int MAX_ARCHIVES = 1000;
+  // file systems with the coarsest timestamps store them with the 2 seconds precision
+  private static final long STAMP_GRANULARITY_MS = 2000;
+  private static final int TAIL_SIZE = 4096;
+
+  private static final Map<File, ArchiveData> ourCache = new LinkedHashMap<File, ArchiveData>(16, 0.75f, true) {
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<File, ArchiveData> eldest) {
+      return size() > MAX_ARCHIVES;
+    }
+  };
+
+  private ArchivePackageIndex() {
+  }
+
+  static void clear() {
+    synchronized (ourCache) {
+      ourCache.clear();
+    }
+  }
+
+  /**
+   * @param packagePath package name with '/' used as a separator, empty string for the default package
+   * @return false if the archive definitely contains neither files in the package nor (if <code>recurse</code> is true) in its subpackages
+   */
+  static boolean mayContainPackage(File archive, String packagePath, boolean recurse) {
+    final SortedSet<String> packages = getPackages(archive);
+    if (packages == null) {
+      return true; // unknown, let javac decide
+    }
+    if (packages.contains(packagePath)) {
+      return true;
+    }
+    if (recurse) {
+      final String prefix = packagePath.length() == 0? "" : packagePath + "/";
+      final SortedSet<String> tail = packages.tailSet(prefix);
+      return !tail.isEmpty() && tail.first().startsWith(prefix);
+    }
+    return false;
+  }
+
+  private static SortedSet<String> getPackages(File archive) {
+    final long length = archive.length();
+    final long stamp = archive.lastModified();
+    ArchiveData data;
+    synchronized (ourCache) {
+      data = ourCache.get(archive);
+    }
+    if (data != null && data.length == length && data.stamp == stamp) {
+      if (data.tailHash == null) {
+        return data.packages;
+      }
+      final Long tailHash = readTailHash(archive, length);
+      if (data.tailHash.equals(tailHash)) {
+        if (!isRecent(stamp)) {
+          // any later rewrite is going to change the timestamp
+          synchronized (ourCache) {
+            ourCache.put(archive, new ArchiveData(length, stamp, null, data.packages));
+          }
+        }
+        return data.packages;
+      }
+    }
+
+    final Long tailHash = isRecent(stamp)? readTailHash(archive, length) : null;
+    final SortedSet<String> packages = readPackages(archive);
+    synchronized (ourCache) {
+      if (packages == null) {
+        ourCache.remove(archive);
+        return null;
+      }
+      ourCache.put(archive, new ArchiveData(length, stamp, tailHash, packages));
+    }
+    return packages;
+  }
+
+  private static boolean isRecent(long stamp) {
+    return System.currentTimeMillis() - stamp < STAMP_GRANULARITY_MS;
+  }
+
+  /**
+   * @return checksum of the end of the archive, where its central directory with the names and CRCs of the entries is stored
+   */
+  private static Long readTailHash(File archive, long length) {
+    try {
+      final RandomAccessFile file = new RandomAccessFile(archive, "r");
+      try {
+        final byte[] tail = new byte[(int)Math.min(length, TAIL_SIZE)];
+        file.seek(length - tail.length);
+        file.readFully(tail);
+        final CRC32 crc = new CRC32();
+        crc.update(tail);
+        return crc.getValue();
+      }
+      finally {
+        file.close();
+      }
+    }
+    catch (IOException e) {
+      return null;
+    }
+  }
+
+  private static SortedSet<String> readPackages(File archive) {
+    try {
+      final ZipFile zip = new ZipFile(archive);
+      try {
+        final SortedSet<String> packages = new TreeSet<String>();
+        for (Enumeration<? extends ZipEntry> entries = zip.entries(); entries.hasMoreElements(); ) {
+          final ZipEntry entry = entries.nextElement();
+          if (entry.isDirectory()) {
+            continue;
+          }
+          final String name = entry.getName();
+          final int idx = name.lastIndexOf('/');
+          packages.add(idx > 0? name.substring(0, idx) : "");
+        }
+        return packages;
+      }
+      finally {
+        zip.close();
+      }
+    }
+    catch (IOException e) {
+      return null;
+    }
+  }
+
+  private static final class ArchiveData {
+    final long length;
+    final long stamp;
+    // null when the timestamp is old enough to be trusted
+    final Long tailHash;
+    final SortedSet<String> packages;
+
+    ArchiveData(long length, long stamp, Long tailHash, SortedSet<String> packages) {
+      this.length = length;
+      this.stamp = stamp;
+      this.tailHash = tailHash;
+      this.packages = packages;
+    }
+  }
+}
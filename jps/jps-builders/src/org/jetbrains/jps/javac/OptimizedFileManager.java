@@ -98,6 +98,7 @@ class OptimizedFileManager extends DefaultFileManager {
     }
 
     final String relativePath = packageName.replace('.', File.separatorChar);
+    final String packagePath = packageName.replace('.', '/');
     ListBuffer<JavaFileObject> results = new ListBuffer<JavaFileObject>();
 
     for (File root : locationRoots) {
@@ -110,7 +111,9 @@ class OptimizedFileManager extends DefaultFileManager {
         isFile = isFile(root);
       }
       if (isFile) {
-        collectFromArchive(root, archive, relativePath, kinds, recurse, results);
+        if (archive != null || ArchivePackageIndex.mayContainPackage(root, packagePath, recurse)) {
+          collectFromArchive(root, archive, relativePath, kinds, recurse, results);
+        }
       }
       else {
         final File directory = relativePath.length() != 0 ? new File(root, relativePath) : root;
@@ -249,6 +252,10 @@ class OptimizedFileManager extends DefaultFileManager {
       }
       if (isFile) {
         if (archive == null) {
+          final int idx = name.lastIndexOf('/');
+          if (!ArchivePackageIndex.mayContainPackage(root, idx > 0? name.substring(0, idx) : "", false)) {
+            continue;
+          }
           try {
             archive = openArchive(root);
           }
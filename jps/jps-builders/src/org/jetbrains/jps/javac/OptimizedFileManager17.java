@@ -82,7 +82,8 @@ class OptimizedFileManager17 extends com.sun.tools.javac.file.JavacFileManager {
       return List.nil();
     }
 
-    RelativePath.RelativeDirectory subdirectory = new RelativePath.RelativeDirectory(packageName.replace('.', '/'));
+    final String packagePath = packageName.replace('.', '/');
+    RelativePath.RelativeDirectory subdirectory = new RelativePath.RelativeDirectory(packagePath);
     
     ListBuffer<JavaFileObject> results = new ListBuffer<JavaFileObject>();
 
@@ -98,6 +99,9 @@ class OptimizedFileManager17 extends com.sun.tools.javac.file.JavacFileManager {
       }
       
       if (isFile) {
+        if (archive == null && !ArchivePackageIndex.mayContainPackage(root, packagePath, recurse)) {
+          continue;
+        }
         // Not a directory; either a file or non-existant, create the archive
         try {
           if (archive == null) {
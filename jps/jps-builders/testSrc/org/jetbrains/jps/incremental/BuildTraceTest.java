@@ -0,0 +1,108 @@
+/*
+ * Copyright 2000-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jetbrains.jps.incremental;
+
+import com.intellij.openapi.util.io.FileUtil;
+import com.intellij.testFramework.UsefulTestCase;
+
+import java.io.File;
+import java.io.IOException;
+
+public class BuildTraceTest extends UsefulTestCase {
+  private File myTraceDir;
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    myTraceDir = FileUtil.createTempDirectory("build-trace", null);
+    BuildTrace.setTraceDir(myTraceDir);
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    try {
+      BuildTrace.setTraceDir(null);
+      FileUtil.delete(myTraceDir);
+    }
+    finally {
+      super.tearDown();
+    }
+  }
+
+  public void testSpansAreWritten() throws Exception {
+    BuildTrace.sessionStarted();
+    final Runnable outer = BuildTrace.startSpan(BuildTrace.CATEGORY_TARGET, "module \"a\"");
+    BuildTrace.startSpan(BuildTrace.CATEGORY_BUILDER, "java").run();
+    final Thread thread = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        BuildTrace.startSpan(BuildTrace.CATEGORY_STORAGE, "flush").run();
+      }
+    }, "storage thread");
+    thread.start();
+    thread.join();
+    outer.run();
+
+    String text = loadTrace(BuildTrace.sessionFinished());
+    assertTrue(text, text.startsWith("{\"traceEvents\":["));
+    assertTrue(text, text.contains("{\"name\":\"module \\\"a\\\"\",\"cat\":\"target\",\"ph\":\"X\""));
+    assertTrue(text, text.contains("{\"name\":\"java\",\"cat\":\"builder\",\"ph\":\"X\""));
+    assertTrue(text, text.contains("{\"name\":\"flush\",\"cat\":\"storage\",\"ph\":\"X\""));
+    assertTrue(text, text.contains("\"args\":{\"name\":\"storage thread\"}"));
+    assertEquals(text, 2, count(text, "\"thread_name\""));
+  }
+
+  public void testUnfinishedSpansAreNotWritten() throws Exception {
+    BuildTrace.sessionStarted();
+    BuildTrace.startSpan(BuildTrace.CATEGORY_BUILDER, "unfinished");
+    assertNull(BuildTrace.sessionFinished());
+  }
+
+  public void testEventsOfPreviousSessionAreNotWritten() throws Exception {
+    BuildTrace.sessionStarted();
+    BuildTrace.startSpan(BuildTrace.CATEGORY_BUILDER, "first").run();
+    assertNotNull(BuildTrace.sessionFinished());
+
+    BuildTrace.sessionStarted();
+    BuildTrace.startSpan(BuildTrace.CATEGORY_BUILDER, "second").run();
+    String text = loadTrace(BuildTrace.sessionFinished());
+    assertFalse(text, text.contains("first"));
+    assertTrue(text, text.contains("second"));
+  }
+
+  public void testDisabled() throws Exception {
+    BuildTrace.setTraceDir(null);
+    assertFalse(BuildTrace.isEnabled());
+    BuildTrace.sessionStarted();
+    BuildTrace.startSpan(BuildTrace.CATEGORY_BUILDER, "java").run();
+    assertNull(BuildTrace.sessionFinished());
+    assertEmpty(myTraceDir.list());
+  }
+
+  private static String loadTrace(File file) throws IOException {
+    assertNotNull(file);
+    assertTrue(file.isFile());
+    return FileUtil.loadFile(file, "UTF-8");
+  }
+
+  private static int count(String text, String substring) {
+    int count = 0;
+    for (int i = text.indexOf(substring); i >= 0; i = text.indexOf(substring, i + substring.length())) {
+      count++;
+    }
+    return count;
+  }
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright 2000-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jetbrains.jps.incremental.artifacts;
+
+import com.intellij.util.PathUtil;
+import org.jetbrains.jps.builders.logging.BuildLoggingManager;
+import org.jetbrains.jps.cmdline.ProjectDescriptor;
+import org.jetbrains.jps.incremental.storage.TimestampStorage;
+import org.jetbrains.jps.model.artifact.JpsArtifact;
+
+import java.io.File;
+import java.io.IOException;
+
+import static com.intellij.util.io.TestFileSystemItem.fs;
+import static org.jetbrains.jps.incremental.artifacts.LayoutElementTestUtil.root;
+
+/**
+ * Checks that directory digests kept in the timestamp storage don't hide changes in directories of build roots
+ */
+public class DirectoryDigestTest extends ArtifactBuilderTestCase {
+  private JpsArtifact myArtifact;
+  private File myDir;
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    String file = createFile("dir/a.txt", "a");
+    createFile("dir/b.txt", "b");
+    myDir = new File(PathUtil.getParentPath(file));
+    myArtifact = addArtifact("a", root().dirCopy(myDir.getAbsolutePath()));
+    buildAll();
+    assertOutput(myArtifact, fs().file("a.txt", "a").file("b.txt", "b"));
+    //the digest is saved by the first scan which finds all files of the directory up to date
+    buildAllAndAssertUpToDate();
+    assertTrue(getDirectoryDigest() != -1);
+  }
+
+  public void testUnchangedDirectoryIsSkipped() throws IOException {
+    long digest = getDirectoryDigest();
+    ProjectDescriptor descriptor = createProjectDescriptor(BuildLoggingManager.DEFAULT);
+    try {
+      //a wrong stamp is noticed only if the stamps of the directory's files are read
+      TimestampStorage storage = descriptor.timestamps.getStorage();
+      ArtifactBuildTarget target = new ArtifactBuildTarget(myArtifact);
+      storage.saveStamp(new File(myDir, "a.txt"), target, 42);
+      assertEquals(-1, storage.getDirectoryDigest(myDir, target));
+      storage.saveDirectoryDigest(myDir, target, digest);
+    }
+    finally {
+      descriptor.release();
+    }
+    buildAllAndAssertUpToDate();
+    assertEquals(digest, getDirectoryDigest());
+  }
+
+  public void testFileAdded() {
+    createFile("dir/c.txt", "c");
+    buildAll();
+    assertCopied("dir/c.txt");
+    assertOutput(myArtifact, fs().file("a.txt", "a").file("b.txt", "b").file("c.txt", "c"));
+    buildAllAndAssertUpToDate();
+  }
+
+  public void testFileRemoved() {
+    delete(new File(myDir, "b.txt").getAbsolutePath());
+    buildAll();
+    assertDeleted("out/artifacts/a/b.txt");
+    assertOutput(myArtifact, fs().file("a.txt", "a"));
+    buildAllAndAssertUpToDate();
+  }
+
+  public void testFileRenamed() {
+    File file = new File(myDir, "a.txt");
+    File renamed = new File(myDir, "c.txt");
+    long timestamp = file.lastModified();
+    assertTrue(file.renameTo(renamed));
+    //the renamed file keeps its timestamp, only its name tells that the directory has changed
+    assertEquals(timestamp, renamed.lastModified());
+    buildAll();
+    assertDeletedAndCopied("out/artifacts/a/a.txt", "dir/c.txt");
+    assertOutput(myArtifact, fs().file("b.txt", "b").file("c.txt", "a"));
+    buildAllAndAssertUpToDate();
+  }
+
+  public void testFileChanged() {
+    change(new File(myDir, "a.txt").getAbsolutePath(), "changed");
+    buildAll();
+    assertDeletedAndCopied("out/artifacts/a/a.txt", "dir/a.txt");
+    assertOutput(myArtifact, fs().file("a.txt", "changed").file("b.txt", "b"));
+    buildAllAndAssertUpToDate();
+  }
+
+  private long getDirectoryDigest() throws IOException {
+    ProjectDescriptor descriptor = createProjectDescriptor(BuildLoggingManager.DEFAULT);
+    try {
+      return descriptor.timestamps.getStorage().getDirectoryDigest(myDir, new ArtifactBuildTarget(myArtifact));
+    }
+    finally {
+      descriptor.release();
+    }
+  }
+}
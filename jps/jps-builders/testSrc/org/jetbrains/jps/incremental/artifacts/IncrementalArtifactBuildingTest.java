@@ -16,6 +16,7 @@
 package org.jetbrains.jps.incremental.artifacts;
 
 import com.intellij.openapi.util.io.FileUtil;
+import com.intellij.openapi.util.text.StringUtil;
 import com.intellij.util.PathUtil;
 import org.jetbrains.jps.builders.CompileScopeTestBuilder;
 import org.jetbrains.jps.model.artifact.JpsArtifact;
@@ -23,7 +24,14 @@ import org.jetbrains.jps.model.artifact.elements.JpsPackagingElementFactory;
 import org.jetbrains.jps.model.module.JpsModule;
 
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.util.Enumeration;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
 
 import static com.intellij.util.io.TestFileSystemItem.fs;
 import static org.jetbrains.jps.incremental.artifacts.LayoutElementTestUtil.archive;
@@ -78,6 +86,78 @@ public class IncrementalArtifactBuildingTest extends ArtifactBuilderTestCase {
     buildAllAndAssertUpToDate();
   }
 
+  public void testUnchangedEntriesAreCopiedFromPreviousArchive() throws IOException {
+    String file1 = createFile("dir/a.txt", "aaa");
+    createFile("dir/b.txt", StringUtil.repeat("b", 1000));
+    final JpsArtifact a = addArtifact(archive("a.jar").parentDirCopy(file1));
+    buildAll();
+    File jar = new File(a.getOutputPath(), "a.jar");
+
+    //the previous version of b.txt is stored uncompressed, so it can be distinguished from b.txt compressed again
+    long storedSize = recompressEntry(jar, "b.txt", Deflater.NO_COMPRESSION);
+    change(file1, "xxx");
+    buildAll();
+    assertDeletedAndCopied("out/artifacts/a/a.jar", "dir/a.txt", "dir/b.txt");
+    assertOutput(a, fs().archive("a.jar").file("a.txt", "xxx").file("b.txt", StringUtil.repeat("b", 1000)));
+    assertEquals(storedSize, getCompressedSize(jar, "b.txt"));
+    buildAllAndAssertUpToDate();
+  }
+
+  private static long recompressEntry(File jar, String entryName, int level) throws IOException {
+    File copy = FileUtil.createTempFile("copy", ".jar");
+    ZipFile zipFile = new ZipFile(jar);
+    try {
+      ZipOutputStream output = new ZipOutputStream(new FileOutputStream(copy));
+      try {
+        Enumeration<? extends ZipEntry> entries = zipFile.entries();
+        while (entries.hasMoreElements()) {
+          ZipEntry entry = entries.nextElement();
+          ZipEntry newEntry = new ZipEntry(entry.getName());
+          newEntry.setTime(entry.getTime());
+          newEntry.setMethod(entry.getMethod());
+          if (entry.getMethod() == ZipEntry.STORED) {
+            newEntry.setSize(entry.getSize());
+            newEntry.setCrc(entry.getCrc());
+          }
+          output.setLevel(entry.getName().equals(entryName) ? level : Deflater.DEFAULT_COMPRESSION);
+          output.putNextEntry(newEntry);
+          InputStream input = zipFile.getInputStream(entry);
+          try {
+            FileUtil.copy(input, output);
+          }
+          finally {
+            input.close();
+          }
+          output.closeEntry();
+        }
+      }
+      finally {
+        output.close();
+      }
+    }
+    finally {
+      zipFile.close();
+    }
+    long oldSize = getCompressedSize(jar, entryName);
+    FileUtil.copy(copy, jar);
+    FileUtil.delete(copy);
+    long newSize = getCompressedSize(jar, entryName);
+    assertTrue(newSize != oldSize);
+    return newSize;
+  }
+
+  private static long getCompressedSize(File jar, String entryName) throws IOException {
+    ZipFile zipFile = new ZipFile(jar);
+    try {
+      ZipEntry entry = zipFile.getEntry(entryName);
+      assertNotNull(entry);
+      return entry.getCompressedSize();
+    }
+    finally {
+      zipFile.close();
+    }
+  }
+
   public void testRemoveDeletedFileFromArchive() {
     String file1 = createFile("dir/a.txt");
     createFile("dir/b.txt");
@@ -0,0 +1,117 @@
+/*
+ * Copyright 2000-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jetbrains.jps.incremental.resources;
+
+import com.intellij.openapi.util.io.FileUtil;
+import com.intellij.testFramework.UsefulTestCase;
+import org.jetbrains.jps.api.CanceledStatus;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.List;
+
+public class ResourceCopierTest extends UsefulTestCase {
+  private File myDir;
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    myDir = FileUtil.createTempDirectory("resource-copier", null);
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    try {
+      FileUtil.delete(myDir);
+    }
+    finally {
+      super.tearDown();
+    }
+  }
+
+  public void testCopyManyFiles() throws IOException {
+    ResourceCopier copier = new ResourceCopier(null);
+    for (int i = 0; i < 1000; i++) {
+      copier.addTask(createFile("src/" + i + ".txt", "text" + i), new File(myDir, "out/dir" + i % 10 + "/" + i + ".txt"));
+    }
+    List<ResourceCopier.CopyTask> tasks = copier.copy(CanceledStatus.NULL);
+    assertSize(1000, tasks);
+    for (ResourceCopier.CopyTask task : tasks) {
+      assertTrue(task.isCopied());
+      assertNull(task.getError());
+      assertEquals(FileUtil.loadFile(task.getSource()), FileUtil.loadFile(task.getTarget()));
+    }
+  }
+
+  public void testErrorIsReported() throws IOException {
+    ResourceCopier copier = new ResourceCopier(null);
+    copier.addTask(new File(myDir, "src/missing.txt"), new File(myDir, "out/missing.txt"));
+    ResourceCopier.CopyTask task = assertOneElement(copier.copy(CanceledStatus.NULL));
+    assertFalse(task.isCopied());
+    assertNotNull(task.getError());
+  }
+
+  public void testHardLinks() throws IOException {
+    HardLinkFactory factory = HardLinkFactory.create();
+    if (factory == null) return;
+
+    File source = createFile("src/a.txt", "aaa");
+    File target = new File(myDir, "out/a.txt");
+    ResourceCopier copier = new ResourceCopier(factory);
+    copier.addTask(source, target);
+    assertTrue(assertOneElement(copier.copy(CanceledStatus.NULL)).isCopied());
+    assertEquals("aaa", FileUtil.loadFile(target));
+
+    overwriteInPlace(source, "bbb");
+    assertEquals("the output is expected to be a link to the source", "bbb", FileUtil.loadFile(target));
+  }
+
+  public void testExistingLinkIsReplacedNotWrittenThrough() throws IOException {
+    HardLinkFactory factory = HardLinkFactory.create();
+    if (factory == null) return;
+
+    File source = createFile("src/a.txt", "aaa");
+    File target = new File(myDir, "out/a.txt");
+    ResourceCopier linkingCopier = new ResourceCopier(factory);
+    linkingCopier.addTask(source, target);
+    linkingCopier.copy(CanceledStatus.NULL);
+
+    File otherSource = createFile("src/b.txt", "bbb");
+    ResourceCopier copier = new ResourceCopier(null);
+    copier.addTask(otherSource, target);
+    assertTrue(assertOneElement(copier.copy(CanceledStatus.NULL)).isCopied());
+    assertEquals("bbb", FileUtil.loadFile(target));
+    assertEquals("aaa", FileUtil.loadFile(source));
+  }
+
+  private File createFile(String relativePath, String text) throws IOException {
+    File file = new File(myDir, relativePath);
+    FileUtil.writeToFile(file, text);
+    return file;
+  }
+
+  private static void overwriteInPlace(File file, String text) throws IOException {
+    RandomAccessFile raf = new RandomAccessFile(file, "rw");
+    try {
+      raf.seek(0);
+      raf.write(text.getBytes());
+    }
+    finally {
+      raf.close();
+    }
+  }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright 2000-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jetbrains.jps.javac;
+
+import com.intellij.openapi.util.io.FileUtil;
+import com.intellij.testFramework.UsefulTestCase;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+public class ArchivePackageIndexTest extends UsefulTestCase {
+  private File myDir;
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    myDir = FileUtil.createTempDirectory("archive-index", null);
+    ArchivePackageIndex.clear();
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    try {
+      ArchivePackageIndex.clear();
+      FileUtil.delete(myDir);
+    }
+    finally {
+      super.tearDown();
+    }
+  }
+
+  public void testPackages() throws IOException {
+    File jar = createJar("a.jar", "Default.class", "org/foo/A.class", "org/foo/bar/B.class");
+    assertTrue(ArchivePackageIndex.mayContainPackage(jar, "", false));
+    assertTrue(ArchivePackageIndex.mayContainPackage(jar, "org/foo", false));
+    assertTrue(ArchivePackageIndex.mayContainPackage(jar, "org/foo/bar", false));
+    assertFalse(ArchivePackageIndex.mayContainPackage(jar, "org", false));
+    assertTrue(ArchivePackageIndex.mayContainPackage(jar, "org", true));
+    assertFalse(ArchivePackageIndex.mayContainPackage(jar, "org/fo", true));
+    assertFalse(ArchivePackageIndex.mayContainPackage(jar, "com", true));
+  }
+
+  public void testUnreadableArchiveMayContainAnything() throws IOException {
+    File file = new File(myDir, "broken.jar");
+    FileUtil.writeToFile(file, "not a zip");
+    assertTrue(ArchivePackageIndex.mayContainPackage(file, "org/foo", false));
+  }
+
+  public void testRecentArchiveRewrittenWithSameLengthAndStampIsReRead() throws IOException {
+    File jar = createJar("a.jar", "org/foo/A.class");
+    long stamp = jar.lastModified();
+    assertFalse(ArchivePackageIndex.mayContainPackage(jar, "org/bar", false));
+
+    // the same length and timestamp: the archive is rewritten within the timestamp granularity
+    createJar("a.jar", "org/bar/A.class");
+    assertTrue(jar.setLastModified(stamp));
+    assertTrue(ArchivePackageIndex.mayContainPackage(jar, "org/bar", false));
+    assertFalse(ArchivePackageIndex.mayContainPackage(jar, "org/foo", false));
+  }
+
+  public void testArchiveIsReReadWhenStampChanges() throws IOException {
+    File jar = createJar("a.jar", "org/foo/A.class");
+    long stamp = System.currentTimeMillis() - 60 * 60 * 1000;
+    assertTrue(jar.setLastModified(stamp));
+    assertFalse(ArchivePackageIndex.mayContainPackage(jar, "org/bar", false));
+
+    createJar("a.jar", "org/bar/A.class");
+    assertTrue(jar.setLastModified(stamp + 1000));
+    assertTrue(ArchivePackageIndex.mayContainPackage(jar, "org/bar", false));
+  }
+
+  private File createJar(String name, String... entries) throws IOException {
+    File jar = new File(myDir, name);
+    ZipOutputStream out = new ZipOutputStream(new FileOutputStream(jar));
+    try {
+      for (String entry : entries) {
+        ZipEntry zipEntry = new ZipEntry(entry);
+        zipEntry.setTime(0);
+        out.putNextEntry(zipEntry);
+        out.write(1);
+        out.closeEntry();
+      }
+    }
+    finally {
+      out.close();
+    }
+    return jar;
+  }
+}
@@ -20,6 +20,8 @@ import com.intellij.openapi.util.SystemInfo;
 import com.intellij.openapi.util.io.FileUtilRt;
 import org.jdom.Element;
 import org.jdom.JDOMException;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import org.jetbrains.jps.TimingLog;
 import org.jetbrains.jps.model.JpsElement;
 
@@ -31,13 +33,24 @@ import java.io.IOException;
  */
 public abstract class JpsLoaderBase {
   private final JpsMacroExpander myMacroExpander;
+  private final JpsXmlDocumentCache myDocumentCache;
 
   protected JpsLoaderBase(JpsMacroExpander macroExpander) {
+    this(macroExpander, JpsXmlDocumentCache.createInMemory());
+  }
+
+  protected JpsLoaderBase(JpsMacroExpander macroExpander, @NotNull JpsXmlDocumentCache documentCache) {
     myMacroExpander = macroExpander;
+    myDocumentCache = documentCache;
+  }
+
+  @NotNull
+  protected JpsXmlDocumentCache getDocumentCache() {
+    return myDocumentCache;
   }
 
   protected Element loadRootElement(final File file) {
-    return loadRootElement(file, myMacroExpander);
+    return loadRootElement(file, myMacroExpander, myDocumentCache);
   }
 
   protected <E extends JpsElement> void loadComponents(File dir,
@@ -65,8 +78,13 @@ public abstract class JpsLoaderBase {
   }
 
   protected static Element loadRootElement(final File file, final JpsMacroExpander macroExpander) {
+    return loadRootElement(file, macroExpander, null);
+  }
+
+  protected static Element loadRootElement(final File file, final JpsMacroExpander macroExpander,
+                                           @Nullable JpsXmlDocumentCache documentCache) {
     try {
-      final Element element = JDOMUtil.loadDocument(file).getRootElement();
+      final Element element = documentCache != null ? documentCache.loadRootElement(file) : JDOMUtil.loadDocument(file).getRootElement();
       macroExpander.substitute(element, SystemInfo.isFileSystemCaseSensitive);
       return element;
     }
@@ -49,9 +49,7 @@ import org.jetbrains.jps.service.SharedThreadPool;
 import java.io.File;
 import java.io.FileFilter;
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Map;
+import java.util.*;
 import java.util.concurrent.Callable;
 import java.util.concurrent.Future;
 
@@ -66,8 +64,8 @@ public class JpsProjectLoader extends JpsLoaderBase {
   private final JpsProject myProject;
   private final Map<String, String> myPathVariables;
 
-  private JpsProjectLoader(JpsProject project, Map<String, String> pathVariables, File baseDir) {
-    super(createProjectMacroExpander(pathVariables, baseDir));
+  private JpsProjectLoader(JpsProject project, Map<String, String> pathVariables, File baseDir, JpsXmlDocumentCache documentCache) {
+    super(createProjectMacroExpander(pathVariables, baseDir), documentCache);
     myProject = project;
     myPathVariables = pathVariables;
     myProject.getContainer().setChild(JpsProjectSerializationDataExtensionImpl.ROLE, new JpsProjectSerializationDataExtensionImpl(baseDir));
@@ -80,9 +78,14 @@ public class JpsProjectLoader extends JpsLoaderBase {
   }
 
   public static void loadProject(final JpsProject project, Map<String, String> pathVariables, String projectPath) throws IOException {
+    loadProject(project, pathVariables, projectPath, JpsXmlDocumentCache.createInMemory());
+  }
+
+  public static void loadProject(final JpsProject project, Map<String, String> pathVariables, String projectPath,
+                                 @NotNull JpsXmlDocumentCache documentCache) throws IOException {
     File file = new File(FileUtil.toCanonicalPath(projectPath));
     if (file.isFile() && projectPath.endsWith(".ipr")) {
-      new JpsProjectLoader(project, pathVariables, file.getParentFile()).loadFromIpr(file);
+      new JpsProjectLoader(project, pathVariables, file.getParentFile(), documentCache).loadFromIpr(file);
     }
     else {
       File dotIdea = new File(file, PathMacroUtil.DIRECTORY_STORE_NAME);
@@ -96,7 +99,7 @@ public class JpsProjectLoader extends JpsLoaderBase {
       else {
         throw new IOException("Cannot find IntelliJ IDEA project files at " + projectPath);
       }
-      new JpsProjectLoader(project, pathVariables, directory.getParentFile()).loadFromDirectory(directory);
+      new JpsProjectLoader(project, pathVariables, directory.getParentFile(), documentCache).loadFromDirectory(directory);
     }
   }
 
@@ -114,6 +117,7 @@ public class JpsProjectLoader extends JpsLoaderBase {
 
   private void loadFromDirectory(File dir) {
     myProject.setName(getDirectoryBaseProjectName(dir));
+    preloadFiles(getProjectFiles(dir));
     JpsSdkType<?> projectSdkType = loadProjectRoot(loadRootElement(new File(dir, "misc.xml")));
     for (JpsModelSerializerExtension extension : JpsModelSerializerExtension.getExtensions()) {
       for (JpsProjectExtensionSerializer serializer : extension.getProjectExtensionSerializers()) {
@@ -148,6 +152,61 @@ public class JpsProjectLoader extends JpsLoaderBase {
     }
   }
 
+  /**
+   * @return configuration files which are read when the project is loaded from the directory-based format, except module files
+   */
+  private static List<File> getProjectFiles(File dir) {
+    final Set<File> files = new LinkedHashSet<File>();
+    files.add(new File(dir, "misc.xml"));
+    files.add(new File(dir, "modules.xml"));
+    for (JpsModelSerializerExtension extension : JpsModelSerializerExtension.getExtensions()) {
+      for (JpsProjectExtensionSerializer serializer : extension.getProjectExtensionSerializers()) {
+        final String fileName = serializer.getConfigFileName();
+        if (fileName != null) {
+          files.add(new File(dir, fileName));
+        }
+      }
+    }
+    files.addAll(Arrays.asList(listXmlFiles(new File(dir, "libraries"))));
+    files.addAll(Arrays.asList(listXmlFiles(new File(dir, "artifacts"))));
+    if (hasRunConfigurationSerializers()) {
+      files.addAll(Arrays.asList(listXmlFiles(new File(dir, "runConfigurations"))));
+      files.add(new File(dir, "workspace.xml"));
+    }
+    return new ArrayList<File>(files);
+  }
+
+  /**
+   * Parses the files in parallel, errors are ignored here and reported when a file is actually loaded
+   */
+  private void preloadFiles(List<File> files) {
+    Runnable timingLog = TimingLog.startActivity("parsing project files");
+    List<Future<?>> futures = new ArrayList<Future<?>>();
+    for (final File file : files) {
+      if (!file.isFile()) continue;
+      futures.add(ourThreadPool.submit(new Runnable() {
+        @Override
+        public void run() {
+          try {
+            getDocumentCache().preload(file);
+          }
+          catch (Exception e) {
+            LOG.debug(e);
+          }
+        }
+      }));
+    }
+    try {
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    }
+    catch (Exception e) {
+      throw new RuntimeException(e);
+    }
+    timingLog.run();
+  }
+
   private static boolean hasRunConfigurationSerializers() {
     for (JpsModelSerializerExtension extension : JpsModelSerializerExtension.getExtensions()) {
       if (!extension.getRunConfigurationPropertiesSerializers().isEmpty()) {
@@ -241,7 +300,7 @@ public class JpsProjectLoader extends JpsLoaderBase {
         @Override
         public Pair<File, Element> call() throws Exception {
           final JpsMacroExpander expander = createModuleMacroExpander(myPathVariables, file);
-          final Element moduleRoot = loadRootElement(file, expander);
+          final Element moduleRoot = loadRootElement(file, expander, getDocumentCache());
           return Pair.create(file, moduleRoot);
         }
       }));
@@ -35,5 +35,12 @@ public abstract class JpsSerializationManager {
   public abstract JpsModel loadModel(@NotNull String projectPath, @Nullable String optionsPath)
     throws IOException;
 
+  /**
+   * Loads the model using <code>documentCache</code> to avoid parsing XML files which weren't changed since the cache was saved
+   */
+  @NotNull
+  public abstract JpsModel loadModel(@NotNull String projectPath, @Nullable String optionsPath, @NotNull JpsXmlDocumentCache documentCache)
+    throws IOException;
+
   public abstract void saveGlobalSettings(@NotNull JpsGlobal global, @NotNull String optionsPath) throws IOException;
 }
@@ -0,0 +1,302 @@
+/*
+ * Copyright 2000-2012 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jetbrains.jps.model.serialization;
+
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.util.JDOMUtil;
+import com.intellij.openapi.util.io.FileUtil;
+import com.intellij.util.io.DataInputOutputUtil;
+import com.intellij.util.io.IOUtil;
+import gnu.trove.TObjectIntHashMap;
+import org.jdom.*;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.*;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps parsed XML configuration files of a project. If a snapshot file is specified, the parsed documents are stored in it in a compact
+ * binary form together with the hashes of the files they were built from, so the next time the project is loaded XML files which didn't
+ * change aren't parsed again. A file is considered unchanged if its length and timestamp are the same as recorded in the snapshot, or if
+ * they differ but the content hash is the same (e.g. the file was touched by a VCS update).
+ * <p/>
+ * Returned elements are copies of the cached ones, so callers are free to modify them.
+ *
+ * @see JpsSerializationManager#loadModel(String, String, JpsXmlDocumentCache)
+ */
+public class JpsXmlDocumentCache {
+  private static final Logger LOG = Logger.getInstance(JpsXmlDocumentCache.class);
+  private static final int VERSION = 2;
+  private static final byte ELEMENT = 1;
+  private static final byte TEXT = 2;
+  private static final byte CDATA = 3;
+  @Nullable private final File mySnapshotFile;
+  private final Map<String, CachedDocument> myPreviousDocuments;
+  private final Map<String, CachedDocument> myDocuments = new ConcurrentHashMap<String, CachedDocument>();
+  private volatile boolean myModified;
+
+  private JpsXmlDocumentCache(@Nullable File snapshotFile, Map<String, CachedDocument> previousDocuments) {
+    mySnapshotFile = snapshotFile;
+    myPreviousDocuments = previousDocuments;
+  }
+
+  /**
+   * @return cache which doesn't store parsed documents between sessions but still parses each file only once
+   */
+  @NotNull
+  public static JpsXmlDocumentCache createInMemory() {
+    return new JpsXmlDocumentCache(null, new ConcurrentHashMap<String, CachedDocument>());
+  }
+
+  @NotNull
+  public static JpsXmlDocumentCache load(@NotNull File snapshotFile) {
+    final Map<String, CachedDocument> documents = new ConcurrentHashMap<String, CachedDocument>();
+    if (snapshotFile.isFile()) {
+      try {
+        final DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(snapshotFile)));
+        try {
+          if (input.readInt() == VERSION) {
+            final List<String> strings = new ArrayList<String>();
+            final int count = DataInputOutputUtil.readINT(input);
+            for (int i = 0; i < count; i++) {
+              final String path = readString(input, strings);
+              final long length = input.readLong();
+              final long timestamp = input.readLong();
+              final byte[] hash = new byte[DataInputOutputUtil.readINT(input)];
+              input.readFully(hash);
+              final Element root = readElement(input, strings);
+              documents.put(path, new CachedDocument(length, timestamp, hash, root));
+            }
+          }
+        }
+        finally {
+          input.close();
+        }
+      }
+      catch (IOException e) {
+        LOG.info("Cannot load project model snapshot from " + snapshotFile + ": " + e.getMessage());
+        documents.clear();
+      }
+    }
+    return new JpsXmlDocumentCache(snapshotFile, documents);
+  }
+
+  @NotNull
+  public Element loadRootElement(@NotNull File file) throws IOException, JDOMException {
+    final String path = FileUtil.toSystemIndependentName(file.getAbsolutePath());
+    CachedDocument document = myDocuments.get(path);
+    if (document == null) {
+      document = getUpToDateDocument(file, path);
+      myDocuments.put(path, document);
+    }
+    return (Element)document.myRoot.clone();
+  }
+
+  /**
+   * Ensures that the file is parsed, so subsequent {@link #loadRootElement(File)} calls only need to copy the element. May be called from
+   * several threads at once to parse files in parallel.
+   */
+  public void preload(@NotNull File file) throws IOException, JDOMException {
+    final String path = FileUtil.toSystemIndependentName(file.getAbsolutePath());
+    if (!myDocuments.containsKey(path)) {
+      myDocuments.put(path, getUpToDateDocument(file, path));
+    }
+  }
+
+  private CachedDocument getUpToDateDocument(File file, String path) throws IOException, JDOMException {
+    final long length = file.length();
+    final long timestamp = file.lastModified();
+    final CachedDocument previous = myPreviousDocuments.get(path);
+    if (previous != null && previous.myLength == length && previous.myTimestamp == timestamp) {
+      return previous;
+    }
+
+    final byte[] content = FileUtil.loadFileBytes(file);
+    final byte[] hash = computeHash(content);
+    myModified = true;
+    if (previous != null && Arrays.equals(previous.myHash, hash)) {
+      return new CachedDocument(length, timestamp, hash, previous.myRoot);
+    }
+    return new CachedDocument(length, timestamp, hash, JDOMUtil.loadDocument(content).getRootElement());
+  }
+
+  /**
+   * Writes documents loaded in this session to the snapshot file if any of them has changed. Documents which weren't requested
+   * in this session are dropped from the snapshot.
+   */
+  public void save() {
+    if (mySnapshotFile == null || !myModified && myDocuments.size() == myPreviousDocuments.size()) {
+      return;
+    }
+    try {
+      FileUtil.createParentDirs(mySnapshotFile);
+      final DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(mySnapshotFile)));
+      try {
+        output.writeInt(VERSION);
+        final TObjectIntHashMap<String> strings = new TObjectIntHashMap<String>();
+        DataInputOutputUtil.writeINT(output, myDocuments.size());
+        for (Map.Entry<String, CachedDocument> entry : myDocuments.entrySet()) {
+          final CachedDocument document = entry.getValue();
+          writeString(output, entry.getKey(), strings);
+          output.writeLong(document.myLength);
+          output.writeLong(document.myTimestamp);
+          DataInputOutputUtil.writeINT(output, document.myHash.length);
+          output.write(document.myHash);
+          writeElement(output, document.myRoot, strings);
+        }
+      }
+      finally {
+        output.close();
+      }
+    }
+    catch (IOException e) {
+      LOG.info("Cannot save project model snapshot to " + mySnapshotFile + ": " + e.getMessage());
+      FileUtil.delete(mySnapshotFile);
+    }
+  }
+
+  private static byte[] computeHash(byte[] content) {
+    try {
+      return MessageDigest.getInstance("MD5").digest(content);
+    }
+    catch (NoSuchAlgorithmException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  private static void writeElement(DataOutput output, Element element, TObjectIntHashMap<String> strings) throws IOException {
+    writeString(output, element.getName(), strings);
+    writeNamespace(output, element.getNamespace(), strings);
+    final List additionalNamespaces = element.getAdditionalNamespaces();
+    DataInputOutputUtil.writeINT(output, additionalNamespaces.size());
+    for (Object o : additionalNamespaces) {
+      writeNamespace(output, (Namespace)o, strings);
+    }
+    final List attributes = element.getAttributes();
+    DataInputOutputUtil.writeINT(output, attributes.size());
+    for (Object o : attributes) {
+      final Attribute attribute = (Attribute)o;
+      writeString(output, attribute.getName(), strings);
+      writeNamespace(output, attribute.getNamespace(), strings);
+      writeString(output, attribute.getValue(), strings);
+    }
+
+    final List<Content> contents = new ArrayList<Content>();
+    for (Object o : element.getContent()) {
+      if (o instanceof Element || o instanceof Text) {
+        contents.add((Content)o);
+      }
+    }
+    DataInputOutputUtil.writeINT(output, contents.size());
+    for (Content content : contents) {
+      if (content instanceof Element) {
+        output.writeByte(ELEMENT);
+        writeElement(output, (Element)content, strings);
+      }
+      else {
+        output.writeByte(content instanceof CDATA ? CDATA : TEXT);
+        writeString(output, ((Text)content).getText(), strings);
+      }
+    }
+  }
+
+  private static Element readElement(DataInput input, List<String> strings) throws IOException {
+    final String elementName = readString(input, strings);
+    final Element element = new Element(elementName, readNamespace(input, strings));
+    final int namespaceCount = DataInputOutputUtil.readINT(input);
+    for (int i = 0; i < namespaceCount; i++) {
+      element.addNamespaceDeclaration(readNamespace(input, strings));
+    }
+    final int attributeCount = DataInputOutputUtil.readINT(input);
+    for (int i = 0; i < attributeCount; i++) {
+      final String name = readString(input, strings);
+      final Namespace namespace = readNamespace(input, strings);
+      element.setAttribute(name, readString(input, strings), namespace);
+    }
+    final int contentCount = DataInputOutputUtil.readINT(input);
+    for (int i = 0; i < contentCount; i++) {
+      final byte kind = input.readByte();
+      if (kind == ELEMENT) {
+        element.addContent(readElement(input, strings));
+      }
+      else if (kind == TEXT) {
+        element.addContent(new Text(readString(input, strings)));
+      }
+      else if (kind == CDATA) {
+        element.addContent(new CDATA(readString(input, strings)));
+      }
+      else {
+        throw new IOException("Unexpected content kind: " + kind);
+      }
+    }
+    return element;
+  }
+
+  private static void writeNamespace(DataOutput output, Namespace namespace, TObjectIntHashMap<String> strings) throws IOException {
+    writeString(output, namespace.getPrefix(), strings);
+    writeString(output, namespace.getURI(), strings);
+  }
+
+  private static Namespace readNamespace(DataInput input, List<String> strings) throws IOException {
+    final String prefix = readString(input, strings);
+    return Namespace.getNamespace(prefix, readString(input, strings));
+  }
+
+  /**
+   * A string is written in full when it occurs first time, later occurrences are written as an index
+   */
+  private static void writeString(DataOutput output, String s, TObjectIntHashMap<String> strings) throws IOException {
+    if (strings.containsKey(s)) {
+      DataInputOutputUtil.writeINT(output, strings.get(s) + 1);
+    }
+    else {
+      DataInputOutputUtil.writeINT(output, 0);
+      IOUtil.writeString(s, output);
+      strings.put(s, strings.size());
+    }
+  }
+
+  private static String readString(DataInput input, List<String> strings) throws IOException {
+    final int index = DataInputOutputUtil.readINT(input);
+    if (index > 0) {
+      return strings.get(index - 1);
+    }
+    final String s = IOUtil.readString(input);
+    strings.add(s);
+    return s;
+  }
+
+  private static class CachedDocument {
+    private final long myLength;
+    private final long myTimestamp;
+    private final byte[] myHash;
+    private final Element myRoot;
+
+    private CachedDocument(long length, long timestamp, byte[] hash, Element root) {
+      myLength = length;
+      myTimestamp = timestamp;
+      myHash = hash;
+      myRoot = root;
+    }
+  }
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright 2000-2012 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jetbrains.jps.model.serialization;
+
+import com.intellij.openapi.util.JDOMUtil;
+import com.intellij.openapi.util.io.FileUtil;
+import com.intellij.openapi.util.text.StringUtil;
+import org.jdom.Element;
+import org.jdom.Namespace;
+
+import java.io.File;
+
+public class JpsXmlDocumentCacheTest extends JpsSerializationTestCase {
+  public void testSnapshot() throws Exception {
+    File projectDir = new File(getTestDataFileAbsolutePath(JpsProjectSerializationTest.SAMPLE_PROJECT_PATH));
+    File[] files = {new File(projectDir, ".idea/misc.xml"), new File(projectDir, ".idea/libraries/junit.xml"), new File(projectDir, "main.iml")};
+    File snapshot = FileUtil.createTempFile("model-snapshot", ".dat");
+    try {
+      JpsXmlDocumentCache cache = JpsXmlDocumentCache.load(snapshot);
+      for (File file : files) {
+        assertTrue(JDOMUtil.areElementsEqual(JDOMUtil.loadDocument(file).getRootElement(), cache.loadRootElement(file)));
+      }
+      cache.save();
+
+      JpsXmlDocumentCache restored = JpsXmlDocumentCache.load(snapshot);
+      for (File file : files) {
+        Element expected = JDOMUtil.loadDocument(file).getRootElement();
+        Element element = restored.loadRootElement(file);
+        assertTrue(file.getName(), JDOMUtil.areElementsEqual(expected, element));
+        element.removeContent();
+        assertTrue(file.getName(), JDOMUtil.areElementsEqual(expected, restored.loadRootElement(file)));
+      }
+    }
+    finally {
+      FileUtil.delete(snapshot);
+    }
+  }
+
+  public void testDocumentWithNamespaces() throws Exception {
+    File file = FileUtil.createTempFile("namespaces", ".xml");
+    File snapshot = FileUtil.createTempFile("model-snapshot", ".dat");
+    try {
+      String text = "<root xmlns=\"urn:default\" xmlns:x=\"urn:x\" xmlns:unused=\"urn:unused\" x:attr=\"1\" plain=\"2\">" +
+                    "<x:child x:attr=\"3\">text</x:child><child/></root>";
+      FileUtil.writeToFile(file, text);
+      JpsXmlDocumentCache cache = JpsXmlDocumentCache.load(snapshot);
+      cache.loadRootElement(file);
+      cache.save();
+
+      //same length and timestamp, so the document must be restored from the snapshot rather than parsed
+      long timestamp = file.lastModified();
+      FileUtil.writeToFile(file, StringUtil.repeat(" ", text.length()));
+      assertTrue(file.setLastModified(timestamp));
+
+      Element root = JpsXmlDocumentCache.load(snapshot).loadRootElement(file);
+      Namespace x = Namespace.getNamespace("x", "urn:x");
+      assertEquals("urn:default", root.getNamespaceURI());
+      assertEquals("1", root.getAttributeValue("attr", x));
+      assertEquals("2", root.getAttributeValue("plain"));
+      assertEquals(2, root.getAdditionalNamespaces().size());
+      Element child = root.getChild("child", x);
+      assertNotNull(child);
+      assertEquals("3", child.getAttributeValue("attr", x));
+      assertEquals("text", child.getText());
+      assertNotNull(root.getChild("child", Namespace.getNamespace("urn:default")));
+    }
+    finally {
+      FileUtil.delete(file);
+      FileUtil.delete(snapshot);
+    }
+  }
+}
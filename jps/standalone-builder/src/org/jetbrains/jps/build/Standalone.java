@@ -26,6 +26,7 @@ import org.jetbrains.jps.cmdline.BuildRunner;
 import org.jetbrains.jps.cmdline.JpsModelLoader;
 import org.jetbrains.jps.cmdline.JpsModelLoaderImpl;
 import org.jetbrains.jps.cmdline.ProjectDescriptor;
+import org.jetbrains.jps.incremental.BuildTrace;
 import org.jetbrains.jps.incremental.MessageHandler;
 import org.jetbrains.jps.incremental.Utils;
 import org.jetbrains.jps.incremental.artifacts.ArtifactBuildTargetType;
@@ -171,6 +172,7 @@ public class Standalone {
       scopes.add(TargetTypeBuildScope.newBuilder().setTypeId(ArtifactBuildTargetType.INSTANCE.getTypeId()).setForceBuild(forceBuild).addAllTargetId(artifactsList).build());
     }
 
+    BuildTrace.sessionStarted();
     final BuildRunner buildRunner = new BuildRunner(loader, Collections.<String>emptyList(), Collections.<String, String>emptyMap());
     ProjectDescriptor descriptor = buildRunner.load(messageHandler, dataStorageRoot, new BuildFSState(true));
     try {
@@ -178,6 +180,7 @@ public class Standalone {
     }
     finally {
       descriptor.release();
+      BuildTrace.sessionFinished();
     }
   }
 
@@ -30,6 +30,7 @@ import org.jetbrains.annotations.NotNull;
 
 import java.lang.ref.ReferenceQueue;
 import java.lang.ref.WeakReference;
+import java.util.ArrayList;
 import java.util.ConcurrentModificationException;
 import java.util.List;
 import java.util.NoSuchElementException;
@@ -558,8 +559,58 @@ public abstract class IntervalTreeImpl<T extends MutableInterval> extends RedBla
     return processContaining(root.getRight(), offset, processor, modCountBefore, delta);
   }
 
+  /**
+   * The intervals overlapping with the range are collected under the read lock, and the returned iterator walks this snapshot.
+   * So the lock isn't held while the caller iterates (e.g. during painting), and the threads adding or removing intervals
+   * meanwhile aren't blocked. An interval in the snapshot may become invalid by the time it's returned.
+   */
   @NotNull
   DisposableIterator<T> overlappingIterator(final int startOffset, final int endOffset) {
+    final List<T> snapshot = new ArrayList<T>();
+    DisposableIterator<T> iterator = lockingOverlappingIterator(startOffset, endOffset);
+    try {
+      while (iterator.hasNext()) {
+        snapshot.add(iterator.next());
+      }
+    }
+    finally {
+      iterator.dispose();
+    }
+    if (snapshot.isEmpty()) {
+      //noinspection unchecked
+      return DisposableIterator.EMPTY;
+    }
+
+    return new DisposableIterator<T>() {
+      private int index;
+
+      @Override
+      public boolean hasNext() {
+        return index < snapshot.size();
+      }
+
+      @Override
+      public T next() {
+        if (!hasNext()) throw new NoSuchElementException();
+        return snapshot.get(index++);
+      }
+
+      @Override
+      public void remove() {
+        throw new IncorrectOperationException();
+      }
+
+      @Override
+      public void dispose() {
+      }
+    };
+  }
+
+  /**
+   * The returned iterator holds the read lock until disposed.
+   */
+  @NotNull
+  private DisposableIterator<T> lockingOverlappingIterator(final int startOffset, final int endOffset) {
     ProperTextRange.assertProperRange(startOffset, endOffset, "");
 
     l.readLock().lock();
@@ -117,6 +117,7 @@ public class CompletionProgressIndicator extends ProgressIndicatorBase implement
     }
   };
   private volatile int myCount;
+  private boolean myRestartWhenCalculated;
   private final ConcurrentHashMap<LookupElement, CompletionSorterImpl> myItemSorters =
     new ConcurrentHashMap<LookupElement, CompletionSorterImpl>(
       ContainerUtil.<LookupElement>identityStrategy());
@@ -489,6 +490,15 @@ public class CompletionProgressIndicator extends ProgressIndicatorBase implement
 
         myLookup.setCalculating(false);
 
+        if (myRestartWhenCalculated) {
+          myRestartWhenCalculated = false;
+          myLookup.refreshUi(true, false);
+          if (myLookup.getItems().isEmpty()) {
+            scheduleRestart();
+            return;
+          }
+        }
+
         if (myCount == 0) {
           LookupManager.getInstance(getProject()).hideActiveLookup();
           if (!isAutopopupCompletion()) {
@@ -620,6 +630,20 @@ public class CompletionProgressIndicator extends ProgressIndicatorBase implement
     hideAutopopupIfMeaningless();
   }
 
+  /**
+   * Restarts the completion when the typed prefix leaves no matching items in the lookup. While the items are still being calculated,
+   * the running contributors aren't cancelled: the items they add are filtered by the new prefix, and the completion is restarted
+   * only if none of them match when the calculation is finished.
+   */
+  public void restartWhenNothingMatches() {
+    ApplicationManager.getApplication().assertIsDispatchThread();
+    if (myLookup.isCalculating() && !isCanceled()) {
+      myRestartWhenCalculated = true;
+      return;
+    }
+    scheduleRestart();
+  }
+
   public void scheduleRestart() {
     ApplicationManager.getApplication().assertIsDispatchThread();
     cancel();
@@ -145,6 +145,7 @@ public class DaemonCodeAnalyzerImpl extends DaemonCodeAnalyzer implements JDOMEx
 
     assert !myInitialized : "Double Initializing";
     Disposer.register(myProject, new StatusBarUpdater(myProject));
+    Disposer.register(myProject, new HighlightingResultsCache(myProject));
 
     ApplicationManager.getApplication().invokeLater(new Runnable() {
       @Override
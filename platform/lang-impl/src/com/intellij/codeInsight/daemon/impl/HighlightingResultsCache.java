@@ -0,0 +1,369 @@
+/*
+ * Copyright 2000-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intellij.codeInsight.daemon.impl;
+
+import com.intellij.codeHighlighting.Pass;
+import com.intellij.codeInsight.daemon.DaemonCodeAnalyzer;
+import com.intellij.codeInsight.daemon.impl.analysis.HighlightLevelUtil;
+import com.intellij.ide.PowerSaveMode;
+import com.intellij.lang.annotation.HighlightSeverity;
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.editor.Document;
+import com.intellij.openapi.editor.colors.TextAttributesKey;
+import com.intellij.openapi.fileEditor.*;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.project.ProjectManager;
+import com.intellij.openapi.project.ProjectManagerAdapter;
+import com.intellij.openapi.util.Key;
+import com.intellij.openapi.vfs.CharsetToolkit;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.openapi.vfs.newvfs.FileAttribute;
+import com.intellij.openapi.vfs.newvfs.NewVirtualFile;
+import com.intellij.psi.PsiDocumentManager;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.PsiManager;
+import com.intellij.util.Processor;
+import com.intellij.util.io.IOUtil;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.annotations.TestOnly;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Persists the problems found by the main highlighting passes for the files opened in editors, and shows them right away when
+ * a file with the same content is opened again (e.g. after the IDE restart) and has not been highlighted yet.
+ * <p/>
+ * The results are saved when a file is closed or its editor is deselected, and for all open files when the project is closed.
+ * <p/>
+ * The restored highlights belong to the same groups as the ones they were created from, so the passes, which run anyway since
+ * the file is dirty, replace them with the actual results. Only the groups of the passes which are going to run are restored.
+ */
+public class HighlightingResultsCache implements Disposable {
+  private static final Logger LOG = Logger.getInstance("#com.intellij.codeInsight.daemon.impl.HighlightingResultsCache");
+  private static final FileAttribute HIGHLIGHTING_RESULTS_ATTR = new FileAttribute("HIGHLIGHTING_RESULTS_ATTR", 2, false);
+  private static final Key<Long> SAVED_MODIFICATION_COUNT_KEY = Key.create("HIGHLIGHTING_RESULTS_SAVED_MODIFICATION_COUNT");
+  private static final int[] CACHED_GROUPS = {Pass.UPDATE_ALL, Pass.LOCAL_INSPECTIONS};
+
+  private static boolean ourEnabledInTests;
+
+  private final Project myProject;
+
+  public HighlightingResultsCache(@NotNull Project project) {
+    myProject = project;
+
+    project.getMessageBus().connect(this).subscribe(FileEditorManagerListener.FILE_EDITOR_MANAGER, new FileEditorManagerAdapter() {
+      @Override
+      public void fileOpened(@NotNull FileEditorManager source, @NotNull VirtualFile file) {
+        restoreResults(file);
+      }
+
+      @Override
+      public void fileClosed(@NotNull FileEditorManager source, @NotNull VirtualFile file) {
+        saveResults(file, false);
+      }
+
+      @Override
+      public void selectionChanged(@NotNull FileEditorManagerEvent event) {
+        VirtualFile oldFile = event.getOldFile();
+        if (oldFile != null) {
+          saveResults(oldFile, false);
+        }
+      }
+    });
+
+    ProjectManager.getInstance().addProjectManagerListener(project, new ProjectManagerAdapter() {
+      @Override
+      public void projectClosing(Project project) {
+        // the files are still open here, and the pooled threads may not get to run before the exit
+        for (VirtualFile file : FileEditorManager.getInstance(myProject).getOpenFiles()) {
+          saveResults(file, true);
+        }
+      }
+    });
+  }
+
+  @Override
+  public void dispose() {
+  }
+
+  @TestOnly
+  public static void setEnabledInTests(boolean enabled) {
+    ourEnabledInTests = enabled;
+  }
+
+  private static boolean isEnabled() {
+    // highlighting tests expect the files to be highlighted from scratch,
+    // and in the power save mode the restored results would never be replaced with the actual ones
+    return (!ApplicationManager.getApplication().isUnitTestMode() || ourEnabledInTests) && !PowerSaveMode.isEnabled();
+  }
+
+  void saveResults(@NotNull VirtualFile virtualFile, boolean synchronously) {
+    if (!isEnabled() || myProject.isDisposed() || !(virtualFile instanceof NewVirtualFile) || !virtualFile.isValid()) return;
+    Document document = FileDocumentManager.getInstance().getCachedDocument(virtualFile);
+    if (document == null) return;
+    PsiFile psiFile = PsiDocumentManager.getInstance(myProject).getPsiFile(document);
+    if (psiFile == null || !isCachedGroupsAnalysisFinished(psiFile, document)) return;
+
+    // highlighting of an unchanged file may change as well when the files it depends on change, hence the global count
+    long modificationCount = PsiManager.getInstance(myProject).getModificationTracker().getModificationCount();
+    Long savedCount = document.getUserData(SAVED_MODIFICATION_COUNT_KEY);
+    if (savedCount != null && savedCount.longValue() == modificationCount) return;
+    document.putUserData(SAVED_MODIFICATION_COUNT_KEY, modificationCount);
+
+    final FileResults results = collectResults(document);
+    final String text = document.getText();
+    final VirtualFile file = virtualFile;
+    Runnable write = new Runnable() {
+      @Override
+      public void run() {
+        writeResults(file, text, results);
+      }
+    };
+    if (synchronously) {
+      write.run();
+    }
+    else {
+      ApplicationManager.getApplication().executeOnPooledThread(write);
+    }
+  }
+
+  private boolean isCachedGroupsAnalysisFinished(@NotNull PsiFile psiFile, @NotNull Document document) {
+    if (document.getModificationStamp() != psiFile.getViewProvider().getModificationStamp()) return false;
+    FileStatusMap fileStatusMap = ((DaemonCodeAnalyzerImpl)DaemonCodeAnalyzer.getInstance(myProject)).getFileStatusMap();
+    for (int group : CACHED_GROUPS) {
+      if (fileStatusMap.getFileDirtyScope(document, group) != null) return false;
+    }
+    return true;
+  }
+
+  @NotNull
+  private FileResults collectResults(@NotNull Document document) {
+    final SeverityRegistrar severityRegistrar = SeverityUtil.getSeverityRegistrar(myProject);
+    final List<HighlightInfo> infos = new ArrayList<HighlightInfo>();
+    DaemonCodeAnalyzerImpl.processHighlights(document, myProject, null, 0, document.getTextLength(), new Processor<HighlightInfo>() {
+      @Override
+      public boolean process(HighlightInfo info) {
+        if (info.highlighter != null && info.highlighter.isValid() && !info.isFileLevelAnnotation() && isCachedGroup(info.getGroup()) &&
+            severityRegistrar.compare(info.getSeverity(), HighlightSeverity.INFORMATION) > 0) {
+          infos.add(info);
+        }
+        return true;
+      }
+    });
+
+    FileResults results = new FileResults(infos.size());
+    for (HighlightInfo info : infos) {
+      TextAttributesKey attributesKey = info.forcedTextAttributesKey != null ? info.forcedTextAttributesKey : info.type.getAttributesKey();
+      results.infos.add(new CachedInfo(info.getGroup(), info.getActualStartOffset(), info.getActualEndOffset(),
+                                       info.getSeverity().toString(), attributesKey == null ? null : attributesKey.getExternalName(),
+                                       info.isAfterEndOfLine(), info.getDescription(), info.getToolTip()));
+    }
+    return results;
+  }
+
+  private void writeResults(@NotNull VirtualFile file, @NotNull String text, @NotNull FileResults results) {
+    byte[] textHash = calcTextHash(text);
+    if (textHash == null || !file.isValid()) return;
+    try {
+      DataOutputStream stream = HIGHLIGHTING_RESULTS_ATTR.writeAttribute(file);
+      try {
+        IOUtil.writeString(myProject.getLocationHash(), stream);
+        stream.writeInt(textHash.length);
+        stream.write(textHash);
+        stream.writeInt(results.infos.size());
+        for (CachedInfo info : results.infos) {
+          stream.writeInt(info.group);
+          stream.writeInt(info.startOffset);
+          stream.writeInt(info.endOffset);
+          IOUtil.writeString(info.severity, stream);
+          IOUtil.writeString(info.attributesKey, stream);
+          stream.writeBoolean(info.afterEndOfLine);
+          IOUtil.writeString(info.description, stream);
+          IOUtil.writeString(info.toolTip, stream);
+        }
+      }
+      finally {
+        stream.close();
+      }
+    }
+    catch (IOException e) {
+      LOG.info(e);
+    }
+  }
+
+  @Nullable
+  private FileResults readResults(@NotNull VirtualFile file) {
+    DataInputStream stream = HIGHLIGHTING_RESULTS_ATTR.readAttribute(file);
+    if (stream == null) return null;
+    try {
+      try {
+        if (!myProject.getLocationHash().equals(IOUtil.readString(stream))) return null;
+        byte[] textHash = new byte[stream.readInt()];
+        stream.readFully(textHash);
+        int count = stream.readInt();
+        FileResults results = new FileResults(count);
+        results.textHash = textHash;
+        for (int i = 0; i < count; i++) {
+          int group = stream.readInt();
+          int startOffset = stream.readInt();
+          int endOffset = stream.readInt();
+          String severity = IOUtil.readString(stream);
+          String attributesKey = IOUtil.readString(stream);
+          boolean afterEndOfLine = stream.readBoolean();
+          String description = IOUtil.readString(stream);
+          String toolTip = IOUtil.readString(stream);
+          results.infos.add(new CachedInfo(group, startOffset, endOffset, severity, attributesKey, afterEndOfLine, description, toolTip));
+        }
+        return results;
+      }
+      finally {
+        stream.close();
+      }
+    }
+    catch (IOException e) {
+      LOG.info(e);
+      return null;
+    }
+  }
+
+  void restoreResults(@NotNull VirtualFile file) {
+    if (!isEnabled() || !(file instanceof NewVirtualFile) || !file.isValid()) return;
+    Document document = FileDocumentManager.getInstance().getCachedDocument(file);
+    if (document == null) return;
+    PsiFile psiFile = PsiDocumentManager.getInstance(myProject).getPsiFile(document);
+    DaemonCodeAnalyzerImpl codeAnalyzer = (DaemonCodeAnalyzerImpl)DaemonCodeAnalyzer.getInstance(myProject);
+    if (psiFile == null || !codeAnalyzer.isHighlightingAvailable(psiFile)) return;
+    // the file has already been highlighted in this session, its highlights are still in the document markup
+    if (codeAnalyzer.getFileStatusMap().getFileDirtyScope(document, Pass.UPDATE_ALL) == null || hasCachedGroupsHighlights(document)) {
+      return;
+    }
+
+    FileResults results = readResults(file);
+    if (results == null || !Arrays.equals(results.textHash, calcTextHash(document.getText()))) return;
+
+    SeverityRegistrar severityRegistrar = SeverityUtil.getSeverityRegistrar(myProject);
+    for (int group : CACHED_GROUPS) {
+      // highlights of a pass which is not going to run would never be replaced with the actual ones
+      if (!willRun(group, psiFile, document, codeAnalyzer.getFileStatusMap())) continue;
+      List<HighlightInfo> infos = new ArrayList<HighlightInfo>();
+      for (CachedInfo cached : results.infos) {
+        if (cached.group != group) continue;
+        HighlightInfo info = cached.createHighlightInfo(severityRegistrar);
+        if (info != null) infos.add(info);
+      }
+      if (!infos.isEmpty()) {
+        UpdateHighlightersUtil.setHighlightersToEditor(myProject, document, 0, document.getTextLength(), infos, null, group);
+      }
+    }
+  }
+
+  private static boolean willRun(int group, @NotNull PsiFile psiFile, @NotNull Document document, @NotNull FileStatusMap fileStatusMap) {
+    if (fileStatusMap.getFileDirtyScope(document, group) == null) return false;
+    return group == Pass.LOCAL_INSPECTIONS ? HighlightLevelUtil.shouldInspect(psiFile) : HighlightLevelUtil.shouldHighlight(psiFile);
+  }
+
+  @Nullable
+  private static byte[] calcTextHash(@NotNull String text) {
+    try {
+      return MessageDigest.getInstance("SHA1").digest(text.getBytes(CharsetToolkit.UTF8_CHARSET));
+    }
+    catch (NoSuchAlgorithmException e) {
+      LOG.error(e);
+      return null;
+    }
+  }
+
+  private boolean hasCachedGroupsHighlights(@NotNull Document document) {
+    return !DaemonCodeAnalyzerImpl.processHighlights(document, myProject, null, 0, document.getTextLength(), new Processor<HighlightInfo>() {
+      @Override
+      public boolean process(HighlightInfo info) {
+        return !isCachedGroup(info.getGroup());
+      }
+    });
+  }
+
+  private static boolean isCachedGroup(int group) {
+    for (int each : CACHED_GROUPS) {
+      if (each == group) return true;
+    }
+    return false;
+  }
+
+  private static class FileResults {
+    // SHA-1 of the text the results were computed for, set when the results are read
+    private byte[] textHash;
+    private final List<CachedInfo> infos;
+
+    private FileResults(int count) {
+      infos = new ArrayList<CachedInfo>(count);
+    }
+  }
+
+  private static class CachedInfo {
+    private final int group;
+    private final int startOffset;
+    private final int endOffset;
+    private final String severity;
+    private final String attributesKey;
+    private final boolean afterEndOfLine;
+    private final String description;
+    private final String toolTip;
+
+    private CachedInfo(int group,
+                       int startOffset,
+                       int endOffset,
+                       String severity,
+                       String attributesKey,
+                       boolean afterEndOfLine,
+                       String description,
+                       String toolTip) {
+      this.group = group;
+      this.startOffset = startOffset;
+      this.endOffset = endOffset;
+      this.severity = severity;
+      this.attributesKey = attributesKey;
+      this.afterEndOfLine = afterEndOfLine;
+      this.description = description;
+      this.toolTip = toolTip;
+    }
+
+    @Nullable
+    private HighlightInfo createHighlightInfo(@NotNull SeverityRegistrar severityRegistrar) {
+      // the severity may have been removed from the settings since the results were saved
+      HighlightSeverity highlightSeverity = severity == null ? null : severityRegistrar.getSeverity(severity);
+      if (highlightSeverity == null) return null;
+
+      HighlightInfo.Builder builder = HighlightInfo.newHighlightInfo(severityRegistrar.getHighlightInfoTypeBySeverity(highlightSeverity))
+        .range(startOffset, endOffset)
+        .severity(highlightSeverity);
+      if (attributesKey != null) builder.textAttributes(TextAttributesKey.find(attributesKey));
+      if (afterEndOfLine) builder.endOfLine();
+      if (description != null) builder.description(description);
+      if (toolTip != null) builder.escapedToolTip(toolTip);
+      return builder.createUnconditionally();
+    }
+  }
+}
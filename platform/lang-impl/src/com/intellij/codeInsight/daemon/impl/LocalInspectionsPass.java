@@ -92,6 +92,7 @@ public class LocalInspectionsPass extends ProgressableTextEditorHighlightingPass
   private final ConcurrentMap<PsiFile, List<InspectionResult>> result = new ConcurrentHashMap<PsiFile, List<InspectionResult>>();
   private static final String PRESENTABLE_NAME = DaemonBundle.message("pass.inspection");
   private volatile List<HighlightInfo> myInfos = Collections.emptyList();
+  private static final LocalInspectionsTimeStatistics ourTimeStatistics = new LocalInspectionsTimeStatistics();
   private final String myShortcutText;
   private final SeverityRegistrar mySeverityRegistrar;
   private final InspectionProfileWrapper myProfileWrapper;
@@ -140,6 +141,9 @@ public class LocalInspectionsPass extends ProgressableTextEditorHighlightingPass
       final InspectionManagerEx iManager = (InspectionManagerEx)InspectionManager.getInstance(myProject);
       final InspectionProfileWrapper profile = myProfileWrapper;
       inspect(getInspectionTools(profile), iManager, true, true, DumbService.isDumb(myProject), progress);
+      if (LOG.isDebugEnabled()) {
+        LOG.debug(ourTimeStatistics.getReport(20));
+      }
     }
     finally {
       disposeDescriptors();
@@ -310,6 +314,13 @@ public class LocalInspectionsPass extends ProgressableTextEditorHighlightingPass
                                                                boolean checkDumbAwareness) {
     final List<InspectionContext> init = new ArrayList<InspectionContext>();
     List<Map.Entry<LocalInspectionToolWrapper, Collection<String>>> entries = new ArrayList<Map.Entry<LocalInspectionToolWrapper, Collection<String>>>(tools.entrySet());
+    // start the most expensive tools first, so that one of them started last doesn't keep the others waiting
+    ourTimeStatistics.sortByAverageTime(entries, new Function<Map.Entry<LocalInspectionToolWrapper, Collection<String>>, String>() {
+      @Override
+      public String fun(Map.Entry<LocalInspectionToolWrapper, Collection<String>> entry) {
+        return entry.getKey().getShortName();
+      }
+    });
     Processor<Map.Entry<LocalInspectionToolWrapper, Collection<String>>> processor =
       new Processor<Map.Entry<LocalInspectionToolWrapper, Collection<String>>>() {
         @Override
@@ -345,10 +356,12 @@ public class LocalInspectionsPass extends ProgressableTextEditorHighlightingPass
           }
         }
     };
+    long start = LocalInspectionsTimeStatistics.getCurrentTime();
     PsiElementVisitor visitor = InspectionEngine.createVisitorAndAcceptElements(tool, holder, isOnTheFly, session, elements, languages);
+    long time = LocalInspectionsTimeStatistics.getCurrentTime() - start;
 
     synchronized (init) {
-      init.add(new InspectionContext(toolWrapper, holder, visitor, languages));
+      init.add(new InspectionContext(toolWrapper, holder, visitor, languages, time));
     }
     advanceProgress(1);
 
@@ -369,9 +382,12 @@ public class LocalInspectionsPass extends ProgressableTextEditorHighlightingPass
         public boolean process(InspectionContext context) {
           indicator.checkCanceled();
           ApplicationManager.getApplication().assertReadAccessAllowed();
+          long start = LocalInspectionsTimeStatistics.getCurrentTime();
           InspectionEngine.acceptElements(elements, context.visitor, context.languageIds);
           advanceProgress(1);
           context.tool.getTool().inspectionFinished(session, context.holder);
+          long time = LocalInspectionsTimeStatistics.getCurrentTime() - start;
+          ourTimeStatistics.addRun(context.tool.getShortName(), context.priorityElementsTime + time);
 
           if (context.holder.hasResults()) {
             appendDescriptors(myFile, context.holder.getResults(), context.tool);
@@ -379,6 +395,12 @@ public class LocalInspectionsPass extends ProgressableTextEditorHighlightingPass
           return true;
         }
       };
+    ourTimeStatistics.sortByAverageTime(init, new Function<InspectionContext, String>() {
+      @Override
+      public String fun(InspectionContext context) {
+        return context.tool.getShortName();
+      }
+    });
     boolean result = JobLauncher.getInstance().invokeConcurrentlyUnderProgress(init, indicator, myFailFastOnAcquireReadAction, processor);
     if (!result) {
       throw new ProcessCanceledException();
@@ -786,16 +808,19 @@ public class LocalInspectionsPass extends ProgressableTextEditorHighlightingPass
     private InspectionContext(@NotNull LocalInspectionToolWrapper tool,
                               @NotNull ProblemsHolder holder,
                               @NotNull PsiElementVisitor visitor,
-                              @Nullable Collection<String> languageIds) {
+                              @Nullable Collection<String> languageIds,
+                              long priorityElementsTime) {
       this.tool = tool;
       this.holder = holder;
       this.visitor = visitor;
       this.languageIds = languageIds;
+      this.priorityElementsTime = priorityElementsTime;
     }
 
     @NotNull final LocalInspectionToolWrapper tool;
     @NotNull final ProblemsHolder holder;
     @NotNull final PsiElementVisitor visitor;
     @Nullable final Collection<String> languageIds;
+    final long priorityElementsTime;
   }
 }
@@ -0,0 +1,131 @@
+/*
+ * Copyright 2000-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intellij.codeInsight.daemon.impl;
+
+import com.intellij.util.Function;
+import com.intellij.util.containers.ConcurrentHashMap;
+import gnu.trove.THashMap;
+import org.jetbrains.annotations.NotNull;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Accumulates the time spent by local inspections in {@link LocalInspectionsPass}, by inspection short names.
+ * The time is the CPU time of the inspecting thread when the JVM supports measuring it, and the elapsed time otherwise.
+ */
+class LocalInspectionsTimeStatistics {
+  private static final ThreadMXBean ourThreadMXBean = ManagementFactory.getThreadMXBean();
+  private static final boolean ourCpuTimeSupported = isCpuTimeSupported();
+
+  private final ConcurrentMap<String, Timing> myTimings = new ConcurrentHashMap<String, Timing>();
+
+  private static boolean isCpuTimeSupported() {
+    try {
+      return ourThreadMXBean.isCurrentThreadCpuTimeSupported() && ourThreadMXBean.isThreadCpuTimeEnabled();
+    }
+    catch (UnsupportedOperationException e) {
+      return false;
+    }
+  }
+
+  /**
+   * @return current time in nanoseconds, to measure the time spent by an inspection in the current thread
+   */
+  static long getCurrentTime() {
+    return ourCpuTimeSupported ? ourThreadMXBean.getCurrentThreadCpuTime() : System.nanoTime();
+  }
+
+  void addRun(@NotNull String shortName, long time) {
+    Timing timing = myTimings.get(shortName);
+    if (timing == null) {
+      Timing newTiming = new Timing();
+      timing = myTimings.putIfAbsent(shortName, newTiming);
+      if (timing == null) timing = newTiming;
+    }
+    timing.totalTime.addAndGet(time);
+    timing.runs.incrementAndGet();
+  }
+
+  /**
+   * @return average time of a run of the inspection in nanoseconds, or 0 if the inspection has not been run yet
+   */
+  long getAverageTime(@NotNull String shortName) {
+    Timing timing = myTimings.get(shortName);
+    if (timing == null) return 0;
+    int runs = timing.runs.get();
+    return runs == 0 ? 0 : timing.totalTime.get() / runs;
+  }
+
+  /**
+   * Sorts the items by the average time of their inspections, the most expensive first.
+   */
+  <T> void sortByAverageTime(@NotNull List<T> items, @NotNull Function<T, String> shortNameGetter) {
+    // the statistics is updated concurrently, so the times are taken once before sorting
+    final Map<T, Long> times = new THashMap<T, Long>(items.size());
+    for (T each : items) {
+      times.put(each, getAverageTime(shortNameGetter.fun(each)));
+    }
+    Collections.sort(items, new Comparator<T>() {
+      @Override
+      public int compare(T o1, T o2) {
+        return times.get(o2).compareTo(times.get(o1));
+      }
+    });
+  }
+
+  /**
+   * @return the inspections which took the most of the total time, the most expensive first
+   */
+  @NotNull
+  String getReport(int maxInspections) {
+    List<Map.Entry<String, Timing>> entries = new ArrayList<Map.Entry<String, Timing>>(myTimings.entrySet());
+    Collections.sort(entries, new Comparator<Map.Entry<String, Timing>>() {
+      @Override
+      public int compare(Map.Entry<String, Timing> o1, Map.Entry<String, Timing> o2) {
+        long time1 = o1.getValue().totalTime.get();
+        long time2 = o2.getValue().totalTime.get();
+        return time1 < time2 ? 1 : time1 == time2 ? 0 : -1;
+      }
+    });
+
+    StringBuilder report = new StringBuilder();
+    report.append("Local inspections ").append(ourCpuTimeSupported ? "CPU" : "elapsed").append(" time, the most expensive first:");
+    for (int i = 0; i < entries.size() && i < maxInspections; i++) {
+      Map.Entry<String, Timing> entry = entries.get(i);
+      long totalTime = entry.getValue().totalTime.get();
+      int runs = entry.getValue().runs.get();
+      report.append("\n  ").append(entry.getKey()).append(": ").append(totalTime / 1000000).append(" ms in ").append(runs).append(" runs");
+      if (runs > 0) {
+        report.append(", ").append(totalTime / runs / 1000000).append(" ms per run");
+      }
+    }
+    return report.toString();
+  }
+
+  private static class Timing {
+    private final AtomicLong totalTime = new AtomicLong();
+    private final AtomicInteger runs = new AtomicInteger();
+  }
+}
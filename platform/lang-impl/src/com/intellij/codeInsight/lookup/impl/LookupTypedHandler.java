@@ -90,7 +90,7 @@ public class LookupTypedHandler extends TypedHandlerDelegate {
       if (lookup.isStartCompletionWhenNothingMatches() && lookup.getItems().isEmpty()) {
         final CompletionProgressIndicator completion = CompletionServiceImpl.getCompletionService().getCurrentCompletion();
         if (completion != null) {
-          completion.scheduleRestart();
+          completion.restartWhenNothingMatches();
         } else {
           AutoPopupController.getInstance(editor.getProject()).scheduleAutoPopup(editor, null);
         }
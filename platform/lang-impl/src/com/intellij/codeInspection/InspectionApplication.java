@@ -36,17 +36,23 @@ import com.intellij.openapi.progress.util.ProgressIndicatorBase;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.util.Comparing;
 import com.intellij.openapi.util.io.FileUtil;
+import com.intellij.openapi.util.text.StringUtil;
 import com.intellij.openapi.vfs.LocalFileSystem;
 import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.openapi.vfs.VirtualFileManager;
+import com.intellij.packageDependencies.ForwardDependenciesBuilder;
 import com.intellij.profile.Profile;
 import com.intellij.profile.codeInspection.InspectionProfileManager;
 import com.intellij.profile.codeInspection.InspectionProjectProfileManager;
-import com.intellij.psi.PsiDirectory;
-import com.intellij.psi.PsiManager;
+import com.intellij.psi.*;
+import com.intellij.psi.search.GlobalSearchScope;
+import com.intellij.psi.search.PsiSearchHelper;
+import com.intellij.util.Processor;
+import com.intellij.util.containers.ContainerUtil;
 import com.thoughtworks.xstream.io.xml.PrettyPrintWriter;
 import org.jdom.JDOMException;
 import org.jetbrains.annotations.NonNls;
+import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.io.File;
@@ -65,6 +71,8 @@ public class InspectionApplication {
   public String myProjectPath = null;
   public String myOutPath = null;
   public String mySourceDirectory = null;
+  public String myChangedFilesPath = null;
+  public boolean myInspectDependents = false;
   public String myStubProfile = null;
   public String myProfileName = null;
   public String myProfilePath = null;
@@ -167,7 +175,10 @@ public class InspectionApplication {
       im.setProfile(inspectionProfile.getName());
 
       final AnalysisScope scope;
-      if (mySourceDirectory == null) {
+      if (myChangedFilesPath != null) {
+        scope = createChangedFilesScope();
+      }
+      else if (mySourceDirectory == null) {
         scope = new AnalysisScope(myProject);
       }
       else {
@@ -294,6 +305,85 @@ public class InspectionApplication {
     }
   }
 
+  /**
+   * The changed files are listed in a file one per line, e.g. as printed by <code>git diff --name-only</code>,
+   * relative to the project base directory or absolute. Deleted files are skipped.
+   */
+  private AnalysisScope createChangedFilesScope() throws IOException {
+    VirtualFile baseDir = myProject.getBaseDir();
+    Set<VirtualFile> files = new LinkedHashSet<VirtualFile>();
+    for (String line : StringUtil.splitByLines(FileUtil.loadFile(new File(myChangedFilesPath)))) {
+      String path = line.trim();
+      if (path.isEmpty()) continue;
+      File file = new File(path);
+      if (!file.isAbsolute() && baseDir != null) {
+        file = new File(baseDir.getPath(), path);
+      }
+      VirtualFile vFile = LocalFileSystem.getInstance().findFileByIoFile(file);
+      if (vFile == null || vFile.isDirectory()) {
+        logMessageLn(2, InspectionsBundle.message("inspection.application.changed.file.skipped", path));
+        continue;
+      }
+      files.add(vFile);
+    }
+    logMessageLn(1, InspectionsBundle.message("inspection.application.changed.files", files.size()));
+
+    if (myInspectDependents && !files.isEmpty()) {
+      files.addAll(findDependents(myProject, files));
+      logMessageLn(1, InspectionsBundle.message("inspection.application.changed.files.with.dependents", files.size()));
+    }
+    return new AnalysisScope(myProject, files);
+  }
+
+  /**
+   * Only the project files which mention the names of the changed files or of their top-level declarations are candidates,
+   * so just the references of these files are resolved.
+   */
+  @NotNull
+  static Set<VirtualFile> findDependents(@NotNull Project project, @NotNull final Set<VirtualFile> changedFiles) {
+    PsiManager psiManager = PsiManager.getInstance(project);
+    Set<String> names = new HashSet<String>();
+    for (VirtualFile file : changedFiles) {
+      names.add(file.getNameWithoutExtension());
+      PsiFile psiFile = psiManager.findFile(file);
+      if (psiFile == null) continue;
+      for (PsiElement child : psiFile.getChildren()) {
+        if (child instanceof PsiNamedElement) {
+          ContainerUtil.addIfNotNull(((PsiNamedElement)child).getName(), names);
+        }
+      }
+    }
+
+    final Set<VirtualFile> candidates = new LinkedHashSet<VirtualFile>();
+    PsiSearchHelper searchHelper = PsiSearchHelper.SERVICE.getInstance(project);
+    GlobalSearchScope projectScope = GlobalSearchScope.projectScope(project);
+    for (String name : names) {
+      if (StringUtil.isEmpty(name)) continue;
+      searchHelper.processAllFilesWithWord(name, projectScope, new Processor<PsiFile>() {
+        @Override
+        public boolean process(PsiFile psiFile) {
+          VirtualFile file = psiFile.getVirtualFile();
+          if (file != null && !changedFiles.contains(file)) candidates.add(file);
+          return true;
+        }
+      }, true);
+    }
+
+    Set<VirtualFile> dependents = new LinkedHashSet<VirtualFile>();
+    if (candidates.isEmpty()) return dependents;
+    ForwardDependenciesBuilder builder = new ForwardDependenciesBuilder(project, new AnalysisScope(project, candidates));
+    builder.analyze();
+    for (Map.Entry<PsiFile, Set<PsiFile>> entry : builder.getDependencies().entrySet()) {
+      for (PsiFile dependency : entry.getValue()) {
+        if (changedFiles.contains(dependency.getVirtualFile())) {
+          ContainerUtil.addIfNotNull(entry.getKey().getVirtualFile(), dependents);
+          break;
+        }
+      }
+    }
+    return dependents;
+  }
+
   @Nullable
   private Profile loadInspectionProfile() throws IOException, JDOMException {
     Profile inspectionProfile = null;
@@ -75,6 +75,12 @@ public class InspectionMain implements ApplicationStarter {
         } else if ("-d".equals(arg)) {
           myApplication.mySourceDirectory = args[++i];
         }
+        else if ("-changes".equals(arg)) {
+          myApplication.myChangedFilesPath = args[++i];
+        }
+        else if ("-dependents".equals(arg)) {
+          myApplication.myInspectDependents = true;
+        }
         else if ("-v0".equals(arg)) {
           myApplication.setVerboseLevel(0);
         }
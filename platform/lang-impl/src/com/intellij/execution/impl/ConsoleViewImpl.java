@@ -76,6 +76,7 @@ import gnu.trove.TIntObjectHashMap;
 import org.jetbrains.annotations.NonNls;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
+import org.jetbrains.annotations.TestOnly;
 
 import javax.swing.*;
 import java.awt.*;
@@ -599,6 +600,13 @@ public class ConsoleViewImpl extends JPanel implements ConsoleView, ObservableCo
     }
   }
 
+  @TestOnly
+  List<TokenInfo> getTokens() {
+    synchronized (LOCK) {
+      return new ArrayList<TokenInfo>(myTokens);
+    }
+  }
+
   private void addToken(int length, @Nullable HyperlinkInfo info, ConsoleViewContentType contentType) {
     ConsoleUtil.addToken(length, info, contentType, myTokens);
   }
@@ -639,7 +647,11 @@ public class ConsoleViewImpl extends JPanel implements ConsoleView, ObservableCo
       //already disposed
       return;
     }
-    if (clear) {
+    boolean documentReplaced;
+    synchronized (LOCK) {
+      documentReplaced = !clear && !myOutputPaused && isDocumentReplacedByDeferredText();
+    }
+    if (clear || documentReplaced) {
       final DocumentEx document;
       synchronized (LOCK) {
         myHyperlinks.clearHyperlinks();
@@ -647,6 +659,9 @@ public class ConsoleViewImpl extends JPanel implements ConsoleView, ObservableCo
         editor.getMarkupModel().removeAllHighlighters();
         document = editor.getDocument();
         myFoldingAlarm.cancelAllRequests();
+        // the fold regions go away with the text, the lines they were created for are going to be different ones
+        myPendingFoldRegions.clear();
+        myFolding.clear();
         cancelHeavyAlarm();
       }
       CommandProcessor.getInstance().executeCommand(myProject, new Runnable() {
@@ -751,6 +766,25 @@ public class ConsoleViewImpl extends JPanel implements ConsoleView, ObservableCo
     }
   }
 
+  /**
+   * The document trims its text from the start to keep the cyclic buffer size. When the deferred text alone fills the whole buffer,
+   * all the document text is going to be trimmed on the flush, so it's much cheaper to clear the document at once than to move
+   * its text and to update its tokens, hyperlinks and foldings piece by piece. That's the usual case for a very verbose process.
+   * <p/>
+   * The text with carriage returns is not checked as it may end up shorter than the buffer when they are processed.
+   */
+  private boolean isDocumentReplacedByDeferredText() {
+    if (!myBuffer.isUseCyclicBuffer() || myBuffer.getLength() < myBuffer.getCyclicBufferSize()) {
+      return false;
+    }
+    for (StringBuilder chunk : myBuffer.getDeferredOutput()) {
+      if (chunk.indexOf("\r") >= 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
   private void cancelHeavyAlarm() {
     if (myHeavyAlarm != null && !myHeavyAlarm.isDisposed()) {
       myHeavyAlarm.cancelAllRequests();
@@ -17,9 +17,11 @@ package com.intellij.formatting;
 
 import com.intellij.openapi.util.TextRange;
 import com.intellij.openapi.util.text.StringUtil;
+import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 /**
@@ -37,6 +39,7 @@ public class FormatTextRanges {
   public static class FormatTextRange {
     private TextRange myRange;
     private final boolean myProcessHeadingWhitespace;
+    @Nullable private FormatTextRanges myOwner;
 
     public FormatTextRange(TextRange range, boolean processHeadingWhitespace) {
       myRange = range;
@@ -106,6 +109,9 @@ public class FormatTextRanges {
 
     public void setTextRange(TextRange range) {
       myRange = range;
+      if (myOwner != null) {
+        myOwner.myIndex = null;
+      }
     }
 
     public TextRange getNonEmptyTextRange() {
@@ -120,8 +126,19 @@ public class FormatTextRanges {
     }
   }
 
+  /**
+   * Ranges number starting from which the checks of the given ranges are performed via {@link Index}.
+   */
+  private static final int MIN_RANGES_NUMBER_TO_INDEX = 8;
+
   private final List<FormatTextRange> myRanges = new ArrayList<FormatTextRange>();
 
+  /**
+   * The read-only checks are made for every block and white space of the formatted file, so they are answered via the index
+   * when a file is formatted by many ranges (e.g. by the changed text only). <code>null</code> if it should be rebuilt.
+   */
+  @Nullable private Index myIndex;
+
   public FormatTextRanges() {
   }
 
@@ -130,7 +147,10 @@ public class FormatTextRanges {
   }
 
   public void add(TextRange range, boolean processHeadingWhitespace) {
-    myRanges.add(new FormatTextRange(range, processHeadingWhitespace));
+    FormatTextRange formatTextRange = new FormatTextRange(range, processHeadingWhitespace);
+    formatTextRange.myOwner = this;
+    myRanges.add(formatTextRange);
+    myIndex = null;
   }
 
   /**
@@ -143,6 +163,10 @@ public class FormatTextRanges {
    *                             <code>false</code> if given range intersects at least one of aggregated ranges
    */
   public boolean isWhitespaceReadOnly(TextRange range) {
+    Index index = getIndex();
+    if (index != null) {
+      return range == null || !index.myWhiteSpaceBounds.hasRange(range.getEndOffset(), range.getStartOffset() + 1);
+    }
     for (FormatTextRange formatTextRange : myRanges) {
       if (!formatTextRange.isWhitespaceReadOnly(range)) {
         return false;
@@ -162,6 +186,13 @@ public class FormatTextRanges {
    *                              <code>false</code> if given range intersects at least one of aggregated ranges
    */
   public boolean isReadOnly(TextRange range, boolean rootIsRightBlock) {
+    Index index = getIndex();
+    if (index != null) {
+      if (rootIsRightBlock && index.myMaxStartOffset >= range.getEndOffset()) {
+        return false;
+      }
+      return !index.myBounds.hasRange(range.getEndOffset(), range.getStartOffset());
+    }
     for (FormatTextRange formatTextRange : myRanges) {
       if (!formatTextRange.isReadOnly(range, rootIsRightBlock)) {
         return false;
@@ -174,6 +205,19 @@ public class FormatTextRanges {
     return myRanges;
   }
 
+  @Nullable
+  private Index getIndex() {
+    if (myIndex == null && myRanges.size() >= MIN_RANGES_NUMBER_TO_INDEX) {
+      for (FormatTextRange range : myRanges) {
+        if (range.getTextRange() == null) {
+          return null;
+        }
+      }
+      myIndex = new Index(myRanges);
+    }
+    return myIndex;
+  }
+
   public FormatTextRanges ensureNonEmpty() {
     FormatTextRanges result = new FormatTextRanges();
     for (FormatTextRange range : myRanges) {
@@ -187,6 +231,77 @@ public class FormatTextRanges {
     return result;
   }
 
+  /**
+   * Answers the checks of {@link FormatTextRanges} in logarithmic time instead of checking every range.
+   * <p/>
+   * A block is not read-only if there is a range that starts before or at the block end and ends after or at the block start.
+   * A white space is not read-only if there is a range that starts before or at the white space end (strictly before if the
+   * heading white space of the range is not processed) and ends after the white space start. Both checks are answered by
+   * {@link Bounds}.
+   */
+  private static class Index {
+    private final Bounds myBounds;
+    private final Bounds myWhiteSpaceBounds;
+    private final int myMaxStartOffset;
+
+    Index(@NotNull List<FormatTextRange> ranges) {
+      int[] starts = new int[ranges.size()];
+      int[] whiteSpaceStarts = new int[ranges.size()];
+      int[] ends = new int[ranges.size()];
+      int maxStartOffset = Integer.MIN_VALUE;
+      for (int i = 0; i < ranges.size(); i++) {
+        FormatTextRange range = ranges.get(i);
+        TextRange textRange = range.getTextRange();
+        starts[i] = textRange.getStartOffset();
+        whiteSpaceStarts[i] = range.myProcessHeadingWhitespace ? textRange.getStartOffset() : textRange.getStartOffset() + 1;
+        ends[i] = textRange.getEndOffset();
+        maxStartOffset = Math.max(maxStartOffset, starts[i]);
+      }
+      myBounds = new Bounds(starts, ends);
+      myWhiteSpaceBounds = new Bounds(whiteSpaceStarts, ends);
+      myMaxStartOffset = maxStartOffset;
+    }
+  }
+
+  /**
+   * Start offsets of the ranges in ascending order along with the maximum end offset of the ranges starting before or at each of them.
+   */
+  private static class Bounds {
+    private final int[] myStarts;
+    private final int[] myMaxEnds;
+
+    Bounds(@NotNull int[] starts, @NotNull int[] ends) {
+      long[] ranges = new long[starts.length];
+      for (int i = 0; i < starts.length; i++) {
+        ranges[i] = ((long)starts[i] << 32) | (ends[i] & 0xFFFFFFFFL);
+      }
+      Arrays.sort(ranges);
+
+      myStarts = new int[ranges.length];
+      myMaxEnds = new int[ranges.length];
+      for (int i = 0; i < ranges.length; i++) {
+        myStarts[i] = (int)(ranges[i] >> 32);
+        int end = (int)ranges[i];
+        myMaxEnds[i] = i == 0 ? end : Math.max(myMaxEnds[i - 1], end);
+      }
+    }
+
+    /**
+     * @return <code>true</code> if there is a range that starts before or at the given start offset and ends after or at the given
+     *         end offset; <code>false</code> otherwise
+     */
+    boolean hasRange(int maxStartOffset, int minEndOffset) {
+      int index = Arrays.binarySearch(myStarts, maxStartOffset);
+      if (index < 0) {
+        index = -index - 2;
+      }
+      else {
+        while (index + 1 < myStarts.length && myStarts[index + 1] == maxStartOffset) index++;
+      }
+      return index >= 0 && myMaxEnds[index] >= minEndOffset;
+    }
+  }
+
   @Override
   public String toString() {
     return "FormatTextRanges{" + StringUtil.join(myRanges, StringUtil.createToStringFunction(FormatTextRange.class), ",");
@@ -42,6 +42,8 @@ import java.util.*;
 public class DefaultChooseByNameItemProvider implements ChooseByNameItemProvider {
   private static final Logger LOG = Logger.getInstance("#com.intellij.ide.util.gotoByName.ChooseByNameIdea");
   private WeakReference<PsiElement> myContext;
+  // by the "everywhere" checkbox state
+  private final NamesFilter[] myNamesFilters = new NamesFilter[2];
 
   public DefaultChooseByNameItemProvider(PsiElement context) {
     myContext = new WeakReference<PsiElement>(context);
@@ -67,7 +69,7 @@ public class DefaultChooseByNameItemProvider implements ChooseByNameItemProvider
                     namePattern.equals("@") && model instanceof GotoClassModel2;    // TODO[yole]: remove implicit dependency
     if (empty && !base.canShowListForEmptyPattern()) return true;
 
-    Set<String> names = new THashSet<String>(Arrays.asList(base.getNames(everywhere)));
+    Set<String> names = new THashSet<String>(getCandidateNames(base, everywhere, namePattern));
 
     if (base.isSearchInAnyPlace() && !namePattern.trim().isEmpty()) {
       String middleMatchPattern = "*" + namePattern;
@@ -104,6 +106,23 @@ public class DefaultChooseByNameItemProvider implements ChooseByNameItemProvider
     }
   }
 
+  @NotNull
+  private List<String> getCandidateNames(@NotNull ChooseByNameBase base, boolean everywhere, @NotNull String namePattern) {
+    String[] names = base.getNames(everywhere);
+    if (base.getModel() instanceof CustomMatcherModel) return Arrays.asList(names);
+
+    NamesFilter filter;
+    synchronized (myNamesFilters) {
+      int index = everywhere ? 1 : 0;
+      filter = myNamesFilters[index];
+      if (filter == null || !filter.isFor(names)) {
+        filter = new NamesFilter(names);
+        myNamesFilters[index] = filter;
+      }
+    }
+    return filter.getCandidates(namePattern);
+  }
+
   /**
    * @return null if consumer returned false, number of consumed elements otherwise.
    */
@@ -342,6 +361,90 @@ public class DefaultChooseByNameItemProvider implements ChooseByNameItemProvider
     return NameUtil.buildMatcher(pattern, caseSensitivity);
   }
 
+  /**
+   * Skips the names which can't match a pattern since they lack some of its letters or digits, so that the matchers run only
+   * on the rest of the names. Every pattern letter or digit has to be matched by the same character of a name, ignoring case,
+   * in any of the matching modes.
+   */
+  static class NamesFilter {
+    private final String[] myNames;
+    // bit masks of the ASCII letters and digits the names contain
+    private final long[] myMasks;
+    // the names for the last pattern: typing a pattern further only adds the characters the names should contain
+    private long myLastPatternMask;
+    private int[] myLastCandidates;
+
+    NamesFilter(@NotNull String[] names) {
+      myNames = names;
+      myMasks = new long[names.length];
+      for (int i = 0; i < names.length; i++) {
+        myMasks[i] = names[i] == null ? 0 : getNameMask(names[i]);
+      }
+    }
+
+    private boolean isFor(@NotNull String[] names) {
+      return myNames == names;
+    }
+
+    @NotNull
+    synchronized List<String> getCandidates(@NotNull String pattern) {
+      long patternMask = getPatternMask(pattern);
+      int[] candidates;
+      if (myLastCandidates != null && (patternMask & myLastPatternMask) == myLastPatternMask) {
+        candidates = filter(myLastCandidates, patternMask);
+      }
+      else {
+        candidates = filter(null, patternMask);
+      }
+      myLastPatternMask = patternMask;
+      myLastCandidates = candidates;
+
+      List<String> result = new ArrayList<String>(candidates.length);
+      for (int index : candidates) {
+        result.add(myNames[index]);
+      }
+      return result;
+    }
+
+    @NotNull
+    private int[] filter(@Nullable int[] indices, long patternMask) {
+      int count = indices == null ? myNames.length : indices.length;
+      int[] result = new int[count];
+      int size = 0;
+      for (int i = 0; i < count; i++) {
+        int index = indices == null ? i : indices[i];
+        if ((myMasks[index] & patternMask) == patternMask) {
+          result[size++] = index;
+        }
+      }
+      return size == count ? result : Arrays.copyOf(result, size);
+    }
+
+    private static long getNameMask(@NotNull String name) {
+      long mask = 0;
+      for (int i = 0; i < name.length(); i++) {
+        char c = name.charAt(i);
+        // a pattern character matches a name character when either their lower or upper cases are equal
+        mask |= getBit(StringUtil.toLowerCase(c)) | getBit(StringUtil.toLowerCase(StringUtil.toUpperCase(c)));
+      }
+      return mask;
+    }
+
+    private static long getPatternMask(@NotNull String pattern) {
+      long mask = 0;
+      for (int i = 0; i < pattern.length(); i++) {
+        mask |= getBit(StringUtil.toLowerCase(pattern.charAt(i)));
+      }
+      return mask;
+    }
+
+    private static long getBit(char lowerCaseChar) {
+      if (lowerCaseChar >= 'a' && lowerCaseChar <= 'z') return 1L << (lowerCaseChar - 'a');
+      if (lowerCaseChar >= '0' && lowerCaseChar <= '9') return 1L << (26 + lowerCaseChar - '0');
+      return 0;
+    }
+  }
+
   private static class MatchesComparator implements Comparator<String> {
     private final String myOriginalPattern;
 
@@ -38,6 +38,9 @@ public class ChangeList {
 
   private int myIntervalBetweenActivities = 12 * 60 * 60 * 1000; // 12 hours
 
+  // built on the first request, see collectChanges
+  private ChangeSetsIndex myIndex;
+
   public ChangeList(ChangeListStorage storage) {
     myStorage = storage;
   }
@@ -97,7 +100,15 @@ public class ChangeList {
     myCurrentChangeSet.setName(name);
     myCurrentChangeSet.lock();
 
-    myStorage.writeNextSet(myCurrentChangeSet);
+    int id = myStorage.writeNextSet(myCurrentChangeSet);
+    if (myIndex != null) {
+      if (id != -1) {
+        myIndex.add(myCurrentChangeSet, id);
+      }
+      else {
+        myIndex = null;
+      }
+    }
     myCurrentChangeSet = null;
 
     return true;
@@ -171,7 +182,84 @@ public class ChangeList {
     v.finished();
   }
 
+  /**
+   * Does the same as {@link #accept(ChangeVisitor)}, but visits only the change sets which may affect the path the visitor collects changes
+   * for (with respect to its renames and moves), so the time spent is proportional to the history of that path.
+   */
+  public void collectChanges(ChangeCollectingVisitor v) {
+    long lastVisitedId = Long.MAX_VALUE;
+    try {
+      ChangeSet current;
+      ChangeSetsIndex index;
+      int before;
+      synchronized (this) {
+        current = myCurrentChangeSet;
+        index = getIndex();
+        before = index.getSize();
+      }
+
+      if (current != null) {
+        current.accept(v);
+        lastVisitedId = current.getId();
+      }
+
+      while (index != null) {
+        String path = v.getPath();
+        int[] positions;
+        synchronized (this) {
+          positions = index.getPositionsBefore(path, before);
+        }
+
+        int i = positions.length - 1;
+        for (; i >= 0; i--) {
+          int position = positions[i];
+          ChangeSetHolder holder;
+          synchronized (this) {
+            holder = myStorage.readBlock(index.getRecordId(position));
+            if (holder == null || holder.changeSet.getId() != index.getChangeSetId(position)) {
+              // the storage has been changed under the index, so it is dropped and the rest is visited the usual way
+              if (myIndex == index) myIndex = null;
+              index = null;
+              break;
+            }
+          }
+          holder.changeSet.accept(v);
+          lastVisitedId = holder.changeSet.getId();
+          before = position;
+          if (!path.equals(v.getPath())) break;
+        }
+        if (i < 0) {
+          v.finished();
+          return;
+        }
+      }
+
+      for (ChangeSet each : iterChanges()) {
+        if (each.getId() < lastVisitedId) each.accept(v);
+      }
+    }
+    catch (ChangeVisitor.StopVisitingException e) {
+    }
+    v.finished();
+  }
+
+  private ChangeSetsIndex getIndex() {
+    if (myIndex != null && myIndex.isCaseSensitive() == Paths.isCaseSensitive()) return myIndex;
+
+    ChangeSetsIndex index = new ChangeSetsIndex();
+    TIntHashSet recursionGuard = new TIntHashSet(1000);
+    ChangeSetHolder each = myStorage.readPrevious(-1, recursionGuard);
+    while (each != null) {
+      index.add(each.changeSet, each.id);
+      each = myStorage.readPrevious(each.id, recursionGuard);
+    }
+    index.reverse();
+    myIndex = index;
+    return index;
+  }
+
   public synchronized void purgeObsolete(long period) {
+    myIndex = null;
     myStorage.purge(period, myIntervalBetweenActivities, new Consumer<ChangeSet>() {
       public void consume(ChangeSet changeSet) {
         for (Content each : changeSet.getContentsToPurge()) {
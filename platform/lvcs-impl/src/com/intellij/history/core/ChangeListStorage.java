@@ -29,7 +29,16 @@ public interface ChangeListStorage {
   @Nullable
   ChangeSetHolder readPrevious(int id, TIntHashSet recursionGuard);
 
+  /**
+   * @return the block with the given id, or null if there is no such block
+   */
+  @Nullable
+  ChangeSetHolder readBlock(int id);
+
   void purge(long period, int intervalBetweenActivities, Consumer<ChangeSet> processor);
 
-  void writeNextSet(ChangeSet changeSet);
+  /**
+   * @return id of the written block, or -1 if the change set was not written
+   */
+  int writeNextSet(ChangeSet changeSet);
 }
\ No newline at end of file
@@ -25,11 +25,13 @@ import com.intellij.notification.NotificationListener;
 import com.intellij.notification.NotificationType;
 import com.intellij.notification.Notifications;
 import com.intellij.openapi.application.PathManager;
+import com.intellij.openapi.util.Clock;
 import com.intellij.openapi.util.Pair;
 import com.intellij.openapi.util.io.FileUtil;
 import com.intellij.openapi.vfs.newvfs.ManagingFS;
 import com.intellij.util.Consumer;
 import com.intellij.util.io.storage.AbstractStorage;
+import gnu.trove.TIntArrayList;
 import gnu.trove.TIntHashSet;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
@@ -40,13 +42,19 @@ import java.io.File;
 import java.io.IOException;
 import java.text.DateFormat;
 import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.List;
 
 public class ChangeListStorageImpl implements ChangeListStorage {
-  private static final int VERSION = 5;
+  private static final int VERSION = 6;
   private static final String STORAGE_FILE = "changes";
+  // change sets are written to a new segment when the first one of the last segment gets older than this,
+  // so that obsolete history is purged by deleting whole segment files
+  private static final long SEGMENT_PERIOD = 24L * 60 * 60 * 1000;
 
   private final File myStorageDir;
-  private LocalHistoryStorage myStorage;
+  // ordered by base, change sets are written to the last one
+  private final List<Segment> mySegments = new ArrayList<Segment>();
   private long myLastId;
 
   private boolean isCompletelyBroken = false;
@@ -57,32 +65,91 @@ public class ChangeListStorageImpl implements ChangeListStorage {
   }
 
   private synchronized void initStorage(File storageDir) throws IOException {
-    String path = storageDir.getPath() + "/" + STORAGE_FILE;
-
-    LocalHistoryStorage result = new LocalHistoryStorage(path);
-
     long fsTimestamp = getVFSTimestamp();
 
-    int storedVersion = result.getVersion();
-    boolean versionMismatch = storedVersion != VERSION;
-    boolean timestampMismatch = result.getFSTimestamp() != fsTimestamp;
-    if (versionMismatch || timestampMismatch) {
-      if (versionMismatch) {
-        LocalHistoryLog.LOG.info(MessageFormat.format(
-          "local history version mismatch (was: {0}, expected: {1}), rebuilding...", storedVersion, VERSION));
+    // a storage of the old format is a single unsegmented file, its data is not worth converting
+    if (new File(storageDir, STORAGE_FILE + AbstractStorage.INDEX_EXTENSION).exists()) {
+      LocalHistoryLog.LOG.info("local history storage has old format, rebuilding...");
+      if (!FileUtil.delete(storageDir)) {
+        throw new IOException("cannot clear storage dir: " + storageDir);
+      }
+    }
+
+    String mismatch = null;
+    mySegments.clear();
+    try {
+      for (int base : findSegmentBases(storageDir)) {
+        LocalHistoryStorage storage = new LocalHistoryStorage(getSegmentPath(storageDir, base));
+        mySegments.add(new Segment(base, storage));
+        if (mismatch != null) continue;
+
+        int storedVersion = storage.getVersion();
+        if (storedVersion != VERSION) {
+          mismatch = MessageFormat.format("local history version mismatch (was: {0}, expected: {1}), rebuilding...", storedVersion, VERSION);
+        }
+        else if (storage.getFSTimestamp() != fsTimestamp) {
+          mismatch = "FS has been rebuild, rebuilding local history...";
+        }
       }
-      if (timestampMismatch) LocalHistoryLog.LOG.info("FS has been rebuild, rebuilding local history...");
-      result.dispose();
+    }
+    catch (IOException e) {
+      disposeSegments();
+      throw e;
+    }
+
+    if (mismatch != null) {
+      LocalHistoryLog.LOG.info(mismatch);
+      disposeSegments();
       if (!FileUtil.delete(storageDir)) {
         throw new IOException("cannot clear storage dir: " + storageDir);
       }
-      result = new LocalHistoryStorage(path);
-      result.setVersion(VERSION);
-      result.setFSTimestamp(fsTimestamp);
     }
 
-    myLastId = result.getLastId();
-    myStorage = result;
+    if (mySegments.isEmpty()) {
+      mySegments.add(createSegment(storageDir, 0, fsTimestamp, 0));
+    }
+
+    myLastId = getLastSegment().storage.getLastId();
+  }
+
+  private static int[] findSegmentBases(File storageDir) {
+    TIntArrayList result = new TIntArrayList();
+    String prefix = STORAGE_FILE + ".";
+    String[] names = storageDir.list();
+    if (names != null) {
+      for (String each : names) {
+        if (each.length() <= prefix.length() + AbstractStorage.INDEX_EXTENSION.length() ||
+            !each.startsWith(prefix) || !each.endsWith(AbstractStorage.INDEX_EXTENSION)) {
+          continue;
+        }
+        try {
+          result.add(Integer.parseInt(each.substring(prefix.length(), each.length() - AbstractStorage.INDEX_EXTENSION.length())));
+        }
+        catch (NumberFormatException ignored) {
+        }
+      }
+    }
+    result.sort();
+    return result.toNativeArray();
+  }
+
+  private static String getSegmentPath(File storageDir, int base) {
+    return storageDir.getPath() + "/" + STORAGE_FILE + "." + base;
+  }
+
+  private static Segment createSegment(File storageDir, int base, long fsTimestamp, long lastId) throws IOException {
+    LocalHistoryStorage storage = new LocalHistoryStorage(getSegmentPath(storageDir, base));
+    storage.setVersion(VERSION);
+    storage.setFSTimestamp(fsTimestamp);
+    storage.setLastId(lastId);
+    return new Segment(base, storage);
+  }
+
+  private void disposeSegments() {
+    for (Segment each : mySegments) {
+      each.storage.dispose();
+    }
+    mySegments.clear();
   }
 
   private static long getVFSTimestamp() {
@@ -96,7 +163,7 @@ public class ChangeListStorageImpl implements ChangeListStorage {
     long timestamp = System.currentTimeMillis();
 
     try {
-      storageTimestamp = myStorage.getFSTimestamp();
+      storageTimestamp = getLastSegment().storage.getFSTimestamp();
     }
     catch (Exception ex) {
       LocalHistoryLog.LOG.warn("cannot read storage timestamp", ex);
@@ -108,7 +175,7 @@ public class ChangeListStorageImpl implements ChangeListStorage {
                               ",storage timestamp:" + DateFormat.getDateTimeInstance().format(storageTimestamp) +
                               ",vfs timestamp:" + DateFormat.getDateTimeInstance().format(vfsTimestamp) + ")\n" + message, e);
 
-    myStorage.dispose();
+    disposeSegments();
     try {
       FileUtil.delete(myStorageDir);
       initStorage(myStorageDir);
@@ -150,7 +217,7 @@ public class ChangeListStorageImpl implements ChangeListStorage {
   }
 
   public synchronized void close() {
-    myStorage.dispose();
+    disposeSegments();
   }
 
   public synchronized long nextId() {
@@ -163,7 +230,7 @@ public class ChangeListStorageImpl implements ChangeListStorage {
 
     int prevId = 0;
     try {
-      prevId = id == -1 ? myStorage.getLastRecord() : doReadPrevSafely(id, recursionGuard);
+      prevId = id == -1 ? getLastRecord() : doReadPrevSafely(id, recursionGuard);
       if (prevId == 0) return null;
 
       return doReadBlock(prevId);
@@ -172,11 +239,13 @@ public class ChangeListStorageImpl implements ChangeListStorage {
       String message = null;
       if (prevId != 0) {
         try {
-          Pair<Long, Integer> prevOS = myStorage.getOffsetAndSize(prevId);
-          long prevRecordTimestamp = myStorage.getTimestamp(prevId);
-          int lastRecord = myStorage.getLastRecord();
-          Pair<Long, Integer> lastOS = myStorage.getOffsetAndSize(lastRecord);
-          long lastRecordTimestamp = myStorage.getTimestamp(lastRecord);
+          Segment prevSegment = getSegment(prevId);
+          Pair<Long, Integer> prevOS = prevSegment.storage.getOffsetAndSize(prevId - prevSegment.base);
+          long prevRecordTimestamp = getTimestamp(prevId);
+          int lastRecord = getLastRecord();
+          Segment lastSegment = getSegment(lastRecord);
+          Pair<Long, Integer> lastOS = lastSegment.storage.getOffsetAndSize(lastRecord - lastSegment.base);
+          long lastRecordTimestamp = getTimestamp(lastRecord);
 
           message = "invalid record is: " + prevId + " offset: " + prevOS.first + " size: " + prevOS.second
                     + " (created " + DateFormat.getDateTimeInstance().format(prevRecordTimestamp) + ") "
@@ -195,7 +264,8 @@ public class ChangeListStorageImpl implements ChangeListStorage {
 
   @NotNull
   private ChangeSetHolder doReadBlock(int id) throws IOException {
-    DataInputStream in = myStorage.readStream(id);
+    Segment segment = getSegment(id);
+    DataInputStream in = segment.storage.readStream(id - segment.base);
     try {
       return new ChangeSetHolder(id, new ChangeSet(in));
     }
@@ -204,22 +274,48 @@ public class ChangeListStorageImpl implements ChangeListStorage {
     }
   }
 
-  public synchronized void writeNextSet(ChangeSet changeSet) {
-    if (isCompletelyBroken) return;
+  @Nullable
+  public synchronized ChangeSetHolder readBlock(int id) {
+    if (isCompletelyBroken) return null;
 
     try {
-      AbstractStorage.StorageDataOutput out = myStorage.writeStream(myStorage.createNextRecord(), true);
+      if (!isValidRecord(id)) return null;
+      return doReadBlock(id);
+    }
+    catch (Throwable e) {
+      handleError(e, null);
+      return null;
+    }
+  }
+
+  private boolean isValidRecord(int id) throws IOException {
+    if (id <= 0 || id > getLastSegment().base + getLastSegment().storage.getRecordsCount()) return false;
+    Segment segment = getSegment(id);
+    int record = id - segment.base;
+    return record <= segment.storage.getRecordsCount() && segment.storage.getOffsetAndSize(record).second > 0;
+  }
+
+  public synchronized int writeNextSet(ChangeSet changeSet) {
+    if (isCompletelyBroken) return -1;
+
+    try {
+      Segment segment = getSegmentToWrite();
+      LocalHistoryStorage storage = segment.storage;
+      int record = storage.createNextRecord();
+      AbstractStorage.StorageDataOutput out = storage.writeStream(record, true);
       try {
         changeSet.write(out);
       }
       finally {
         out.close();
       }
-      myStorage.setLastId(myLastId);
-      myStorage.force();
+      storage.setLastId(myLastId);
+      storage.force();
+      return segment.base + record;
     }
     catch (IOException e) {
       handleError(e, null);
+      return -1;
     }
   }
 
@@ -238,8 +334,21 @@ public class ChangeListStorageImpl implements ChangeListStorage {
         processor.consume(doReadBlock(eachBlockId).changeSet);
         eachBlockId = doReadPrevSafely(eachBlockId, recursionGuard);
       }
-      myStorage.deleteRecordsUpTo(firstObsoleteId);
-      myStorage.force();
+
+      // segments before the one with the first obsolete block are obsolete as a whole, so their files are just deleted
+      int index = getSegmentIndex(firstObsoleteId);
+      for (int i = 0; i < index; i++) {
+        deleteSegment(mySegments.get(0));
+      }
+
+      Segment segment = mySegments.get(0);
+      segment.storage.deleteRecordsUpTo(firstObsoleteId - segment.base);
+      if (segment.storage.getFirstRecord() == 0 && mySegments.size() > 1) {
+        deleteSegment(segment);
+      }
+      else {
+        segment.storage.force();
+      }
     }
     catch (IOException e) {
       handleError(e, null);
@@ -250,9 +359,9 @@ public class ChangeListStorageImpl implements ChangeListStorage {
     long prevTimestamp = 0;
     long length = 0;
 
-    int last = myStorage.getLastRecord();
+    int last = getLastRecord();
     while (last != 0) {
-      long t = myStorage.getTimestamp(last);
+      long t = getTimestamp(last);
       if (prevTimestamp == 0) prevTimestamp = t;
 
       long delta = prevTimestamp - t;
@@ -271,8 +380,81 @@ public class ChangeListStorageImpl implements ChangeListStorage {
 
   private int doReadPrevSafely(int id, TIntHashSet recursionGuard) throws IOException {
     recursionGuard.add(id);
-    int prev = myStorage.getPrevRecord(id);
+    int prev = getPrevRecord(id);
     if (!recursionGuard.add(prev)) throw new IOException("Recursive records found");
     return prev;
   }
+
+  private Segment getLastSegment() {
+    return mySegments.get(mySegments.size() - 1);
+  }
+
+  private Segment getSegmentToWrite() throws IOException {
+    Segment last = getLastSegment();
+    int first = last.storage.getFirstRecord();
+    if (first == 0 || Clock.getTime() - last.storage.getTimestamp(first) < SEGMENT_PERIOD) return last;
+
+    // records of the last segment may have been reused after purging, but never exceed its records count
+    Segment result = createSegment(myStorageDir, last.base + last.storage.getRecordsCount(), last.storage.getFSTimestamp(), myLastId);
+    last.storage.force();
+    mySegments.add(result);
+    return result;
+  }
+
+  private void deleteSegment(Segment segment) throws IOException {
+    segment.storage.dispose();
+    mySegments.remove(segment);
+    String path = getSegmentPath(myStorageDir, segment.base);
+    if (!AbstractStorage.deleteFiles(path)) throw new IOException("cannot delete storage segment: " + path);
+  }
+
+  private int getSegmentIndex(int id) throws IOException {
+    for (int i = mySegments.size() - 1; i >= 0; i--) {
+      if (mySegments.get(i).base < id) return i;
+    }
+    throw new IOException("Record " + id + " does not belong to any segment");
+  }
+
+  private Segment getSegment(int id) throws IOException {
+    return mySegments.get(getSegmentIndex(id));
+  }
+
+  private int getLastRecord() {
+    for (int i = mySegments.size() - 1; i >= 0; i--) {
+      Segment each = mySegments.get(i);
+      int last = each.storage.getLastRecord();
+      if (last != 0) return each.base + last;
+    }
+    return 0;
+  }
+
+  private int getPrevRecord(int id) throws IOException {
+    int index = getSegmentIndex(id);
+    Segment segment = mySegments.get(index);
+    int prev = segment.storage.getPrevRecord(id - segment.base);
+    if (prev != 0) return segment.base + prev;
+
+    for (int i = index - 1; i >= 0; i--) {
+      Segment each = mySegments.get(i);
+      int last = each.storage.getLastRecord();
+      if (last != 0) return each.base + last;
+    }
+    return 0;
+  }
+
+  private long getTimestamp(int id) throws IOException {
+    Segment segment = getSegment(id);
+    return segment.storage.getTimestamp(id - segment.base);
+  }
+
+  private static class Segment {
+    // ids of the segment records are shifted by the base, so that ids of different segments do not intersect
+    private final int base;
+    private final LocalHistoryStorage storage;
+
+    private Segment(int base, LocalHistoryStorage storage) {
+      this.base = base;
+      this.storage = storage;
+    }
+  }
 }
\ No newline at end of file
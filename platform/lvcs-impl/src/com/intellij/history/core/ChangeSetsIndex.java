@@ -0,0 +1,161 @@
+/*
+ * Copyright 2000-2012 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intellij.history.core;
+
+import com.intellij.history.core.changes.Change;
+import com.intellij.history.core.changes.ChangeSet;
+import com.intellij.history.core.changes.StructuralChange;
+import gnu.trove.TIntArrayList;
+import gnu.trove.TIntHashSet;
+import gnu.trove.TLongArrayList;
+
+import java.util.Arrays;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * In-memory index of the stored change sets by the paths of their structural changes. Change sets are numbered by their positions
+ * in the order they were written, so the change sets which may affect a path can be found without reading all the other ones.
+ */
+class ChangeSetsIndex {
+  private final boolean myCaseSensitive;
+
+  // change set ids and ids of their storage records by positions
+  private final TLongArrayList myChangeSetIds = new TLongArrayList();
+  private final TIntArrayList myRecordIds = new TIntArrayList();
+
+  // path -> positions of the change sets having structural changes of exactly this path, ascending
+  private final TreeMap<String, TIntArrayList> myPaths;
+  // positions of the change sets having changes not bound to paths (labels), ascending
+  private final TIntArrayList myOthers = new TIntArrayList();
+
+  public ChangeSetsIndex() {
+    myCaseSensitive = Paths.isCaseSensitive();
+    myPaths = myCaseSensitive ? new TreeMap<String, TIntArrayList>() : new TreeMap<String, TIntArrayList>(String.CASE_INSENSITIVE_ORDER);
+  }
+
+  public boolean isCaseSensitive() {
+    return myCaseSensitive;
+  }
+
+  public int getSize() {
+    return myChangeSetIds.size();
+  }
+
+  public long getChangeSetId(int position) {
+    return myChangeSetIds.get(position);
+  }
+
+  public int getRecordId(int position) {
+    return myRecordIds.get(position);
+  }
+
+  public void add(ChangeSet changeSet, int recordId) {
+    int position = myChangeSetIds.size();
+    myChangeSetIds.add(changeSet.getId());
+    myRecordIds.add(recordId);
+
+    for (Change each : changeSet.getChanges()) {
+      if (each instanceof StructuralChange) {
+        StructuralChange structural = (StructuralChange)each;
+        addPosition(structural.getPath(), position);
+        addPosition(structural.getOldPath(), position);
+      }
+      else {
+        addPosition(myOthers, position);
+      }
+    }
+  }
+
+  private void addPosition(String path, int position) {
+    TIntArrayList positions = myPaths.get(path);
+    if (positions == null) {
+      positions = new TIntArrayList(1);
+      myPaths.put(path, positions);
+    }
+    addPosition(positions, position);
+  }
+
+  private static void addPosition(TIntArrayList positions, int position) {
+    if (positions.isEmpty() || positions.get(positions.size() - 1) != position) positions.add(position);
+  }
+
+  /**
+   * Turns the index filled with the latest change sets first into the one filled in the order the change sets were written.
+   */
+  public void reverse() {
+    int size = myChangeSetIds.size();
+    myChangeSetIds.reverse();
+    myRecordIds.reverse();
+    for (TIntArrayList each : myPaths.values()) {
+      reverse(each, size);
+    }
+    reverse(myOthers, size);
+  }
+
+  private static void reverse(TIntArrayList positions, int size) {
+    positions.reverse();
+    for (int i = 0; i < positions.size(); i++) {
+      positions.set(i, size - 1 - positions.get(i));
+    }
+  }
+
+  /**
+   * @return positions (ascending) of the change sets written before the given position that may affect the path: the ones with changes
+   *         of the path itself, of its parents and of its children, and the ones with changes not bound to paths
+   */
+  public int[] getPositionsBefore(String path, int before) {
+    TIntHashSet result = new TIntHashSet();
+    addPositionsBefore(myOthers, before, result);
+
+    String each = path;
+    while (true) {
+      addPositionsBefore(myPaths.get(each), before, result);
+      String parent = Paths.getParentOf(each);
+      if (parent.equals(each)) break;
+      if (parent.isEmpty()) {
+        addPositionsBefore(myPaths.get(parent), before, result);
+        break;
+      }
+      each = parent;
+    }
+
+    String prefix = path.isEmpty() || path.charAt(path.length() - 1) == Paths.DELIM ? path : path + Paths.DELIM;
+    for (TIntArrayList positions : getChildren(prefix).values()) {
+      addPositionsBefore(positions, before, result);
+    }
+
+    int[] array = result.toArray();
+    Arrays.sort(array);
+    return array;
+  }
+
+  private SortedMap<String, TIntArrayList> getChildren(String prefix) {
+    if (prefix.isEmpty()) return myPaths;
+    // '/' has no case, so the range is the same for the case insensitive order
+    String upper = prefix.substring(0, prefix.length() - 1) + (char)(Paths.DELIM + 1);
+    return myPaths.subMap(prefix, upper);
+  }
+
+  private static void addPositionsBefore(TIntArrayList positions, int before, TIntHashSet result) {
+    if (positions == null) return;
+    for (int i = 0; i < positions.size(); i++) {
+      int each = positions.get(i);
+      if (each >= before) break;
+      result.add(each);
+    }
+  }
+}
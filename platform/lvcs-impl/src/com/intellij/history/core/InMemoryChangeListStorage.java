@@ -45,8 +45,16 @@ public class InMemoryChangeListStorage implements ChangeListStorage {
   }
 
   @Override
-  public void writeNextSet(ChangeSet changeSet) {
+  @Nullable
+  public ChangeSetHolder readBlock(int id) {
+    if (id < 0 || id >= mySets.size()) return null;
+    return new ChangeSetHolder(id, mySets.get(id));
+  }
+
+  @Override
+  public int writeNextSet(ChangeSet changeSet) {
     mySets.add(changeSet);
+    return mySets.size() - 1;
   }
 
   @Override
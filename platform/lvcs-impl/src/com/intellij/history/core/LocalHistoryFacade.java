@@ -153,6 +153,10 @@ public class LocalHistoryFacade {
     myChangeList.accept(v);
   }
 
+  public void collectChanges(ChangeCollectingVisitor v) {
+    myChangeList.collectChanges(v);
+  }
+
   public String revertUpTo(@NotNull final RootEntry root,
                            @NotNull String path,
                            final ChangeSet targetChangeSet,
@@ -92,6 +92,12 @@ public class LocalHistoryStorage extends AbstractStorage {
     }
   }
 
+  public int getRecordsCount() throws IOException {
+    synchronized (myLock) {
+      return myRecordsTable.getRecordsCount();
+    }
+  }
+
   public Pair<Long, Integer> getOffsetAndSize(int id) {
     synchronized (myLock) {
       return Pair.create(myRecordsTable.getAddress(id), myRecordsTable.getSize(id));
@@ -224,6 +224,12 @@ public final class EditorImpl extends UserDataHolderBase implements EditorEx, Hi
   private final     ArrayList<CachedFontContent> myFontCache       = new ArrayList<CachedFontContent>();
   @Nullable private FontInfo                     myCurrentFontType = null;
 
+  private static final PaintTimeHistogram ourPaintTimeHistogram = new PaintTimeHistogram();
+  private static final int PAINTS_PER_HISTOGRAM_LOG = 1000;
+  private final TextLayoutCache myTextLayoutCache = new TextLayoutCache();
+  // document chars which are painted now, only their layout is cached
+  @Nullable private char[] myPaintedChars;
+
   private final EditorSizeContainer mySizeContainer = new EditorSizeContainer();
 
   private boolean myUpdateCursor;
@@ -347,6 +353,8 @@ public final class EditorImpl extends UserDataHolderBase implements EditorEx, Hi
 
         int startLine = start == -1 ? 0 : myDocument.getLineNumber(start);
         int endLine = end == -1 ? myDocument.getLineCount() : myDocument.getLineNumber(end);
+        // fragments painted with the old attributes won't be used any more
+        myTextLayoutCache.invalidateLines(offsetToVisualLine(start), offsetToVisualLine(end));
         repaintLines(Math.max(0, startLine - 1), Math.min(endLine + 1, getDocument().getLineCount()));
         GutterIconRenderer renderer = highlighter.getGutterIconRenderer();
 
@@ -373,6 +381,17 @@ public final class EditorImpl extends UserDataHolderBase implements EditorEx, Hi
     myDocument.addDocumentListener(mySoftWrapModel, myCaretModel);
 
     myFoldingModel.addListener(mySoftWrapModel);
+    myFoldingModel.addListener(new FoldingListener() {
+      @Override
+      public void onFoldRegionStateChange(@NotNull FoldRegion region) {
+        // visual lines after the region are shifted
+        myTextLayoutCache.invalidate();
+      }
+
+      @Override
+      public void onFoldProcessingEnd() {
+      }
+    });
 
     myIndentsModel = new IndentsModelImpl(this);
     myCaretModel.addCaretListener(new CaretListener() {
@@ -438,11 +457,13 @@ public final class EditorImpl extends UserDataHolderBase implements EditorEx, Hi
       @Override
       public void softWrapAdded(@NotNull SoftWrap softWrap) {
         mySoftWrapsChanged = true;
+        myTextLayoutCache.invalidate();
       }
 
       @Override
       public void softWrapsRemoved() {
         mySoftWrapsChanged = true;
+        myTextLayoutCache.invalidate();
       }
     });
 
@@ -650,6 +671,7 @@ public final class EditorImpl extends UserDataHolderBase implements EditorEx, Hi
     myPlainFontMetrics = null;
 
     clearTextWidthCache();
+    myTextLayoutCache.invalidate();
 
     boolean softWrapsUsedBefore = mySoftWrapModel.isSoftWrappingEnabled();
 
@@ -892,6 +914,7 @@ public final class EditorImpl extends UserDataHolderBase implements EditorEx, Hi
   public void setFontSize(final int fontSize) {
     int oldFontSize = myScheme.getEditorFontSize();
     myScheme.setEditorFontSize(fontSize);
+    myTextLayoutCache.invalidate();
     myPropertyChangeSupport.firePropertyChange(PROP_FONT_SIZE, oldFontSize, fontSize);
     // Update vertical scroll bar bounds if necessary (we had a problem that use increased editor font size and it was not possible
     // to scroll to the bottom of the document).
@@ -1610,6 +1633,7 @@ public final class EditorImpl extends UserDataHolderBase implements EditorEx, Hi
   }
 
   private void bulkUpdateFinished() {
+    myTextLayoutCache.invalidate();
     if (myScrollPane == null) {
       return;
     }
@@ -1645,6 +1669,7 @@ public final class EditorImpl extends UserDataHolderBase implements EditorEx, Hi
   }
 
   private void changedUpdate(DocumentEvent e) {
+    myTextLayoutCache.invalidate();
     if (myScrollPane == null || myDocument.isInBulkUpdate()) return;
 
     clearTextWidthCache();
@@ -1844,6 +1869,33 @@ public final class EditorImpl extends UserDataHolderBase implements EditorEx, Hi
   }
 
   void paint(@NotNull Graphics2D g) {
+    long start = System.nanoTime();
+    try {
+      doPaint(g);
+    }
+    finally {
+      ourPaintTimeHistogram.addPaintTime(System.nanoTime() - start);
+      if (LOG.isDebugEnabled() && ourPaintTimeHistogram.getPaintCount() % PAINTS_PER_HISTOGRAM_LOG == 0) {
+        LOG.debug("Paint times: " + ourPaintTimeHistogram + "; text layout cache hits: " + myTextLayoutCache.getHits() +
+                  ", misses: " + myTextLayoutCache.getMisses());
+      }
+    }
+  }
+
+  /**
+   * @return times of the painting of all editors, for diagnostics
+   */
+  @NotNull
+  public static PaintTimeHistogram getPaintTimeHistogram() {
+    return ourPaintTimeHistogram;
+  }
+
+  @NotNull
+  TextLayoutCache getTextLayoutCache() {
+    return myTextLayoutCache;
+  }
+
+  private void doPaint(@NotNull Graphics2D g) {
     Rectangle clip = g.getClipBounds();
 
     if (clip == null) {
@@ -2645,6 +2697,7 @@ public final class EditorImpl extends UserDataHolderBase implements EditorEx, Hi
       g.setColor(currentColor);
 
       final char[] chars = myDocument.getRawChars();
+      myPaintedChars = chars;
 
       while (!iterationState.atEnd() && !lIterator.atEnd()) {
         int hEnd = iterationState.getEndOffset();
@@ -2720,6 +2773,7 @@ public final class EditorImpl extends UserDataHolderBase implements EditorEx, Hi
       }
     }
     finally {
+      myPaintedChars = null;
       iterationState.dispose();
     }
 
@@ -3169,12 +3223,71 @@ public final class EditorImpl extends UserDataHolderBase implements EditorEx, Hi
                                 @JdkConstants.FontStyle final int fontType,
                                 final Color fontColor,
                                 @NotNull final Rectangle clip) {
+    if (start >= end) return x;
+
+    // placeholders, prefixes and soft wrap texts are not cached
+    TextLayoutCache.Fragment fragment = text == myPaintedChars
+                                        ? myTextLayoutCache.getFragment((y - getAscent()) / getLineHeight(), text, start, end, fontType, this)
+                                        : null;
+    if (fragment == null) {
+      return drawUncachedTablessString(text, start, end, g, x, y, fontType, fontColor, clip);
+    }
+    int clipEnd = clip.x + clip.width;
+    int runStart = start;
+    for (int run = 0; run < fragment.getRunCount(); run++) {
+      int runEnd = fragment.getRunEnd(run);
+      int runStartX = x + fragment.getX(runStart);
+      if (runStartX > clipEnd) break;
+
+      int runEndX = x + fragment.getX(runEnd);
+      if (runEndX >= clip.x) {
+        // only the visible chars of the run are drawn
+        int from = runStartX < clip.x ? fragment.getFirstCharEndingAfter(clip.x - x, runStart, runEnd) : runStart;
+        int to = runEndX > clipEnd ? fragment.getFirstCharStartingAfter(clipEnd - x, from, runEnd) : runEnd;
+
+        // see the space width check in drawUncachedTablessString()
+        int spaceWidth = fragment.getRunSpaceWidth(run);
+        if (spaceWidth >= 0
+            && myCommonSpaceWidth > 0
+            && myLastCache != null
+            && (spaceWidth != myCommonSpaceWidth || spaceWidth != myLastCache.spaceWidth)) {
+          myForceRefreshFont = true;
+        }
+        if (from < to) {
+          drawCharsCached(g, text, from, to, x + fragment.getX(from), y, fontType, fontColor);
+        }
+      }
+      runStart = runEnd;
+    }
+
+    return x + fragment.getWidth();
+  }
+
+  private int drawUncachedTablessString(final char[] text,
+                                        int start,
+                                        final int end,
+                                        @NotNull final Graphics g,
+                                        int x,
+                                        final int y,
+                                        @JdkConstants.FontStyle final int fontType,
+                                        final Color fontColor,
+                                        @NotNull final Rectangle clip) {
     int endX = x;
     if (start < end) {
       FontInfo font = EditorUtil.fontForChar(text[start], fontType, this);
+      FontInfo asciiFont = null; // all ASCII chars are displayed by the primary font, no need to look it up for each of them
       for (int j = start; j < end; j++) {
         final char c = text[j];
-        FontInfo newFont = EditorUtil.fontForChar(c, fontType, this);
+        final FontInfo newFont;
+        if (c < 128) {
+          if (asciiFont == null) {
+            asciiFont = EditorUtil.fontForChar(c, fontType, this);
+          }
+          newFont = asciiFont;
+        }
+        else {
+          newFont = EditorUtil.fontForChar(c, fontType, this);
+        }
         if (font != newFont || endX > clip.x + clip.width) {
           if (!(x < clip.x && endX < clip.x || x > clip.x + clip.width && endX > clip.x + clip.width)) {
             drawCharsCached(g, text, start, j, x, y, fontType, fontColor);
@@ -18,6 +18,7 @@ package com.intellij.openapi.editor.impl;
 import com.intellij.ide.ui.UISettings;
 import com.intellij.util.ui.UIUtil;
 import gnu.trove.TIntHashSet;
+import gnu.trove.TIntIntHashMap;
 import org.intellij.lang.annotations.JdkConstants;
 import org.jetbrains.annotations.NotNull;
 
@@ -39,6 +40,8 @@ public class FontInfo {
   private final TIntHashSet mySafeCharacters = new TIntHashSet();
   private FontMetrics myFontMetrics = null;
   private final int[] charWidth = new int[128];
+  // widths of the other measured chars, FontMetrics.charWidth() is slow for them and they're measured on every repaint
+  private final TIntIntHashMap myNonAsciiCharWidths = new TIntIntHashMap();
   private boolean myHasGlyphsToBreakDrawingIteration;
   private boolean myCheckedForProblemGlyphs;
 
@@ -126,7 +129,14 @@ public class FontInfo {
   public int charWidth(char c) {
     final FontMetrics metrics = fontMetrics();
     if (c < 128) return charWidth[c];
-    return metrics.charWidth(c);
+    synchronized (myNonAsciiCharWidths) {
+      int width = myNonAsciiCharWidths.get(c);
+      if (width == 0 && !myNonAsciiCharWidths.containsKey(c)) {
+        width = metrics.charWidth(c);
+        myNonAsciiCharWidths.put(c, width);
+      }
+      return width;
+    }
   }
 
   private FontMetrics fontMetrics() {
@@ -146,6 +156,9 @@ public class FontInfo {
 
   void reset() {
     myFontMetrics = null;
+    synchronized (myNonAsciiCharWidths) {
+      myNonAsciiCharWidths.clear();
+    }
   }
   
   public int getSize() {
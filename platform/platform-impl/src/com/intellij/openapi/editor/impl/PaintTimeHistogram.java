@@ -0,0 +1,92 @@
+/*
+ * Copyright 2000-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intellij.openapi.editor.impl;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Counts editor paints by the time they took. Bucket <code>i</code> holds the paints which took less than
+ * {@link #getUpperBoundMs(int) getUpperBoundMs(i)} milliseconds, the last bucket holds the rest.
+ *
+ * @see EditorImpl#getPaintTimeHistogram()
+ */
+public class PaintTimeHistogram {
+  private static final int[] UPPER_BOUNDS_MS = {1, 2, 4, 8, 16, 32, 64, 128, 256, 512};
+
+  private final int[] myCounts = new int[UPPER_BOUNDS_MS.length + 1];
+  private long myTotalNanos;
+
+  public synchronized void addPaintTime(long nanos) {
+    long ms = TimeUnit.NANOSECONDS.toMillis(nanos);
+    int bucket = 0;
+    while (bucket < UPPER_BOUNDS_MS.length && ms >= UPPER_BOUNDS_MS[bucket]) {
+      bucket++;
+    }
+    myCounts[bucket]++;
+    myTotalNanos += nanos;
+  }
+
+  public static int getBucketCount() {
+    return UPPER_BOUNDS_MS.length + 1;
+  }
+
+  /**
+   * @return exclusive upper bound of the bucket in milliseconds, or -1 for the last bucket
+   */
+  public static int getUpperBoundMs(int bucket) {
+    return bucket < UPPER_BOUNDS_MS.length ? UPPER_BOUNDS_MS[bucket] : -1;
+  }
+
+  @NotNull
+  public synchronized int[] getCounts() {
+    return myCounts.clone();
+  }
+
+  public synchronized int getPaintCount() {
+    int count = 0;
+    for (int bucketCount : myCounts) {
+      count += bucketCount;
+    }
+    return count;
+  }
+
+  public synchronized void clear() {
+    for (int i = 0; i < myCounts.length; i++) {
+      myCounts[i] = 0;
+    }
+    myTotalNanos = 0;
+  }
+
+  @Override
+  public synchronized String toString() {
+    StringBuilder result = new StringBuilder();
+    int count = getPaintCount();
+    result.append(count).append(" paints");
+    if (count > 0) {
+      result.append(", average ").append(TimeUnit.NANOSECONDS.toMicros(myTotalNanos / count)).append(" us");
+    }
+    result.append(':');
+    for (int i = 0; i < myCounts.length; i++) {
+      if (myCounts[i] == 0) continue;
+      result.append(' ');
+      result.append(i < UPPER_BOUNDS_MS.length ? "<" + UPPER_BOUNDS_MS[i] : ">=" + UPPER_BOUNDS_MS[UPPER_BOUNDS_MS.length - 1]);
+      result.append("ms=").append(myCounts[i]);
+    }
+    return result.toString();
+  }
+}
@@ -0,0 +1,269 @@
+/*
+ * Copyright 2000-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intellij.openapi.editor.impl;
+
+import com.intellij.openapi.editor.ex.util.EditorUtil;
+import gnu.trove.TIntArrayList;
+import org.intellij.lang.annotations.JdkConstants;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Holds measured text of the painted visual lines of an editor, so that the lines are not measured char by char on every repaint.
+ * <p/>
+ * A line is painted as a sequence of tabless fragments of document text, each with its own font style. A fragment is split into runs
+ * of chars displayed by the same font. The widths of the chars and the runs are stored, so that a cached fragment is painted by
+ * drawing its visible runs.
+ * <p/>
+ * The cache is invalidated by the editor on document, folding, soft wrap, markup and font changes. Only the recently painted lines
+ * are kept.
+ */
+class TextLayoutCache {
+  private static final int MAX_CACHED_LINES = 1000;
+  // fragments of a line which were painted with other attributes are dropped when there are too many of them
+  private static final int MAX_FRAGMENTS_PER_LINE = 64;
+  // only the visible part of a longer fragment is measured on each paint, measuring and keeping all its chars costs more
+  static final int MAX_FRAGMENT_LENGTH = 1000;
+
+  private final Map<Integer, List<Fragment>> myLines = new LinkedHashMap<Integer, List<Fragment>>(16, 0.75f, true) {
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<Integer, List<Fragment>> eldest) {
+      return size() > MAX_CACHED_LINES;
+    }
+  };
+  private int myHits;
+  private int myMisses;
+
+  /**
+   * @return measured fragment, or <code>null</code> if the fragment is too long to be cached
+   */
+  @Nullable
+  Fragment getFragment(int visualLine, @NotNull char[] text, int start, int end, @JdkConstants.FontStyle int fontType,
+                       @NotNull EditorImpl editor) {
+    if (end - start > MAX_FRAGMENT_LENGTH) return null;
+
+    List<Fragment> fragments = myLines.get(visualLine);
+    if (fragments == null) {
+      fragments = new ArrayList<Fragment>();
+      myLines.put(visualLine, fragments);
+    }
+    for (Fragment fragment : fragments) {
+      if (fragment.myStart == start && fragment.myEnd == end && fragment.myFontType == fontType) {
+        myHits++;
+        return fragment;
+      }
+    }
+    myMisses++;
+    if (fragments.size() >= MAX_FRAGMENTS_PER_LINE) {
+      fragments.clear();
+    }
+    Fragment fragment = measure(text, start, end, fontType, editor);
+    fragments.add(fragment);
+    return fragment;
+  }
+
+  void invalidate() {
+    myLines.clear();
+  }
+
+  void invalidateLines(int startVisualLine, int endVisualLine) {
+    if (endVisualLine - startVisualLine < myLines.size()) {
+      for (int line = startVisualLine; line <= endVisualLine; line++) {
+        myLines.remove(line);
+      }
+    }
+    else {
+      for (Iterator<Integer> iterator = myLines.keySet().iterator(); iterator.hasNext(); ) {
+        int line = iterator.next();
+        if (line >= startVisualLine && line <= endVisualLine) {
+          iterator.remove();
+        }
+      }
+    }
+  }
+
+  int getCachedLineCount() {
+    return myLines.size();
+  }
+
+  int getHits() {
+    return myHits;
+  }
+
+  int getMisses() {
+    return myMisses;
+  }
+
+  @NotNull
+  static Fragment measure(@NotNull char[] text, int start, int end, @JdkConstants.FontStyle int fontType, @NotNull EditorImpl editor) {
+    int[] charEnds = new int[end - start];
+    TIntArrayList runEnds = new TIntArrayList();
+    List<FontInfo> runFonts = new ArrayList<FontInfo>();
+    TIntArrayList runSpaceWidths = new TIntArrayList();
+
+    int x = 0;
+    FontInfo font = null;
+    FontInfo asciiFont = null; // all ASCII chars are displayed by the primary font, no need to look it up for each of them
+    int spaceWidth = -1;
+    for (int i = start; i < end; i++) {
+      char c = text[i];
+      FontInfo newFont;
+      if (c < 128) {
+        if (asciiFont == null) {
+          asciiFont = EditorUtil.fontForChar(c, fontType, editor);
+        }
+        newFont = asciiFont;
+      }
+      else {
+        newFont = EditorUtil.fontForChar(c, fontType, editor);
+      }
+      if (font != null && font != newFont) {
+        runEnds.add(i);
+        runFonts.add(font);
+        runSpaceWidths.add(spaceWidth);
+        spaceWidth = -1;
+      }
+      font = newFont;
+
+      int charWidth = font.charWidth(c);
+      if (c == ' ') {
+        spaceWidth = charWidth;
+      }
+      x += charWidth;
+      charEnds[i - start] = x;
+
+      if (font.hasGlyphsToBreakDrawingIteration() && font.getSymbolsToBreakDrawingIteration().contains(c)) {
+        // such a char has to be drawn separately from the chars after it
+        runEnds.add(i + 1);
+        runFonts.add(font);
+        runSpaceWidths.add(spaceWidth);
+        spaceWidth = -1;
+        font = null;
+      }
+    }
+    if (font != null) {
+      runEnds.add(end);
+      runFonts.add(font);
+      runSpaceWidths.add(spaceWidth);
+    }
+    return new Fragment(start, end, fontType, charEnds, runEnds.toNativeArray(), runFonts.toArray(new FontInfo[runFonts.size()]),
+                        runSpaceWidths.toNativeArray());
+  }
+
+  /**
+   * Measured tabless text fragment painted with the same font style
+   */
+  static class Fragment {
+    private final int myStart;
+    private final int myEnd;
+    @JdkConstants.FontStyle private final int myFontType;
+    // x of the end of each char relative to the start of the fragment
+    private final int[] myCharEnds;
+    private final int[] myRunEnds;
+    private final FontInfo[] myRunFonts;
+    // width of a space in each run, or -1 if there are no spaces there
+    private final int[] myRunSpaceWidths;
+
+    private Fragment(int start, int end, @JdkConstants.FontStyle int fontType, @NotNull int[] charEnds, @NotNull int[] runEnds,
+                     @NotNull FontInfo[] runFonts, @NotNull int[] runSpaceWidths) {
+      myStart = start;
+      myEnd = end;
+      myFontType = fontType;
+      myCharEnds = charEnds;
+      myRunEnds = runEnds;
+      myRunFonts = runFonts;
+      myRunSpaceWidths = runSpaceWidths;
+    }
+
+    int getStart() {
+      return myStart;
+    }
+
+    int getEnd() {
+      return myEnd;
+    }
+
+    int getWidth() {
+      return getX(myEnd);
+    }
+
+    /**
+     * @return x of the start of the char at the given offset relative to the start of the fragment
+     */
+    int getX(int offset) {
+      return offset == myStart ? 0 : myCharEnds[offset - myStart - 1];
+    }
+
+    /**
+     * @return offset of the first char in [from, to) which ends after the given x, or <code>to</code> if there is no such char
+     */
+    int getFirstCharEndingAfter(int x, int from, int to) {
+      int low = from;
+      int high = to;
+      while (low < high) {
+        int middle = (low + high) >>> 1;
+        if (myCharEnds[middle - myStart] <= x) {
+          low = middle + 1;
+        }
+        else {
+          high = middle;
+        }
+      }
+      return low;
+    }
+
+    /**
+     * @return offset of the first char in [from, to) which starts after the given x, or <code>to</code> if there is no such char
+     */
+    int getFirstCharStartingAfter(int x, int from, int to) {
+      int low = from;
+      int high = to;
+      while (low < high) {
+        int middle = (low + high) >>> 1;
+        if (getX(middle) <= x) {
+          low = middle + 1;
+        }
+        else {
+          high = middle;
+        }
+      }
+      return low;
+    }
+
+    int getRunCount() {
+      return myRunEnds.length;
+    }
+
+    int getRunEnd(int run) {
+      return myRunEnds[run];
+    }
+
+    @NotNull
+    FontInfo getRunFont(int run) {
+      return myRunFonts[run];
+    }
+
+    int getRunSpaceWidth(int run) {
+      return myRunSpaceWidths[run];
+    }
+  }
+}
@@ -263,7 +263,10 @@ public class SoftWrapApplianceManager implements SoftWrapFoldingListener, Docume
     Document document = myEditor.getDocument();
     myContext.text = document.getCharsSequence();
     myContext.tokenStartOffset = start;
-    IterationState iterationState = new IterationState(myEditor, start, document.getTextLength(), false);
+    // Symbols after the target range end are not processed (see processNonFoldToken()), so there is no point in collecting
+    // highlighting and folding information for the whole rest of the document.
+    int end = Math.min(document.getTextLength(), Math.max(start, event.getNewEndOffset() + 1));
+    IterationState iterationState = new IterationState(myEditor, start, end, false);
     try {
       TextAttributes attributes = iterationState.getMergedAttributes();
       myContext.fontType = attributes.getFontType();
@@ -625,14 +628,14 @@ public class SoftWrapApplianceManager implements SoftWrapFoldingListener, Docume
   }
 
   private int calculateSoftWrapEndOffset(int start, int end) {
-    CharSequence text = myEditor.getDocument().getCharsSequence();
-    for (int i = start; i < end; i++) {
-      char c = text.charAt(i);
-      if (c == '\n') {
-        return i;
-      }
+    if (start >= end) {
+      return start;
     }
-    return Math.max(start, end);
+    // The line end is looked up instead of scanning the text for the first line feed. Every soft wrap of a long line would
+    // scan the whole rest of the line otherwise, and that is quadratic when all soft wraps are recalculated on width change.
+    Document document = myEditor.getDocument();
+    int lineEndOffset = document.getLineEndOffset(document.getLineNumber(start));
+    return Math.min(lineEndOffset, end);
   }
 
   private static int calculateWidthInColumns(char c, int widthInPixels, int spaceWithInPixels) {
@@ -0,0 +1,73 @@
+/*
+ * Copyright 2000-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intellij.codeInsight.daemon.impl;
+
+import com.intellij.util.Function;
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class LocalInspectionsTimeStatisticsTest extends TestCase {
+  private static final long MS = 1000000;
+
+  private LocalInspectionsTimeStatistics myStatistics;
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    myStatistics = new LocalInspectionsTimeStatistics();
+  }
+
+  public void testAverageTime() {
+    assertEquals(0, myStatistics.getAverageTime("Unknown"));
+
+    myStatistics.addRun("Slow", 10 * MS);
+    myStatistics.addRun("Slow", 30 * MS);
+    myStatistics.addRun("Fast", MS);
+    assertEquals(20 * MS, myStatistics.getAverageTime("Slow"));
+    assertEquals(MS, myStatistics.getAverageTime("Fast"));
+  }
+
+  public void testReportListsTheMostExpensiveFirst() {
+    myStatistics.addRun("Cheap", 2 * MS);
+    myStatistics.addRun("Expensive", 30 * MS);
+    myStatistics.addRun("Expensive", 10 * MS);
+    myStatistics.addRun("Medium", 5 * MS);
+
+    String[] lines = myStatistics.getReport(2).split("\n");
+    assertEquals(3, lines.length);
+    assertEquals("  Expensive: 40 ms in 2 runs, 20 ms per run", lines[1]);
+    assertEquals("  Medium: 5 ms in 1 runs, 5 ms per run", lines[2]);
+  }
+
+  public void testToolsAreSortedByDescendingAverageTime() {
+    myStatistics.addRun("A", 5 * MS);
+    myStatistics.addRun("B", 50 * MS);
+    myStatistics.addRun("B", 10 * MS);
+    myStatistics.addRun("C", 20 * MS);
+
+    List<String> tools = new ArrayList<String>(Arrays.asList("New", "A", "B", "C"));
+    myStatistics.sortByAverageTime(tools, new Function<String, String>() {
+      @Override
+      public String fun(String shortName) {
+        return shortName;
+      }
+    });
+    assertEquals(Arrays.asList("B", "C", "A", "New"), tools);
+  }
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2000-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intellij.execution.impl;
+
+import com.intellij.execution.filters.HyperlinkInfo;
+import com.intellij.execution.ui.ConsoleViewContentType;
+import com.intellij.openapi.editor.markup.RangeHighlighter;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.Disposer;
+import com.intellij.testFramework.LightPlatformTestCase;
+
+import java.util.List;
+import java.util.Map;
+
+public class ConsoleViewImplTest extends LightPlatformTestCase {
+  private static final String CYCLE_BUFFER_SIZE_PROPERTY = "idea.cycle.buffer.size";
+
+  public void testFlushingTextLargerThanCyclicBuffer() {
+    String oldBufferSize = System.getProperty(CYCLE_BUFFER_SIZE_PROPERTY);
+    System.setProperty(CYCLE_BUFFER_SIZE_PROPERTY, "1");
+    ConsoleViewImpl console = new ConsoleViewImpl(getProject(), false);
+    try {
+      console.getComponent();
+      int bufferSize = ConsoleBuffer.getCycleBufferSize();
+
+      console.print("first\n", ConsoleViewContentType.NORMAL_OUTPUT);
+      console.flushDeferredText();
+      assertEquals("first\n", console.getEditor().getDocument().getText());
+
+      StringBuilder printed = new StringBuilder();
+      for (int i = 0; printed.length() < 2 * bufferSize; i++) {
+        String line = "line" + i + "\n";
+        console.print(line, i % 2 == 0 ? ConsoleViewContentType.NORMAL_OUTPUT : ConsoleViewContentType.ERROR_OUTPUT);
+        printed.append(line);
+      }
+      HyperlinkInfo link = new HyperlinkInfo() {
+        @Override
+        public void navigate(Project project) {
+        }
+      };
+      console.printHyperlink("link", link);
+      console.print("\n", ConsoleViewContentType.SYSTEM_OUTPUT);
+      printed.append("link\n");
+      console.flushDeferredText();
+
+      String text = console.getEditor().getDocument().getText();
+      assertEquals(printed.substring(printed.length() - bufferSize), text);
+
+      List<ConsoleViewImpl.TokenInfo> tokens = console.getTokens();
+      int offset = 0;
+      for (ConsoleViewImpl.TokenInfo token : tokens) {
+        assertEquals(tokens.toString(), offset, token.startOffset);
+        offset = token.endOffset;
+      }
+      assertEquals(text.length(), offset);
+      ConsoleViewImpl.TokenInfo linkToken = tokens.get(tokens.size() - 2);
+      assertSame(link, linkToken.getHyperlinkInfo());
+      assertEquals(text.length() - "link\n".length(), linkToken.startOffset);
+      assertEquals(ConsoleViewContentType.SYSTEM_OUTPUT, tokens.get(tokens.size() - 1).contentType);
+
+      Map<RangeHighlighter, HyperlinkInfo> hyperlinks = console.getHyperlinks().getHyperlinks();
+      assertEquals(1, hyperlinks.size());
+      RangeHighlighter highlighter = hyperlinks.keySet().iterator().next();
+      assertTrue(highlighter.isValid());
+      assertEquals(linkToken.startOffset, highlighter.getStartOffset());
+      assertEquals(linkToken.endOffset, highlighter.getEndOffset());
+      assertSame(link, hyperlinks.get(highlighter));
+    }
+    finally {
+      Disposer.dispose(console);
+      if (oldBufferSize == null) {
+        System.clearProperty(CYCLE_BUFFER_SIZE_PROPERTY);
+      }
+      else {
+        System.setProperty(CYCLE_BUFFER_SIZE_PROPERTY, oldBufferSize);
+      }
+    }
+  }
+}
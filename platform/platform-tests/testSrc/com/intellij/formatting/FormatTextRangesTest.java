@@ -0,0 +1,97 @@
+/*
+ * Copyright 2000-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intellij.formatting;
+
+import com.intellij.openapi.util.TextRange;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class FormatTextRangesTest {
+
+  @Test
+  public void manyRanges() {
+    FormatTextRanges ranges = createRanges(10);
+
+    assertTrue(ranges.isReadOnly(new TextRange(11, 19), false));
+    assertFalse(ranges.isReadOnly(new TextRange(11, 19), true));
+    assertFalse(ranges.isReadOnly(new TextRange(10, 20), false));
+    assertFalse(ranges.isReadOnly(new TextRange(5, 12), false));
+    assertTrue(ranges.isReadOnly(new TextRange(200, 210), false));
+
+    assertTrue(ranges.isWhitespaceReadOnly(new TextRange(10, 20)));
+    assertFalse(ranges.isWhitespaceReadOnly(new TextRange(5, 20)));
+    assertFalse(ranges.isWhitespaceReadOnly(new TextRange(15, 25)));
+    assertTrue(ranges.isWhitespaceReadOnly(null));
+  }
+
+  @Test
+  public void changedRangeIsTakenIntoAccount() {
+    FormatTextRanges ranges = createRanges(10);
+    assertTrue(ranges.isReadOnly(new TextRange(11, 19), false));
+
+    ranges.getRanges().get(0).setTextRange(new TextRange(0, 15));
+    assertFalse(ranges.isReadOnly(new TextRange(11, 19), false));
+  }
+
+  @Test
+  public void sameAnswersAsRangesOneByOne() {
+    Random random = new Random(42);
+    for (int i = 0; i < 100; i++) {
+      FormatTextRanges ranges = new FormatTextRanges();
+      int rangesNumber = 1 + random.nextInt(30);
+      for (int j = 0; j < rangesNumber; j++) {
+        int start = random.nextInt(100);
+        ranges.add(new TextRange(start, start + random.nextInt(10)), random.nextBoolean());
+      }
+
+      for (int j = 0; j < 100; j++) {
+        int start = random.nextInt(110);
+        TextRange range = new TextRange(start, start + random.nextInt(10));
+        boolean rootIsRightBlock = random.nextBoolean();
+        String message = ranges + " " + range;
+        assertEquals(message, isReadOnly(ranges, range, rootIsRightBlock), ranges.isReadOnly(range, rootIsRightBlock));
+        assertEquals(message, isWhitespaceReadOnly(ranges, range), ranges.isWhitespaceReadOnly(range));
+      }
+    }
+  }
+
+  private static FormatTextRanges createRanges(int number) {
+    FormatTextRanges ranges = new FormatTextRanges();
+    for (int i = 0; i < number; i++) {
+      ranges.add(new TextRange(i * 20, i * 20 + 10), false);
+    }
+    return ranges;
+  }
+
+  private static boolean isReadOnly(FormatTextRanges ranges, TextRange range, boolean rootIsRightBlock) {
+    for (FormatTextRanges.FormatTextRange each : ranges.getRanges()) {
+      if (!each.isReadOnly(range, rootIsRightBlock)) return false;
+    }
+    return true;
+  }
+
+  private static boolean isWhitespaceReadOnly(FormatTextRanges ranges, TextRange range) {
+    for (FormatTextRanges.FormatTextRange each : ranges.getRanges()) {
+      if (!each.isWhitespaceReadOnly(range)) return false;
+    }
+    return true;
+  }
+}
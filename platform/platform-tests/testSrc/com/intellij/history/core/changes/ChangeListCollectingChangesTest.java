@@ -16,6 +16,11 @@
 
 package com.intellij.history.core.changes;
 
+import com.intellij.history.core.ChangeList;
+import com.intellij.history.core.ChangeSetHolder;
+import com.intellij.history.core.InMemoryChangeListStorage;
+import com.intellij.history.core.LocalHistoryFacade;
+import gnu.trove.TIntHashSet;
 import org.junit.Test;
 
 import java.util.List;
@@ -351,6 +356,39 @@ public class ChangeListCollectingChangesTest extends ChangeListTestCase {
     assertEquals(array(cs3, cs2), getChangesFor("dir", "*Bar*"));
   }
 
+  @Test
+  public void testReadsOnlyChangeSetsWhichMayAffectThePath() {
+    final int[] reads = new int[1];
+    LocalHistoryFacade vcs = new LocalHistoryFacade(new ChangeList(new InMemoryChangeListStorage() {
+      @Override
+      public ChangeSetHolder readPrevious(int id, TIntHashSet recursionGuard) {
+        reads[0]++;
+        return super.readPrevious(id, recursionGuard);
+      }
+
+      @Override
+      public ChangeSetHolder readBlock(int id) {
+        reads[0]++;
+        return super.readBlock(id);
+      }
+    }));
+
+    addChangeSet(vcs, createDirectory(r, "dir"));
+    ChangeSet cs2 = addChangeSet(vcs, createFile(r, "dir/file"));
+    for (int i = 0; i < 10; i++) {
+      addChangeSet(vcs, createFile(r, "other" + i));
+    }
+    ChangeSet cs3 = addChangeSet(vcs, rename(r, "dir", "dir2"));
+    ChangeSet cs4 = addChangeSet(vcs, changeContent(r, "dir2/file", "content"));
+    assertEquals(array(cs4, cs3, cs2), collectChanges(vcs, "dir2/file", "project", null));
+
+    ChangeSet cs5 = addChangeSet(vcs, changeContent(r, "dir2/file", "new content"));
+    reads[0] = 0;
+    assertEquals(array(cs5, cs4, cs3, cs2), collectChanges(vcs, "dir2/file", "project", null));
+    // the creation of the parent is read as well, the other files are not
+    assertEquals(5, reads[0]);
+  }
+
   private List<ChangeSet> getChangesFor(String path) {
     return getChangesFor(path, null);
   }
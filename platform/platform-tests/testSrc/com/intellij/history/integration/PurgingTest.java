@@ -16,13 +16,18 @@
 package com.intellij.history.integration;
 
 import com.intellij.history.LocalHistory;
+import com.intellij.history.core.ChangeListStorageImpl;
+import com.intellij.history.core.LocalHistoryStorage;
 import com.intellij.history.core.LocalHistoryTestCase;
 import com.intellij.history.core.changes.ChangeSet;
 import com.intellij.history.core.revisions.Revision;
 import com.intellij.openapi.util.Clock;
 import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.util.io.storage.AbstractStorage;
+import gnu.trove.TIntHashSet;
 import org.junit.Test;
 
+import java.io.File;
 import java.io.IOException;
 import java.util.List;
 
@@ -91,6 +96,39 @@ public class PurgingTest extends IntegrationTestCase {
     assertRemainedChangesTimestamps(270, 260, 250, 130, 120);
   }
 
+  @Test
+  public void testPurgeDeletesWholeObsoleteSegments() {
+    long day = 24L * 60 * 60 * 1000;
+    createChangesWithTimestamps(1, 2, day + 1, day + 2, 2 * day + 1, 2 * day + 2);
+    assertEquals(3, countSegmentFiles());
+
+    getVcs().getChangeListInTests().purgeObsolete(3);
+    assertRemainedChangesTimestamps(2 * day + 2, 2 * day + 1, day + 2);
+    assertEquals(2, countSegmentFiles());
+  }
+
+  @Test
+  public void testStorageOfPreviousVersionIsRebuilt() throws IOException {
+    File dir = createTempDirectory();
+    LocalHistoryStorage old = new LocalHistoryStorage(new File(dir, "changes").getPath());
+    old.setVersion(5);
+    AbstractStorage.StorageDataOutput out = old.writeStream(old.createNextRecord(), true);
+    out.writeInt(1);
+    out.close();
+    old.dispose();
+
+    ChangeListStorageImpl storage = new ChangeListStorageImpl(dir);
+    try {
+      assertNull(storage.readPrevious(-1, new TIntHashSet()));
+      int id = storage.writeNextSet(new ChangeSet(storage.nextId(), 123));
+      assertEquals(123, storage.readBlock(id).changeSet.getTimestamp());
+    }
+    finally {
+      storage.close();
+    }
+    assertFalse(new File(dir, "changes" + AbstractStorage.INDEX_EXTENSION).exists());
+  }
+
   @Test
   public void testPurgingEmptyListDoesNotThrowException() {
     getVcs().getChangeListInTests().purgeObsolete(50);
@@ -136,6 +174,14 @@ public class PurgingTest extends IntegrationTestCase {
     }
   }
 
+  private static int countSegmentFiles() {
+    int result = 0;
+    for (String each : LocalHistoryImpl.getInstanceImpl().getStorageDir().list()) {
+      if (each.endsWith(AbstractStorage.INDEX_EXTENSION)) result++;
+    }
+    return result;
+  }
+
   private void assertRemainedChangesTimestamps(long... tt) {
     assertEquals(tt.length, getVcs().getChangeListInTests().getChangesInTests().size());
     for (int i = 0; i < tt.length; i++) {
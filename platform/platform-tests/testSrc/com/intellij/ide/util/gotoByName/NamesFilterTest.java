@@ -0,0 +1,112 @@
+/*
+ * Copyright 2000-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intellij.ide.util.gotoByName;
+
+import com.intellij.psi.codeStyle.MinusculeMatcher;
+import com.intellij.psi.codeStyle.NameUtil;
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class NamesFilterTest {
+  private static final String[] WORDS = {"Foo", "bar", "BAZ", "Url", "x", "Io", "Sql2", "3d", "i\u00dft", "\u00c4pfel", "\u0130d", "\u0131d"};
+  private static final String SEPARATORS = "_. $-";
+
+  @Test
+  public void testNamesWithoutPatternLettersAreSkipped() {
+    DefaultChooseByNameItemProvider.NamesFilter filter =
+      new DefaultChooseByNameItemProvider.NamesFilter(new String[]{"FooBar", "Baz", "fooBaz", "Sql2Foo"});
+    assertEquals(Arrays.asList("FooBar", "fooBaz", "Sql2Foo"), filter.getCandidates("fo"));
+    assertEquals(Arrays.asList("fooBaz"), filter.getCandidates("foz"));
+    assertEquals(Arrays.asList("Sql2Foo"), filter.getCandidates("s2"));
+    assertEquals(Arrays.asList("FooBar", "Baz", "fooBaz", "Sql2Foo"), filter.getCandidates("*"));
+  }
+
+  @Test
+  public void testMatchingNamesAreNeverSkipped() {
+    Random random = new Random(42);
+    for (int round = 0; round < 200; round++) {
+      String[] names = new String[50];
+      for (int i = 0; i < names.length; i++) {
+        names[i] = randomName(random);
+      }
+      DefaultChooseByNameItemProvider.NamesFilter filter = new DefaultChooseByNameItemProvider.NamesFilter(names);
+
+      String name = names[random.nextInt(names.length)];
+      String pattern = randomPattern(random, name);
+      // a pattern typed char by char is filtered starting from the previous candidates
+      for (int length = 1; length <= pattern.length(); length++) {
+        assertMatchingNamesAreCandidates(names, filter, pattern.substring(0, length));
+      }
+      assertMatchingNamesAreCandidates(names, filter, "*" + pattern);
+      assertMatchingNamesAreCandidates(names, filter, randomPattern(random, names[random.nextInt(names.length)]));
+    }
+  }
+
+  private static void assertMatchingNamesAreCandidates(String[] names, DefaultChooseByNameItemProvider.NamesFilter filter,
+                                                       String pattern) {
+    Set<String> candidates = new HashSet<String>(filter.getCandidates(pattern));
+    for (NameUtil.MatchingCaseSensitivity sensitivity : NameUtil.MatchingCaseSensitivity.values()) {
+      MinusculeMatcher matcher = NameUtil.buildMatcher(pattern, sensitivity);
+      for (String name : names) {
+        if (matcher.matches(name)) {
+          assertTrue("'" + name + "' matching '" + pattern + "' (" + sensitivity + ") is skipped", candidates.contains(name));
+        }
+      }
+    }
+  }
+
+  private static String randomName(Random random) {
+    StringBuilder name = new StringBuilder();
+    int words = 1 + random.nextInt(4);
+    for (int i = 0; i < words; i++) {
+      if (i > 0 && random.nextInt(4) == 0) {
+        name.append(SEPARATORS.charAt(random.nextInt(SEPARATORS.length())));
+      }
+      name.append(WORDS[random.nextInt(WORDS.length)]);
+    }
+    return name.toString();
+  }
+
+  // mostly a subsequence of the name with the case changed at random, sometimes with other chars
+  private static String randomPattern(Random random, String name) {
+    StringBuilder pattern = new StringBuilder();
+    for (int i = 0; i < name.length(); i++) {
+      int choice = random.nextInt(10);
+      if (choice < 4) continue;
+      char c = name.charAt(i);
+      if (choice == 4) {
+        pattern.append(" *.".charAt(random.nextInt(3)));
+      }
+      else if (choice == 5) {
+        pattern.append(Character.toUpperCase(c));
+      }
+      else if (choice == 6) {
+        pattern.append(Character.toLowerCase(c));
+      }
+      else if (choice == 7 && random.nextInt(5) == 0) {
+        pattern.append((char)('a' + random.nextInt(26)));
+      }
+      else {
+        pattern.append(c);
+      }
+    }
+    return pattern.length() == 0 ? name.substring(0, 1) : pattern.toString();
+  }
+}
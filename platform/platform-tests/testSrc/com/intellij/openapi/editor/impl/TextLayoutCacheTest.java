@@ -0,0 +1,115 @@
+/*
+ * Copyright 2000-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intellij.openapi.editor.impl;
+
+import com.intellij.openapi.editor.ex.util.EditorUtil;
+import com.intellij.openapi.util.text.StringUtil;
+import com.intellij.testFramework.TestFileType;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+
+public class TextLayoutCacheTest extends AbstractEditorProcessingOnDocumentModificationTest {
+  public void testRepaintReusesMeasuredLines() throws Exception {
+    init("first line\nsecond line\nthird line", TestFileType.TEXT);
+    TextLayoutCache cache = getEditorImpl().getTextLayoutCache();
+
+    paint();
+    assertEquals(3, cache.getCachedLineCount());
+    int misses = cache.getMisses();
+    int hits = cache.getHits();
+
+    paint();
+    assertEquals(misses, cache.getMisses());
+    assertTrue(cache.getHits() > hits);
+  }
+
+  public void testDocumentChangeInvalidatesCache() throws Exception {
+    init("first line\n<caret>second line", TestFileType.TEXT);
+    paint();
+    assertEquals(2, getEditorImpl().getTextLayoutCache().getCachedLineCount());
+
+    type("x");
+    assertEquals(0, getEditorImpl().getTextLayoutCache().getCachedLineCount());
+  }
+
+  public void testFoldingInvalidatesCache() throws Exception {
+    init("first line\nsecond line\nthird line", TestFileType.TEXT);
+    paint();
+    assertEquals(3, getEditorImpl().getTextLayoutCache().getCachedLineCount());
+
+    addCollapsedFoldRegion(5, 15, "...");
+    assertEquals(0, getEditorImpl().getTextLayoutCache().getCachedLineCount());
+  }
+
+  public void testLongFragmentIsNotCached() throws Exception {
+    init(StringUtil.repeat("long line ", 100000), TestFileType.TEXT);
+    TextLayoutCache cache = getEditorImpl().getTextLayoutCache();
+    int misses = cache.getMisses();
+
+    paint();
+    assertEquals(0, cache.getCachedLineCount());
+    assertEquals(misses, cache.getMisses());
+
+    char[] text = myEditor.getDocument().getCharsSequence().toString().toCharArray();
+    assertNull(cache.getFragment(0, text, 0, TextLayoutCache.MAX_FRAGMENT_LENGTH + 1, Font.PLAIN, getEditorImpl()));
+    assertNotNull(cache.getFragment(0, text, 0, TextLayoutCache.MAX_FRAGMENT_LENGTH, Font.PLAIN, getEditorImpl()));
+  }
+
+  public void testFragmentMeasurement() throws Exception {
+    init("", TestFileType.TEXT);
+    char[] text = "ab cd".toCharArray();
+    TextLayoutCache.Fragment fragment = TextLayoutCache.measure(text, 0, text.length, Font.PLAIN, getEditorImpl());
+
+    int width = 0;
+    for (int i = 0; i < text.length; i++) {
+      assertEquals(width, fragment.getX(i));
+      width += EditorUtil.charWidth(text[i], Font.PLAIN, myEditor);
+    }
+    assertEquals(width, fragment.getWidth());
+    assertEquals(1, fragment.getRunCount());
+    assertEquals(text.length, fragment.getRunEnd(0));
+    assertEquals(EditorUtil.getSpaceWidth(Font.PLAIN, myEditor), fragment.getRunSpaceWidth(0));
+
+    int x2 = fragment.getX(2);
+    assertEquals(2, fragment.getFirstCharEndingAfter(x2, 0, text.length));
+    assertEquals(3, fragment.getFirstCharStartingAfter(x2, 0, text.length));
+    assertEquals(text.length, fragment.getFirstCharStartingAfter(fragment.getWidth(), 0, text.length));
+  }
+
+  public void testPaintTimesAreCounted() throws Exception {
+    init("text", TestFileType.TEXT);
+    int paints = EditorImpl.getPaintTimeHistogram().getPaintCount();
+    paint();
+    assertEquals(paints + 1, EditorImpl.getPaintTimeHistogram().getPaintCount());
+  }
+
+  private static EditorImpl getEditorImpl() {
+    return (EditorImpl)myEditor;
+  }
+
+  private static void paint() {
+    BufferedImage image = new BufferedImage(1000, 1000, BufferedImage.TYPE_INT_RGB);
+    Graphics2D graphics = image.createGraphics();
+    try {
+      graphics.setClip(0, 0, image.getWidth(), image.getHeight());
+      getEditorImpl().paint(graphics);
+    }
+    finally {
+      graphics.dispose();
+    }
+  }
+}
@@ -21,10 +21,15 @@ import com.intellij.openapi.editor.impl.AbstractEditorProcessingOnDocumentModifi
 import com.intellij.openapi.editor.impl.DefaultEditorTextRepresentationHelper;
 import com.intellij.openapi.editor.impl.EditorImpl;
 import com.intellij.openapi.editor.impl.SoftWrapModelImpl;
+import com.intellij.openapi.editor.markup.HighlighterTargetArea;
+import com.intellij.openapi.editor.markup.MarkupModel;
 import com.intellij.openapi.editor.markup.TextAttributes;
 import com.intellij.openapi.util.Ref;
+import com.intellij.openapi.util.text.StringUtil;
 import com.intellij.psi.codeStyle.CommonCodeStyleSettings;
+import com.intellij.testFramework.PlatformTestUtil;
 import com.intellij.testFramework.TestFileType;
+import com.intellij.util.ThrowableRunnable;
 import gnu.trove.TIntHashSet;
 import gnu.trove.TIntProcedure;
 import org.jetbrains.annotations.NotNull;
@@ -1040,7 +1045,52 @@ public class SoftWrapApplianceOnDocumentModificationTest extends AbstractEditorP
     assertFalse(foldRegion.isExpanded());
     assertEquals(foldStart, myEditor.getCaretModel().getOffset());
   }
+
+  public void testTypingAtTheStartOfLargeDocumentPerformance() throws IOException {
+    StringBuilder text = new StringBuilder("<caret>");
+    for (int i = 0; i < 20000; i++) {
+      text.append("this line is long enough to be soft-wrapped at least once ").append(i).append('\n');
+    }
+    init(40, text.toString());
+    MarkupModel markupModel = myEditor.getMarkupModel();
+    int length = myEditor.getDocument().getTextLength();
+    for (int i = 0; i + 5 < length; i += 10) {
+      markupModel.addRangeHighlighter(i, i + 5, 0, new TextAttributes(), HighlighterTargetArea.EXACT_RANGE);
+    }
+
+    PlatformTestUtil.startPerformanceTest("typing at the start of large document with soft wraps", 2000, new ThrowableRunnable() {
+      @Override
+      public void run() throws Throwable {
+        for (int i = 0; i < 100; i++) {
+          type('a');
+        }
+      }
+    }).cpuBound().assertTiming();
+  }
   
+  public void testVisibleWidthChangeOnLargeSingleLineDocumentPerformance() throws IOException {
+    init(80, StringUtil.repeat("some words ", 300000));
+    final int[] widthInColumns = {80};
+    final SoftWrapApplianceManager applianceManager = getSoftWrapModel().getApplianceManager();
+    applianceManager.setWidthProvider(new SoftWrapApplianceManager.VisibleAreaWidthProvider() {
+      @Override
+      public int getVisibleAreaWidth() {
+        return widthInColumns[0] * 7;
+      }
+    });
+
+    PlatformTestUtil.startPerformanceTest("visible width change on large single line document", 5000, new ThrowableRunnable() {
+      @Override
+      public void run() throws Throwable {
+        for (int i = 0; i < 4; i++) {
+          widthInColumns[0] = widthInColumns[0] == 80 ? 100 : 80;
+          applianceManager.registerSoftWrapIfNecessary();
+        }
+      }
+    }).cpuBound().assertTiming();
+    assertTrue(getSoftWrapModel().getRegisteredSoftWraps().size() > myEditor.getDocument().getTextLength() / 80);
+  }
+
   private void init(final int visibleWidthInColumns, @NotNull String fileText) throws IOException {
     init(visibleWidthInColumns, 7, fileText);
   }
@@ -0,0 +1,128 @@
+/*
+ * Copyright 2000-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intellij.openapi.vcs.ex;
+
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.command.CommandProcessor;
+import com.intellij.openapi.editor.Document;
+import com.intellij.openapi.editor.EditorFactory;
+import com.intellij.testFramework.LightPlatformTestCase;
+
+import java.util.Arrays;
+
+public class LineStatusTrackerTest extends LightPlatformTestCase {
+  private Document myDocument;
+  private LineStatusTracker myTracker;
+
+  @Override
+  protected void tearDown() throws Exception {
+    try {
+      if (myTracker != null) {
+        myTracker.release();
+      }
+    }
+    finally {
+      super.tearDown();
+    }
+  }
+
+  public void testModifiedLine() {
+    createTracker(20);
+    replaceLine(5, "changed");
+    assertRanges(new Range(5, 6, 5, 6, Range.MODIFIED));
+
+    replaceLine(5, "line5");
+    assertRanges();
+  }
+
+  public void testAdjacentRangesAreMerged() {
+    createTracker(20);
+    replaceLine(5, "changed");
+    replaceLine(7, "changed");
+    assertRanges(new Range(5, 6, 5, 6, Range.MODIFIED), new Range(7, 8, 7, 8, Range.MODIFIED));
+
+    replaceLine(6, "changed");
+    assertRanges(new Range(5, 8, 5, 8, Range.MODIFIED));
+  }
+
+  public void testRangesAfterChangeAreShifted() {
+    createTracker(20);
+    replaceLine(15, "changed");
+    replace(myDocument.getLineStartOffset(2), myDocument.getLineStartOffset(2), "inserted1\ninserted2\n");
+    assertRanges(new Range(2, 4, 2, 2, Range.INSERTED), new Range(17, 18, 15, 16, Range.MODIFIED));
+
+    replace(myDocument.getLineStartOffset(10), myDocument.getLineStartOffset(11), "");
+    assertRanges(new Range(2, 4, 2, 2, Range.INSERTED), new Range(10, 10, 8, 9, Range.DELETED),
+                 new Range(16, 17, 15, 16, Range.MODIFIED));
+  }
+
+  public void testChangedRegionLargerThanThreshold() {
+    int lineCount = LineStatusTracker.MAX_INCREMENTAL_LINES + 100;
+    createTracker(lineCount);
+    replaceLine(1, "changed");
+    replaceLine(lineCount - 3, "changed");
+
+    // one change covering more lines than are rediffed incrementally: modifies its first and last lines and removes line 20
+    StringBuilder text = new StringBuilder("changed\n");
+    for (int i = 11; i < lineCount - 10; i++) {
+      if (i != 20) text.append("line").append(i).append('\n');
+    }
+    text.append("changed\n");
+    replace(myDocument.getLineStartOffset(10), myDocument.getLineStartOffset(lineCount - 9), text.toString());
+
+    assertRanges(new Range(1, 2, 1, 2, Range.MODIFIED),
+                 new Range(10, 11, 10, 11, Range.MODIFIED),
+                 new Range(20, 20, 20, 21, Range.DELETED),
+                 new Range(lineCount - 11, lineCount - 10, lineCount - 10, lineCount - 9, Range.MODIFIED),
+                 new Range(lineCount - 4, lineCount - 3, lineCount - 3, lineCount - 2, Range.MODIFIED));
+  }
+
+  private void createTracker(int lineCount) {
+    StringBuilder text = new StringBuilder();
+    for (int i = 0; i < lineCount; i++) {
+      text.append("line").append(i).append('\n');
+    }
+    myDocument = EditorFactory.getInstance().createDocument(text);
+    myTracker = LineStatusTracker.createOn(null, myDocument, getProject());
+    myTracker.initialize(text.toString(), new LineStatusTracker.RevisionPack(0, null));
+    assertRanges();
+  }
+
+  private void replaceLine(int line, String text) {
+    replace(myDocument.getLineStartOffset(line), myDocument.getLineEndOffset(line), text);
+  }
+
+  private void replace(final int startOffset, final int endOffset, final String text) {
+    CommandProcessor.getInstance().executeCommand(getProject(), new Runnable() {
+      @Override
+      public void run() {
+        ApplicationManager.getApplication().runWriteAction(new Runnable() {
+          @Override
+          public void run() {
+            myDocument.replaceString(startOffset, endOffset, text);
+          }
+        });
+      }
+    }, null, null);
+  }
+
+  private void assertRanges(Range... expected) {
+    assertEquals(Arrays.asList(expected), myTracker.getRanges());
+    for (Range range : myTracker.getRanges()) {
+      assertTrue(range.toString(), range.hasHighlighter());
+    }
+  }
+}
@@ -16,7 +16,6 @@
 package com.intellij.util.diff;
 
 import com.intellij.openapi.diagnostic.Logger;
-import com.intellij.openapi.util.text.LineTokenizer;
 import com.intellij.util.containers.ContainerUtil;
 import com.intellij.util.containers.Enumerator;
 import org.jetbrains.annotations.NonNls;
@@ -24,6 +23,7 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 
 /**
  * @author dyoma
@@ -31,15 +31,52 @@ import java.util.ArrayList;
 public class Diff {
   private static final Logger LOG = Logger.getInstance("#com.intellij.util.diff.Diff");
 
+  /**
+   * Inputs of this total size (after the common head and tail are cut) are compared by the exact {@link IntLCS}; bigger ones, or the ones
+   * whose difference is too big for it, are compared by {@link PatienceLCS} which needs linear memory.
+   */
+  private static final int MAX_EXACT_DIFF_SIZE = 20000;
+
   @Nullable
   public static Change buildChanges(@NotNull CharSequence before, @NotNull CharSequence after) throws FilesTooBigForDiffException {
-    final String[] strings1 = LineTokenizer.tokenize(before, false);
-    final String[] strings2 = LineTokenizer.tokenize(after, false);
-    return buildChanges(strings1, strings2);
+    return buildChanges(before, after, null);
+  }
+
+  /**
+   * Compares the texts line by line. Lines are compared by their numbers given by {@link LineEnumerator}, so no strings are created for
+   * them.
+   */
+  @Nullable
+  public static Change buildChanges(@NotNull CharSequence before, @NotNull CharSequence after, @Nullable CancellationChecker checker)
+    throws FilesTooBigForDiffException {
+    final LineEnumerator enumerator = new LineEnumerator();
+    final int[] lines1 = enumerator.enumerate(before);
+    final int[] lines2 = enumerator.enumerate(after);
+
+    int startShift = 0;
+    while (startShift < lines1.length && startShift < lines2.length && lines1[startShift] == lines2[startShift]) startShift++;
+    int endCut = 0;
+    while (endCut < lines1.length - startShift && endCut < lines2.length - startShift &&
+           lines1[lines1.length - endCut - 1] == lines2[lines2.length - endCut - 1]) {
+      endCut++;
+    }
+    return buildChanges(Arrays.copyOfRange(lines1, startShift, lines1.length - endCut),
+                        Arrays.copyOfRange(lines2, startShift, lines2.length - endCut), startShift, checker);
   }
 
   @Nullable
   public static <T> Change buildChanges(@NotNull T[] objects1, @NotNull T[] objects2) throws FilesTooBigForDiffException {
+    return buildChanges(objects1, objects2, null);
+  }
+
+  /**
+   * @param checker is called from time to time while big inputs are compared and may interrupt the comparison by throwing
+   *                {@link com.intellij.openapi.progress.ProcessCanceledException}
+   * @throws FilesTooBigForDiffException is not thrown any more, too big inputs are compared by {@link PatienceLCS}
+   */
+  @Nullable
+  public static <T> Change buildChanges(@NotNull T[] objects1, @NotNull T[] objects2, @Nullable CancellationChecker checker)
+    throws FilesTooBigForDiffException {
 
     // Old variant of enumerator worked incorrectly with null values.
     // This check is to ensure that the corrected version does not introduce bugs.
@@ -52,12 +89,30 @@ public class Diff {
     Enumerator<T> enumerator = new Enumerator<T>(objects1.length + objects2.length, ContainerUtil.<T>canonicalStrategy());
     int[] ints1 = enumerator.enumerate(objects1, startShift, endCut);
     int[] ints2 = enumerator.enumerate(objects2, startShift, endCut);
-    Reindexer reindexer = new Reindexer();
-    int[][] discarded = reindexer.discardUnique(ints1, ints2);
-    IntLCS intLCS = new IntLCS(discarded[0], discarded[1]);
-    intLCS.execute();
+    return buildChanges(ints1, ints2, startShift, checker);
+  }
+
+  @Nullable
+  private static Change buildChanges(int[] ints1, int[] ints2, int startShift, @Nullable CancellationChecker checker) {
+    if (ints1.length + ints2.length <= MAX_EXACT_DIFF_SIZE) {
+      Reindexer reindexer = new Reindexer();
+      int[][] discarded = reindexer.discardUnique(ints1, ints2);
+      IntLCS intLCS = new IntLCS(discarded[0], discarded[1]);
+      try {
+        intLCS.execute();
+        ChangeBuilder builder = new ChangeBuilder(startShift);
+        reindexer.reindex(intLCS.getPaths(), builder);
+        return builder.getFirstChange();
+      }
+      catch (FilesTooBigForDiffException e) {
+        LOG.debug("Too many changes for exact diff, " + ints1.length + ":" + ints2.length + " elements");
+      }
+    }
+
+    PatienceLCS lcs = new PatienceLCS(ints1, ints2, checker);
+    lcs.execute();
     ChangeBuilder builder = new ChangeBuilder(startShift);
-    reindexer.reindex(intLCS.getPaths(), builder);
+    lcs.buildChanges(builder);
     return builder.getFirstChange();
   }
 
@@ -123,7 +178,14 @@ public class Diff {
 
     return result;
   }
-  
+
+  public interface CancellationChecker {
+    /**
+     * @throws com.intellij.openapi.progress.ProcessCanceledException if the comparison should be stopped
+     */
+    void checkCanceled();
+  }
+
   public static class Change {
     // todo remove. Return lists instead.
     /**
@@ -0,0 +1,107 @@
+/*
+ * Copyright 2000-2012 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intellij.util.diff;
+
+import com.intellij.openapi.util.text.LineTokenizer;
+import com.intellij.util.ArrayUtil;
+import gnu.trove.TIntArrayList;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Gives equal numbers to equal lines of the texts (split the same way as {@link LineTokenizer#tokenize(CharSequence, boolean)} does)
+ * without creating strings for them: lines are kept as ranges of the original texts and looked up by their hash codes.
+ */
+class LineEnumerator {
+  private final List<CharSequence> myTexts = new ArrayList<CharSequence>();
+  // line number -> text index, start offset, length and hash code of the first line with this number
+  private final TIntArrayList myLineTexts = new TIntArrayList();
+  private final TIntArrayList myLineStarts = new TIntArrayList();
+  private final TIntArrayList myLineLengths = new TIntArrayList();
+  private final TIntArrayList myLineHashes = new TIntArrayList();
+  // open addressing table of line number + 1
+  private int[] myTable = new int[64];
+
+  @NotNull
+  public int[] enumerate(@NotNull CharSequence text) {
+    if (text.length() == 0) return ArrayUtil.EMPTY_INT_ARRAY;
+    final int textIndex = myTexts.size();
+    myTexts.add(text);
+
+    final TIntArrayList result = new TIntArrayList();
+    final LineTokenizer tokenizer = new LineTokenizer(text);
+    while (!tokenizer.atEnd()) {
+      result.add(enumerate(textIndex, tokenizer.getOffset(), tokenizer.getLength()));
+      tokenizer.advance();
+    }
+    return result.toNativeArray();
+  }
+
+  private int enumerate(int textIndex, int start, int length) {
+    final CharSequence text = myTexts.get(textIndex);
+    int hash = 0;
+    for (int i = start; i < start + length; i++) {
+      hash = 31 * hash + text.charAt(i);
+    }
+
+    final int mask = myTable.length - 1;
+    int slot = slot(hash, mask);
+    while (myTable[slot] != 0) {
+      final int number = myTable[slot] - 1;
+      if (myLineHashes.get(number) == hash && sameLine(number, text, start, length)) return number;
+      slot = (slot + 1) & mask;
+    }
+
+    final int number = myLineHashes.size();
+    myLineTexts.add(textIndex);
+    myLineStarts.add(start);
+    myLineLengths.add(length);
+    myLineHashes.add(hash);
+    myTable[slot] = number + 1;
+    if (2 * (number + 1) > myTable.length) rehash();
+    return number;
+  }
+
+  private boolean sameLine(int number, CharSequence text, int start, int length) {
+    if (myLineLengths.get(number) != length) return false;
+    final CharSequence lineText = myTexts.get(myLineTexts.get(number));
+    final int lineStart = myLineStarts.get(number);
+    for (int i = 0; i < length; i++) {
+      if (lineText.charAt(lineStart + i) != text.charAt(start + i)) return false;
+    }
+    return true;
+  }
+
+  private void rehash() {
+    myTable = new int[myTable.length * 2];
+    final int mask = myTable.length - 1;
+    for (int number = 0; number < myLineHashes.size(); number++) {
+      int slot = slot(myLineHashes.get(number), mask);
+      while (myTable[slot] != 0) {
+        slot = (slot + 1) & mask;
+      }
+      myTable[slot] = number + 1;
+    }
+  }
+
+  private static int slot(int hash, int mask) {
+    int h = hash * 0x9E3779B9;
+    h ^= h >>> 16;
+    return h & mask;
+  }
+}
@@ -0,0 +1,200 @@
+/*
+ * Copyright 2000-2012 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intellij.util.diff;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Arrays;
+
+/**
+ * Linear space variant of the Myers' algorithm: instead of remembering all the paths like {@link IntLCS} does, the sequences are split
+ * at the middle of the shortest edit path which is searched from both ends at once, and the parts are processed recursively.
+ * <p/>
+ * Matched elements are marked by clearing the corresponding flags in the given {@code changes} arrays (which are expected to be filled with
+ * {@code true}). If the difference of some part is too big, the part is split at the furthest point reached so far, so the result may be
+ * not minimal for very different sequences, but the time spent stays bounded.
+ */
+class MyersLCS {
+  private static final int MIN_COST_LIMIT = 1024;
+
+  private final int[] myFirst;
+  private final int[] mySecond;
+  private final boolean[] myChanges1;
+  private final boolean[] myChanges2;
+  @Nullable private final Diff.CancellationChecker myChecker;
+
+  private final int[] myForward;
+  private final int[] myBackward;
+  private final int myCostLimit;
+  private int mySplit1;
+  private int mySplit2;
+
+  public MyersLCS(int[] first, int[] second, boolean[] changes1, boolean[] changes2, @Nullable Diff.CancellationChecker checker) {
+    myFirst = first;
+    mySecond = second;
+    myChanges1 = changes1;
+    myChanges2 = changes2;
+    myChecker = checker;
+
+    final int maxD = (first.length + second.length + 1) / 2;
+    myForward = new int[2 * maxD + 2];
+    myBackward = new int[2 * maxD + 2];
+    myCostLimit = Math.max(MIN_COST_LIMIT, (int)Math.sqrt(first.length + second.length));
+  }
+
+  public void execute() {
+    execute(0, myFirst.length, 0, mySecond.length);
+  }
+
+  public void execute(int start1, int end1, int start2, int end2) {
+    while (true) {
+      while (start1 < end1 && start2 < end2 && myFirst[start1] == mySecond[start2]) {
+        myChanges1[start1++] = false;
+        myChanges2[start2++] = false;
+      }
+      while (start1 < end1 && start2 < end2 && myFirst[end1 - 1] == mySecond[end2 - 1]) {
+        myChanges1[--end1] = false;
+        myChanges2[--end2] = false;
+      }
+      if (start1 == end1 || start2 == end2) return;
+      if (!split(start1, end1, start2, end2)) return;
+
+      final int split1 = mySplit1;
+      final int split2 = mySplit2;
+      // recursion goes only into the first part, so its depth stays logarithmic
+      execute(start1, split1, start2, split2);
+      start1 = split1;
+      start2 = split2;
+    }
+  }
+
+  /**
+   * Searches for a point of the shortest edit path of the given part going forward from its start and backward from its end.
+   *
+   * @return false if the part has nothing in common
+   */
+  private boolean split(int start1, int end1, int start2, int end2) {
+    final int length1 = end1 - start1;
+    final int length2 = end2 - start2;
+    final int maxD = (length1 + length2 + 1) / 2;
+    final int offset = maxD;
+    final int vLength = 2 * maxD;
+    Arrays.fill(myForward, 0, vLength, -1);
+    Arrays.fill(myBackward, 0, vLength, -1);
+    myForward[offset + 1] = 0;
+    myBackward[offset + 1] = 0;
+
+    final int delta = length1 - length2;
+    // if the delta is odd, the paths meet while going forward
+    final boolean front = delta % 2 != 0;
+    int kStart1 = 0;
+    int kEnd1 = 0;
+    int kStart2 = 0;
+    int kEnd2 = 0;
+    int best1 = 0;
+    int best2 = 0;
+
+    final int limit = Math.min(maxD, myCostLimit);
+    for (int d = 0; d < limit; d++) {
+      checkCanceled();
+      for (int k1 = -d + kStart1; k1 <= d - kEnd1; k1 += 2) {
+        final int k1Offset = offset + k1;
+        int x1;
+        if (k1 == -d || k1 != d && myForward[k1Offset - 1] < myForward[k1Offset + 1]) {
+          x1 = myForward[k1Offset + 1];
+        }
+        else {
+          x1 = myForward[k1Offset - 1] + 1;
+        }
+        int y1 = x1 - k1;
+        while (x1 < length1 && y1 < length2 && myFirst[start1 + x1] == mySecond[start2 + y1]) {
+          x1++;
+          y1++;
+        }
+        myForward[k1Offset] = x1;
+        if (x1 > length1) {
+          kEnd1 += 2;
+        }
+        else if (y1 > length2) {
+          kStart1 += 2;
+        }
+        else {
+          if (x1 + y1 > best1 + best2) {
+            best1 = x1;
+            best2 = y1;
+          }
+          if (front) {
+            final int k2Offset = offset + delta - k1;
+            if (k2Offset >= 0 && k2Offset < vLength && myBackward[k2Offset] != -1) {
+              if (x1 >= length1 - myBackward[k2Offset]) {
+                mySplit1 = start1 + x1;
+                mySplit2 = start2 + y1;
+                return true;
+              }
+            }
+          }
+        }
+      }
+
+      for (int k2 = -d + kStart2; k2 <= d - kEnd2; k2 += 2) {
+        final int k2Offset = offset + k2;
+        int x2;
+        if (k2 == -d || k2 != d && myBackward[k2Offset - 1] < myBackward[k2Offset + 1]) {
+          x2 = myBackward[k2Offset + 1];
+        }
+        else {
+          x2 = myBackward[k2Offset - 1] + 1;
+        }
+        int y2 = x2 - k2;
+        while (x2 < length1 && y2 < length2 && myFirst[end1 - x2 - 1] == mySecond[end2 - y2 - 1]) {
+          x2++;
+          y2++;
+        }
+        myBackward[k2Offset] = x2;
+        if (x2 > length1) {
+          kEnd2 += 2;
+        }
+        else if (y2 > length2) {
+          kStart2 += 2;
+        }
+        else if (!front) {
+          final int k1Offset = offset + delta - k2;
+          if (k1Offset >= 0 && k1Offset < vLength && myForward[k1Offset] != -1) {
+            final int x1 = myForward[k1Offset];
+            final int y1 = offset + x1 - k1Offset;
+            if (x1 >= length1 - x2) {
+              mySplit1 = start1 + x1;
+              mySplit2 = start2 + y1;
+              return true;
+            }
+          }
+        }
+      }
+    }
+
+    if (limit < maxD && best1 + best2 > 0 && best1 + best2 < length1 + length2) {
+      // too expensive: give up the minimality and continue from the furthest point reached from the start
+      mySplit1 = start1 + best1;
+      mySplit2 = start2 + best2;
+      return true;
+    }
+    return false;
+  }
+
+  private void checkCanceled() {
+    if (myChecker != null) myChecker.checkCanceled();
+  }
+}
@@ -0,0 +1,243 @@
+/*
+ * Copyright 2000-2012 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intellij.util.diff;
+
+import gnu.trove.TIntArrayList;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Arrays;
+
+/**
+ * Patience diff: elements which occur exactly once in both sequences are matched first (taking the longest increasing subsequence of their
+ * positions), and the parts between them are processed the same way. Parts without such elements are passed to {@link MyersLCS}.
+ * <p/>
+ * Unlike {@link IntLCS} it needs memory linear in the length of the sequences whatever the difference is, so it is used for big inputs.
+ */
+class PatienceLCS {
+  private final int[] myFirst;
+  private final int[] mySecond;
+  private final boolean[] myChanges1;
+  private final boolean[] myChanges2;
+  @Nullable private final Diff.CancellationChecker myChecker;
+
+  // indexed by element, reset after each use
+  private final int[] myCounts1;
+  private final int[] myCounts2;
+  private final int[] myPositions2;
+
+  public PatienceLCS(int[] first, int[] second, @Nullable Diff.CancellationChecker checker) {
+    myFirst = first;
+    mySecond = second;
+    myChecker = checker;
+    myChanges1 = new boolean[first.length];
+    myChanges2 = new boolean[second.length];
+    Arrays.fill(myChanges1, true);
+    Arrays.fill(myChanges2, true);
+
+    int max = 0;
+    for (int element : first) max = Math.max(max, element);
+    for (int element : second) max = Math.max(max, element);
+    myCounts1 = new int[max + 1];
+    myCounts2 = new int[max + 1];
+    myPositions2 = new int[max + 1];
+  }
+
+  public void execute() {
+    // pending parts, four ints per part
+    final TIntArrayList parts = new TIntArrayList();
+    parts.add(new int[]{0, myFirst.length, 0, mySecond.length});
+    while (!parts.isEmpty()) {
+      checkCanceled();
+      final int size = parts.size();
+      int start1 = parts.get(size - 4);
+      int end1 = parts.get(size - 3);
+      int start2 = parts.get(size - 2);
+      int end2 = parts.get(size - 1);
+      parts.remove(size - 4, 4);
+
+      while (start1 < end1 && start2 < end2 && myFirst[start1] == mySecond[start2]) {
+        myChanges1[start1++] = false;
+        myChanges2[start2++] = false;
+      }
+      while (start1 < end1 && start2 < end2 && myFirst[end1 - 1] == mySecond[end2 - 1]) {
+        myChanges1[--end1] = false;
+        myChanges2[--end2] = false;
+      }
+      if (start1 == end1 || start2 == end2) continue;
+
+      final int[][] anchors = findAnchors(start1, end1, start2, end2);
+      if (anchors == null) {
+        executeMyers(start1, end1, start2, end2);
+        continue;
+      }
+
+      int prev1 = start1;
+      int prev2 = start2;
+      for (int i = 0; i < anchors[0].length; i++) {
+        final int anchor1 = anchors[0][i];
+        final int anchor2 = anchors[1][i];
+        myChanges1[anchor1] = false;
+        myChanges2[anchor2] = false;
+        parts.add(new int[]{prev1, anchor1, prev2, anchor2});
+        prev1 = anchor1 + 1;
+        prev2 = anchor2 + 1;
+      }
+      parts.add(new int[]{prev1, end1, prev2, end2});
+    }
+  }
+
+  /**
+   * @return positions of the matched unique elements in both sequences, or null if there are no elements unique in both parts
+   */
+  @Nullable
+  private int[][] findAnchors(int start1, int end1, int start2, int end2) {
+    for (int i = start1; i < end1; i++) {
+      myCounts1[myFirst[i]]++;
+    }
+    // only elements present in the first part are counted, so the counters are reset by iterating the first part only
+    for (int i = start2; i < end2; i++) {
+      final int element = mySecond[i];
+      if (myCounts1[element] != 0) {
+        myCounts2[element]++;
+        myPositions2[element] = i;
+      }
+    }
+
+    final TIntArrayList unique1 = new TIntArrayList();
+    final TIntArrayList unique2 = new TIntArrayList();
+    for (int i = start1; i < end1; i++) {
+      final int element = myFirst[i];
+      if (myCounts1[element] == 1 && myCounts2[element] == 1) {
+        unique1.add(i);
+        unique2.add(myPositions2[element]);
+      }
+    }
+    for (int i = start1; i < end1; i++) {
+      myCounts1[myFirst[i]] = 0;
+      myCounts2[myFirst[i]] = 0;
+    }
+    if (unique1.isEmpty()) return null;
+
+    // longest increasing subsequence of the positions in the second part, patience sorting
+    final int count = unique1.size();
+    final int[] tails = new int[count];
+    final int[] previous = new int[count];
+    int length = 0;
+    for (int i = 0; i < count; i++) {
+      final int position = unique2.get(i);
+      int low = 0;
+      int high = length;
+      while (low < high) {
+        final int middle = (low + high) >>> 1;
+        if (unique2.get(tails[middle]) < position) {
+          low = middle + 1;
+        }
+        else {
+          high = middle;
+        }
+      }
+      previous[i] = low > 0 ? tails[low - 1] : -1;
+      tails[low] = i;
+      if (low == length) length++;
+    }
+
+    final int[][] result = new int[2][length];
+    int index = tails[length - 1];
+    for (int i = length - 1; i >= 0; i--) {
+      result[0][i] = unique1.get(index);
+      result[1][i] = unique2.get(index);
+      index = previous[index];
+    }
+    return result;
+  }
+
+  /**
+   * Elements which do not occur in the other part at all can't be matched, so they are dropped before the part is passed to
+   * {@link MyersLCS}, which is the same what {@link Reindexer#discardUnique(int[], int[])} does for {@link IntLCS}.
+   */
+  private void executeMyers(int start1, int end1, int start2, int end2) {
+    for (int i = start1; i < end1; i++) {
+      myCounts1[myFirst[i]]++;
+    }
+    for (int i = start2; i < end2; i++) {
+      myCounts2[mySecond[i]]++;
+    }
+    final TIntArrayList indices1 = new TIntArrayList(end1 - start1);
+    final TIntArrayList indices2 = new TIntArrayList(end2 - start2);
+    for (int i = start1; i < end1; i++) {
+      if (myCounts2[myFirst[i]] != 0) indices1.add(i);
+    }
+    for (int i = start2; i < end2; i++) {
+      if (myCounts1[mySecond[i]] != 0) indices2.add(i);
+    }
+    for (int i = start1; i < end1; i++) {
+      myCounts1[myFirst[i]] = 0;
+    }
+    for (int i = start2; i < end2; i++) {
+      myCounts2[mySecond[i]] = 0;
+    }
+    if (indices1.isEmpty() || indices2.isEmpty()) return;
+
+    final int[] first = new int[indices1.size()];
+    for (int i = 0; i < first.length; i++) {
+      first[i] = myFirst[indices1.get(i)];
+    }
+    final int[] second = new int[indices2.size()];
+    for (int i = 0; i < second.length; i++) {
+      second[i] = mySecond[indices2.get(i)];
+    }
+    final boolean[] changes1 = new boolean[first.length];
+    final boolean[] changes2 = new boolean[second.length];
+    Arrays.fill(changes1, true);
+    Arrays.fill(changes2, true);
+    new MyersLCS(first, second, changes1, changes2, myChecker).execute();
+
+    for (int i = 0; i < changes1.length; i++) {
+      if (!changes1[i]) myChanges1[indices1.get(i)] = false;
+    }
+    for (int i = 0; i < changes2.length; i++) {
+      if (!changes2[i]) myChanges2[indices2.get(i)] = false;
+    }
+  }
+
+  public void buildChanges(LCSBuilder builder) {
+    int x = 0;
+    int y = 0;
+    while (x < myChanges1.length || y < myChanges2.length) {
+      final int startX = x;
+      while (x < myChanges1.length && y < myChanges2.length && !myChanges1[x] && !myChanges2[y]) {
+        x++;
+        y++;
+      }
+      if (x > startX) builder.addEqual(x - startX);
+      int dx = 0;
+      int dy = 0;
+      while (x < myChanges1.length && myChanges1[x]) {
+        dx++;
+        x++;
+      }
+      while (y < myChanges2.length && myChanges2[y]) {
+        dy++;
+        y++;
+      }
+      if (dx != 0 || dy != 0) builder.addChange(dx, dy);
+    }
+  }
+
+  private void checkCanceled() {
+    if (myChecker != null) myChecker.checkCanceled();
+  }
+}
@@ -445,6 +445,15 @@ public class JBZipEntry implements Cloneable {
     stream.putNextEntryBytes(this, bytes);
   }
 
+  /**
+   * Writes the entry data read from <code>stream</code>; unlike {@link #setData(byte[], long)} the data isn't loaded into memory.
+   * The stream isn't closed.
+   */
+  public void setData(InputStream stream, long timestamp) throws IOException {
+    time = timestamp;
+    myFile.getOutputStream().putNextEntryContent(this, stream);
+  }
+
   public void setData(byte[] bytes) throws IOException {
     setData(bytes, time);
   }
@@ -461,6 +470,17 @@ public class JBZipEntry implements Cloneable {
     }
   }
 
+  /**
+   * Returns a stream of the entry data exactly as it is stored in the archive, i.e. without decompressing it.
+   *
+   * @see JBZipFile#copyEntry(JBZipEntry, String)
+   */
+  InputStream getRawInputStream() throws IOException {
+    if (csize == -1) throw new IOException("no data");
+
+    return new BoundedInputStream(calcDataOffset(), csize);
+  }
+
   private long calcDataOffset() throws IOException {
     long offset = getHeaderOffset();
     myFile.archive.seek(offset + JBZipFile.LFH_OFFSET_FOR_FILENAME_LENGTH);
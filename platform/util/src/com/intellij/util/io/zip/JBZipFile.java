@@ -23,6 +23,7 @@ import com.intellij.util.ArrayUtil;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.RandomAccessFile;
 import java.io.UnsupportedEncodingException;
 import java.util.ArrayList;
@@ -218,6 +219,33 @@ public class JBZipFile {
     return entry;
   }
 
+  /**
+   * Adds an entry with the same content and attributes as <code>source</code> entry of another archive. The entry data is copied as is,
+   * so compressed entries aren't decompressed and compressed again.
+   *
+   * @param source entry to copy
+   * @param name   name of the entry in this archive
+   * @return the created entry
+   */
+  public JBZipEntry copyEntry(JBZipEntry source, String name) throws IOException {
+    final JBZipEntry entry = getOrCreateEntry(name);
+    entry.setMethod(source.getMethod());
+    entry.setTime(source.getTime());
+    entry.setSize(source.getSize());
+    entry.setCrc(source.getCrc());
+    entry.setPlatform(source.getPlatform());
+    entry.setExternalAttributes(source.getExternalAttributes());
+    entry.setInternalAttributes(source.getInternalAttributes());
+    final InputStream rawContent = source.getRawInputStream();
+    try {
+      getOutputStream().putNextEntryRawContent(entry, rawContent);
+    }
+    finally {
+      rawContent.close();
+    }
+    return entry;
+  }
+
   private static final int CFH_LEN =
     /* version made by                 */ SHORT
                                           /* version needed to extract       */ + SHORT
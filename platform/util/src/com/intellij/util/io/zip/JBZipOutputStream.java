@@ -23,6 +23,8 @@ package com.intellij.util.io.zip;
 import com.intellij.openapi.util.io.BufferExposingByteArrayOutputStream;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.RandomAccessFile;
 import java.io.UnsupportedEncodingException;
 import java.util.List;
@@ -48,6 +50,11 @@ class JBZipOutputStream {
 
   private final CRC32 crc = new CRC32();
 
+  /**
+   * Offset of the CRC field from the start of a local file header: signature, version, flags, method and time precede it.
+   */
+  private static final int LFH_CRC_OFFSET = 14;
+
   long written = 0;
 
   /**
@@ -383,6 +390,92 @@ class JBZipOutputStream {
     myBuffer.reset();
   }
 
+  /**
+   * Writes already compressed (according to the entry's method) data. Size and CRC of the entry must be set by the caller.
+   */
+  void putNextEntryRawContent(JBZipEntry entry, InputStream rawContent) throws IOException {
+    final long headerOffset = written;
+    writeLocalFileHeader(entry);
+    final long dataOffset = written;
+    copy(rawContent, null, null);
+    entry.setCompressedSize(written - dataOffset);
+    patchLocalFileHeader(headerOffset, entry);
+  }
+
+  /**
+   * Writes the entry data read from <code>content</code>. Unlike {@link #putNextEntryBytes(JBZipEntry, byte[])} the data isn't loaded
+   * into memory: size, CRC and compressed size are written into the local file header after the data.
+   */
+  void putNextEntryContent(JBZipEntry entry, InputStream content) throws IOException {
+    if (entry.getMethod() == -1) {
+      entry.setMethod(method);
+    }
+
+    if (entry.getTime() == -1) {
+      entry.setTime(System.currentTimeMillis());
+    }
+
+    final long headerOffset = written;
+    writeLocalFileHeader(entry);
+    final long dataOffset = written;
+
+    crc.reset();
+    final long size;
+    if (entry.getMethod() == ZipEntry.DEFLATED) {
+      def.reset();
+      def.setLevel(level);
+      final DeflaterOutputStream stream = new DeflaterOutputStream(new OutputStream() {
+        @Override
+        public void write(int b) throws IOException {
+          writeOut(new byte[]{(byte)b});
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+          writeOut(b, off, len);
+        }
+      }, def);
+      size = copy(content, stream, crc);
+      stream.finish();
+    }
+    else {
+      size = copy(content, null, crc);
+    }
+
+    entry.setSize(size);
+    entry.setCrc(crc.getValue());
+    entry.setCompressedSize(written - dataOffset);
+    patchLocalFileHeader(headerOffset, entry);
+  }
+
+  private long copy(InputStream input, OutputStream output, Checksum checksum) throws IOException {
+    final byte[] buffer = new byte[8192];
+    long count = 0;
+    int read;
+    while ((read = input.read(buffer)) > 0) {
+      if (checksum != null) {
+        checksum.update(buffer, 0, read);
+      }
+      if (output != null) {
+        output.write(buffer, 0, read);
+      }
+      else {
+        writeOut(buffer, 0, read);
+      }
+      count += read;
+    }
+    return count;
+  }
+
+  private void patchLocalFileHeader(long headerOffset, JBZipEntry entry) throws IOException {
+    flushBuffer();
+    raf.seek(headerOffset + LFH_CRC_OFFSET);
+    raf.write(ZipLong.getBytes(entry.getCrc()));
+    raf.write(ZipLong.getBytes(entry.getCompressedSize()));
+    raf.write(ZipLong.getBytes(entry.getSize()));
+    raf.seek(written);
+  }
+
   public void putNextEntryBytes(JBZipEntry entry, byte[] bytes) throws IOException {
     entry.setSize(bytes.length);
 
@@ -401,6 +494,7 @@ class JBZipOutputStream {
     final byte[] outputBytes;
     final int outputBytesLength;
     if (entry.getMethod() == ZipEntry.DEFLATED) {
+      def.reset();
       def.setLevel(level);
       final BufferExposingByteArrayOutputStream compressedBytesStream = new BufferExposingByteArrayOutputStream();
       final DeflaterOutputStream stream = new DeflaterOutputStream(compressedBytesStream, def);
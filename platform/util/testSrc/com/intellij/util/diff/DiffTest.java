@@ -71,6 +71,13 @@ public class DiffTest extends TestCase {
     IntLCSTest.checkLastChange(change, 0, 0, 3, 0);
   }
 
+  public void testTexts() throws FilesTooBigForDiffException {
+    Diff.Change change = Diff.buildChanges("a\nb\r\nc\nd\n", "a\nx\r\nc\r\nd\ne");
+    IntLCSTest.checkChange(change, 1, 1, 1, 1);
+    IntLCSTest.checkLastChange(change.link, 4, 4, 1, 0);
+    assertNull(Diff.buildChanges("a\n\nb", "a\r\n\rb\n"));
+  }
+
   public void testPerformance() throws FilesTooBigForDiffException {
     ArrayList<String> first = new ArrayList<String>();
     ArrayList<String> second = new ArrayList<String>();
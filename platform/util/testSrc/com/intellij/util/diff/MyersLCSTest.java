@@ -0,0 +1,81 @@
+/*
+ * Copyright 2000-2012 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intellij.util.diff;
+
+import junit.framework.TestCase;
+
+import java.util.Arrays;
+import java.util.Random;
+
+public class MyersLCSTest extends TestCase {
+  public void testOneAtBegging() {
+    IntLCSTest.checkLastChange(buildChange(new int[]{1, 2}, new int[]{1, 3}), 1, 1, 1, 1);
+  }
+
+  public void testSingleMiddle() {
+    Diff.Change change = buildChange(new int[]{1, 2, 3}, new int[]{4, 2, 5});
+    IntLCSTest.checkChange(change, 0, 0, 1, 1);
+    IntLCSTest.checkLastChange(change.link, 2, 2, 1, 1);
+  }
+
+  public void testAbsolutelyDifferent() {
+    IntLCSTest.checkLastChange(buildChange(new int[]{1, 2, 3}, new int[]{4, 5}), 0, 0, 2, 3);
+  }
+
+  public void testMinimalAsIntLCS() throws FilesTooBigForDiffException {
+    Random random = new Random(42);
+    for (int i = 0; i < 500; i++) {
+      int[] first = PatienceLCSTest.randomSequence(random, random.nextInt(60), 1 + random.nextInt(8));
+      int[] second = PatienceLCSTest.randomSequence(random, random.nextInt(60), 1 + random.nextInt(8));
+      Diff.Change change = buildChange(first, second);
+      PatienceLCSTest.checkValid(first, second, change);
+      assertEquals(new IntLCS(first, second).execute(), PatienceLCSTest.countChanged(change));
+    }
+  }
+
+  private static Diff.Change buildChange(int[] first, int[] second) {
+    boolean[] changes1 = new boolean[first.length];
+    boolean[] changes2 = new boolean[second.length];
+    Arrays.fill(changes1, true);
+    Arrays.fill(changes2, true);
+    new MyersLCS(first, second, changes1, changes2, null).execute();
+
+    Diff.ChangeBuilder builder = new Diff.ChangeBuilder(0);
+    int x = 0;
+    int y = 0;
+    while (x < first.length || y < second.length) {
+      int equal = 0;
+      while (x < first.length && y < second.length && !changes1[x] && !changes2[y]) {
+        x++;
+        y++;
+        equal++;
+      }
+      if (equal > 0) builder.addEqual(equal);
+      int dx = 0;
+      int dy = 0;
+      while (x < first.length && changes1[x]) {
+        x++;
+        dx++;
+      }
+      while (y < second.length && changes2[y]) {
+        y++;
+        dy++;
+      }
+      if (dx != 0 || dy != 0) builder.addChange(dx, dy);
+    }
+    return builder.getFirstChange();
+  }
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright 2000-2012 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intellij.util.diff;
+
+import com.intellij.openapi.progress.ProcessCanceledException;
+import junit.framework.TestCase;
+
+import java.util.Arrays;
+import java.util.Random;
+
+public class PatienceLCSTest extends TestCase {
+  public void testEqual() {
+    assertNull(buildChange(new int[]{1, 2, 3}, new int[]{1, 2, 3}));
+  }
+
+  public void testUniqueAnchors() {
+    // 3 and 5 are unique in both sequences, the repeating elements around them must not be matched across them
+    Diff.Change change = buildChange(new int[]{1, 1, 3, 1, 5}, new int[]{3, 1, 1, 5});
+    IntLCSTest.checkChange(change, 0, 0, 0, 2);
+    IntLCSTest.checkLastChange(change.link, 3, 1, 1, 0);
+  }
+
+  public void testMovedBlock() {
+    Diff.Change change = buildChange(new int[]{1, 2, 3, 4, 5}, new int[]{4, 5, 1, 2, 3});
+    IntLCSTest.checkChange(change, 0, 0, 2, 0);
+    IntLCSTest.checkLastChange(change.link, 3, 5, 0, 2);
+  }
+
+  public void testNoUniqueElements() {
+    Diff.Change change = buildChange(new int[]{1, 2, 1, 2}, new int[]{2, 1, 2, 2, 1});
+    checkValid(new int[]{1, 2, 1, 2}, new int[]{2, 1, 2, 2, 1}, change);
+    assertEquals(3, countChanged(change));
+  }
+
+  public void testRandom() {
+    Random random = new Random(42);
+    for (int i = 0; i < 500; i++) {
+      int[] first = randomSequence(random, random.nextInt(50), 1 + random.nextInt(10));
+      int[] second = randomSequence(random, random.nextInt(50), 1 + random.nextInt(10));
+      checkValid(first, second, buildChange(first, second));
+    }
+  }
+
+  public void testCancellation() {
+    int[] first = randomSequence(new Random(1), 10000, 10);
+    int[] second = randomSequence(new Random(2), 10000, 10);
+    PatienceLCS lcs = new PatienceLCS(first, second, new Diff.CancellationChecker() {
+      @Override
+      public void checkCanceled() {
+        throw new ProcessCanceledException();
+      }
+    });
+    try {
+      lcs.execute();
+      fail();
+    }
+    catch (ProcessCanceledException ignored) {
+    }
+  }
+
+  public void testBigInput() throws FilesTooBigForDiffException {
+    // too many changes for IntLCS
+    int[] first = randomSequence(new Random(3), 20000, 1000);
+    int[] second = randomSequence(new Random(4), 20000, 1000);
+    Integer[] objects1 = new Integer[first.length];
+    Integer[] objects2 = new Integer[second.length];
+    for (int i = 0; i < first.length; i++) objects1[i] = first[i];
+    for (int i = 0; i < second.length; i++) objects2[i] = second[i];
+    checkValid(first, second, Diff.buildChanges(objects1, objects2));
+  }
+
+  static Diff.Change buildChange(int[] first, int[] second) {
+    PatienceLCS lcs = new PatienceLCS(first, second, null);
+    lcs.execute();
+    Diff.ChangeBuilder builder = new Diff.ChangeBuilder(0);
+    lcs.buildChanges(builder);
+    return builder.getFirstChange();
+  }
+
+  static int[] randomSequence(Random random, int length, int alphabet) {
+    int[] result = new int[length];
+    for (int i = 0; i < length; i++) {
+      result[i] = random.nextInt(alphabet);
+    }
+    return result;
+  }
+
+  static int countChanged(Diff.Change change) {
+    int result = 0;
+    for (; change != null; change = change.link) {
+      result += change.deleted + change.inserted;
+    }
+    return result;
+  }
+
+  /**
+   * Checks that the changes applied to the first sequence give the second one.
+   */
+  static void checkValid(int[] first, int[] second, Diff.Change change) {
+    int[] result = new int[second.length];
+    int x = 0;
+    int y = 0;
+    for (; change != null; change = change.link) {
+      assertTrue(change.toString(), change.line0 >= x && change.line0 - x == change.line1 - y);
+      while (x < change.line0) {
+        assertEquals(first[x], second[y]);
+        result[y++] = first[x++];
+      }
+      x += change.deleted;
+      for (int i = 0; i < change.inserted; i++) {
+        result[y] = second[y];
+        y++;
+      }
+    }
+    assertEquals(first.length - x, second.length - y);
+    while (x < first.length) {
+      assertEquals(first[x], second[y]);
+      result[y++] = first[x++];
+    }
+    assertTrue(Arrays.equals(second, result));
+  }
+}
@@ -23,6 +23,7 @@ import com.intellij.openapi.util.io.FileUtil;
 import junit.framework.TestCase;
 
 import java.io.*;
+import java.util.Arrays;
 import java.util.zip.CRC32;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
@@ -91,6 +92,76 @@ public class UpdateableZipTest extends TestCase {
     utilZip.close();
   }
 
+  public void testAppendEntriesFromStreams() throws Exception {
+    File zipFile = createTestUtilZip();
+
+    JBZipFile jbZip = new JBZipFile(zipFile);
+    JBZipEntry deflated = jbZip.getOrCreateEntry("/deflated");
+    deflated.setMethod(ZipEntry.DEFLATED);
+    deflated.setData(new ByteArrayInputStream(createContent(100000)), 0);
+    JBZipEntry stored = jbZip.getOrCreateEntry("/stored");
+    stored.setMethod(ZipEntry.STORED);
+    stored.setData(new ByteArrayInputStream("stored".getBytes()), 0);
+    jbZip.close();
+
+    ZipFile utilZip = new ZipFile(zipFile);
+    assertEntryContent(utilZip, "/deflated", createContent(100000));
+    assertEntryContent(utilZip, "/stored", "stored".getBytes());
+    assertEntryContent(utilZip, "/first", "first".getBytes());
+    utilZip.close();
+  }
+
+  public void testCopyEntry() throws Exception {
+    File zipFile = createTestUtilZip();
+    JBZipFile source = new JBZipFile(zipFile);
+    JBZipEntry deflated = source.getOrCreateEntry("/deflated");
+    deflated.setMethod(ZipEntry.DEFLATED);
+    deflated.setData(createContent(10000));
+    source.close();
+
+    File copyFile = FileUtil.createTempFile("copy", ".zip");
+    try {
+      source = new JBZipFile(zipFile);
+      JBZipFile copy = new JBZipFile(copyFile);
+      copy.copyEntry(source.getEntry("/deflated"), "/copied");
+      copy.copyEntry(source.getEntry("/first"), "/first");
+      copy.close();
+      source.close();
+
+      ZipFile utilZip = new ZipFile(copyFile);
+      assertEntryContent(utilZip, "/copied", createContent(10000));
+      assertEntryContent(utilZip, "/first", "first".getBytes());
+      utilZip.close();
+    }
+    finally {
+      FileUtil.delete(copyFile);
+    }
+  }
+
+  private static byte[] createContent(int size) {
+    byte[] content = new byte[size];
+    for (int i = 0; i < size; i++) {
+      content[i] = (byte)(i % 7 == 0 ? i : 'a');
+    }
+    return content;
+  }
+
+  private static void assertEntryContent(ZipFile zip, String name, byte[] expected) throws IOException {
+    ZipEntry entry = zip.getEntry(name);
+    assertNotNull(entry);
+    assertEquals(expected.length, entry.getSize());
+    CRC32 crc = new CRC32();
+    crc.update(expected);
+    assertEquals(crc.getValue(), entry.getCrc());
+    InputStream stream = zip.getInputStream(entry);
+    try {
+      assertTrue(name, Arrays.equals(expected, FileUtil.loadBytes(stream)));
+    }
+    finally {
+      stream.close();
+    }
+  }
+
   public void testRemoveEntry() throws Exception {
     File zipFile = createTestUtilZip();
 
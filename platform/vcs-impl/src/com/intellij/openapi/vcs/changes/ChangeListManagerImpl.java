@@ -680,6 +680,7 @@ public class ChangeListManagerImpl extends ChangeListManagerEx implements Projec
       final ChangeProvider changeProvider = vcs.getChangeProvider();
       if (changeProvider != null) {
         final FoldersCutDownWorker foldersCutDownWorker = new FoldersCutDownWorker();
+        final long start = System.currentTimeMillis();
         try {
           builder.setCurrent(scope, foldersCutDownWorker);
           changeProvider.getChanges(scope, builder, myUpdateChangesProgressIndicator, gate);
@@ -687,6 +688,12 @@ public class ChangeListManagerImpl extends ChangeListManagerEx implements Projec
         catch (final VcsException e) {
           handleUpdateException(e);
         }
+        finally {
+          if (LOG.isDebugEnabled()) {
+            LOG.debug(vcs.getName() + " changes collected in " + (System.currentTimeMillis() - start) + " ms, roots: " +
+                      scope.getAffectedContentRoots().size());
+          }
+        }
       }
     } catch (ProcessCanceledException ignore) {
     } catch (Throwable t) {
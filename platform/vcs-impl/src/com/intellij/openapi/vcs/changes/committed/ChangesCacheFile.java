@@ -45,6 +45,7 @@ public class ChangesCacheFile {
 
   private final File myPath;
   private final File myIndexPath;
+  private final File myAuthorsPath;
   private RandomAccessFile myStream;
   private RandomAccessFile myIndexStream;
   private boolean myStreamsOpen;
@@ -63,6 +64,9 @@ public class ChangesCacheFile {
   private boolean myHeaderLoaded;
   @NonNls private static final String INDEX_EXTENSION = ".index";
   private static final int INDEX_ENTRY_SIZE = 3*8+2;
+  // column of committer name hashes, one int per index entry; absent in caches written before it was introduced
+  @NonNls private static final String AUTHORS_EXTENSION = ".authors";
+  private static final int AUTHORS_ENTRY_SIZE = 4;
   private static final int HEADER_SIZE = 46;
 
   public ChangesCacheFile(Project project, File path, AbstractVcs vcs, VirtualFile root, RepositoryLocation location) {
@@ -71,6 +75,7 @@ public class ChangesCacheFile {
     myProject = project;
     myPath = path;
     myIndexPath = new File(myPath.toString() + INDEX_EXTENSION);
+    myAuthorsPath = new File(myPath.toString() + AUTHORS_EXTENSION);
     myVcs = vcs;
     myChangesProvider = (CachingCommittedChangesProvider) vcs.getCommittedChangesProvider();
     myVcsManager = ProjectLevelVcsManager.getInstance(project);
@@ -109,11 +114,13 @@ public class ChangesCacheFile {
     catch(VersionMismatchException ex) {
       myPath.delete();
       myIndexPath.delete();
+      myAuthorsPath.delete();
       return true;
     }
     catch(EOFException ex) {
       myPath.delete();
       myIndexPath.delete();
+      myAuthorsPath.delete();
       return true;
     }
 
@@ -123,6 +130,7 @@ public class ChangesCacheFile {
   public void delete() {
     FileUtil.delete(myPath);
     FileUtil.delete(myIndexPath);
+    FileUtil.delete(myAuthorsPath);
     try {
       closeStreams();
     }
@@ -147,6 +155,7 @@ public class ChangesCacheFile {
     List<CommittedChangeList> result = new ArrayList<CommittedChangeList>(changes.size());
     boolean wasEmpty = isEmpty();
     openStreams();
+    DataOutputStream authorsStream = null;
     try {
       if (wasEmpty) {
         myHeaderLoaded = true;
@@ -154,6 +163,7 @@ public class ChangesCacheFile {
       }
       myStream.seek(myStream.length());
       IndexEntry[] entries = readLastIndexEntries(0, changes.size());
+      authorsStream = openAuthorsColumn();
 
       final Iterator<Boolean> iterator = present == null ? null : present.iterator();
       for(CommittedChangeList list: changes) {
@@ -175,17 +185,75 @@ public class ChangesCacheFile {
         myChangesProvider.writeChangeList(myStream, list);
         updateCachedRange(list);
         writeIndexEntry(list.getNumber(), list.getCommitDate().getTime(), position, present == null ? false : iterator.next());
+        if (authorsStream != null) {
+          authorsStream.writeInt(getAuthorHash(list.getCommitterName()));
+        }
         myIncomingCount++;
       }
       writeHeader();
       myHeaderLoaded = true;
     }
     finally {
-      closeStreams();
+      try {
+        if (authorsStream != null) {
+          authorsStream.close();
+        }
+      }
+      finally {
+        closeStreams();
+      }
     }
     return result;
   }
 
+  /**
+   * The authors column is appended only while it has a value for each index entry; otherwise (the cache was written by an older
+   * version or a write was interrupted) it's dropped, and filtering by user falls back to reading the change lists.
+   */
+  @Nullable
+  private DataOutputStream openAuthorsColumn() throws IOException {
+    long entriesCount = myIndexStream.length() / INDEX_ENTRY_SIZE;
+    if (myAuthorsPath.length() != entriesCount * AUTHORS_ENTRY_SIZE) {
+      FileUtil.delete(myAuthorsPath);
+      if (entriesCount > 0) {
+        return null;
+      }
+    }
+    return new DataOutputStream(new BufferedOutputStream(new FileOutputStream(myAuthorsPath, true)));
+  }
+
+  @Nullable
+  private int[] readAuthorsColumn(int entriesCount) throws IOException {
+    if (entriesCount == 0 || myAuthorsPath.length() != (long)entriesCount * AUTHORS_ENTRY_SIZE) {
+      return null;
+    }
+    DataInputStream stream = new DataInputStream(new BufferedInputStream(new FileInputStream(myAuthorsPath)));
+    try {
+      int[] result = new int[entriesCount];
+      for(int i=0; i<entriesCount; i++) {
+        result [i] = stream.readInt();
+      }
+      return result;
+    }
+    finally {
+      stream.close();
+    }
+  }
+
+  /**
+   * Hash consistent with {@link String#equalsIgnoreCase}, which the user filter of {@link ChangeBrowserSettings} uses.
+   */
+  private static int getAuthorHash(@Nullable String name) {
+    if (name == null) {
+      return 0;
+    }
+    int h = 0;
+    for(int i=0; i<name.length(); i++) {
+      h = 31 * h + Character.toLowerCase(Character.toUpperCase(name.charAt(i)));
+    }
+    return h;
+  }
+
   private static void debug(@NonNls String message) {
     LOG.debug(message);
   }
@@ -259,12 +327,8 @@ public class ChangesCacheFile {
       return NO_ENTRIES;
     }
     // offset from start
-    myIndexStream.seek(INDEX_ENTRY_SIZE * offsetFromStart);
-    IndexEntry[] result = new IndexEntry[count];
-    for(int i = (count - 1); i >= 0; --i) {
-      result [i] = new IndexEntry();
-      readIndexEntry(result [i]);
-    }
+    IndexEntry[] result = readIndexEntries(offsetFromStart, count);
+    Collections.reverse(Arrays.asList(result));
     return result;
   }
 
@@ -279,20 +343,45 @@ public class ChangesCacheFile {
     if (count == 0) {
       return NO_ENTRIES;
     }
-    myIndexStream.seek(myIndexStream.length() - INDEX_ENTRY_SIZE * (count + offset));
+    return readIndexEntries(totalCount - count - offset, count);
+  }
+
+  private IndexEntry[] readAllIndexEntries() throws IOException {
+    if (!myIndexPath.exists()) {
+      return NO_ENTRIES;
+    }
+    int totalCount = (int)(myIndexStream.length() / INDEX_ENTRY_SIZE);
+    if (totalCount == 0) {
+      return NO_ENTRIES;
+    }
+    return readIndexEntries(0, totalCount);
+  }
+
+  /**
+   * Reads the entries with a single read of the index file, in the order they were written.
+   */
+  private IndexEntry[] readIndexEntries(final long offsetFromStart, final int count) throws IOException {
+    byte[] bytes = new byte[count * INDEX_ENTRY_SIZE];
+    myIndexStream.seek(INDEX_ENTRY_SIZE * offsetFromStart);
+    myIndexStream.readFully(bytes);
+    DataInputStream stream = new DataInputStream(new ByteArrayInputStream(bytes));
     IndexEntry[] result = new IndexEntry[count];
     for(int i=0; i<count; i++) {
       result [i] = new IndexEntry();
-      readIndexEntry(result [i]);
+      readIndexEntry(stream, result [i]);
     }
     return result;
   }
 
   private void readIndexEntry(final IndexEntry result) throws IOException {
-    result.number = myIndexStream.readLong();
-    result.date = myIndexStream.readLong();
-    result.offset = myIndexStream.readLong();
-    result.completelyDownloaded = (myIndexStream.readShort() != 0);
+    readIndexEntry(myIndexStream, result);
+  }
+
+  private static void readIndexEntry(final DataInput stream, final IndexEntry result) throws IOException {
+    result.number = stream.readLong();
+    result.date = stream.readLong();
+    result.offset = stream.readLong();
+    result.completelyDownloaded = (stream.readShort() != 0);
   }
 
   public Date getLastCachedDate() throws IOException {
@@ -352,13 +441,9 @@ public class ChangesCacheFile {
 
     try {
       loadHeader();
-      final long length = myIndexStream.length();
-      long totalCount = length / INDEX_ENTRY_SIZE;
-      for(int i=0; i<totalCount; i++) {
-        final long indexOffset = length - (i + 1) * INDEX_ENTRY_SIZE;
-        myIndexStream.seek(indexOffset);
-        IndexEntry e = new IndexEntry();
-        readIndexEntry(e);
+      final IndexEntry[] entries = readAllIndexEntries();
+      for(int i=entries.length - 1; i >= 0; i--) {
+        IndexEntry e = entries [i];
         final CommittedChangeList list = loadChangeListAt(e.offset);
         lists.add(list);
         idx.add(e.completelyDownloaded);
@@ -456,7 +541,7 @@ public class ChangesCacheFile {
     final ChangeBrowserSettings.Filter filter = settings.createFilter();
     openStreams();
     try {
-      if (maxCount == 0) {
+      if (maxCount == 0 && !settings.isAnyFilterSpecified()) {
         myStream.seek(HEADER_SIZE);  // skip header
         while(myStream.getFilePointer() < myStream.length()) {
           CommittedChangeList changeList = myChangesProvider.readChangeList(myLocation, myStream);
@@ -473,18 +558,20 @@ public class ChangesCacheFile {
         }
       }
       else {
-        int offset = 0;
-        while(result.size() < maxCount) {
-          IndexEntry[] entries = readLastIndexEntries(offset, 1);
-          if (entries.length == 0) {
-            break;
+        // check the index columns first, so that only the change lists which may pass the filter are read
+        IndexEntry[] entries = readAllIndexEntries();
+        int[] authors = readAuthorsColumn(entries.length);
+        IndexFilter indexFilter = new IndexFilter(settings);
+        for(int i=entries.length - 1; i >= 0 && (maxCount == 0 || result.size() < maxCount); i--) {
+          if (!indexFilter.accepts(entries [i], authors, i)) {
+            continue;
           }
-          CommittedChangeList changeList = loadChangeListAt(entries [0].offset);
+          CommittedChangeList changeList = loadChangeListAt(entries [i].offset);
           if (filter.accepts(changeList)) {
-            result.add(0, changeList);
+            result.add(changeList);
           }
-          offset++;
         }
+        Collections.reverse(result);
       }
       return result;
     }
@@ -517,16 +604,12 @@ public class ChangesCacheFile {
 
   public List<CommittedChangeList> loadIncomingChanges() throws IOException {
     List<CommittedChangeList> result = new ArrayList<CommittedChangeList>();
-    int offset = 0;
     openStreams();
     try {
-      while(true) {
-        IndexEntry[] entries = readLastIndexEntries(offset, 1);
-        if (entries.length == 0) {
-          break;
-        }
-        if (!entries [0].completelyDownloaded) {
-          IncomingChangeListData data = readIncomingChangeListData(offset, entries [0]);
+      final IndexEntry[] entries = readAllIndexEntries();
+      for(int i=entries.length - 1; i >= 0; i--) {
+        if (!entries [i].completelyDownloaded) {
+          IncomingChangeListData data = readIncomingChangeListData((long)i * INDEX_ENTRY_SIZE, entries [i]);
           if (data.accountedChanges.size() == 0) {
             result.add(data.changeList);
           }
@@ -541,7 +624,6 @@ public class ChangesCacheFile {
           }
           if (result.size() == myIncomingCount) break;
         }
-        offset++;
       }
       debug("Loaded " + result.size() + " incoming changelists");
     }
@@ -658,16 +740,12 @@ public class ChangesCacheFile {
   }
 
   private List<IncomingChangeListData> loadIncomingChangeListData() throws IOException {
-    final long length = myIndexStream.length();
-    long totalCount = length / INDEX_ENTRY_SIZE;
+    final IndexEntry[] entries = readAllIndexEntries();
     List<IncomingChangeListData> incomingData = new ArrayList<IncomingChangeListData>();
-    for(int i=0; i<totalCount; i++) {
-      final long indexOffset = length - (i + 1) * INDEX_ENTRY_SIZE;
-      myIndexStream.seek(indexOffset);
-      IndexEntry e = new IndexEntry();
-      readIndexEntry(e);
+    for(int i=entries.length - 1; i >= 0; i--) {
+      IndexEntry e = entries [i];
       if (!e.completelyDownloaded) {
-        incomingData.add(readIncomingChangeListData(indexOffset, e));
+        incomingData.add(readIncomingChangeListData((long)i * INDEX_ENTRY_SIZE, e));
         if (incomingData.size() == myIncomingCount) {
           break;
         }
@@ -1091,6 +1169,50 @@ public class ChangesCacheFile {
 
   private static final IndexEntry[] NO_ENTRIES = new IndexEntry[0];
 
+  /**
+   * The part of the {@link ChangeBrowserSettings} filter which can be checked against the index columns. It may accept entries
+   * the settings filter rejects, but never rejects the ones it accepts.
+   */
+  private static class IndexFilter {
+    private final Long myDateBefore;
+    private final Long myDateAfter;
+    private final Long myNumberBefore;
+    private final Long myNumberAfter;
+    private final Integer myAuthorHash;
+
+    private IndexFilter(final ChangeBrowserSettings settings) {
+      myDateBefore = settings.USE_DATE_BEFORE_FILTER ? getTime(settings.getDateBefore()) : null;
+      myDateAfter = settings.USE_DATE_AFTER_FILTER ? getTime(settings.getDateAfter()) : null;
+      myNumberBefore = settings.USE_CHANGE_BEFORE_FILTER ? parseNumber(settings.CHANGE_BEFORE) : null;
+      myNumberAfter = settings.USE_CHANGE_AFTER_FILTER ? parseNumber(settings.CHANGE_AFTER) : null;
+      myAuthorHash = settings.USE_USER_FILTER ? getAuthorHash(settings.USER) : null;
+    }
+
+    @Nullable
+    private static Long getTime(@Nullable Date date) {
+      return date == null ? null : date.getTime();
+    }
+
+    @Nullable
+    private static Long parseNumber(String number) {
+      try {
+        return Long.parseLong(number);
+      }
+      catch (NumberFormatException e) {
+        return null;
+      }
+    }
+
+    public boolean accepts(final IndexEntry e, @Nullable final int[] authors, final int index) {
+      if (myDateBefore != null && e.date >= myDateBefore) return false;
+      if (myDateAfter != null && e.date <= myDateAfter) return false;
+      if (myNumberBefore != null && e.number > myNumberBefore) return false;
+      if (myNumberAfter != null && e.number < myNumberAfter) return false;
+      if (myAuthorHash != null && authors != null && authors [index] != myAuthorHash) return false;
+      return true;
+    }
+  }
+
   private static class VersionMismatchException extends RuntimeException {
   }
 
@@ -44,7 +44,6 @@ import org.jetbrains.annotations.Nullable;
 
 import javax.swing.*;
 import java.util.ArrayList;
-import java.util.Iterator;
 import java.util.List;
 import java.util.ListIterator;
 
@@ -55,6 +54,8 @@ import java.util.ListIterator;
 public class LineStatusTracker {
   private static final Logger LOG = Logger.getInstance("#com.intellij.openapi.vcs.ex.LineStatusTracker");
   private static final Key<CanNotCalculateDiffPanel> PANEL_KEY = new Key<CanNotCalculateDiffPanel>("LineStatusTracker.CanNotCalculateDiffPanel");
+  // for bigger changed regions the whole list of ranges is rebuilt instead of replacing the affected ranges in place
+  static final int MAX_INCREMENTAL_LINES = 5000;
 
   private final Object myLock = new Object();
   // true -> have contents
@@ -338,12 +339,19 @@ public class LineStatusTracker {
 
     @Nullable
     private Range getLastRangeBeforeLine(int line) {
-      Range result = null;
-      for (Range range : myRanges) {
-        if (range.isMoreThen(line)) return result;
-        result = range;
+      // ranges are sorted and don't touch each other, so isMoreThen() is monotonic
+      int low = 0;
+      int high = myRanges.size();
+      while (low < high) {
+        int middle = (low + high) >>> 1;
+        if (myRanges.get(middle).isMoreThen(line)) {
+          high = middle;
+        }
+        else {
+          low = middle + 1;
+        }
       }
-      return result;
+      return low == 0 ? null : myRanges.get(low - 1);
     }
 
     @Override
@@ -359,56 +367,38 @@ public class LineStatusTracker {
           int linesAfterChange = line - myDocument.getLineNumber(e.getOffset());
           int linesShift = linesAfterChange - myLinesBeforeChange;
 
-          List<Range> rangesAfterChange = getRangesAfter(myRanges, myLastChangedLine);
-          List<Range> rangesBeforeChange = getRangesBefore(myRanges, myFirstChangedLine);
-
-          List<Range> changedRanges = getChangedRanges(myFirstChangedLine, myLastChangedLine);
-
-          int newSize = rangesBeforeChange.size() + changedRanges.size() + rangesAfterChange.size();
-          if (myRanges.size() != newSize) {
+          // ranges before the change end before myFirstChangedLine, ranges after it start after myLastChangedLine
+          int firstChanged = getFirstRangeEndingAt(myFirstChangedLine);
+          int firstAfter = getFirstRangeStartingAfter(myLastChangedLine);
+          boolean consistent = firstChanged <= firstAfter;
+          if (!consistent) {
             LOG.info("Ranges: " + myRanges + "; first changed line: " + myFirstChangedLine + "; last changed line: " + myLastChangedLine);
             LOG.assertTrue(false);
           }
 
+          if (!consistent ||
+              Math.max(myLastChangedLine + linesShift - myFirstChangedLine, myUpToDateLastLine - myUpToDateFirstLine) > MAX_INCREMENTAL_LINES) {
+            rebuildRanges(e, linesShift);
+            return;
+          }
 
           myLastChangedLine += linesShift;
 
-
+          List<Range> changedRanges = new ArrayList<Range>(myRanges.subList(firstChanged, firstAfter));
           List<Range> newChangedRanges = getNewChangedRanges();
 
-          shiftRanges(rangesAfterChange, linesShift);
+          shiftRanges(myRanges.subList(firstAfter, myRanges.size()), linesShift);
 
           if (!changedRanges.equals(newChangedRanges)) {
             replaceRanges(changedRanges, newChangedRanges);
 
-            myRanges = new ArrayList<Range>();
-
-            myRanges.addAll(rangesBeforeChange);
-            myRanges.addAll(newChangedRanges);
-            myRanges.addAll(rangesAfterChange);
+            myRanges.subList(firstChanged, firstAfter).clear();
+            myRanges.addAll(firstChanged, newChangedRanges);
 
-            myRanges = mergeRanges(myRanges);
+            // only the new ranges can be merged with each other and with their neighbours
+            mergeRanges(Math.max(firstChanged - 1, 0), Math.min(firstChanged + newChangedRanges.size() + 1, myRanges.size()));
 
-            for (Range range : myRanges) {
-              if (!range.hasHighlighter()) range.setHighlighter(createHighlighter(range));
-            }
-
-            if (myRanges.isEmpty() && myVirtualFile != null) {
-              SwingUtilities.invokeLater(new Runnable() {
-                @Override
-                public void run() {
-                  FileDocumentManager.getInstance().saveDocument(e.getDocument());
-                  boolean[] stillEmpty = new boolean[1];
-                  synchronized (myLock) {
-                    stillEmpty[0] = myRanges.isEmpty();
-                  }
-                  if (stillEmpty[0]) {
-                    // file was modified, and now it's not -> dirty local change
-                    myVcsDirtyScopeManager.fileDirty(myVirtualFile);
-                  }
-                }
-              });
-            }
+            checkEmptyRanges(e);
           }
         } catch (ProcessCanceledException ignore) {
         } catch (FilesTooBigForDiffException e1) {
@@ -418,20 +408,69 @@ public class LineStatusTracker {
       }
     }
 
+    /**
+     * Rediffs the changed region like {@link #documentChanged(DocumentEvent)} does, but rebuilds and merges the whole list of ranges.
+     * Used for large regions, where the diff costs much more than the list rebuilding.
+     */
+    private void rebuildRanges(DocumentEvent e, int linesShift) throws FilesTooBigForDiffException {
+      List<Range> rangesAfterChange = getRangesAfter(myRanges, myLastChangedLine);
+      List<Range> rangesBeforeChange = getRangesBefore(myRanges, myFirstChangedLine);
+
+      List<Range> changedRanges = getChangedRanges(myRanges, myFirstChangedLine, myLastChangedLine);
+
+      myLastChangedLine += linesShift;
+
+      List<Range> newChangedRanges = getNewChangedRanges();
+
+      shiftRanges(rangesAfterChange, linesShift);
+
+      if (!changedRanges.equals(newChangedRanges)) {
+        replaceRanges(changedRanges, newChangedRanges);
+
+        myRanges = new ArrayList<Range>();
+
+        myRanges.addAll(rangesBeforeChange);
+        myRanges.addAll(newChangedRanges);
+        myRanges.addAll(rangesAfterChange);
+
+        mergeRanges(0, myRanges.size());
+
+        checkEmptyRanges(e);
+      }
+    }
+
+    private void checkEmptyRanges(final DocumentEvent e) {
+      if (myRanges.isEmpty() && myVirtualFile != null) {
+        SwingUtilities.invokeLater(new Runnable() {
+          @Override
+          public void run() {
+            FileDocumentManager.getInstance().saveDocument(e.getDocument());
+            boolean[] stillEmpty = new boolean[1];
+            synchronized (myLock) {
+              stillEmpty[0] = myRanges.isEmpty();
+            }
+            if (stillEmpty[0]) {
+              // file was modified, and now it's not -> dirty local change
+              myVcsDirtyScopeManager.fileDirty(myVirtualFile);
+            }
+          }
+        });
+      }
+    }
+
     private List<Range> getNewChangedRanges() throws FilesTooBigForDiffException {
-      List<String> lines = new DocumentWrapper(myDocument).getLines(myFirstChangedLine, myLastChangedLine);
-      List<String> uLines = new DocumentWrapper(myUpToDateDocument)
-        .getLines(myUpToDateFirstLine, myUpToDateLastLine);
-      return new RangesBuilder(lines, uLines, myFirstChangedLine, myUpToDateFirstLine).getRanges();
-    }
-
-    private List<Range> mergeRanges(List<Range> ranges) {
-      ArrayList<Range> result = new ArrayList<Range>();
-      Iterator<Range> iterator = ranges.iterator();
-      if (!iterator.hasNext()) return result;
-      Range prev = iterator.next();
-      while (iterator.hasNext()) {
-        Range range = iterator.next();
+      return new RangesBuilder(myDocument, myUpToDateDocument, myFirstChangedLine, myLastChangedLine, myUpToDateFirstLine,
+                               myUpToDateLastLine).getRanges();
+    }
+
+    /**
+     * Merges adjacent ranges with indices in [from, to) and creates highlighters for the ranges there which don't have them
+     */
+    private void mergeRanges(int from, int to) {
+      int i = from;
+      while (i + 1 < to) {
+        Range prev = myRanges.get(i);
+        Range range = myRanges.get(i + 1);
         if (prev.canBeMergedWith(range)) {
           if (range.getHighlighter() != null) {
             range.getHighlighter().dispose();
@@ -439,15 +478,18 @@ public class LineStatusTracker {
           if (prev.getHighlighter() != null) {
             prev.getHighlighter().dispose();
           }
-          prev = prev.mergeWith(range, LineStatusTracker.this);
+          myRanges.set(i, prev.mergeWith(range, LineStatusTracker.this));
+          myRanges.remove(i + 1);
+          to--;
         }
         else {
-          result.add(prev);
-          prev = range;
+          i++;
         }
       }
-      result.add(prev);
-      return result;
+      for (i = from; i < to; i++) {
+        Range range = myRanges.get(i);
+        if (!range.hasHighlighter()) range.setHighlighter(createHighlighter(range));
+      }
     }
 
     private void replaceRanges(List<Range> rangesInChange, List<Range> newRangesInChange) {
@@ -468,8 +510,40 @@ public class LineStatusTracker {
 
   }
 
-  private List<Range> getChangedRanges(int from, int to) {
-    return getChangedRanges(myRanges, from, to);
+  /**
+   * @return index of the first range which ends at the given line or after it
+   */
+  private int getFirstRangeEndingAt(int line) {
+    int low = 0;
+    int high = myRanges.size();
+    while (low < high) {
+      int middle = (low + high) >>> 1;
+      if (myRanges.get(middle).getOffset2() < line) {
+        low = middle + 1;
+      }
+      else {
+        high = middle;
+      }
+    }
+    return low;
+  }
+
+  /**
+   * @return index of the first range which starts after the given line
+   */
+  private int getFirstRangeStartingAfter(int line) {
+    int low = 0;
+    int high = myRanges.size();
+    while (low < high) {
+      int middle = (low + high) >>> 1;
+      if (myRanges.get(middle).getOffset1() > line) {
+        high = middle;
+      }
+      else {
+        low = middle + 1;
+      }
+    }
+    return low;
   }
 
   public static List<Range> getChangedRanges(List<Range> ranges, int from, int to) {
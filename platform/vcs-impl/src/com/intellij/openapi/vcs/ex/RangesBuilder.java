@@ -19,8 +19,9 @@ import com.intellij.openapi.editor.Document;
 import com.intellij.util.ArrayUtil;
 import com.intellij.util.diff.Diff;
 import com.intellij.util.diff.FilesTooBigForDiffException;
+import com.intellij.util.text.MergingCharSequence;
 
-import java.util.LinkedList;
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -31,21 +32,36 @@ public class RangesBuilder {
   private List<Range> myRanges;
 
   public RangesBuilder(Document current, Document upToDate) throws FilesTooBigForDiffException {
-    this(new DocumentWrapper(current).getLines(), new DocumentWrapper(upToDate).getLines(), 0, 0);
+    this(current, upToDate, 0, current.getLineCount() - 1, 0, upToDate.getLineCount() - 1);
   }
 
-  public RangesBuilder(List<String> current, List<String> upToDate, int shift, int uShift) throws FilesTooBigForDiffException {
-    myRanges = new LinkedList<Range>();
-
-    Diff.Change ch = Diff.buildChanges(ArrayUtil.toStringArray(upToDate), ArrayUtil.toStringArray(current));
+  /**
+   * Compares lines {@code from..to} of the current document with lines {@code uFrom..uTo} of the up-to-date one (both inclusive) without
+   * copying them into strings.
+   */
+  public RangesBuilder(Document current, Document upToDate, int from, int to, int uFrom, int uTo) throws FilesTooBigForDiffException {
+    this(Diff.buildChanges(getLinesText(upToDate, uFrom, uTo), getLinesText(current, from, to)), from, uFrom);
+  }
 
+  public RangesBuilder(List<String> current, List<String> upToDate, int shift, int uShift) throws FilesTooBigForDiffException {
+    this(Diff.buildChanges(ArrayUtil.toStringArray(upToDate), ArrayUtil.toStringArray(current)), shift, uShift);
+  }
 
+  private RangesBuilder(Diff.Change ch, int shift, int uShift) {
+    myRanges = new ArrayList<Range>();
     while (ch != null) {
       Range range = Range.createOn(ch, shift, uShift);
       myRanges.add(range);
       ch = ch.link;
     }
+  }
 
+  private static CharSequence getLinesText(Document document, int from, int to) {
+    to = Math.min(to, document.getLineCount() - 1);
+    if (from > to) return "";
+    CharSequence text = document.getCharsSequence().subSequence(document.getLineStartOffset(from), document.getLineEndOffset(to));
+    // the separator keeps an empty last line from being dropped when the text is split into lines
+    return new MergingCharSequence(text, "\n");
   }
 
   public List<Range> getRanges() {
@@ -0,0 +1,348 @@
+/*
+ * Copyright 2000-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intellij.openapi.vcs.changes.committed;
+
+import com.intellij.openapi.util.Pair;
+import com.intellij.openapi.util.io.FileUtil;
+import com.intellij.openapi.vcs.*;
+import com.intellij.openapi.vcs.changes.Change;
+import com.intellij.openapi.vcs.history.VcsRevisionNumber;
+import com.intellij.openapi.vcs.impl.ProjectLevelVcsManagerImpl;
+import com.intellij.openapi.vcs.update.FileGroup;
+import com.intellij.openapi.vcs.update.UpdatedFiles;
+import com.intellij.openapi.vcs.versionBrowser.ChangeBrowserSettings;
+import com.intellij.openapi.vcs.versionBrowser.ChangesBrowserSettingsEditor;
+import com.intellij.openapi.vcs.versionBrowser.CommittedChangeList;
+import com.intellij.openapi.vcs.versionBrowser.CommittedChangeListImpl;
+import com.intellij.openapi.vfs.LocalFileSystem;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.testFramework.PlatformTestCase;
+import com.intellij.testFramework.vcs.MockContentRevision;
+import com.intellij.util.AsynchConsumer;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.*;
+import java.util.*;
+
+public class ChangesCacheFileTest extends PlatformTestCase {
+  private static final String[] AUTHORS = {"alice", "Alice", "ALICE", "bob", "Bob", "", "\u0130lker", "ilker", "\u0131lker"};
+  private static final long START_DATE = 1300000000000L;
+
+  private MockAbstractVcs myVcs;
+  private File myRoot;
+  private File myCachePath;
+  private ChangesCacheFile myCache;
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    myVcs = new MockAbstractVcs(myProject);
+    myVcs.setCommittedChangesProvider(new MockCommittedChangesProvider());
+    ((ProjectLevelVcsManagerImpl)ProjectLevelVcsManager.getInstance(myProject)).registerVcs(myVcs);
+
+    File dir = createTempDirectory();
+    myRoot = new File(dir, "root");
+    assertTrue(myRoot.mkdir());
+    VirtualFile root = LocalFileSystem.getInstance().refreshAndFindFileByIoFile(myRoot);
+    myCachePath = new File(dir, "changes");
+    myCache = new ChangesCacheFile(myProject, myCachePath, myVcs, root, new DefaultRepositoryLocation("mock://repository"));
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    try {
+      ((ProjectLevelVcsManagerImpl)ProjectLevelVcsManager.getInstance(myProject)).unregisterVcs(myVcs);
+    }
+    finally {
+      super.tearDown();
+    }
+  }
+
+  public void testAuthorsColumnIsWrittenForEachIndexEntry() throws IOException {
+    writeChanges(createLists(new Random(1), 0, 10));
+    writeChanges(createLists(new Random(2), 10, 5));
+    assertEquals(getIndexEntriesCount() * 4, getAuthorsPath().length());
+  }
+
+  public void testAuthorsColumnIsNotStartedForLegacyCache() throws IOException {
+    List<CommittedChangeList> lists = createLists(new Random(1), 0, 10);
+    writeChanges(lists.subList(0, 5));
+    FileUtil.delete(getAuthorsPath());
+
+    writeChanges(lists.subList(5, 10));
+    assertFalse(getAuthorsPath().exists());
+    assertFilteredReadsMatchSettingsFilter(lists, new Random(3));
+  }
+
+  public void testAuthorsColumnIsDroppedAfterInterruptedWrite() throws IOException {
+    List<CommittedChangeList> lists = createLists(new Random(1), 0, 10);
+    writeChanges(lists.subList(0, 5));
+    truncate(getAuthorsPath(), getAuthorsPath().length() - 4);
+    assertFilteredReadsMatchSettingsFilter(lists.subList(0, 5), new Random(3));
+
+    writeChanges(lists.subList(5, 10));
+    assertFalse(getAuthorsPath().exists());
+    assertFilteredReadsMatchSettingsFilter(lists, new Random(4));
+  }
+
+  public void testIndexFilterDoesNotRejectListsAcceptedBySettings() throws IOException {
+    List<CommittedChangeList> lists = createLists(new Random(1), 0, 50);
+    writeChanges(lists);
+    assertFilteredReadsMatchSettingsFilter(lists, new Random(2));
+  }
+
+  public void testIncomingChangesAfterUpdate() throws IOException {
+    writeChanges(Arrays.asList(createList(1, "a.txt"), createList(2, "b.txt"), createList(3, "c.txt", "d.txt")));
+
+    UpdatedFiles updatedFiles = UpdatedFiles.create();
+    FileGroup group = updatedFiles.getGroupById(FileGroup.UPDATED_ID);
+    group.add(new File(myRoot, "b.txt").getPath(), myVcs.getName(), new VcsRevisionNumber.Int(2));
+    group.add(new File(myRoot, "d.txt").getPath(), myVcs.getName(), new VcsRevisionNumber.Int(3));
+    List<CommittedChangeList> received = new ArrayList<CommittedChangeList>();
+    assertFalse(myCache.processUpdatedFiles(updatedFiles, received));
+    assertEquals(2, received.size());
+
+    // the list which was received completely is marked in its own index entry, the partially received one keeps the rest
+    List<CommittedChangeList> incoming = myCache.loadIncomingChanges();
+    assertEquals(Arrays.asList(3L, 1L), getNumbers(incoming));
+    Collection<Change> changes = incoming.get(0).getChanges();
+    assertEquals(1, changes.size());
+    assertEquals("c.txt", changes.iterator().next().getAfterRevision().getFile().getName());
+    assertEquals(1, incoming.get(1).getChanges().size());
+  }
+
+  private void writeChanges(List<CommittedChangeList> lists) throws IOException {
+    myCache.writeChanges(new ArrayList<CommittedChangeList>(lists));
+  }
+
+  private void assertFilteredReadsMatchSettingsFilter(List<CommittedChangeList> lists, Random random) throws IOException {
+    for (int i = 0; i < 100; i++) {
+      ChangeBrowserSettings settings = createSettings(lists, random);
+      ChangeBrowserSettings.Filter filter = settings.createFilter();
+      List<Long> expected = new ArrayList<Long>();
+      for (CommittedChangeList list : lists) {
+        if (filter.accepts(list)) {
+          expected.add(list.getNumber());
+        }
+      }
+      assertEquals(expected, getNumbers(myCache.readChanges(settings, 0)));
+      assertEquals(expected.subList(Math.max(0, expected.size() - 3), expected.size()), getNumbers(myCache.readChanges(settings, 3)));
+    }
+  }
+
+  // filters match the lists at the boundaries, or are not numbers at all
+  private static ChangeBrowserSettings createSettings(List<CommittedChangeList> lists, Random random) {
+    ChangeBrowserSettings settings = new ChangeBrowserSettings();
+    if (random.nextBoolean()) {
+      settings.USE_DATE_BEFORE_FILTER = true;
+      settings.setDateBefore(lists.get(random.nextInt(lists.size())).getCommitDate());
+    }
+    if (random.nextBoolean()) {
+      settings.USE_DATE_AFTER_FILTER = true;
+      settings.setDateAfter(lists.get(random.nextInt(lists.size())).getCommitDate());
+    }
+    if (random.nextBoolean()) {
+      settings.USE_CHANGE_BEFORE_FILTER = true;
+      settings.CHANGE_BEFORE = random.nextInt(4) == 0 ? "HEAD" : String.valueOf(lists.get(random.nextInt(lists.size())).getNumber());
+    }
+    if (random.nextBoolean()) {
+      settings.USE_CHANGE_AFTER_FILTER = true;
+      settings.CHANGE_AFTER = random.nextInt(4) == 0 ? "r1" : String.valueOf(lists.get(random.nextInt(lists.size())).getNumber());
+    }
+    if (random.nextBoolean()) {
+      settings.USE_USER_FILTER = true;
+      settings.USER = random.nextInt(4) == 0 ? "nobody" : AUTHORS[random.nextInt(AUTHORS.length)];
+    }
+    return settings;
+  }
+
+  // dates are whole seconds, as the date filters of the settings are stored as text
+  private static List<CommittedChangeList> createLists(Random random, int first, int count) {
+    List<CommittedChangeList> result = new ArrayList<CommittedChangeList>();
+    for (int i = first; i < first + count; i++) {
+      String author = AUTHORS[random.nextInt(AUTHORS.length)];
+      result.add(new CommittedChangeListImpl("name", "comment", author, 2 * i + 1, new Date(START_DATE + i * 1000L),
+                                             Collections.<Change>emptyList()));
+    }
+    return result;
+  }
+
+  private CommittedChangeList createList(long number, String... fileNames) {
+    List<Change> changes = new ArrayList<Change>();
+    for (String name : fileNames) {
+      changes.add(createChange(new File(myRoot, name).getPath(), number));
+    }
+    return new CommittedChangeListImpl("name", "comment", "author", number, new Date(START_DATE + number * 1000), changes);
+  }
+
+  private static Change createChange(String path, long number) {
+    return new Change(null, new MockContentRevision(new FilePathImpl(new File(path), false), new VcsRevisionNumber.Int((int)number)));
+  }
+
+  private static List<Long> getNumbers(List<CommittedChangeList> lists) {
+    List<Long> result = new ArrayList<Long>();
+    for (CommittedChangeList list : lists) {
+      result.add(list.getNumber());
+    }
+    return result;
+  }
+
+  private long getIndexEntriesCount() {
+    return new File(myCachePath.getPath() + ".index").length() / (3 * 8 + 2);
+  }
+
+  private File getAuthorsPath() {
+    return new File(myCachePath.getPath() + ".authors");
+  }
+
+  private static void truncate(File file, long length) throws IOException {
+    RandomAccessFile raf = new RandomAccessFile(file, "rw");
+    try {
+      raf.setLength(length);
+    }
+    finally {
+      raf.close();
+    }
+  }
+
+  private static class MockCommittedChangesProvider implements CachingCommittedChangesProvider<CommittedChangeListImpl, ChangeBrowserSettings> {
+    @Override
+    public int getFormatVersion() {
+      return 1;
+    }
+
+    @Override
+    public void writeChangeList(DataOutput stream, CommittedChangeListImpl list) throws IOException {
+      stream.writeLong(list.getNumber());
+      stream.writeLong(list.getCommitDate().getTime());
+      stream.writeUTF(list.getCommitterName());
+      stream.writeInt(list.getChanges().size());
+      for (Change change : list.getChanges()) {
+        stream.writeUTF(change.getAfterRevision().getFile().getPath());
+      }
+    }
+
+    @Override
+    public CommittedChangeListImpl readChangeList(RepositoryLocation location, DataInput stream) throws IOException {
+      long number = stream.readLong();
+      Date date = new Date(stream.readLong());
+      String author = stream.readUTF();
+      List<Change> changes = new ArrayList<Change>();
+      for (int i = stream.readInt(); i > 0; i--) {
+        changes.add(createChange(stream.readUTF(), number));
+      }
+      return new CommittedChangeListImpl("name", "comment", author, number, date, changes);
+    }
+
+    @Override
+    public boolean isMaxCountSupported() {
+      return true;
+    }
+
+    @Override
+    public Collection<FilePath> getIncomingFiles(RepositoryLocation location) {
+      return null;
+    }
+
+    @Override
+    public boolean refreshCacheByNumber() {
+      return true;
+    }
+
+    @Override
+    public String getChangelistTitle() {
+      return null;
+    }
+
+    @Override
+    public boolean isChangeLocallyAvailable(FilePath filePath, VcsRevisionNumber localRevision, VcsRevisionNumber changeRevision,
+                                            CommittedChangeListImpl changeList) {
+      return localRevision != null && localRevision.compareTo(changeRevision) >= 0;
+    }
+
+    @Override
+    public boolean refreshIncomingWithCommitted() {
+      return false;
+    }
+
+    @NotNull
+    @Override
+    public ChangeBrowserSettings createDefaultSettings() {
+      return new ChangeBrowserSettings();
+    }
+
+    @Override
+    public ChangesBrowserSettingsEditor<ChangeBrowserSettings> createFilterUI(boolean showDateFilter) {
+      return null;
+    }
+
+    @Override
+    public RepositoryLocation getLocationFor(FilePath root) {
+      return null;
+    }
+
+    @Override
+    public RepositoryLocation getLocationFor(FilePath root, String repositoryPath) {
+      return null;
+    }
+
+    @Override
+    public VcsCommittedListsZipper getZipper() {
+      return null;
+    }
+
+    @Override
+    public List<CommittedChangeListImpl> getCommittedChanges(ChangeBrowserSettings settings, RepositoryLocation location, int maxCount) {
+      return Collections.emptyList();
+    }
+
+    @Override
+    public void loadCommittedChanges(ChangeBrowserSettings settings, RepositoryLocation location, int maxCount,
+                                     AsynchConsumer<CommittedChangeList> consumer) {
+      consumer.finished();
+    }
+
+    @Override
+    public ChangeListColumn[] getColumns() {
+      return new ChangeListColumn[0];
+    }
+
+    @Override
+    public VcsCommittedViewAuxiliary createActions(DecoratorManager manager, RepositoryLocation location) {
+      return null;
+    }
+
+    @Override
+    public int getUnlimitedCountValue() {
+      return 0;
+    }
+
+    @Override
+    public Pair<CommittedChangeListImpl, FilePath> getOneList(VirtualFile file, VcsRevisionNumber number) {
+      return null;
+    }
+
+    @Override
+    public RepositoryLocation getForNonLocal(VirtualFile file) {
+      return null;
+    }
+
+    @Override
+    public boolean supportsIncomingChanges() {
+      return true;
+    }
+  }
+}
@@ -64,11 +64,13 @@ import git4idea.commands.Git;
 import git4idea.config.*;
 import git4idea.diff.GitDiffProvider;
 import git4idea.diff.GitTreeDiffProvider;
+import git4idea.history.GitFileHistoryIndex;
 import git4idea.history.GitHistoryProvider;
 import git4idea.history.NewGitUsersComponent;
 import git4idea.history.browser.GitHeavyCommit;
 import git4idea.history.browser.GitProjectLogManager;
 import git4idea.history.wholeTree.GitCommitDetailsProvider;
+import git4idea.history.wholeTree.GitCommitGraphStorage;
 import git4idea.history.wholeTree.GitCommitsSequentialIndex;
 import git4idea.history.wholeTree.GitCommitsSequentially;
 import git4idea.i18n.GitBundle;
@@ -379,6 +381,8 @@ public class GitVcs extends AbstractVcs<CommittedChangeList> {
       myBranchWidget = null;
     }
     ((GitCommitsSequentialIndex) ServiceManager.getService(GitCommitsSequentially.class)).deactivate();
+    GitCommitGraphStorage.getInstance().flush();
+    GitFileHistoryIndex.getInstance().flush();
   }
 
   @NotNull
@@ -149,7 +149,7 @@ public class GitLineHandler extends GitTextHandler {
   private void notifyLine(final String line, final Key outputType) {
     String trimmed = LineHandlerHelper.trimLineSeparator(line);
     // if line ends with return, then it is a progress line, ignore it
-    if (myVcs != null && !"\r".equals(line.substring(trimmed.length()))) {
+    if (myVcs != null && !isProgressLine(line, trimmed)) {
       if (outputType == ProcessOutputTypes.STDOUT && !isStdoutSuppressed() && !mySilent && !StringUtil.isEmptyOrSpaces(line)) {
         myVcs.showMessages(trimmed);
         LOG.info(line.trim());
@@ -158,10 +158,14 @@ public class GitLineHandler extends GitTextHandler {
         myVcs.showErrorMessages(trimmed);
         LOG.info(line.trim());
       }
-      else {
+      else if (LOG.isDebugEnabled()) {
         LOG.debug(line.trim());
       }
     }
     myLineListeners.getMulticaster().onLineAvailable(trimmed, outputType);
   }
+
+  private static boolean isProgressLine(final String line, final String trimmed) {
+    return line.length() == trimmed.length() + 1 && line.charAt(trimmed.length()) == '\r';
+  }
 }
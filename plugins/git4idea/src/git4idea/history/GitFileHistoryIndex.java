@@ -0,0 +1,307 @@
+/*
+ * Copyright 2000-2012 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package git4idea.history;
+
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.application.PathManager;
+import com.intellij.openapi.components.ServiceManager;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.Pair;
+import com.intellij.openapi.util.io.FileUtil;
+import com.intellij.openapi.vcs.FilePath;
+import com.intellij.openapi.vcs.changes.FilePathsHelper;
+import com.intellij.util.io.DataExternalizer;
+import com.intellij.util.io.EnumeratorStringDescriptor;
+import com.intellij.util.io.IOUtil;
+import com.intellij.util.io.PersistentHashMap;
+import com.intellij.vcsUtil.VcsUtil;
+import git4idea.GitFileRevision;
+import git4idea.GitRevisionNumber;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * !! application-level
+ *
+ * Persistent index of file histories. For a file path it keeps the revisions which changed the file, including the revisions made before
+ * the file was renamed, and the HEAD commit the history was loaded for. When the history of the file is requested again, git is only asked
+ * for the commits made since that HEAD (see {@link GitHistoryUtils#history(Project, FilePath, com.intellij.openapi.vfs.VirtualFile,
+ * com.intellij.util.Consumer, com.intellij.util.Consumer, String...)}).
+ * <p/>
+ * Only histories of files which were actually requested are stored.
+ */
+public class GitFileHistoryIndex implements Disposable {
+  private static final Logger LOG = Logger.getInstance("#git4idea.history.GitFileHistoryIndex");
+  private static final int VERSION = 1;
+
+  private final Object myLock = new Object();
+  private final File myDir;
+  private PersistentHashMap<String, IndexedHistory> myHistories;
+  private boolean myDisposed;
+
+  public GitFileHistoryIndex() {
+    final File vcsFile = new File(PathManager.getSystemPath(), "vcs");
+    myDir = new File(vcsFile, "git_file_history");
+  }
+
+  public static GitFileHistoryIndex getInstance() {
+    return ServiceManager.getService(GitFileHistoryIndex.class);
+  }
+
+  @Nullable
+  public IndexedHistory get(@NotNull FilePath path) {
+    synchronized (myLock) {
+      final PersistentHashMap<String, IndexedHistory> histories = getHistories();
+      if (histories == null) return null;
+      try {
+        return histories.get(FilePathsHelper.convertPath(path));
+      }
+      catch (IOException e) {
+        handleError(e);
+        return null;
+      }
+    }
+  }
+
+  public void put(@NotNull FilePath path, @NotNull IndexedHistory history) {
+    synchronized (myLock) {
+      final PersistentHashMap<String, IndexedHistory> histories = getHistories();
+      if (histories == null) return;
+      try {
+        histories.put(FilePathsHelper.convertPath(path), history);
+      }
+      catch (IOException e) {
+        handleError(e);
+      }
+    }
+  }
+
+  public void remove(@NotNull FilePath path) {
+    synchronized (myLock) {
+      final PersistentHashMap<String, IndexedHistory> histories = getHistories();
+      if (histories == null) return;
+      try {
+        histories.remove(FilePathsHelper.convertPath(path));
+      }
+      catch (IOException e) {
+        handleError(e);
+      }
+    }
+  }
+
+  @Nullable
+  private PersistentHashMap<String, IndexedHistory> getHistories() {
+    if (myHistories == null && !myDisposed) {
+      final File file = new File(myDir, "histories");
+      final File versionFile = new File(myDir, "version");
+      try {
+        if (!String.valueOf(VERSION).equals(versionFile.exists() ? FileUtil.loadFile(versionFile).trim() : null)) {
+          FileUtil.delete(myDir);
+          FileUtil.writeToFile(versionFile, String.valueOf(VERSION));
+        }
+        myHistories = new PersistentHashMap<String, IndexedHistory>(file, new EnumeratorStringDescriptor(), new HistoryExternalizer());
+      }
+      catch (IOException e) {
+        LOG.info(e);
+        // will be recreated next time
+        FileUtil.delete(myDir);
+      }
+    }
+    return myHistories;
+  }
+
+  private void handleError(IOException e) {
+    LOG.info(e);
+    close();
+    FileUtil.delete(myDir);
+  }
+
+  public void flush() {
+    synchronized (myLock) {
+      if (myHistories != null) {
+        myHistories.force();
+      }
+    }
+  }
+
+  private void close() {
+    if (myHistories != null) {
+      try {
+        myHistories.close();
+      }
+      catch (IOException e) {
+        LOG.info(e);
+      }
+      myHistories = null;
+    }
+  }
+
+  @Override
+  public void dispose() {
+    synchronized (myLock) {
+      close();
+      myDisposed = true;
+    }
+  }
+
+  public static class IndexedHistory {
+    private final String myHead;
+    private final boolean myComplete;
+    private final List<Revision> myRevisions;
+
+    private IndexedHistory(@NotNull String head, boolean complete, @NotNull List<Revision> revisions) {
+      myHead = head;
+      myComplete = complete;
+      myRevisions = revisions;
+    }
+
+    public IndexedHistory(@NotNull String head, boolean complete, @NotNull Iterable<GitFileRevision> revisions) {
+      this(head, complete, new ArrayList<Revision>());
+      for (GitFileRevision revision : revisions) {
+        myRevisions.add(new Revision(revision));
+      }
+    }
+
+    /**
+     * @return the commit which the history was loaded for
+     */
+    @NotNull
+    public String getHead() {
+      return myHead;
+    }
+
+    /**
+     * @return false if the history was loaded with a limit and older revisions might be missing
+     */
+    public boolean isComplete() {
+      return myComplete;
+    }
+
+    public int size() {
+      return myRevisions.size();
+    }
+
+    @NotNull
+    public List<GitFileRevision> getRevisions(@NotNull Project project) {
+      final List<GitFileRevision> result = new ArrayList<GitFileRevision>(myRevisions.size());
+      for (Revision revision : myRevisions) {
+        result.add(revision.toFileRevision(project));
+      }
+      return result;
+    }
+  }
+
+  private static class Revision {
+    private final String myHash;
+    private final long myTime;
+    private final String myPath;
+    @Nullable private final String myAuthor;
+    @Nullable private final String myAuthorEmail;
+    @Nullable private final String myCommitter;
+    @Nullable private final String myCommitterEmail;
+    @Nullable private final String myMessage;
+    private final long myAuthorTime;
+    private final List<String> myParents;
+
+    private Revision(String hash, long time, String path, @Nullable String author, @Nullable String authorEmail, @Nullable String committer,
+                     @Nullable String committerEmail, @Nullable String message, long authorTime, List<String> parents) {
+      myHash = hash;
+      myTime = time;
+      myPath = path;
+      myAuthor = author;
+      myAuthorEmail = authorEmail;
+      myCommitter = committer;
+      myCommitterEmail = committerEmail;
+      myMessage = message;
+      myAuthorTime = authorTime;
+      myParents = parents;
+    }
+
+    private Revision(GitFileRevision revision) {
+      this(revision.getHash(), revision.getRevisionDate().getTime(), revision.getPath().getPath(), revision.getAuthor(),
+           revision.getAuthorEmail(), revision.getCommitterName(), revision.getCommitterEmail(), revision.getCommitMessage(),
+           revision.getDateForRevisionsOrdering() == null ? -1 : revision.getDateForRevisionsOrdering().getTime(),
+           new ArrayList<String>(revision.getParents()));
+    }
+
+    private GitFileRevision toFileRevision(Project project) {
+      final Pair<String, String> author = Pair.create(myAuthor, myAuthorEmail);
+      final Pair<String, String> committer = myCommitter == null ? null : Pair.create(myCommitter, myCommitterEmail);
+      return new GitFileRevision(project, VcsUtil.getFilePathForDeletedFile(myPath, false), new GitRevisionNumber(myHash, new Date(myTime)),
+                                 Pair.create(author, committer), myMessage, null, myAuthorTime == -1 ? null : new Date(myAuthorTime),
+                                 myParents);
+    }
+  }
+
+  private static class HistoryExternalizer implements DataExternalizer<IndexedHistory> {
+    @Override
+    public void save(DataOutput out, IndexedHistory value) throws IOException {
+      out.writeUTF(value.myHead);
+      out.writeBoolean(value.myComplete);
+      out.writeInt(value.myRevisions.size());
+      for (Revision revision : value.myRevisions) {
+        out.writeUTF(revision.myHash);
+        out.writeLong(revision.myTime);
+        IOUtil.writeString(revision.myPath, out);
+        IOUtil.writeString(revision.myAuthor, out);
+        IOUtil.writeString(revision.myAuthorEmail, out);
+        IOUtil.writeString(revision.myCommitter, out);
+        IOUtil.writeString(revision.myCommitterEmail, out);
+        IOUtil.writeString(revision.myMessage, out);
+        out.writeLong(revision.myAuthorTime);
+        out.writeInt(revision.myParents.size());
+        for (String parent : revision.myParents) {
+          out.writeUTF(parent);
+        }
+      }
+    }
+
+    @Override
+    public IndexedHistory read(DataInput in) throws IOException {
+      final String head = in.readUTF();
+      final boolean complete = in.readBoolean();
+      final int size = in.readInt();
+      final List<Revision> revisions = new ArrayList<Revision>(size);
+      for (int i = 0; i < size; i++) {
+        final String hash = in.readUTF();
+        final long time = in.readLong();
+        final String path = IOUtil.readString(in);
+        final String author = IOUtil.readString(in);
+        final String authorEmail = IOUtil.readString(in);
+        final String committer = IOUtil.readString(in);
+        final String committerEmail = IOUtil.readString(in);
+        final String message = IOUtil.readString(in);
+        final long authorTime = in.readLong();
+        final int parentCount = in.readInt();
+        final List<String> parents = new ArrayList<String>(parentCount);
+        for (int j = 0; j < parentCount; j++) {
+          parents.add(in.readUTF());
+        }
+        revisions.add(new Revision(hash, time, path, author, authorEmail, committer, committerEmail, message, authorTime, parents));
+      }
+      return new IndexedHistory(head, complete, revisions);
+    }
+  }
+}
@@ -18,6 +18,7 @@ package git4idea.history;
 import com.intellij.execution.process.ProcessOutputTypes;
 import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.openapi.progress.ProcessCanceledException;
+import com.intellij.openapi.progress.ProgressIndicator;
 import com.intellij.openapi.progress.ProgressManager;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.util.*;
@@ -36,6 +37,7 @@ import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.util.AsynchConsumer;
 import com.intellij.util.Consumer;
 import com.intellij.util.Function;
+import com.intellij.util.ThrowableConsumer;
 import com.intellij.util.concurrency.Semaphore;
 import com.intellij.util.containers.ContainerUtil;
 import git4idea.*;
@@ -48,6 +50,7 @@ import git4idea.history.browser.SymbolicRefs;
 import git4idea.history.browser.SymbolicRefsI;
 import git4idea.history.wholeTree.AbstractHash;
 import git4idea.history.wholeTree.CommitHashPlusParents;
+import git4idea.history.wholeTree.GitCommitGraph;
 import git4idea.history.wholeTree.GitCommitsSequentialIndex;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
@@ -297,7 +300,7 @@ public class GitHistoryUtils {
    * @param exceptionConsumer This consumer is notified in case of error while executing git command.
    * @param parameters        Optional parameters which will be added to the git log command just before the path.
    */
-  public static void history(final Project project, FilePath path, @Nullable VirtualFile root, final Consumer<GitFileRevision> consumer,
+  public static void history(final Project project, FilePath path, @Nullable VirtualFile root, Consumer<GitFileRevision> consumer,
                              final Consumer<VcsException> exceptionConsumer, String... parameters) {
     // adjust path using change manager
     final FilePath filePath = getLastCommitName(project, path);
@@ -309,12 +312,38 @@ public class GitHistoryUtils {
       exceptionConsumer.consume(e);
       return;
     }
-    final GitLogParser logParser = new GitLogParser(project, GitLogParser.NameStatus.STATUS,
-                                                    HASH, COMMIT_TIME, AUTHOR_NAME, AUTHOR_EMAIL, COMMITTER_NAME, COMMITTER_EMAIL, PARENTS,
-                                                    SUBJECT, BODY, RAW_BODY, AUTHOR_TIME);
+    final GitLogParser logParser = createFileHistoryParser(project);
+
+    // the history of a file is taken from the index if possible, otherwise the loaded history is stored there
+    String head = null;
+    final int indexedLimit = getIndexedHistoryLimit(filePath, parameters);
+    final List<GitFileRevision> loadedRevisions = new ArrayList<GitFileRevision>();
+    if (indexedLimit != NOT_INDEXED) {
+      try {
+        final String headHash = getHeadHash(project, finalRoot);
+        if (historyFromIndex(project, finalRoot, filePath, headHash, indexedLimit, consumer)) {
+          return;
+        }
+        final Consumer<GitFileRevision> originalConsumer = consumer;
+        consumer = new Consumer<GitFileRevision>() {
+          @Override
+          public void consume(GitFileRevision revision) {
+            loadedRevisions.add(revision);
+            originalConsumer.consume(revision);
+          }
+        };
+        head = headHash;
+      }
+      catch (VcsException e) {
+        // e.g. there are no commits yet
+        LOG.debug(e);
+      }
+    }
+    final Consumer<GitFileRevision> revisionConsumer = consumer;
+    final AtomicBoolean failed = new AtomicBoolean();
 
     final AtomicReference<String> firstCommit = new AtomicReference<String>("HEAD");
-    final AtomicReference<String> firstCommitParent = new AtomicReference<String>("HEAD");
+    final AtomicReference<String> firstCommitParent = new AtomicReference<String>(head == null ? "HEAD" : head);
     final AtomicReference<FilePath> currentPath = new AtomicReference<FilePath>(filePath);
     final AtomicReference<GitLineHandler> logHandler = new AtomicReference<GitLineHandler>();
     final AtomicBoolean skipFurtherOutput = new AtomicBoolean();
@@ -325,11 +354,11 @@ public class GitHistoryUtils {
           return;
         }
         if (record == null) {
+          failed.set(true);
           exceptionConsumer.consume(new VcsException("revision details are null."));
           return;
         }
         record.setUsedHandler(logHandler.get());
-        final GitRevisionNumber revision = new GitRevisionNumber(record.getHash(), record.getDate());
         firstCommit.set(record.getHash());
         final String[] parentHashes = record.getParentsHashes();
         if (parentHashes == null || parentHashes.length < 1) {
@@ -338,25 +367,9 @@ public class GitHistoryUtils {
         else {
           firstCommitParent.set(parentHashes[0]);
         }
-        final String message = record.getFullMessage();
 
-        FilePath revisionPath;
         try {
-          final List<FilePath> paths = record.getFilePaths(finalRoot);
-          if (paths.size() > 0) {
-            revisionPath = paths.get(0);
-          }
-          else {
-            // no paths are shown for merge commits, so we're using the saved path we're inspecting now
-            revisionPath = currentPath.get();
-          }
-
-          final Pair<String, String> authorPair = Pair.create(record.getAuthorName(), record.getAuthorEmail());
-          final Pair<String, String> committerPair =
-            record.getCommitterName() == null ? null : Pair.create(record.getCommitterName(), record.getCommitterEmail());
-          Collection<String> parents = parentHashes == null ? Collections.<String>emptyList() : Arrays.asList(parentHashes);
-          consumer.consume(new GitFileRevision(project, revisionPath, revision, Pair.create(authorPair, committerPair), message, null,
-                                               new Date(record.getAuthorTimeStamp() * 1000), parents));
+          revisionConsumer.consume(createFileRevision(project, finalRoot, record, currentPath.get()));
           List<GitLogStatusInfo> statusInfos = record.getStatusInfos();
           if (statusInfos.isEmpty()) {
             // can safely be empty, for example, for simple merge commits that don't change anything.
@@ -367,6 +380,7 @@ public class GitHistoryUtils {
           }
         }
         catch (VcsException e) {
+          failed.set(true);
           exceptionConsumer.consume(e);
         }
       }
@@ -402,6 +416,10 @@ public class GitHistoryUtils {
         public void processTerminated(int exitCode) {
           try {
             super.processTerminated(exitCode);
+            if (exitCode != 0) {
+              // the output may be incomplete, so it is passed to the consumer but isn't indexed
+              failed.set(true);
+            }
             final GitLogRecord record = accumulator.processLast();
             if (record != null) {
               resultAdapter.consume(record);
@@ -423,6 +441,10 @@ public class GitHistoryUtils {
       if (criticalFailure.get()) {
         return;
       }
+      final ProgressIndicator indicator = ProgressManager.getInstance().getProgressIndicator();
+      if (indicator != null && indicator.isCanceled()) {
+        failed.set(true);
+      }
 
       try {
         FilePath firstCommitRenamePath;
@@ -437,6 +459,157 @@ public class GitHistoryUtils {
       }
     }
 
+    if (head != null && !failed.get()) {
+      GitFileHistoryIndex.getInstance().put(filePath, new GitFileHistoryIndex.IndexedHistory(head, indexedLimit == 0, loadedRevisions));
+    }
+  }
+
+  private static final int NOT_INDEXED = -1;
+  private static final String MAX_COUNT_PREFIX = "--max-count=";
+
+  /**
+   * @return the maximum number of revisions requested by the parameters (0 for the whole history),
+   *         or {@link #NOT_INDEXED} if the history with these parameters shouldn't be taken from {@link GitFileHistoryIndex}
+   */
+  private static int getIndexedHistoryLimit(FilePath path, String... parameters) {
+    if (path.isDirectory()) {
+      return NOT_INDEXED;
+    }
+    if (parameters == null || parameters.length == 0) {
+      return 0;
+    }
+    if (parameters.length > 1) {
+      return NOT_INDEXED;
+    }
+    if (parameters[0].startsWith(MAX_COUNT_PREFIX)) {
+      try {
+        final int limit = Integer.parseInt(parameters[0].substring(MAX_COUNT_PREFIX.length()));
+        return limit > 0 ? limit : NOT_INDEXED;
+      }
+      catch (NumberFormatException e) {
+        return NOT_INDEXED;
+      }
+    }
+    return NOT_INDEXED;
+  }
+
+  /**
+   * Passes the history of the file to the consumer if it is known to {@link GitFileHistoryIndex}. If some commits were made since the history
+   * was indexed, git is only asked for the history of these commits.
+   *
+   * @return false if the history should be loaded by git; an entry which can't be continued is removed from the index in this case
+   */
+  private static boolean historyFromIndex(Project project, VirtualFile root, FilePath path, String head, int limit,
+                                          Consumer<GitFileRevision> consumer) throws VcsException {
+    final GitFileHistoryIndex index = GitFileHistoryIndex.getInstance();
+    GitFileHistoryIndex.IndexedHistory indexed = index.get(path);
+    if (indexed == null || !indexed.isComplete() && (limit == 0 || indexed.size() < limit)) {
+      return false;
+    }
+
+    List<GitFileRevision> revisions = indexed.getRevisions(project);
+    if (!head.equals(indexed.getHead())) {
+      List<GitFileRevision> newRevisions;
+      try {
+        newRevisions = loadHistorySince(project, root, path, indexed.getHead(), head);
+      }
+      catch (VcsException e) {
+        // e.g. the indexed head was removed by 'git gc' after a rebase
+        LOG.info("Can't continue the indexed history of " + path.getPath(), e);
+        newRevisions = null;
+      }
+      if (newRevisions == null) {
+        index.remove(path);
+        return false;
+      }
+      final Set<String> newHashes = new HashSet<String>();
+      for (GitFileRevision revision : newRevisions) {
+        newHashes.add(revision.getHash());
+      }
+      for (GitFileRevision revision : revisions) {
+        if (!newHashes.contains(revision.getHash())) {
+          newRevisions.add(revision);
+        }
+      }
+      revisions = newRevisions;
+      index.put(path, new GitFileHistoryIndex.IndexedHistory(head, indexed.isComplete(), revisions));
+    }
+
+    for (int i = 0; i < revisions.size() && (limit == 0 || i < limit); i++) {
+      consumer.consume(revisions.get(i));
+    }
+    return true;
+  }
+
+  /**
+   * @return revisions of the file made after the <code>since</code> commit up to the <code>head</code> commit, or null if the indexed
+   *         history can't be continued: <code>since</code> isn't an ancestor of <code>head</code> any longer (e.g. after a reset or rebase)
+   *         or the file was added again or renamed to this path
+   */
+  @Nullable
+  private static List<GitFileRevision> loadHistorySince(Project project, VirtualFile root, FilePath path, String since, String head)
+    throws VcsException {
+    final GitSimpleHandler check = new GitSimpleHandler(project, root, GitCommand.REV_LIST);
+    check.setSilent(true);
+    check.setStdoutSuppressed(true);
+    check.addParameters("--max-count=1", head + ".." + since);
+    check.endOptions();
+    if (check.run().trim().length() > 0) {
+      return null;
+    }
+
+    final GitSimpleHandler h = new GitSimpleHandler(project, root, GitCommand.LOG);
+    final GitLogParser parser = createFileHistoryParser(project);
+    h.setSilent(true);
+    h.setStdoutSuppressed(true);
+    h.addParameters("--name-status", parser.getPretty(), "--encoding=UTF-8", since + ".." + head);
+    h.endOptions();
+    h.addRelativePaths(path);
+    final List<GitFileRevision> result = new ArrayList<GitFileRevision>();
+    for (GitLogRecord record : parser.parse(h.run())) {
+      record.setUsedHandler(h);
+      final List<GitLogStatusInfo> statusInfos = record.getStatusInfos();
+      if (!statusInfos.isEmpty() && statusInfos.get(0).getType() == GitChangeType.ADDED) {
+        return null;
+      }
+      result.add(createFileRevision(project, root, record, path));
+    }
+    return result;
+  }
+
+  private static String getHeadHash(Project project, VirtualFile root) throws VcsException {
+    final GitSimpleHandler h = new GitSimpleHandler(project, root, GitCommand.REV_PARSE);
+    h.setSilent(true);
+    h.setStdoutSuppressed(true);
+    h.addParameters("HEAD");
+    h.endOptions();
+    final String hash = h.run().trim();
+    if (hash.length() == 0) {
+      throw new VcsException("Can't resolve HEAD in " + root.getPath());
+    }
+    return hash;
+  }
+
+  private static GitLogParser createFileHistoryParser(Project project) {
+    return new GitLogParser(project, GitLogParser.NameStatus.STATUS,
+                            HASH, COMMIT_TIME, AUTHOR_NAME, AUTHOR_EMAIL, COMMITTER_NAME, COMMITTER_EMAIL, PARENTS,
+                            SUBJECT, BODY, RAW_BODY, AUTHOR_TIME);
+  }
+
+  private static GitFileRevision createFileRevision(Project project, VirtualFile root, GitLogRecord record, FilePath currentPath)
+    throws VcsException {
+    final GitRevisionNumber revision = new GitRevisionNumber(record.getHash(), record.getDate());
+    final String[] parentHashes = record.getParentsHashes();
+    final List<FilePath> paths = record.getFilePaths(root);
+    // no paths are shown for merge commits, so we're using the saved path we're inspecting now
+    final FilePath revisionPath = paths.size() > 0 ? paths.get(0) : currentPath;
+
+    final Pair<String, String> authorPair = Pair.create(record.getAuthorName(), record.getAuthorEmail());
+    final Pair<String, String> committerPair =
+      record.getCommitterName() == null ? null : Pair.create(record.getCommitterName(), record.getCommitterEmail());
+    Collection<String> parents = parentHashes == null ? Collections.<String>emptyList() : Arrays.asList(parentHashes);
+    return new GitFileRevision(project, revisionPath, revision, Pair.create(authorPair, committerPair), record.getFullMessage(), null,
+                               new Date(record.getAuthorTimeStamp() * 1000), parents);
   }
 
   private static GitLineHandler getLogHandler(Project project, VirtualFile root, GitLogParser parser, FilePath path, String lastCommit, String... parameters) {
@@ -946,6 +1119,86 @@ public class GitHistoryUtils {
     consumer.finished();
   }
 
+  /**
+   * @return full hashes of commits which HEAD, local and remote branches and tags point to
+   */
+  @NotNull
+  public static List<String> headHashes(@NotNull Project project, @NotNull VirtualFile root) throws VcsException {
+    GitSimpleHandler h = new GitSimpleHandler(project, root, GitCommand.LOG);
+    h.setSilent(true);
+    h.setStdoutSuppressed(true);
+    h.addParameters("--no-walk", "--pretty=format:%H", "HEAD", "--branches", "--remotes", "--tags");
+    h.endOptions();
+    final String output = h.run();
+
+    final List<String> result = new ArrayList<String>();
+    for (String line : StringUtil.splitByLines(output)) {
+      final String hash = line.trim();
+      if (hash.length() > 0) {
+        result.add(hash);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Streams 'git log' output for {@link git4idea.history.wholeTree.GitCommitGraph}: unlike {@link #hashesWithParents} parents are reported
+   * with full hashes.
+   */
+  public static void loadCommitGraph(@NotNull Project project, @NotNull VirtualFile root,
+                                     @NotNull final ThrowableConsumer<GitCommitGraph.LogRecord, IOException> consumer,
+                                     final String... parameters) throws VcsException {
+    final GitLineHandler h = new GitLineHandler(project, root, GitCommand.LOG);
+    final GitLogParser parser = new GitLogParser(project, HASH, SHORT_HASH, COMMIT_TIME, AUTHOR_NAME, PARENTS);
+    h.setSilent(true);
+    h.setStdoutSuppressed(true);
+    h.addParameters(parameters);
+    h.addParameters(parser.getPretty(), "--encoding=UTF-8");
+    h.endOptions();
+
+    final Semaphore semaphore = new Semaphore();
+    final VcsException[] exception = new VcsException[1];
+    h.addLineListener(new GitLineHandlerListener() {
+      @Override
+      public void onLineAvailable(final String line, final Key outputType) {
+        if (!ProcessOutputTypes.STDOUT.equals(outputType) || line.length() == 0 || exception[0] != null) return;
+        try {
+          final GitLogRecord record = parser.parseOneRecord(line);
+          if (record == null) return;
+          consumer.consume(new GitCommitGraph.LogRecord(record.getHash(), record.getShortHash(), record.getLongTimeStamp() * 1000,
+                                                        record.getAuthorName(), record.getParentsHashes()));
+        }
+        catch (IOException e) {
+          exception[0] = new VcsException(e);
+          h.cancel();
+        }
+        catch (ProcessCanceledException e) {
+          exception[0] = new VcsException("Loading of the commit graph was canceled");
+          h.cancel();
+        }
+      }
+
+      @Override
+      public void processTerminated(int exitCode) {
+        semaphore.up();
+      }
+
+      @Override
+      public void startFailed(Throwable exception) {
+        semaphore.up();
+      }
+    });
+    semaphore.down();
+    h.start();
+    semaphore.waitFor();
+    if (exception[0] != null) {
+      throw exception[0];
+    }
+    if (!h.errors().isEmpty()) {
+      throw h.errors().get(0);
+    }
+  }
+
   /**
    * Get name of the file in the last commit. If file was renamed, returns the previous name.
    *
@@ -25,11 +25,9 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.EnumMap;
 import java.util.List;
 import java.util.Map;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 /**
  * <p>Parses the 'git log' output basing on the given number of options.
@@ -83,17 +81,13 @@ class GitLogParser {
    * Example:
    * 2c815939f45fbcfda9583f84b14fe9d393ada790<ITEM_SEPARATOR>sample commit<RECORD_END>
    * D       a.txt
+   *
+   * The output of 'git log' over a large history may be huge, so records are parsed in place, without splitting the output into
+   * intermediate strings and without regular expressions: only the values which get into GitLogRecord are copied.
    */
-  private static final Pattern ONE_RECORD = Pattern.compile(RECORD_START + "?(.*)" + RECORD_END + "\n*(.*)", Pattern.DOTALL);
-  private static final String SINGLE_PATH = "([^\t\r\n]+)"; // something not empty, not a tab or newline.
-  private static final String EOL = "\\s*(?:\r|\n|\r\n)";
-  private static final String PATHS =
-    SINGLE_PATH +                    // First path - required.
-    "(?:\t" + SINGLE_PATH + ")?" +   // Second path - optional. Paths are separated by tab.
-    "(?:" + EOL + ")?";                             // Path(s) information ends with a line terminator (possibly except the last path in the output).
-
-  private static Pattern NAME_ONLY = Pattern.compile(PATHS);
-  private static Pattern NAME_STATUS = Pattern.compile("([\\S]+)\t" + PATHS);
+  private static final char RECORD_START_CHAR = '\u0001';
+  private static final char ITEMS_SEPARATOR_CHAR = '\u0002';
+  private static final char RECORD_END_CHAR = '\u0003';
 
   // --name-only, --name-status or no flag
   enum NameStatus {
@@ -166,12 +160,19 @@ class GitLogParser {
     // ^b71477e9738168aa67a8d41c414f284255f81e8a#moved out$
     //
     // R100    dir/anew.txt    anew.txt
-    final String[] records = output.split(RECORD_START); // split by START, because END is the end of information, but not the end of the record: file status and path follow.
-    final List<GitLogRecord> res = new ArrayList<GitLogRecord>(records.length);
-    for (String record : records) {
-      if (!record.trim().isEmpty()) {  // record[0] is empty for sure, because we're splitting on RECORD_START. Just to play safe adding the check for all records.
-        res.add(parseOneRecord(record));
+    final List<GitLogRecord> res = new ArrayList<GitLogRecord>();
+    int recordStart = 0;
+    while (recordStart <= output.length()) {
+      // split by START, because END is the end of information, but not the end of the record: file status and path follow.
+      int recordEnd = output.indexOf(RECORD_START_CHAR, recordStart);
+      if (recordEnd < 0) {
+        recordEnd = output.length();
+      }
+      // the part before the first START is empty for sure. Just to play safe adding the check for all records.
+      if (!isBlank(output, recordStart, recordEnd)) {
+        res.add(parseRecord(output, recordStart, recordEnd));
       }
+      recordStart = recordEnd + 1;
     }
     return res;
   }
@@ -188,79 +189,119 @@ class GitLogParser {
     if (line.isEmpty()) {
       return null;
     }
-    Matcher matcher = ONE_RECORD.matcher(line);
-    if (!matcher.matches()) {
-      throwGFE("ONE_RECORD didn't match", line);
-    }
-    String commitInfo = matcher.group(1);
-    if (commitInfo == null) {
-      throwGFE("No match for group#1 in", line);
+    return parseRecord(line, line.charAt(0) == RECORD_START_CHAR ? 1 : 0, line.length());
+  }
+
+  @NotNull
+  private GitLogRecord parseRecord(@NotNull String output, int start, int end) {
+    int infoEnd = output.lastIndexOf(RECORD_END_CHAR, end - 1);
+    if (infoEnd < start) {
+      throwGFE("No record end in", output.substring(start, end));
     }
 
-    final Map<GitLogOption, String> res = parseCommitInfo(commitInfo);
+    final Map<GitLogOption, String> res = parseCommitInfo(output, start, infoEnd);
 
     // parsing status and path (if given)
     final List<String> paths = new ArrayList<String>(1);
     final List<GitLogStatusInfo> statuses = new ArrayList<GitLogStatusInfo>();
 
     if (myNameStatusOption != NameStatus.NONE) {
-      String pathsAndStatuses = matcher.group(2);
-      if (pathsAndStatuses == null) {
-        throwGFE("No match for group#2 in", line);
-      }
-
-      if (myNameStatusOption == NameStatus.NAME) {
-        Matcher pathsMatcher = NAME_ONLY.matcher(pathsAndStatuses);
-        while (pathsMatcher.find()) {
-          String path1 = pathsMatcher.group(1);
-          String path2 = pathsMatcher.group(2);
-          assertNotNull(path1, "path", pathsAndStatuses);
-          paths.add(path1);
-          if (path2 != null) { // null is perfectly legal here: second path is given only in case of rename
-            paths.add(path2);
-          }
+      int lineStart = infoEnd + 1;
+      while (lineStart < end) {
+        int lineEnd = lineStart;
+        while (lineEnd < end && output.charAt(lineEnd) != '\n' && output.charAt(lineEnd) != '\r') {
+          lineEnd++;
         }
-      }
-      else {
-        Matcher nameStatusMatcher = NAME_STATUS.matcher(pathsAndStatuses);
-        while (nameStatusMatcher.find()) {
-          String status = nameStatusMatcher.group(1);
-          String path1 = nameStatusMatcher.group(2);
-          String path2 = nameStatusMatcher.group(3);
-          assertNotNull(status, "status", pathsAndStatuses);
-          assertNotNull(path1, "path1", pathsAndStatuses);
-          paths.add(path1);
-          if (path2 != null) {
-            paths.add(path2);
-          }
-          statuses.add(new GitLogStatusInfo(GitChangeType.fromString(status), path1, path2));
+        if (myNameStatusOption == NameStatus.NAME) {
+          parseNames(output, lineStart, lineEnd, paths);
+        }
+        else {
+          parseNameStatus(output, lineStart, lineEnd, paths, statuses);
         }
+        lineStart = lineEnd + 1;
       }
     }
     return new GitLogRecord(res, paths, statuses, mySupportsRawBody);
   }
 
+  /**
+   * Paths are separated by tab (the second path is given only in case of rename).
+   */
+  private static void parseNames(@NotNull String output, int lineStart, int lineEnd, @NotNull List<String> paths) {
+    int pathStart = lineStart;
+    while (pathStart < lineEnd) {
+      int pathEnd = indexOf(output, '\t', pathStart, lineEnd);
+      if (!isBlank(output, pathStart, pathEnd)) {
+        paths.add(output.substring(pathStart, pathEnd));
+      }
+      pathStart = pathEnd + 1;
+    }
+  }
+
+  /**
+   * Status and paths are separated by tab, the second path is given only in case of rename, e.g. "R100\tdir/anew.txt\tanew.txt".
+   * Lines which don't contain a status and a path are ignored.
+   */
+  private static void parseNameStatus(@NotNull String output, int lineStart, int lineEnd,
+                                      @NotNull List<String> paths, @NotNull List<GitLogStatusInfo> statuses) {
+    int statusEnd = indexOf(output, '\t', lineStart, lineEnd);
+    int statusStart = statusEnd;
+    while (statusStart > lineStart && !Character.isWhitespace(output.charAt(statusStart - 1))) {
+      statusStart--;
+    }
+    int path1End = indexOf(output, '\t', statusEnd + 1, lineEnd);
+    if (statusEnd == lineEnd || statusStart == statusEnd || path1End == statusEnd + 1) {
+      return;
+    }
+    int path2End = indexOf(output, '\t', path1End + 1, lineEnd);
+
+    String status = output.substring(statusStart, statusEnd);
+    String path1 = output.substring(statusEnd + 1, path1End);
+    String path2 = path2End > path1End + 1 ? output.substring(path1End + 1, path2End) : null;
+    paths.add(path1);
+    if (path2 != null) {
+      paths.add(path2);
+    }
+    statuses.add(new GitLogStatusInfo(GitChangeType.fromString(status), path1, path2));
+  }
 
   @NotNull
-  private Map<GitLogOption, String> parseCommitInfo(@NotNull String commitInfo) {
+  private Map<GitLogOption, String> parseCommitInfo(@NotNull String output, int start, int end) {
     // parsing revision information
     // we rely on the order of options
-    final String[] values = commitInfo.split(ITEMS_SEPARATOR);
-    final Map<GitLogOption, String> res = new HashMap<GitLogOption, String>(values.length);
-    int i = 0;
-    for (; i < values.length && i < myOptions.length; i++) {  // fill valid values
-      res.put(myOptions[i], values[i]);
-    }
-    for (; i < myOptions.length; i++) {  // options which were not returned are set to blank string, extra options are ignored.
-      res.put(myOptions[i], "");
+    final Map<GitLogOption, String> res = new EnumMap<GitLogOption, String>(GitLogOption.class);
+    int itemStart = start;
+    for (GitLogOption option : myOptions) {
+      if (itemStart > end) {  // options which were not returned are set to blank string, extra options are ignored.
+        res.put(option, "");
+        continue;
+      }
+      int itemEnd = indexOf(output, ITEMS_SEPARATOR_CHAR, itemStart, end);
+      res.put(option, output.substring(itemStart, itemEnd));
+      itemStart = itemEnd + 1;
     }
     return res;
   }
 
-  private static void assertNotNull(String value, String valueName, String line) {
-    if (value == null) {
-      throwGFE("Unexpectedly null " + valueName + " in ", line);
+  /**
+   * @return index of the first occurrence of the character in [start, end), or end if there is none
+   */
+  private static int indexOf(@NotNull String s, char c, int start, int end) {
+    for (int i = start; i < end; i++) {
+      if (s.charAt(i) == c) {
+        return i;
+      }
+    }
+    return end;
+  }
+
+  private static boolean isBlank(@NotNull String s, int start, int end) {
+    for (int i = start; i < end; i++) {
+      if (s.charAt(i) > ' ') {
+        return false;
+      }
     }
+    return true;
   }
 
   private static void throwGFE(String message, String line) {
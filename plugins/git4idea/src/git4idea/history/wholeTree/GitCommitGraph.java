@@ -0,0 +1,700 @@
+/*
+ * Copyright 2000-2012 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package git4idea.history.wholeTree;
+
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.io.FileUtil;
+import com.intellij.openapi.vcs.VcsException;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.util.ArrayUtil;
+import com.intellij.util.ThrowableConsumer;
+import com.intellij.util.containers.SLRUMap;
+import com.intellij.util.io.EnumeratorIntegerDescriptor;
+import com.intellij.util.io.EnumeratorStringDescriptor;
+import com.intellij.util.io.PersistentHashMap;
+import com.intellij.util.io.PersistentStringEnumerator;
+import git4idea.history.GitHistoryUtils;
+import gnu.trove.TIntArrayList;
+import gnu.trove.TLongArrayList;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.*;
+import java.util.*;
+
+/**
+ * Persistent commit graph of one git root.
+ * <p/>
+ * Commits are numbered in the order they were added to the graph. Parents are always added before their children, so the numbering is
+ * a topological order of the graph; the order in which commits are shown is calculated from the parent links, see {@link #getCommits}.
+ * Hashes are mapped to numbers by a persistent map; commit times and parent numbers are kept in memory in primitive arrays, while hashes
+ * and author names are read from disk by pages and only the recently used pages are kept.
+ * <p/>
+ * {@link #refresh(Project, VirtualFile)} asks git only for commits which are not reachable from the heads already known to the graph.
+ *
+ * @see GitCommitGraphStorage
+ */
+public class GitCommitGraph {
+  private static final Logger LOG = Logger.getInstance("#git4idea.history.wholeTree.GitCommitGraph");
+  private static final int VERSION = 1;
+  private static final int HASH_SIZE = 20;
+  // hash, length of the abbreviated hash, author id
+  private static final int RECORD_SIZE = HASH_SIZE + 1 + 4;
+  private static final int PAGE_SIZE = 1024;
+  // heads passed to git as already loaded; other loaded commits are just skipped if git reports them once more
+  private static final int MAX_EXCLUDED_HEADS = 500;
+
+  private final Object myLock = new Object();
+  private final File myDir;
+  private final File myCommitsFile;
+  private final File myGraphFile;
+  private final File myStateFile;
+  // exists while commits are appended, so hash mappings left by an interrupted update are removed on the next start
+  private final File myUpdateMarker;
+  private PersistentHashMap<String, Integer> myHashIndex;
+  private PersistentStringEnumerator myAuthors;
+  private boolean myClosed;
+
+  private int myCount;
+  private final TLongArrayList myTimes = new TLongArrayList();
+  // parents of commit i are myParents[myParentsStart[i]..myParentsStart[i + 1])
+  private final TIntArrayList myParentsStart = new TIntArrayList();
+  private final TIntArrayList myParents = new TIntArrayList();
+  private int[] myHeads = ArrayUtil.EMPTY_INT_ARRAY;
+  // numbers of commits reachable from the heads in the order they are shown; recalculated after refresh
+  private int[] myTopoOrder;
+  private int[] myDateOrder;
+  private final SLRUMap<Integer, byte[]> myPages = new SLRUMap<Integer, byte[]>(8, 8);
+  // newer commits first, commits with the same time are ordered from the last added one
+  private final Comparator<Integer> myTimeComparator = new Comparator<Integer>() {
+    @Override
+    public int compare(Integer o1, Integer o2) {
+      final long time1 = myTimes.get(o1);
+      final long time2 = myTimes.get(o2);
+      if (time1 != time2) {
+        return time1 > time2 ? -1 : 1;
+      }
+      return o2 - o1;
+    }
+  };
+
+  GitCommitGraph(@NotNull File dir) throws IOException {
+    myDir = dir;
+    myCommitsFile = new File(dir, "commits");
+    myGraphFile = new File(dir, "graph");
+    myStateFile = new File(dir, "state");
+    myUpdateMarker = new File(dir, "updating");
+    try {
+      open();
+    }
+    catch (IOException e) {
+      LOG.info("Commit graph in " + dir.getPath() + " will be rebuilt: " + e.getMessage());
+      closeStorages();
+      FileUtil.delete(dir);
+      open();
+    }
+  }
+
+  private void open() throws IOException {
+    resetInMemory();
+    FileUtil.createDirectory(myDir);
+    myHashIndex = new PersistentHashMap<String, Integer>(new File(myDir, "hashes"), new EnumeratorStringDescriptor(),
+                                                         EnumeratorIntegerDescriptor.INSTANCE);
+    myAuthors = new PersistentStringEnumerator(new File(myDir, "authors"));
+    readState();
+  }
+
+  private void resetInMemory() {
+    myCount = 0;
+    myTimes.clear();
+    myParentsStart.clear();
+    myParentsStart.add(0);
+    myParents.clear();
+    myHeads = ArrayUtil.EMPTY_INT_ARRAY;
+    myTopoOrder = null;
+    myDateOrder = null;
+    myPages.clear();
+  }
+
+  /**
+   * Reads the number of commits and the heads written by the last successful update and the part of the graph with these commits.
+   * Data appended by an interrupted update is cut off, and hashes of the cut off commits are removed from the hash index: otherwise they
+   * would point to commits appended later with the same numbers.
+   */
+  private void readState() throws IOException {
+    int count = 0;
+    int[] heads = ArrayUtil.EMPTY_INT_ARRAY;
+    if (myStateFile.exists()) {
+      final DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(myStateFile)));
+      try {
+        if (input.readInt() != VERSION) {
+          throw new IOException("Version mismatch");
+        }
+        count = input.readInt();
+        heads = new int[input.readInt()];
+        for (int i = 0; i < heads.length; i++) {
+          heads[i] = input.readInt();
+        }
+      }
+      finally {
+        input.close();
+      }
+    }
+
+    long graphLength = 0;
+    if (count > 0) {
+      final DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(myGraphFile)));
+      try {
+        for (int i = 0; i < count; i++) {
+          myTimes.add(input.readLong());
+          final int parentCount = input.readInt();
+          for (int j = 0; j < parentCount; j++) {
+            myParents.add(input.readInt());
+          }
+          myParentsStart.add(myParents.size());
+          graphLength += 12 + 4 * parentCount;
+        }
+      }
+      finally {
+        input.close();
+      }
+    }
+    boolean truncated = truncate(myGraphFile, graphLength);
+    truncated |= truncate(myCommitsFile, (long)count * RECORD_SIZE);
+    myCount = count;
+    for (int head : heads) {
+      if (head < 0 || head >= count) {
+        throw new IOException("Invalid head: " + head);
+      }
+    }
+    myHeads = heads;
+    if (truncated || myUpdateMarker.exists()) {
+      removeStaleHashes();
+    }
+  }
+
+  private void removeStaleHashes() throws IOException {
+    int removed = 0;
+    for (String hash : myHashIndex.getAllKeysWithExistingMapping()) {
+      final Integer index = myHashIndex.get(hash);
+      if (index != null && index >= myCount) {
+        myHashIndex.remove(hash);
+        removed++;
+      }
+    }
+    myHashIndex.force();
+    FileUtil.delete(myUpdateMarker);
+    LOG.info("Commit graph in " + myDir.getPath() + " was not updated completely, " + removed + " hashes removed");
+  }
+
+  /**
+   * @return true if the file was longer than <code>length</code>
+   */
+  private static boolean truncate(File file, long length) throws IOException {
+    final RandomAccessFile raf = new RandomAccessFile(file, "rw");
+    try {
+      final long fileLength = raf.length();
+      if (fileLength < length) {
+        throw new IOException(file.getName() + " is too short");
+      }
+      raf.setLength(length);
+      return fileLength > length;
+    }
+    finally {
+      raf.close();
+    }
+  }
+
+  private void writeState() throws IOException {
+    final File tempFile = new File(myDir, myStateFile.getName() + ".tmp");
+    final DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)));
+    try {
+      output.writeInt(VERSION);
+      output.writeInt(myCount);
+      output.writeInt(myHeads.length);
+      for (int head : myHeads) {
+        output.writeInt(head);
+      }
+    }
+    finally {
+      output.close();
+    }
+    FileUtil.rename(tempFile, myStateFile);
+  }
+
+  /**
+   * Appends commits that appeared in the repository since the previous refresh and remembers the current heads.
+   */
+  public void refresh(@NotNull final Project project, @NotNull final VirtualFile root) throws VcsException {
+    refresh(new GitCommitLoader(project, root));
+  }
+
+  void refresh(@NotNull CommitLoader loader) throws VcsException {
+    synchronized (myLock) {
+      checkNotClosed();
+      final List<String> heads = loader.loadHeads();
+      try {
+        final Set<String> excluded = new LinkedHashSet<String>();
+        final List<String> newHeads = new ArrayList<String>();
+        for (String head : heads) {
+          if (getIndex(head) >= 0) {
+            excluded.add(head);
+          }
+          else {
+            newHeads.add(head);
+          }
+        }
+        if (!newHeads.isEmpty()) {
+          // the previous heads save walking the loaded history again when the branches moved,
+          // but the commits of a deleted branch may be gone from the repository after gc
+          final Set<String> withPreviousHeads = new LinkedHashSet<String>(excluded);
+          for (int head : myHeads) {
+            withPreviousHeads.add(getHash(head));
+          }
+          if (withPreviousHeads.size() == excluded.size()) {
+            append(loader, newHeads, limitExcluded(excluded));
+          }
+          else {
+            try {
+              append(loader, newHeads, limitExcluded(withPreviousHeads));
+            }
+            catch (VcsException e) {
+              LOG.info("Couldn't load commits excluding the previous heads, retrying with the current ones only", e);
+              append(loader, newHeads, limitExcluded(excluded));
+            }
+          }
+        }
+
+        final TIntArrayList headIndices = new TIntArrayList(heads.size());
+        for (String head : heads) {
+          final int index = getIndex(head);
+          if (index >= 0 && !headIndices.contains(index)) {
+            headIndices.add(index);
+          }
+        }
+        myHeads = headIndices.toNativeArray();
+        writeState();
+        myTopoOrder = null;
+        myDateOrder = null;
+      }
+      catch (IOException e) {
+        LOG.info(e);
+        clear();
+        throw new VcsException(e);
+      }
+    }
+  }
+
+  @NotNull
+  private static Collection<String> limitExcluded(@NotNull Set<String> excluded) {
+    return excluded.size() > MAX_EXCLUDED_HEADS ? new ArrayList<String>(excluded).subList(0, MAX_EXCLUDED_HEADS) : excluded;
+  }
+
+  private void append(@NotNull CommitLoader loader, @NotNull List<String> heads, @NotNull Collection<String> excluded)
+    throws IOException, VcsException {
+    FileUtil.writeToFile(myUpdateMarker, ArrayUtil.EMPTY_BYTE_ARRAY);
+    final DataOutputStream commits = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(myCommitsFile, true)));
+    final DataOutputStream graph;
+    try {
+      graph = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(myGraphFile, true)));
+    }
+    catch (IOException e) {
+      commits.close();
+      throw e;
+    }
+    final int previousCount = myCount;
+    try {
+      loader.loadCommits(heads, excluded, new ThrowableConsumer<LogRecord, IOException>() {
+        @Override
+        public void consume(LogRecord record) throws IOException {
+          if (getIndex(record.myHash) >= 0) {
+            // reachable from both a new head and an already loaded one
+            return;
+          }
+          final TIntArrayList parents = new TIntArrayList(record.myParents.length);
+          for (String parent : record.myParents) {
+            final int parentIndex = getIndex(parent);
+            // parents of the oldest commits of a shallow clone are unknown
+            if (parentIndex >= 0) {
+              parents.add(parentIndex);
+            }
+          }
+          commits.write(hashToBytes(record.myHash));
+          commits.writeByte(record.myShortHash.length());
+          commits.writeInt(myAuthors.enumerate(record.myAuthor));
+          graph.writeLong(record.myTime);
+          graph.writeInt(parents.size());
+          for (int i = 0; i < parents.size(); i++) {
+            graph.writeInt(parents.get(i));
+          }
+
+          myHashIndex.put(record.myHash, myCount);
+          myTimes.add(record.myTime);
+          myParents.add(parents.toNativeArray());
+          myParentsStart.add(myParents.size());
+          myCount++;
+        }
+      });
+    }
+    finally {
+      try {
+        commits.close();
+      }
+      finally {
+        graph.close();
+      }
+      // commits are appended in topological order, so the part written before a failure is still a valid graph
+      myHashIndex.force();
+      myAuthors.force();
+      writeState();
+      FileUtil.delete(myUpdateMarker);
+      myPages.clear();
+      LOG.debug("Commit graph in " + myDir.getPath() + ": " + (myCount - previousCount) + " commits appended");
+    }
+  }
+
+  private void clear() {
+    closeStorages();
+    FileUtil.delete(myDir);
+    try {
+      open();
+    }
+    catch (IOException e) {
+      LOG.info(e);
+      myClosed = true;
+    }
+  }
+
+  private int getIndex(@NotNull String hash) throws IOException {
+    final Integer index = myHashIndex.get(hash);
+    // the mapping may be left by an interrupted update
+    return index != null && index < myCount ? index : -1;
+  }
+
+  /**
+   * Returns commits reachable from the heads known after the last refresh. In both orders a commit is shown after all its children.
+   * In topological order commits of one line of history are shown together: after a merge commit its merged branch is shown until the
+   * fork point, like <code>git log --topo-order</code> does. In date order newer commits go first, like <code>git log --date-order</code>.
+   *
+   * @return up to <code>count</code> commits starting with the commit at <code>position</code> in the requested order
+   */
+  @NotNull
+  public List<CommitHashPlusParents> getCommits(final boolean topoOrder, final int position, final int count) throws VcsException {
+    synchronized (myLock) {
+      checkNotClosed();
+      final int[] order = getOrder(topoOrder);
+      final int end = Math.min(order.length, position + count);
+      final List<CommitHashPlusParents> result = new ArrayList<CommitHashPlusParents>(Math.max(0, end - position));
+      try {
+        for (int i = position; i < end; i++) {
+          final int index = order[i];
+          final int parentsStart = myParentsStart.get(index);
+          final String[] parents = new String[myParentsStart.get(index + 1) - parentsStart];
+          for (int j = 0; j < parents.length; j++) {
+            parents[j] = getShortHash(myParents.get(parentsStart + j));
+          }
+          result.add(new CommitHashPlusParents(getShortHash(index), parents, myTimes.get(index), getAuthor(index)));
+        }
+      }
+      catch (IOException e) {
+        LOG.info(e);
+        clear();
+        throw new VcsException(e);
+      }
+      return result;
+    }
+  }
+
+  private void checkNotClosed() throws VcsException {
+    if (myClosed) {
+      throw new VcsException("Commit graph in " + myDir.getPath() + " is closed");
+    }
+  }
+
+  private int[] getOrder(boolean topoOrder) {
+    if (topoOrder) {
+      if (myTopoOrder == null) {
+        myTopoOrder = calculateTopoOrder(getReachable());
+      }
+      return myTopoOrder;
+    }
+    if (myDateOrder == null) {
+      myDateOrder = calculateDateOrder(getReachable());
+    }
+    return myDateOrder;
+  }
+
+  private BitSet getReachable() {
+    final BitSet reachable = new BitSet(myCount);
+    final TIntArrayList stack = new TIntArrayList();
+    for (int head : myHeads) {
+      stack.add(head);
+    }
+    while (!stack.isEmpty()) {
+      final int index = stack.remove(stack.size() - 1);
+      if (reachable.get(index)) continue;
+      reachable.set(index);
+      for (int i = myParentsStart.get(index); i < myParentsStart.get(index + 1); i++) {
+        stack.add(myParents.get(i));
+      }
+    }
+    return reachable;
+  }
+
+  /**
+   * A commit is shown after all its children; the commit which became ready last is shown first, so a line of history is shown until
+   * it meets another one. Heads are started from the newest one.
+   */
+  private int[] calculateTopoOrder(BitSet reachable) {
+    final int[] children = countChildren(reachable);
+    final TIntArrayList heads = new TIntArrayList();
+    for (int index = reachable.nextSetBit(0); index >= 0; index = reachable.nextSetBit(index + 1)) {
+      if (children[index] == 0) {
+        heads.add(index);
+      }
+    }
+    final int[] sortedHeads = heads.toNativeArray();
+    sortByTime(sortedHeads);
+
+    final TIntArrayList stack = new TIntArrayList();
+    for (int i = sortedHeads.length - 1; i >= 0; i--) {
+      stack.add(sortedHeads[i]);
+    }
+    final int[] order = new int[reachable.cardinality()];
+    int position = 0;
+    while (!stack.isEmpty()) {
+      final int index = stack.remove(stack.size() - 1);
+      order[position++] = index;
+      for (int i = myParentsStart.get(index); i < myParentsStart.get(index + 1); i++) {
+        final int parent = myParents.get(i);
+        if (--children[parent] == 0) {
+          stack.add(parent);
+        }
+      }
+    }
+    return order;
+  }
+
+  private int[] countChildren(BitSet reachable) {
+    final int[] children = new int[myCount];
+    for (int index = reachable.nextSetBit(0); index >= 0; index = reachable.nextSetBit(index + 1)) {
+      for (int i = myParentsStart.get(index); i < myParentsStart.get(index + 1); i++) {
+        children[myParents.get(i)]++;
+      }
+    }
+    return children;
+  }
+
+  private void sortByTime(int[] indices) {
+    final Integer[] boxed = new Integer[indices.length];
+    for (int i = 0; i < indices.length; i++) {
+      boxed[i] = indices[i];
+    }
+    Arrays.sort(boxed, myTimeComparator);
+    for (int i = 0; i < indices.length; i++) {
+      indices[i] = boxed[i];
+    }
+  }
+
+  /**
+   * A commit is shown after all its children, otherwise newer commits go first
+   */
+  private int[] calculateDateOrder(BitSet reachable) {
+    final int[] children = countChildren(reachable);
+    final PriorityQueue<Integer> queue = new PriorityQueue<Integer>(Math.max(1, myHeads.length), myTimeComparator);
+    for (int index = reachable.nextSetBit(0); index >= 0; index = reachable.nextSetBit(index + 1)) {
+      if (children[index] == 0) {
+        queue.add(index);
+      }
+    }
+    final int[] order = new int[reachable.cardinality()];
+    int position = 0;
+    while (!queue.isEmpty()) {
+      final int index = queue.poll();
+      order[position++] = index;
+      for (int i = myParentsStart.get(index); i < myParentsStart.get(index + 1); i++) {
+        final int parent = myParents.get(i);
+        if (--children[parent] == 0) {
+          queue.add(parent);
+        }
+      }
+    }
+    return order;
+  }
+
+  private String getHash(int index) throws IOException {
+    return bytesToHash(getPage(index / PAGE_SIZE), (index % PAGE_SIZE) * RECORD_SIZE, HASH_SIZE * 2);
+  }
+
+  private String getShortHash(int index) throws IOException {
+    final byte[] page = getPage(index / PAGE_SIZE);
+    final int offset = (index % PAGE_SIZE) * RECORD_SIZE;
+    return bytesToHash(page, offset, page[offset + HASH_SIZE]);
+  }
+
+  private String getAuthor(int index) throws IOException {
+    final byte[] page = getPage(index / PAGE_SIZE);
+    final int offset = (index % PAGE_SIZE) * RECORD_SIZE + HASH_SIZE + 1;
+    final int id = ((page[offset] & 0xFF) << 24) | ((page[offset + 1] & 0xFF) << 16) | ((page[offset + 2] & 0xFF) << 8) |
+                   (page[offset + 3] & 0xFF);
+    return myAuthors.valueOf(id);
+  }
+
+  private byte[] getPage(int number) throws IOException {
+    byte[] page = myPages.get(number);
+    if (page == null) {
+      final int first = number * PAGE_SIZE;
+      page = new byte[Math.min(PAGE_SIZE, myCount - first) * RECORD_SIZE];
+      final RandomAccessFile file = new RandomAccessFile(myCommitsFile, "r");
+      try {
+        file.seek((long)first * RECORD_SIZE);
+        file.readFully(page);
+      }
+      finally {
+        file.close();
+      }
+      myPages.put(number, page);
+    }
+    return page;
+  }
+
+  private static byte[] hashToBytes(String hash) throws IOException {
+    if (hash.length() != HASH_SIZE * 2) {
+      throw new IOException("Unexpected hash: " + hash);
+    }
+    final byte[] bytes = new byte[HASH_SIZE];
+    for (int i = 0; i < HASH_SIZE; i++) {
+      final int high = Character.digit(hash.charAt(2 * i), 16);
+      final int low = Character.digit(hash.charAt(2 * i + 1), 16);
+      if (high < 0 || low < 0) {
+        throw new IOException("Unexpected hash: " + hash);
+      }
+      bytes[i] = (byte)((high << 4) | low);
+    }
+    return bytes;
+  }
+
+  private static String bytesToHash(byte[] bytes, int offset, int length) {
+    final char[] chars = new char[length];
+    for (int i = 0; i < length; i++) {
+      final int b = bytes[offset + i / 2];
+      chars[i] = Character.forDigit(i % 2 == 0 ? (b >> 4) & 0xF : b & 0xF, 16);
+    }
+    return new String(chars);
+  }
+
+  public void flush() {
+    synchronized (myLock) {
+      if (!myClosed) {
+        myHashIndex.force();
+        myAuthors.force();
+      }
+    }
+  }
+
+  public void close() {
+    synchronized (myLock) {
+      if (!myClosed) {
+        closeStorages();
+        myClosed = true;
+      }
+    }
+  }
+
+  private void closeStorages() {
+    try {
+      if (myHashIndex != null) {
+        myHashIndex.close();
+      }
+    }
+    catch (IOException e) {
+      LOG.info(e);
+    }
+    try {
+      if (myAuthors != null) {
+        myAuthors.close();
+      }
+    }
+    catch (IOException e) {
+      LOG.info(e);
+    }
+    myHashIndex = null;
+    myAuthors = null;
+  }
+
+  /**
+   * Source of heads and commits of a repository
+   */
+  interface CommitLoader {
+    @NotNull
+    List<String> loadHeads() throws VcsException;
+
+    /**
+     * Passes commits reachable from <code>heads</code> but not from <code>excluded</code> commits to the consumer, parents before children
+     */
+    void loadCommits(@NotNull List<String> heads, @NotNull Collection<String> excluded,
+                     @NotNull ThrowableConsumer<LogRecord, IOException> consumer) throws VcsException;
+  }
+
+  private static class GitCommitLoader implements CommitLoader {
+    private final Project myProject;
+    private final VirtualFile myRoot;
+
+    private GitCommitLoader(@NotNull Project project, @NotNull VirtualFile root) {
+      myProject = project;
+      myRoot = root;
+    }
+
+    @NotNull
+    @Override
+    public List<String> loadHeads() throws VcsException {
+      return GitHistoryUtils.headHashes(myProject, myRoot);
+    }
+
+    @Override
+    public void loadCommits(@NotNull List<String> heads, @NotNull Collection<String> excluded,
+                            @NotNull ThrowableConsumer<LogRecord, IOException> consumer) throws VcsException {
+      final List<String> parameters = new ArrayList<String>();
+      parameters.add("--topo-order");
+      parameters.add("--reverse");
+      parameters.addAll(heads);
+      if (!excluded.isEmpty()) {
+        parameters.add("--not");
+        parameters.addAll(excluded);
+      }
+      GitHistoryUtils.loadCommitGraph(myProject, myRoot, consumer, ArrayUtil.toStringArray(parameters));
+    }
+  }
+
+  /**
+   * One commit as reported by git: full hashes of the commit and its parents, abbreviated hash, commit time in milliseconds
+   */
+  public static class LogRecord {
+    private final String myHash;
+    private final String myShortHash;
+    private final long myTime;
+    private final String myAuthor;
+    private final String[] myParents;
+
+    public LogRecord(@NotNull String hash, @NotNull String shortHash, long time, @NotNull String author, @NotNull String[] parents) {
+      myHash = hash;
+      myShortHash = shortHash;
+      myTime = time;
+      myAuthor = author;
+      myParents = parents;
+    }
+  }
+}
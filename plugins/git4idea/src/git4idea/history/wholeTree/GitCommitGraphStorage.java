@@ -0,0 +1,85 @@
+/*
+ * Copyright 2000-2012 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package git4idea.history.wholeTree;
+
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.application.PathManager;
+import com.intellij.openapi.components.ServiceManager;
+import com.intellij.openapi.vcs.VcsException;
+import com.intellij.openapi.vcs.changes.FilePathsHelper;
+import com.intellij.openapi.vfs.VirtualFile;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * !! application-level
+ *
+ * Keeps {@link GitCommitGraph commit graphs} of git roots in the system directory; a graph is opened when it is requested first time.
+ */
+public class GitCommitGraphStorage implements Disposable {
+  private final Object myLock = new Object();
+  private final File myDir;
+  private final Map<String, GitCommitGraph> myGraphs = new HashMap<String, GitCommitGraph>();
+
+  public GitCommitGraphStorage() {
+    final File vcsFile = new File(PathManager.getSystemPath(), "vcs");
+    myDir = new File(vcsFile, "git_graph");
+  }
+
+  public static GitCommitGraphStorage getInstance() {
+    return ServiceManager.getService(GitCommitGraphStorage.class);
+  }
+
+  @NotNull
+  public GitCommitGraph getGraph(@NotNull final VirtualFile root) throws VcsException {
+    final String key = FilePathsHelper.convertPath(root);
+    synchronized (myLock) {
+      GitCommitGraph graph = myGraphs.get(key);
+      if (graph == null) {
+        try {
+          graph = new GitCommitGraph(new File(myDir, root.getName() + "." + Integer.toHexString(key.hashCode())));
+        }
+        catch (IOException e) {
+          throw new VcsException(e);
+        }
+        myGraphs.put(key, graph);
+      }
+      return graph;
+    }
+  }
+
+  public void flush() {
+    synchronized (myLock) {
+      for (GitCommitGraph graph : myGraphs.values()) {
+        graph.flush();
+      }
+    }
+  }
+
+  @Override
+  public void dispose() {
+    synchronized (myLock) {
+      for (GitCommitGraph graph : myGraphs.values()) {
+        graph.close();
+      }
+      myGraphs.clear();
+    }
+  }
+}
@@ -12,6 +12,7 @@
  */
 package git4idea.history.wholeTree;
 
+import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.openapi.progress.ProcessCanceledException;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.util.Getter;
@@ -35,6 +36,7 @@ import java.util.*;
  * @author irengrig
  */
 public class LoaderAndRefresherImpl implements LoaderAndRefresher<CommitHashPlusParents> {
+  private static final Logger LOG = Logger.getInstance("#git4idea.history.wholeTree.LoaderAndRefresherImpl");
   private final static int ourFirstLoadCount = 15;
   private final static int ourPreload = (! parameterCheck(Integer.getInteger("git.log.preload.size"))) ? 100 : Integer.getInteger("git.log.preload.size");
 
@@ -60,6 +62,11 @@ public class LoaderAndRefresherImpl implements LoaderAndRefresher<CommitHashPlus
   @NotNull
   private volatile StepType myStepType;
   private final boolean myTopoOrder;
+  // the whole history without filters is taken from the persistent commit graph
+  private boolean myUseGraph;
+  private boolean myGraphRefreshed;
+  // position of the last passed commit in the graph order
+  private int myGraphPosition;
 
   private static boolean parameterCheck(final Integer i) {
     return i != null && i > 0;
@@ -84,6 +91,7 @@ public class LoaderAndRefresherImpl implements LoaderAndRefresher<CommitHashPlus
     myFilters = filters;
     myMediator = mediator;
     myStartingPoints = startingPoints;
+    myUseGraph = filters.isEmpty() && startingPoints.isEmpty();
     myDetailsCache = detailsCache;
     myStepType = StepType.CONTINUE;
     myProject = project;
@@ -283,6 +291,7 @@ public class LoaderAndRefresherImpl implements LoaderAndRefresher<CommitHashPlus
   }
 
   private void loadShort(final long continuation, int maxCount) {
+    if (myUseGraph && loadFromGraph(maxCount)) return;
     final Collection<ChangesFilter.Filter> filters = addContinuation(continuation);
     try {
       myLowLevelAccess.loadHashesWithParents(myStartingPoints, filters, myRepeatingLoadConsumer, myProgressAnalog, maxCount, myTopoOrder);
@@ -292,6 +301,38 @@ public class LoaderAndRefresherImpl implements LoaderAndRefresher<CommitHashPlus
     }
   }
 
+  /**
+   * @return false if the commit graph can't be used and commits should be loaded by git
+   */
+  private boolean loadFromGraph(final int maxCount) {
+    try {
+      final GitCommitGraph graph = GitCommitGraphStorage.getInstance().getGraph(myRootHolder.getRoot());
+      if (! myGraphRefreshed) {
+        graph.refresh(myProject, myRootHolder.getRoot());
+        myGraphRefreshed = true;
+      }
+      final CommitHashPlusParents last = myRepeatingLoadConsumer.getLast();
+      final List<CommitHashPlusParents> commits = graph.getCommits(myTopoOrder, myGraphPosition, maxCount);
+      if (last != null && (commits.isEmpty() || ! last.equals(commits.get(0)))) {
+        // some commits were loaded by git, so the position in the graph is unknown
+        myUseGraph = false;
+        return false;
+      }
+      for (CommitHashPlusParents commit : commits) {
+        myRepeatingLoadConsumer.consume(commit);
+      }
+      if (! commits.isEmpty()) {
+        myGraphPosition += commits.size() - 1;
+      }
+      return true;
+    }
+    catch (VcsException e) {
+      LOG.info(e);
+      myUseGraph = false;
+      return false;
+    }
+  }
+
   interface MyRootHolder {
     VirtualFile getRoot();
     CommitI decorateByRoot(final CommitI commitI);
@@ -17,14 +17,19 @@ package git4idea.status;
 
 import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.openapi.fileEditor.FileDocumentManager;
+import com.intellij.openapi.progress.ProcessCanceledException;
 import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.openapi.progress.impl.ProgressManagerImpl;
 import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.Ref;
 import com.intellij.openapi.util.io.FileUtil;
 import com.intellij.openapi.vcs.*;
 import com.intellij.openapi.vcs.changes.*;
 import com.intellij.openapi.vfs.LocalFileSystem;
 import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.util.PairProcessor;
+import com.intellij.util.concurrency.BoundedTaskExecutor;
 import com.intellij.util.containers.Convertor;
 import git4idea.GitContentRevision;
 import git4idea.GitRevisionNumber;
@@ -35,8 +40,10 @@ import git4idea.commands.Git;
 import git4idea.config.GitVersion;
 import git4idea.config.GitVersionSpecialty;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.ide.PooledThreadExecutor;
 
 import java.util.*;
+import java.util.concurrent.*;
 
 /**
  * Git repository change provider
@@ -44,6 +51,8 @@ import java.util.*;
 public class GitChangeProvider implements ChangeProvider {
 
   private static final Logger PROFILE_LOG = Logger.getInstance("#GitStatus");
+  private static final BoundedTaskExecutor ourRootsExecutor =
+    new BoundedTaskExecutor(new PooledThreadExecutor(), Math.max(2, Runtime.getRuntime().availableProcessors()));
 
   @NotNull private final Project myProject;
   @NotNull private final Git myGit;
@@ -79,24 +88,37 @@ public class GitChangeProvider implements ChangeProvider {
     try {
       final MyNonChangedHolder holder = new MyNonChangedHolder(myProject, dirtyScope.getDirtyFilesNoExpand(), addGate,
                                                                myFileDocumentManager, myVcsManager);
-      for (VirtualFile root : roots) {
-        debug("checking root: " + root.getPath());
-        GitChangesCollector collector = isNewGitChangeProviderAvailable()
-                                        ? GitNewChangesCollector.collect(myProject, myGit, myChangeListManager, myVcsManager,
-                                                                         vcs, dirtyScope, root)
-                                        : GitOldChangesCollector.collect(myProject, myChangeListManager, myVcsManager,
-                                                                         vcs, dirtyScope, root);
-        final Collection<Change> changes = collector.getChanges();
-        holder.changed(changes);
-        for (Change file : changes) {
-          debug("process change: " + ChangesUtil.getFilePath(file).getPath());
-          builder.processChange(file, GitVcs.getKey());
+      // roots are queried concurrently, but the builder is fed in one thread, root by root
+      final List<Future<GitChangesCollector>> collectors = new ArrayList<Future<GitChangesCollector>>(roots.size());
+      final boolean newProvider = isNewGitChangeProviderAvailable();
+      try {
+        for (final VirtualFile root : roots) {
+          collectors.add(submitUnderProgress(new Callable<GitChangesCollector>() {
+            @Override
+            public GitChangesCollector call() throws VcsException {
+              return collect(vcs, dirtyScope, root, newProvider);
+            }
+          }, progress));
+        }
+        for (Future<GitChangesCollector> future : collectors) {
+          GitChangesCollector collector = waitFor(future, progress);
+          final Collection<Change> changes = collector.getChanges();
+          holder.changed(changes);
+          for (Change file : changes) {
+            debug("process change: " + ChangesUtil.getFilePath(file).getPath());
+            builder.processChange(file, GitVcs.getKey());
+          }
+          for (VirtualFile f : collector.getUnversionedFiles()) {
+            builder.processUnversionedFile(f);
+            holder.unversioned(f);
+          }
+          holder.feedBuilder(builder);
         }
-        for (VirtualFile f : collector.getUnversionedFiles()) {
-          builder.processUnversionedFile(f);
-          holder.unversioned(f);
+      }
+      finally {
+        for (Future<GitChangesCollector> future : collectors) {
+          future.cancel(false);
         }
-        holder.feedBuilder(builder);
       }
     }
     catch (VcsException e) {
@@ -106,6 +128,69 @@ public class GitChangeProvider implements ChangeProvider {
     }
   }
 
+  private GitChangesCollector collect(GitVcs vcs, VcsDirtyScope dirtyScope, VirtualFile root, boolean newProvider) throws VcsException {
+    debug("checking root: " + root.getPath());
+    final long start = System.currentTimeMillis();
+    GitChangesCollector collector = newProvider
+                                    ? GitNewChangesCollector.collect(myProject, myGit, myChangeListManager, myVcsManager,
+                                                                     vcs, dirtyScope, root)
+                                    : GitOldChangesCollector.collect(myProject, myChangeListManager, myVcsManager,
+                                                                     vcs, dirtyScope, root);
+    debug("root " + root.getPath() + " checked in " + (System.currentTimeMillis() - start) + " ms");
+    return collector;
+  }
+
+  /**
+   * Runs the task on a pooled thread under the given progress indicator, so that the git commands started by the task are cancelled
+   * together with the refresh. The indicator isn't started or stopped there, it belongs to the caller.
+   */
+  @NotNull
+  static <T> Future<T> submitUnderProgress(@NotNull final Callable<T> task, @NotNull final ProgressIndicator progress) {
+    return ourRootsExecutor.submit(new Callable<T>() {
+      @Override
+      public T call() throws Exception {
+        final Ref<T> result = new Ref<T>();
+        final Ref<Exception> error = new Ref<Exception>();
+        ((ProgressManagerImpl)ProgressManager.getInstance()).executeProcessUnderProgress(new Runnable() {
+          @Override
+          public void run() {
+            try {
+              result.set(task.call());
+            }
+            catch (Exception e) {
+              error.set(e);
+            }
+          }
+        }, progress);
+        if (!error.isNull()) {
+          throw error.get();
+        }
+        return result.get();
+      }
+    });
+  }
+
+  private static GitChangesCollector waitFor(Future<GitChangesCollector> future, ProgressIndicator progress) throws VcsException {
+    while (true) {
+      progress.checkCanceled();
+      try {
+        return future.get(100, TimeUnit.MILLISECONDS);
+      }
+      catch (TimeoutException ignored) {
+      }
+      catch (InterruptedException e) {
+        throw new ProcessCanceledException(e);
+      }
+      catch (ExecutionException e) {
+        final Throwable cause = e.getCause();
+        if (cause instanceof VcsException) throw (VcsException)cause;
+        if (cause instanceof RuntimeException) throw (RuntimeException)cause;
+        if (cause instanceof Error) throw (Error)cause;
+        throw new VcsException(cause);
+      }
+    }
+  }
+
   public static void appendNestedVcsRootsToDirt(final VcsDirtyScope dirtyScope, GitVcs vcs, final ProjectLevelVcsManager vcsManager) {
     final Set<FilePath> recursivelyDirtyDirectories = dirtyScope.getRecursivelyDirtyDirectories();
     if (recursivelyDirtyDirectories.isEmpty()) {
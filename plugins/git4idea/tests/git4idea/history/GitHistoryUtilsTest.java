@@ -336,6 +336,53 @@ public class GitHistoryUtilsTest extends GitTest {
     }
   }
 
+  @Test
+  public void testHistoryContinuedFromIndex() throws Exception {
+    final List<VcsFileRevision> revisions = GitHistoryUtils.history(myProject, bfilePath);
+    assertEquals(GitHistoryUtils.history(myProject, bfilePath).size(), revisions.size());
+
+    editFileInCommand(myProject, bfile, "content after indexing");
+    final String hash = myRepo.addCommit("commit after indexing");
+    final List<VcsFileRevision> continued = GitHistoryUtils.history(myProject, bfilePath);
+    assertEquals(continued.size(), myRevisions.size() + 1);
+    assertEquals(((GitFileRevision)continued.get(0)).getHash(), hash);
+    for (int i = 1; i < continued.size(); i++) {
+      assertEqualRevisions((GitFileRevision)continued.get(i), myRevisions.get(i - 1));
+    }
+    assertEquals(GitFileHistoryIndex.getInstance().get(bfilePath).getHead(), hash);
+  }
+
+  @Test
+  public void testIndexedHistoryIsReloadedAfterReset() throws Exception {
+    GitHistoryUtils.history(myProject, bfilePath);
+
+    myRepo.run("reset", "--hard", "HEAD~1");
+    myRepo.refresh();
+    editFileInCommand(myProject, bfile, "content after reset");
+    final String hash = myRepo.addCommit("commit after reset");
+    final List<VcsFileRevision> reloaded = GitHistoryUtils.history(myProject, bfilePath);
+    assertEquals(reloaded.size(), myRevisions.size());
+    assertEquals(((GitFileRevision)reloaded.get(0)).getHash(), hash);
+    for (int i = 1; i < reloaded.size(); i++) {
+      assertEqualRevisions((GitFileRevision)reloaded.get(i), myRevisions.get(i));
+    }
+    assertEquals(GitFileHistoryIndex.getInstance().get(bfilePath).getHead(), hash);
+  }
+
+  @Test
+  public void testUnknownIndexedHeadIsDropped() throws Exception {
+    final String unknownHead = "0123456789012345678901234567890123456789";
+    GitFileHistoryIndex.getInstance().put(bfilePath, new GitFileHistoryIndex.IndexedHistory(unknownHead, true,
+                                                                                            Collections.<GitFileRevision>emptyList()));
+
+    final List<VcsFileRevision> revisions = GitHistoryUtils.history(myProject, bfilePath);
+    assertEquals(revisions.size(), myRevisions.size());
+    for (int i = 0; i < revisions.size(); i++) {
+      assertEqualRevisions((GitFileRevision)revisions.get(i), myRevisions.get(i));
+    }
+    assertEquals(GitFileHistoryIndex.getInstance().get(bfilePath).getHead(), myRepo.lastCommit());
+  }
+
   @Test
   public void testAppendableHistory() throws Exception {
     final List<GitFileRevision> revisions = new ArrayList<GitFileRevision>(3);
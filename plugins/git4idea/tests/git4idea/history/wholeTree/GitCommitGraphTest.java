@@ -0,0 +1,354 @@
+/*
+ * Copyright 2000-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package git4idea.history.wholeTree;
+
+import com.intellij.openapi.util.io.FileUtil;
+import com.intellij.openapi.util.text.StringUtil;
+import com.intellij.openapi.vcs.VcsException;
+import com.intellij.util.ThrowableConsumer;
+import com.intellij.util.containers.ContainerUtil;
+import junit.framework.TestCase;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.*;
+
+public class GitCommitGraphTest extends TestCase {
+  private File myDir;
+  private GitCommitGraph myGraph;
+  private TestRepository myRepository;
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    myDir = FileUtil.createTempDirectory("commit-graph", null);
+    myGraph = new GitCommitGraph(myDir);
+    myRepository = new TestRepository();
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    try {
+      myGraph.close();
+      FileUtil.delete(myDir);
+    }
+    finally {
+      super.tearDown();
+    }
+  }
+
+  public void testLinearHistory() throws VcsException {
+    myRepository.commit("a", 1);
+    myRepository.commit("b", 2, "a");
+    myRepository.commit("c", 3, "b");
+    myRepository.setHeads("c");
+    myGraph.refresh(myRepository);
+    assertCommits(true, "c", "b", "a");
+    assertCommits(false, "c", "b", "a");
+  }
+
+  /**
+   * master: a - b - d - m
+   *              \     /
+   * feature:      c - e
+   * Topological order keeps the merged branch together, date order interleaves the branches.
+   */
+  public void testMergeOrder() throws VcsException {
+    myRepository.commit("a", 1);
+    myRepository.commit("b", 2, "a");
+    myRepository.commit("c", 3, "b");
+    myRepository.commit("d", 4, "b");
+    myRepository.commit("e", 5, "c");
+    myRepository.commit("m", 6, "d", "e");
+    myRepository.setHeads("m");
+    myGraph.refresh(myRepository);
+    assertCommits(true, "m", "e", "c", "d", "b", "a");
+    assertCommits(false, "m", "e", "d", "c", "b", "a");
+  }
+
+  public void testTwoBranches() throws VcsException {
+    myRepository.commit("a", 1);
+    myRepository.commit("b", 2, "a");
+    myRepository.commit("c", 3, "a");
+    myRepository.commit("d", 4, "b");
+    myRepository.setHeads("c", "d");
+    myGraph.refresh(myRepository);
+    assertCommits(true, "d", "b", "c", "a");
+    assertCommits(false, "d", "c", "b", "a");
+  }
+
+  public void testChildIsShownBeforeParentEvenIfOlder() throws VcsException {
+    myRepository.commit("a", 1);
+    myRepository.commit("b", 5, "a");
+    // committed with a clock behind the parent's one
+    myRepository.commit("c", 3, "b");
+    myRepository.setHeads("c");
+    myGraph.refresh(myRepository);
+    assertCommits(true, "c", "b", "a");
+    assertCommits(false, "c", "b", "a");
+  }
+
+  public void testIncrementalRefresh() throws VcsException {
+    myRepository.commit("a", 1);
+    myRepository.commit("b", 2, "a");
+    myRepository.setHeads("b");
+    myGraph.refresh(myRepository);
+    assertCommits(true, "b", "a");
+
+    myRepository.commit("c", 3, "b");
+    myRepository.commit("d", 4, "a");
+    myRepository.setHeads("c", "d");
+    myGraph.refresh(myRepository);
+    assertEquals(Arrays.asList("c", "d"), myRepository.myRequestedHeads);
+    assertEquals(Arrays.asList("b"), myRepository.myRequestedExcluded);
+    assertEquals(Arrays.asList("c", "d"), myRepository.myLoaded);
+    assertCommits(false, "d", "c", "b", "a");
+
+    // nothing new
+    myRepository.myLoaded.clear();
+    myGraph.refresh(myRepository);
+    assertEmpty(myRepository.myLoaded);
+    assertCommits(false, "d", "c", "b", "a");
+
+    // a branch is deleted
+    myRepository.setHeads("c");
+    myGraph.refresh(myRepository);
+    assertEmpty(myRepository.myLoaded);
+    assertCommits(true, "c", "b", "a");
+  }
+
+  public void testDeletedAndCollectedHeadIsNotExcluded() throws VcsException {
+    myRepository.commit("a", 1);
+    myRepository.commit("b", 2, "a");
+    myRepository.commit("c", 3, "b");
+    myRepository.setHeads("b", "c");
+    myGraph.refresh(myRepository);
+
+    // the branch pointing to c is deleted and c is garbage collected, while master gets a new commit
+    myRepository.remove("c");
+    myRepository.commit("d", 4, "b");
+    myRepository.setHeads("d");
+    myGraph.refresh(myRepository);
+    assertEmpty(myRepository.myRequestedExcluded);
+    assertCommits(true, "d", "b", "a");
+
+    myRepository.commit("e", 5, "d");
+    myRepository.setHeads("e");
+    myGraph.refresh(myRepository);
+    assertEquals(Arrays.asList("d"), myRepository.myRequestedExcluded);
+    assertEquals(Arrays.asList("e"), myRepository.myLoaded);
+    assertCommits(true, "e", "d", "b", "a");
+  }
+
+  public void testReopen() throws Exception {
+    myRepository.commit("a", 1);
+    myRepository.commit("b", 2, "a");
+    myRepository.setHeads("b");
+    myGraph.refresh(myRepository);
+    reopen();
+    assertCommits(true, "b", "a");
+
+    myRepository.commit("c", 3, "b");
+    myRepository.setHeads("c");
+    myGraph.refresh(myRepository);
+    assertEquals(Arrays.asList("c"), myRepository.myLoaded);
+    assertCommits(true, "c", "b", "a");
+  }
+
+  public void testReopenAfterInterruptedUpdate() throws Exception {
+    myRepository.commit("a", 1);
+    myRepository.commit("b", 2, "a");
+    myRepository.setHeads("b");
+    myGraph.refresh(myRepository);
+    File state = new File(myDir, "state");
+    byte[] stateBefore = FileUtil.loadFileBytes(state);
+
+    myRepository.commit("c", 3, "b");
+    myRepository.commit("d", 4, "c");
+    myRepository.setHeads("d");
+    myGraph.refresh(myRepository);
+    myGraph.close();
+    // simulate a crash during the second update: the state is the one written by the first update and the update marker is left
+    FileUtil.writeToFile(state, stateBefore);
+    FileUtil.writeToFile(new File(myDir, "updating"), "");
+    myGraph = new GitCommitGraph(myDir);
+    assertCommits(true, "b", "a");
+
+    // the repository was rewritten meanwhile: c is gone, so e gets the number c had before
+    myRepository = new TestRepository();
+    myRepository.commit("a", 1);
+    myRepository.commit("b", 2, "a");
+    myRepository.commit("e", 5, "b");
+    myRepository.commit("d", 4, "e");
+    myRepository.setHeads("d");
+    myGraph.refresh(myRepository);
+    // d was mapped to a number past the persisted count, it must have been forgotten and loaded again
+    assertEquals(Arrays.asList("e", "d"), myRepository.myLoaded);
+    assertCommits(true, "d", "e", "b", "a");
+  }
+
+  public void testTruncatedFilesAreCutOff() throws Exception {
+    myRepository.commit("a", 1);
+    myRepository.setHeads("a");
+    myGraph.refresh(myRepository);
+    myGraph.close();
+    // garbage appended by an interrupted update
+    appendGarbage(new File(myDir, "commits"));
+    appendGarbage(new File(myDir, "graph"));
+    myGraph = new GitCommitGraph(myDir);
+    assertCommits(true, "a");
+
+    myRepository.commit("b", 2, "a");
+    myRepository.setHeads("b");
+    myGraph.refresh(myRepository);
+    assertCommits(true, "b", "a");
+    reopen();
+    assertCommits(true, "b", "a");
+  }
+
+  private void reopen() throws IOException {
+    myGraph.close();
+    myGraph = new GitCommitGraph(myDir);
+  }
+
+  private static void appendGarbage(File file) throws IOException {
+    RandomAccessFile raf = new RandomAccessFile(file, "rw");
+    try {
+      raf.seek(raf.length());
+      raf.write(new byte[]{1, 2, 3, 4, 5, 6, 7});
+    }
+    finally {
+      raf.close();
+    }
+  }
+
+  private void assertCommits(boolean topoOrder, String... names) throws VcsException {
+    List<String> actual = new ArrayList<String>();
+    for (CommitHashPlusParents commit : myGraph.getCommits(topoOrder, 0, 100)) {
+      actual.add(myRepository.getName(commit.getHash()));
+    }
+    assertEquals(Arrays.asList(names), actual);
+  }
+
+  private static void assertEmpty(Collection<?> collection) {
+    assertTrue(collection.toString(), collection.isEmpty());
+  }
+
+  /**
+   * Commits are named by single words; hashes are derived from the names
+   */
+  private static class TestRepository implements GitCommitGraph.CommitLoader {
+    private final Map<String, GitCommitGraph.LogRecord> myCommits = new LinkedHashMap<String, GitCommitGraph.LogRecord>();
+    private final Map<String, String[]> myParents = new HashMap<String, String[]>();
+    private final Map<String, String> myNames = new HashMap<String, String>();
+    private List<String> myHeads = new ArrayList<String>();
+    private List<String> myRequestedHeads;
+    private List<String> myRequestedExcluded;
+    private final List<String> myLoaded = new ArrayList<String>();
+
+    public void commit(String name, long time, String... parents) {
+      String[] parentHashes = new String[parents.length];
+      for (int i = 0; i < parents.length; i++) {
+        parentHashes[i] = hash(parents[i]);
+      }
+      String hash = hash(name);
+      myNames.put(hash.substring(0, 7), name);
+      myParents.put(name, parents);
+      myCommits.put(name, new GitCommitGraph.LogRecord(hash, hash.substring(0, 7), time, "author", parentHashes));
+    }
+
+    public void remove(String name) {
+      myCommits.remove(name);
+      myParents.remove(name);
+    }
+
+    public void setHeads(String... names) {
+      myHeads = Arrays.asList(names);
+    }
+
+    public String getName(String shortHash) {
+      return myNames.get(shortHash);
+    }
+
+    @NotNull
+    @Override
+    public List<String> loadHeads() {
+      List<String> result = new ArrayList<String>();
+      for (String head : myHeads) {
+        result.add(hash(head));
+      }
+      return result;
+    }
+
+    @Override
+    public void loadCommits(@NotNull List<String> heads, @NotNull Collection<String> excluded,
+                            @NotNull ThrowableConsumer<GitCommitGraph.LogRecord, IOException> consumer) throws VcsException {
+      for (String hash : ContainerUtil.concat(heads, new ArrayList<String>(excluded))) {
+        if (!myCommits.containsKey(getName(hash.substring(0, 7)))) {
+          throw new VcsException("fatal: bad revision '" + hash + "'");
+        }
+      }
+      myRequestedHeads = toNames(heads);
+      myRequestedExcluded = toNames(excluded);
+      myLoaded.clear();
+      Set<String> hidden = new HashSet<String>();
+      for (String name : myRequestedExcluded) {
+        collectAncestors(name, hidden);
+      }
+      Set<String> shown = new HashSet<String>();
+      for (String name : myRequestedHeads) {
+        collectAncestors(name, shown);
+      }
+      try {
+        // commits are created parents first
+        for (String name : myCommits.keySet()) {
+          if (shown.contains(name) && !hidden.contains(name)) {
+            myLoaded.add(name);
+            consumer.consume(myCommits.get(name));
+          }
+        }
+      }
+      catch (IOException e) {
+        throw new VcsException(e);
+      }
+    }
+
+    private List<String> toNames(Collection<String> hashes) {
+      List<String> result = new ArrayList<String>();
+      for (String hash : hashes) {
+        result.add(getName(hash.substring(0, 7)));
+      }
+      return result;
+    }
+
+    private void collectAncestors(String name, Set<String> result) {
+      if (!result.add(name)) return;
+      for (String parent : myParents.get(name)) {
+        collectAncestors(parent, result);
+      }
+    }
+
+    private static String hash(String name) {
+      StringBuilder hex = new StringBuilder();
+      for (byte b : name.getBytes()) {
+        hex.append(Integer.toHexString(b & 0xFF));
+      }
+      return hex + StringUtil.repeat("0", 40 - hex.length());
+    }
+  }
+}
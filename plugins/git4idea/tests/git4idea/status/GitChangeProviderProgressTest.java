@@ -0,0 +1,83 @@
+/*
+ * Copyright 2000-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package git4idea.status;
+
+import com.intellij.openapi.progress.EmptyProgressIndicator;
+import com.intellij.openapi.progress.ProcessCanceledException;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.testFramework.LightPlatformTestCase;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+public class GitChangeProviderProgressTest extends LightPlatformTestCase {
+  public void testCollectorRunsUnderCallerProgress() throws Exception {
+    final ProgressIndicator progress = new EmptyProgressIndicator();
+    progress.start();
+    Future<ProgressIndicator> future = GitChangeProvider.submitUnderProgress(new Callable<ProgressIndicator>() {
+      @Override
+      public ProgressIndicator call() {
+        return ProgressManager.getInstance().getProgressIndicator();
+      }
+    }, progress);
+    assertSame(progress, future.get(10, TimeUnit.SECONDS));
+    assertTrue("the caller's indicator shouldn't be stopped by a collector", progress.isRunning());
+  }
+
+  public void testCollectorIsCancelledWithCaller() throws Exception {
+    final ProgressIndicator progress = new EmptyProgressIndicator();
+    final CountDownLatch started = new CountDownLatch(1);
+    Future<Object> future = GitChangeProvider.submitUnderProgress(new Callable<Object>() {
+      @Override
+      public Object call() throws Exception {
+        started.countDown();
+        while (true) {
+          ProgressManager.getInstance().getProgressIndicator().checkCanceled();
+          Thread.sleep(10);
+        }
+      }
+    }, progress);
+    assertTrue(started.await(10, TimeUnit.SECONDS));
+    progress.cancel();
+    try {
+      future.get(10, TimeUnit.SECONDS);
+      fail("the collector should have been cancelled");
+    }
+    catch (ExecutionException e) {
+      assertInstanceOf(e.getCause(), ProcessCanceledException.class);
+    }
+  }
+
+  public void testCollectorExceptionIsPassedToCaller() throws Exception {
+    Future<Object> future = GitChangeProvider.submitUnderProgress(new Callable<Object>() {
+      @Override
+      public Object call() throws Exception {
+        throw new IllegalStateException("collector failed");
+      }
+    }, new EmptyProgressIndicator());
+    try {
+      future.get(10, TimeUnit.SECONDS);
+      fail("the exception should have been thrown");
+    }
+    catch (ExecutionException e) {
+      assertInstanceOf(e.getCause(), IllegalStateException.class);
+    }
+  }
+}